@@ -57,6 +57,7 @@ import org.eclipse.gef.graph.Graph;
 import org.eclipse.gef.graph.Node;
 import org.eclipse.gef.layout.ILayoutAlgorithm;
 import org.eclipse.gef.layout.algorithms.GridLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.MultilevelLayoutAlgorithm;
 import org.eclipse.gef.layout.algorithms.RadialLayoutAlgorithm;
 import org.eclipse.gef.layout.algorithms.SpringLayoutAlgorithm;
 import org.eclipse.gef.layout.algorithms.TreeLayoutAlgorithm;
@@ -680,9 +681,10 @@ public class Dot2ZestAttributesConverter implements IAttributeCopier {
 					|| Layout.NEATO.toString().equals(dotLayout)
 					|| Layout.TWOPI.toString().equals(dotLayout)) {
 				algo = new RadialLayoutAlgorithm();
-			} else if (Layout.FDP.toString().equals(dotLayout)
-					|| Layout.SFDP.toString().equals(dotLayout)) {
+			} else if (Layout.FDP.toString().equals(dotLayout)) {
 				algo = new SpringLayoutAlgorithm();
+			} else if (Layout.SFDP.toString().equals(dotLayout)) {
+				algo = new MultilevelLayoutAlgorithm();
 			} else if (Layout.OSAGE.toString().equals(dotLayout)) {
 				algo = new GridLayoutAlgorithm();
 			} else {
@@ -18,7 +18,9 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({ ConnectionTests.class, GeometryNodeTests.class, GeometryConversionTests.class,
-		OrthogonalProjectionStrategyTests.class, NodeUtilsTests.class, FXCanvasExTests.class})
+		OrthogonalProjectionStrategyTests.class, ProjectionStrategyTests.class, NodeUtilsTests.class,
+		FXCanvasExTests.class, ObstacleAvoidingOrthogonalRouterTests.class,
+		EdgeBundlingInterpolatorTests.class })
 public class AllTests {
 
 }
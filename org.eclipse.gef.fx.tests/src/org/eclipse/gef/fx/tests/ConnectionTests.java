@@ -13,9 +13,13 @@
 package org.eclipse.gef.fx.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.gef.fx.anchors.IAnchor;
 import org.eclipse.gef.fx.anchors.StaticAnchor;
@@ -25,8 +29,38 @@ import org.eclipse.gef.geometry.planar.ICurve;
 import org.eclipse.gef.geometry.planar.Point;
 import org.junit.Test;
 
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+
 public class ConnectionTests {
 
+	/**
+	 * Executes the given {@link Runnable} on the JavaFX application thread
+	 * (after initializing the JavaFX toolkit), and waits for its completion.
+	 * Connections that are part of a scene schedule their refreshes only when
+	 * they are changed on the JavaFX application thread.
+	 */
+	static void runOnFXApplicationThread(final Runnable runnable) throws Throwable {
+		new JFXPanel();
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<Throwable> throwable = new AtomicReference<>();
+		Platform.runLater(() -> {
+			try {
+				runnable.run();
+			} catch (Throwable t) {
+				throwable.set(t);
+			} finally {
+				latch.countDown();
+			}
+		});
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		if (throwable.get() != null) {
+			throw throwable.get();
+		}
+	}
+
 	@Test
 	public void controlPoints() throws IllegalArgumentException, IllegalAccessException {
 		Connection connection = new Connection();
@@ -96,6 +130,33 @@ public class ConnectionTests {
 		assertEquals(2, connection.getControlPoints().size());
 	}
 
+	@Test
+	public void deferredRefresh() throws Throwable {
+		runOnFXApplicationThread(() -> {
+			Connection connection = new Connection();
+			new Scene(new Group(connection), 400, 400);
+			connection.setStartPoint(new Point(0, 0));
+			connection.setEndPoint(new Point(100, 0));
+			assertEquals(100, connection.getCurve().getBoundsInParent().getMaxX(), 5);
+
+			// the refresh is deferred until the curve is queried
+			connection.setEndPoint(new Point(200, 0));
+			assertEquals(100, connection.curveProperty().get().getBoundsInParent().getMaxX(), 5);
+			assertEquals(200, connection.getCurve().getBoundsInParent().getMaxX(), 5);
+
+			// or until the preferred size is computed
+			connection.setEndPoint(new Point(300, 0));
+			assertEquals(200, connection.getLayoutBounds().getMaxX(), 5);
+			assertEquals(300, connection.prefWidth(-1), 5);
+			assertEquals(300, connection.getLayoutBounds().getMaxX(), 5);
+
+			// or until the points are queried
+			connection.setEndPoint(new Point(400, 0));
+			assertEquals(new Point(400, 0), connection.getEndPoint());
+			assertEquals(400, connection.curveProperty().get().getBoundsInParent().getMaxX(), 5);
+		});
+	}
+
 	@Test
 	public void exchangeCurve() {
 		// setup connection with start, control, end points
@@ -128,6 +189,27 @@ public class ConnectionTests {
 		assertEquals(newEndPoint, connection.getEndPoint());
 	}
 
+	@Test
+	public void synchronousRefresh() throws Throwable {
+		runOnFXApplicationThread(() -> {
+			Connection.setSynchronousRefresh(true);
+			try {
+				Connection connection = new Connection();
+				new Scene(new Group(connection), 400, 400);
+				connection.setStartPoint(new Point(0, 0));
+				connection.setEndPoint(new Point(100, 0));
+				assertEquals(100, connection.curveProperty().get().getBoundsInParent().getMaxX(), 5);
+				assertEquals(100, connection.getLayoutBounds().getMaxX(), 5);
+
+				connection.setEndPoint(new Point(200, 0));
+				assertEquals(200, connection.curveProperty().get().getBoundsInParent().getMaxX(), 5);
+				assertEquals(200, connection.getLayoutBounds().getMaxX(), 5);
+			} finally {
+				Connection.setSynchronousRefresh(false);
+			}
+		});
+	}
+
 	@Test
 	public void pointConversions() {
 		Point startPoint = new Point(123, 456);
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.fx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.gef.fx.nodes.Connection;
+import org.eclipse.gef.fx.nodes.EdgeBundlingInterpolator;
+import org.eclipse.gef.fx.nodes.GeometryNode;
+import org.eclipse.gef.geometry.planar.Point;
+import org.junit.Test;
+
+import javafx.scene.Group;
+import javafx.scene.Scene;
+
+public class EdgeBundlingInterpolatorTests {
+
+	/**
+	 * Provides access to the bundling computation, records whether it is
+	 * performed on the JavaFX application thread, and signals when its result
+	 * was applied.
+	 */
+	private static class TestInterpolator extends EdgeBundlingInterpolator {
+
+		private final AtomicBoolean computedOnFXApplicationThread = new AtomicBoolean();
+		private final Semaphore applied = new Semaphore(0);
+
+		@Override
+		protected void applyBundledPoints(List<Connection> bundled, List<List<Point>> bundledPoints) {
+			try {
+				super.applyBundledPoints(bundled, bundledPoints);
+			} finally {
+				applied.release();
+			}
+		}
+
+		@Override
+		public List<List<Point>> computeBundling(List<Point> starts, List<Point> ends) {
+			computedOnFXApplicationThread.set(javafx.application.Platform.isFxApplicationThread());
+			return super.computeBundling(starts, ends);
+		}
+	}
+
+	private static void assertFinite(List<Point> points) {
+		for (Point p : points) {
+			assertFalse(p + " is not finite", Double.isNaN(p.x) || Double.isInfinite(p.x));
+			assertFalse(p + " is not finite", Double.isNaN(p.y) || Double.isInfinite(p.y));
+		}
+	}
+
+	private static double getCurveHeight(Connection connection) {
+		return ((GeometryNode<?>) connection.getCurve()).getGeometry().getBounds().getHeight();
+	}
+
+	/**
+	 * Polls the height of the curve of the given connection on the JavaFX
+	 * application thread until it is bundled, i.e. has a positive height.
+	 */
+	private static void waitForCurveHeight(final Connection connection) throws Throwable {
+		final double[] height = new double[1];
+		long timeout = System.currentTimeMillis() + 10000;
+		while (height[0] <= 0) {
+			assertTrue("connection is not bundled", System.currentTimeMillis() < timeout);
+			Thread.sleep(10);
+			ConnectionTests.runOnFXApplicationThread(() -> {
+				height[0] = getCurveHeight(connection);
+			});
+		}
+	}
+
+	@Test
+	public void bundleCompatibleConnections() {
+		// two parallel connections attract each other
+		List<List<Point>> bundled = new TestInterpolator().computeBundling(
+				Arrays.asList(new Point(0, 0), new Point(0, 100)), Arrays.asList(new Point(600, 0), new Point(600, 100)));
+		assertEquals(2, bundled.size());
+		for (List<Point> points : bundled) {
+			assertFinite(points);
+		}
+		// start and end points are kept
+		assertEquals(new Point(0, 0), bundled.get(0).get(0));
+		assertEquals(new Point(600, 100), bundled.get(1).get(bundled.get(1).size() - 1));
+		// the middle way points approach each other
+		int middle = bundled.get(0).size() / 2;
+		assertTrue(bundled.get(0).get(middle).getDistance(bundled.get(1).get(middle)) < 100);
+	}
+
+	@Test
+	public void bundleOffApplicationThread() throws Throwable {
+		final TestInterpolator interpolator = new TestInterpolator();
+		final Connection first = new Connection();
+		final Connection second = new Connection();
+		ConnectionTests.runOnFXApplicationThread(() -> {
+			new Scene(new Group(first, second));
+			first.setInterpolator(interpolator);
+			first.setStartPoint(new Point(0, 0));
+			first.setEndPoint(new Point(600, 0));
+			second.setInterpolator(interpolator);
+			second.setStartPoint(new Point(0, 100));
+			second.setEndPoint(new Point(600, 100));
+			interpolator.applyBundling();
+			// the connections are not bundled before the bundling is applied
+			assertEquals(0, getCurveHeight(first), 0);
+		});
+		assertTrue(interpolator.applied.tryAcquire(10, TimeUnit.SECONDS));
+		assertFalse(interpolator.computedOnFXApplicationThread.get());
+
+		// the bundled connections are refreshed within the next pulse
+		waitForCurveHeight(first);
+
+		// connections whose bundled way points did not change are not
+		// refreshed by another bundling pass
+		final Object[] geometry = new Object[1];
+		ConnectionTests.runOnFXApplicationThread(() -> {
+			geometry[0] = ((GeometryNode<?>) first.getCurve()).getGeometry();
+			interpolator.applyBundling();
+		});
+		assertTrue(interpolator.applied.tryAcquire(10, TimeUnit.SECONDS));
+		ConnectionTests.runOnFXApplicationThread(() -> {
+			assertSame(geometry[0], ((GeometryNode<?>) first.getCurve()).getGeometry());
+		});
+	}
+
+	@Test
+	public void zeroLengthConnection() {
+		// a connection whose start and end point coincide is not bundled, and
+		// does not affect the other connections
+		List<Point> starts = Arrays.asList(new Point(0, 0), new Point(0, 100), new Point(300, 50));
+		List<Point> ends = Arrays.asList(new Point(600, 0), new Point(600, 100), new Point(300, 50));
+		List<List<Point>> bundled = new TestInterpolator().computeBundling(starts, ends);
+		assertEquals(3, bundled.size());
+		for (Point p : bundled.get(2)) {
+			assertEquals(new Point(300, 50), p);
+		}
+		List<List<Point>> withoutZeroLength = new TestInterpolator().computeBundling(starts.subList(0, 2),
+				ends.subList(0, 2));
+		assertEquals(withoutZeroLength.get(0), bundled.get(0));
+		assertEquals(withoutZeroLength.get(1), bundled.get(1));
+	}
+}
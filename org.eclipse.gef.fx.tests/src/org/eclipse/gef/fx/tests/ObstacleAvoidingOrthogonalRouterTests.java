@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.fx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gef.fx.nodes.Connection;
+import org.eclipse.gef.fx.nodes.ObstacleAvoidingOrthogonalRouter;
+import org.eclipse.gef.geometry.convert.fx.FX2Geometry;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.junit.Test;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Group;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+public class ObstacleAvoidingOrthogonalRouterTests {
+
+	/**
+	 * Provides access to the route computation and to the obstacle index, and
+	 * records the size of the largest batch of routed connections as well as
+	 * the individually routed connections.
+	 */
+	private static class TestRouter extends ObstacleAvoidingOrthogonalRouter {
+
+		private int maxBatchSize = 0;
+		private List<Connection> routed = new ArrayList<>();
+
+		@Override
+		public List<Point> computeRoute(Point start, Rectangle startBounds, Point end, Rectangle endBounds,
+				List<Rectangle> obstacles) {
+			return super.computeRoute(start, startBounds, end, endBounds, obstacles);
+		}
+
+		public Object getIndex(Parent layer) {
+			return layer.getProperties().get(ObstacleIndex.class);
+		}
+
+		public int getIndexedObstacleCount(Object index, Rectangle region) {
+			return ((ObstacleIndex) index).getObstacles(region).size();
+		}
+
+		@Override
+		public void route(Connection connection) {
+			routed.add(connection);
+			super.route(connection);
+		}
+
+		@Override
+		public void route(List<Connection> connections) {
+			maxBatchSize = Math.max(maxBatchSize, connections.size());
+			super.route(connections);
+		}
+	}
+
+	private static final Rectangle START_BOUNDS = new Rectangle(0, 0, 50, 50);
+	private static final Rectangle END_BOUNDS = new Rectangle(300, 0, 50, 50);
+
+	private static void assertAvoids(List<Point> route, Rectangle obstacle) {
+		for (int i = 0; i < route.size() - 1; i++) {
+			Point p = route.get(i);
+			Point q = route.get(i + 1);
+			assertTrue("segment " + i + " is not orthogonal", p.x == q.x || p.y == q.y);
+			assertFalse("segment " + i + " crosses " + obstacle,
+					Math.max(p.x, q.x) > obstacle.getX() && Math.min(p.x, q.x) < obstacle.getX() + obstacle.getWidth()
+							&& Math.max(p.y, q.y) > obstacle.getY()
+							&& Math.min(p.y, q.y) < obstacle.getY() + obstacle.getHeight());
+		}
+	}
+
+	private static Rectangle getBounds(javafx.scene.Node node) {
+		return FX2Geometry.toRectangle(node.getBoundsInParent());
+	}
+
+	/**
+	 * Creates a layer with a grid of obstacles, and adds connections that cross
+	 * the grid horizontally and vertically.
+	 */
+	private static List<Connection> populateLayer(Group layer) {
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				javafx.scene.shape.Rectangle obstacle = new javafx.scene.shape.Rectangle(50, 50);
+				obstacle.relocate(100 + i * 150, 100 + j * 150);
+				layer.getChildren().add(obstacle);
+			}
+		}
+		List<Connection> connections = new ArrayList<>();
+		for (double c : new double[] { 125, 140, 250, 290, 425 }) {
+			Connection horizontal = new Connection();
+			horizontal.setStartPoint(new Point(0, c));
+			horizontal.setEndPoint(new Point(600, c + 10));
+			connections.add(horizontal);
+			Connection vertical = new Connection();
+			vertical.setStartPoint(new Point(c, 0));
+			vertical.setEndPoint(new Point(c - 10, 600));
+			connections.add(vertical);
+		}
+		layer.getChildren().addAll(connections);
+		return connections;
+	}
+
+	private static void waitForPulses(int count) throws Throwable {
+		final CountDownLatch latch = new CountDownLatch(count);
+		final AnimationTimer timer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				latch.countDown();
+				if (latch.getCount() == 0) {
+					stop();
+				}
+			}
+		};
+		ConnectionTests.runOnFXApplicationThread(() -> {
+			timer.start();
+		});
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void batchRoutingEqualsIndividualRouting() throws Throwable {
+		// the connections of the first layer share a router, so that they are
+		// routed together (concurrently), while each connection of the second
+		// layer uses its own router
+		final TestRouter batchRouter = new TestRouter();
+		batchRouter.setParallelism(4);
+		final Group batchLayer = new Group();
+		final Group individualLayer = new Group();
+		final List<Connection> batchConnections = new ArrayList<>();
+		final List<Connection> individualConnections = new ArrayList<>();
+		ConnectionTests.runOnFXApplicationThread(() -> {
+			new Scene(new Group(batchLayer, individualLayer));
+			batchConnections.addAll(populateLayer(batchLayer));
+			individualConnections.addAll(populateLayer(individualLayer));
+			for (int i = 0; i < batchConnections.size(); i++) {
+				batchConnections.get(i).setRouter(batchRouter);
+				individualConnections.get(i).setRouter(new ObstacleAvoidingOrthogonalRouter());
+			}
+		});
+		// the refreshes are performed within the next pulse
+		waitForPulses(2);
+
+		assertEquals(batchConnections.size(), batchRouter.maxBatchSize);
+		ConnectionTests.runOnFXApplicationThread(() -> {
+			for (int i = 0; i < batchConnections.size(); i++) {
+				assertEquals(individualConnections.get(i).getPointsUnmodifiable(),
+						batchConnections.get(i).getPointsUnmodifiable());
+			}
+		});
+	}
+
+	@Test
+	public void blockedStub() {
+		// a thin obstacle right next to the start anchorage, which does not
+		// contain the end of the first segment, but is crossed by it
+		Rectangle obstacle = new Rectangle(55, -50, 2, 150);
+		List<Point> route = new TestRouter().computeRoute(new Point(50, 25), START_BOUNDS, new Point(300, 25),
+				END_BOUNDS, Arrays.asList(obstacle, START_BOUNDS, END_BOUNDS));
+		assertNull(route);
+
+		// the same holds for the last segment
+		obstacle = new Rectangle(293, -50, 2, 150);
+		route = new TestRouter().computeRoute(new Point(50, 25), START_BOUNDS, new Point(300, 25), END_BOUNDS,
+				Arrays.asList(obstacle, START_BOUNDS, END_BOUNDS));
+		assertNull(route);
+	}
+
+	@Test
+	public void disposeIndexWhenLastConnectionIsRemoved() {
+		javafx.scene.shape.Rectangle obstacle = new javafx.scene.shape.Rectangle(0, 0, 50, 50);
+		obstacle.relocate(125, 200);
+		Connection connection = new Connection();
+		Group layer = new Group(obstacle, connection);
+		TestRouter router = new TestRouter();
+		connection.setRouter(router);
+		connection.setStartPoint(new Point(0, 25));
+		connection.setEndPoint(new Point(300, 25));
+
+		Object index = router.getIndex(layer);
+		assertNotNull(index);
+		assertEquals(1, router.getIndexedObstacleCount(index, new Rectangle(0, 0, 400, 400)));
+
+		// removing the connection disposes the index
+		layer.getChildren().remove(connection);
+		assertNull(router.getIndex(layer));
+		assertEquals(0, router.getIndexedObstacleCount(index, new Rectangle(0, 0, 400, 400)));
+		// which does not observe the layer and its children any longer
+		obstacle.relocate(125, 0);
+		javafx.scene.shape.Rectangle addedObstacle = new javafx.scene.shape.Rectangle(50, 50);
+		addedObstacle.relocate(200, 300);
+		layer.getChildren().add(addedObstacle);
+		assertEquals(0, router.getIndexedObstacleCount(index, new Rectangle(0, 0, 400, 400)));
+
+		// a new index is created when a connection is routed again
+		layer.getChildren().add(connection);
+		connection.setEndPoint(new Point(310, 25));
+		assertNotNull(router.getIndex(layer));
+		assertNotSame(index, router.getIndex(layer));
+		assertEquals(2, router.getIndexedObstacleCount(router.getIndex(layer), new Rectangle(0, 0, 400, 400)));
+		assertAvoids(connection.getPointsUnmodifiable(), getBounds(obstacle));
+	}
+
+	@Test
+	public void rerouteWhenObstacleMoves() {
+		javafx.scene.shape.Rectangle obstacle = new javafx.scene.shape.Rectangle(0, 0, 50, 50);
+		obstacle.relocate(125, 200);
+		Connection connection = new Connection();
+		Group layer = new Group(obstacle, connection);
+		connection.setRouter(new ObstacleAvoidingOrthogonalRouter());
+		connection.setStartPoint(new Point(0, 25));
+		connection.setEndPoint(new Point(300, 25));
+		assertEquals(2, connection.getPointsUnmodifiable().size());
+
+		// moving the obstacle onto the connection reroutes it
+		obstacle.relocate(125, 0);
+		assertTrue(connection.getPointsUnmodifiable().size() > 2);
+		assertAvoids(connection.getPointsUnmodifiable(), getBounds(obstacle));
+
+		// as does moving it away again
+		obstacle.relocate(125, 200);
+		assertEquals(2, connection.getPointsUnmodifiable().size());
+
+		// adding an obstacle onto the connection reroutes it as well
+		javafx.scene.shape.Rectangle addedObstacle = new javafx.scene.shape.Rectangle(0, 0, 50, 50);
+		addedObstacle.relocate(200, 0);
+		layer.getChildren().add(addedObstacle);
+		assertTrue(connection.getPointsUnmodifiable().size() > 2);
+		assertAvoids(connection.getPointsUnmodifiable(), getBounds(addedObstacle));
+
+		// as does removing it
+		layer.getChildren().remove(addedObstacle);
+		assertEquals(2, connection.getPointsUnmodifiable().size());
+	}
+
+	@Test
+	public void rerouteOnlyConnectionsNearObstacle() {
+		javafx.scene.shape.Rectangle obstacle = new javafx.scene.shape.Rectangle(0, 0, 50, 50);
+		obstacle.relocate(125, 200);
+		Connection near = new Connection();
+		Connection far = new Connection();
+		new Group(obstacle, near, far);
+		TestRouter router = new TestRouter();
+		near.setRouter(router);
+		near.setStartPoint(new Point(0, 25));
+		near.setEndPoint(new Point(300, 25));
+		far.setRouter(router);
+		far.setStartPoint(new Point(0, 1000));
+		far.setEndPoint(new Point(300, 1000));
+
+		// moving the obstacle only reroutes the connection near it
+		router.routed.clear();
+		obstacle.relocate(125, 0);
+		assertTrue(router.routed.contains(near));
+		assertFalse(router.routed.contains(far));
+		assertAvoids(near.getPointsUnmodifiable(), getBounds(obstacle));
+
+		// the index of the connections is updated when a connection moves
+		far.setStartPoint(new Point(0, 525));
+		far.setEndPoint(new Point(300, 525));
+		router.routed.clear();
+		obstacle.relocate(125, 500);
+		assertTrue(router.routed.contains(near));
+		assertTrue(router.routed.contains(far));
+		assertAvoids(far.getPointsUnmodifiable(), getBounds(obstacle));
+		assertEquals(2, near.getPointsUnmodifiable().size());
+	}
+
+	@Test
+	public void routeAroundObstacle() {
+		Rectangle obstacle = new Rectangle(150, 0, 50, 50);
+		Point start = new Point(50, 25);
+		Point end = new Point(300, 25);
+		List<Point> route = new TestRouter().computeRoute(start, START_BOUNDS, end, END_BOUNDS,
+				Arrays.asList(obstacle, START_BOUNDS, END_BOUNDS));
+		assertNotNull(route);
+		assertEquals(start, route.get(0));
+		assertEquals(end, route.get(route.size() - 1));
+		assertAvoids(route, obstacle);
+		// the anchorages are left orthogonally
+		assertEquals(start.y, route.get(1).y, 0);
+		assertEquals(end.y, route.get(route.size() - 2).y, 0);
+	}
+}
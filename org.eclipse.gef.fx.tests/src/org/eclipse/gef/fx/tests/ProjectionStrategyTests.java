@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.fx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.gef.fx.anchors.DynamicAnchor.AnchorageReferenceGeometry;
+import org.eclipse.gef.fx.anchors.DynamicAnchor.AnchoredReferencePoint;
+import org.eclipse.gef.fx.anchors.IComputationStrategy.Parameter;
+import org.eclipse.gef.fx.anchors.ProjectionStrategy;
+import org.eclipse.gef.geometry.planar.ICurve;
+import org.eclipse.gef.geometry.planar.IGeometry;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.junit.Before;
+import org.junit.Test;
+
+import javafx.scene.Group;
+
+public class ProjectionStrategyTests {
+
+	/**
+	 * A {@link ProjectionStrategy} that records the outline computations and
+	 * the outlines it returns.
+	 */
+	private static class RecordingProjectionStrategy extends ProjectionStrategy {
+		private int outlineComputations = 0;
+		private List<ICurve> lastOutlinesInScene;
+
+		@Override
+		protected List<ICurve> getAnchorageOutlinesInScene(javafx.scene.Node anchorage,
+				IGeometry anchorageReferenceGeometryInLocal) {
+			lastOutlinesInScene = super.getAnchorageOutlinesInScene(anchorage, anchorageReferenceGeometryInLocal);
+			return lastOutlinesInScene;
+		}
+
+		@Override
+		protected List<ICurve> getOutlineSegments(IGeometry geometry) {
+			outlineComputations++;
+			return super.getOutlineSegments(geometry);
+		}
+	}
+
+	private RecordingProjectionStrategy strategy;
+	private javafx.scene.shape.Rectangle anchorage;
+	private javafx.scene.shape.Rectangle firstAnchored;
+	private javafx.scene.shape.Rectangle secondAnchored;
+	private IGeometry referenceGeometry;
+
+	private Point computePosition(javafx.scene.shape.Rectangle anchored, Point anchoredReferencePoint) {
+		Set<Parameter<?>> parameters = new HashSet<>();
+		parameters.add(new AnchorageReferenceGeometry(referenceGeometry));
+		parameters.add(new AnchoredReferencePoint(anchoredReferencePoint));
+		return strategy.computePositionInScene(anchorage, anchored, parameters);
+	}
+
+	@Before
+	public void setUp() {
+		strategy = new RecordingProjectionStrategy();
+		anchorage = new javafx.scene.shape.Rectangle(0, 0, 50, 50);
+		firstAnchored = new javafx.scene.shape.Rectangle(100, 0, 50, 50);
+		secondAnchored = new javafx.scene.shape.Rectangle(0, 100, 50, 50);
+		new Group(anchorage, firstAnchored, secondAnchored);
+		referenceGeometry = new Rectangle(0, 0, 50, 50);
+	}
+
+	@Test
+	public void outlinesInvalidatedByReferenceGeometryChange() {
+		assertEquals(new Point(50, 25), computePosition(firstAnchored, new Point(125, 25)));
+		List<ICurve> outlines = strategy.lastOutlinesInScene;
+		assertEquals(1, strategy.outlineComputations);
+
+		// a different geometry instance invalidates the cache, as the previous
+		// geometry may not be changed in-place
+		referenceGeometry = new Rectangle(0, 0, 80, 50);
+		assertEquals(new Point(80, 25), computePosition(firstAnchored, new Point(125, 25)));
+		assertEquals(2, strategy.outlineComputations);
+		assertNotSame(outlines, strategy.lastOutlinesInScene);
+
+		// the new outlines are reused for the other anchored
+		outlines = strategy.lastOutlinesInScene;
+		assertEquals(new Point(25, 50), computePosition(secondAnchored, new Point(25, 125)));
+		assertEquals(2, strategy.outlineComputations);
+		assertSame(outlines, strategy.lastOutlinesInScene);
+	}
+
+	@Test
+	public void outlinesInvalidatedByTransformChange() {
+		assertEquals(new Point(50, 25), computePosition(firstAnchored, new Point(125, 25)));
+		List<ICurve> outlines = strategy.lastOutlinesInScene;
+		assertEquals(1, strategy.outlineComputations);
+
+		// moving the anchorage changes its local-to-scene transform
+		anchorage.setTranslateX(20);
+		assertEquals(new Point(70, 25), computePosition(firstAnchored, new Point(125, 25)));
+		assertEquals(2, strategy.outlineComputations);
+		assertNotSame(outlines, strategy.lastOutlinesInScene);
+
+		// moving the parent of the anchorage changes it as well (the anchored
+		// is moved along, so that its reference point moves, too)
+		outlines = strategy.lastOutlinesInScene;
+		anchorage.getParent().setTranslateY(10);
+		assertEquals(new Point(70, 35), computePosition(firstAnchored, new Point(125, 25)));
+		assertEquals(new Rectangle(20, 10, 50, 50), strategy.lastOutlinesInScene.get(0).getBounds());
+		assertEquals(3, strategy.outlineComputations);
+		assertNotSame(outlines, strategy.lastOutlinesInScene);
+	}
+
+	@Test
+	public void outlinesReusedAcrossAnchoreds() {
+		assertEquals(new Point(50, 25), computePosition(firstAnchored, new Point(125, 25)));
+		List<ICurve> outlines = strategy.lastOutlinesInScene;
+
+		// positions for other anchoreds (or other reference points) are
+		// computed from the cached outlines
+		assertEquals(new Point(25, 50), computePosition(secondAnchored, new Point(25, 125)));
+		assertEquals(new Point(50, 40), computePosition(firstAnchored, new Point(125, 40)));
+		assertEquals(1, strategy.outlineComputations);
+		assertSame(outlines, strategy.lastOutlinesInScene);
+	}
+}
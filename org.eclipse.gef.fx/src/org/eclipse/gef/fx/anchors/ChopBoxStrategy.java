@@ -24,6 +24,7 @@ import org.eclipse.gef.geometry.planar.IShape;
 import org.eclipse.gef.geometry.planar.Line;
 import org.eclipse.gef.geometry.planar.Path;
 import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
 
 import javafx.geometry.Point2D;
 import javafx.scene.Node;
@@ -135,17 +136,25 @@ public class ChopBoxStrategy extends ProjectionStrategy {
 					parameters);
 		}
 
-		IGeometry anchorageGeometryInScene = NodeUtils.localToScene(anchorage,
-				anchorageReferenceGeometryInLocal);
-		List<ICurve> anchorageOutlinesInScene = getOutlineSegments(
-				anchorageGeometryInScene);
+		List<ICurve> anchorageOutlinesInScene = getAnchorageOutlinesInScene(
+				anchorage, anchorageReferenceGeometryInLocal);
 
 		Line referenceLineInScene = new Line(anchorageReferencePointInScene,
 				anchoredReferencePointInScene);
+		Rectangle referenceLineBoundsInScene = referenceLineInScene
+				.getBounds();
 
 		Point nearestProjectionInScene = null;
 		double nearestDistance = 0d;
-		for (ICurve anchorageOutlineInScene : anchorageOutlinesInScene) {
+		for (int i = 0; i < anchorageOutlinesInScene.size(); i++) {
+			// skip outlines that can neither contain the reference point nor
+			// intersect the reference line
+			Rectangle bounds = getOutlineBoundsInScene(anchorageOutlinesInScene,
+					i);
+			if (bounds != null && !bounds.touches(referenceLineBoundsInScene)) {
+				continue;
+			}
+			ICurve anchorageOutlineInScene = anchorageOutlinesInScene.get(i);
 			// if the reference point is already on the outline, we may
 			// directly use it
 			if (anchorageOutlineInScene
@@ -25,8 +25,10 @@ import org.eclipse.gef.geometry.planar.IGeometry;
 import org.eclipse.gef.geometry.planar.IShape;
 import org.eclipse.gef.geometry.planar.Path;
 import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
 
 import javafx.scene.Node;
+import javafx.scene.transform.Affine;
 
 /**
  * An {@link IComputationStrategy} that computes anchor position by projecting
@@ -43,12 +45,26 @@ import javafx.scene.Node;
  * outlines.</li>
  * <li>Return the nearest projection to the anchored reference point.</li>
  * </ol>
+ * <p>
+ * The anchorage outlines (in scene) are cached together with their bounds, so
+ * that they are only recomputed when the anchorage reference geometry or the
+ * local-to-scene transform of the anchorage changes. As a
+ * {@link DynamicAnchor} uses its strategy for all attached anchor keys, the
+ * connections that are attached to the same anchorage share the outlines.
  *
  * @author anyssen
  * @author mwienand
  */
 public class ProjectionStrategy implements IComputationStrategy {
 
+	// cached anchorage outlines (in scene) and the values they were computed
+	// from
+	private Node cachedAnchorage;
+	private IGeometry cachedAnchorageGeometryInLocal;
+	private Affine cachedAnchorageLocalToSceneTransform;
+	private List<ICurve> cachedAnchorageOutlinesInScene;
+	private Rectangle[] cachedAnchorageOutlineBoundsInScene;
+
 	@Override
 	public Point computePositionInScene(Node anchorage, Node anchored,
 			Set<Parameter<?>> parameters) {
@@ -58,13 +74,9 @@ public class ProjectionStrategy implements IComputationStrategy {
 		Point anchoredReferencePointInLocal = Parameter
 				.get(parameters, AnchoredReferencePoint.class).get();
 
-		// determine anchorage geometry in scene
-		IGeometry anchorageGeometryInScene = NodeUtils.localToScene(anchorage,
-				anchorageReferenceGeometryInLocal);
-
 		// determine anchorage outlines in scene
-		List<ICurve> anchorageOutlinesInScene = getOutlineSegments(
-				anchorageGeometryInScene);
+		List<ICurve> anchorageOutlinesInScene = getAnchorageOutlinesInScene(
+				anchorage, anchorageReferenceGeometryInLocal);
 
 		// transform anchored reference point to scene
 		Point anchoredReferencePointInScene = NodeUtils.localToScene(anchored,
@@ -93,12 +105,104 @@ public class ProjectionStrategy implements IComputationStrategy {
 	protected Point computeProjectionInScene(
 			List<ICurve> anchorageOutlinesInScene,
 			Point anchoredReferencePointInScene, Set<Parameter<?>> parameters) {
-		Point[] projections = new Point[anchorageOutlinesInScene.size()];
+		Point nearestProjection = null;
+		double nearestDistance = 0d;
 		for (int i = 0; i < anchorageOutlinesInScene.size(); i++) {
-			ICurve c = anchorageOutlinesInScene.get(i);
-			projections[i] = c.getProjection(anchoredReferencePointInScene);
+			// skip outlines that cannot provide a nearer projection
+			Rectangle bounds = getOutlineBoundsInScene(anchorageOutlinesInScene,
+					i);
+			if (nearestProjection != null && bounds != null
+					&& getDistance(bounds,
+							anchoredReferencePointInScene) >= nearestDistance) {
+				continue;
+			}
+			Point projection = anchorageOutlinesInScene.get(i)
+					.getProjection(anchoredReferencePointInScene);
+			double distance = anchoredReferencePointInScene
+					.getDistance(projection);
+			if (nearestProjection == null || distance < nearestDistance) {
+				nearestProjection = projection;
+				nearestDistance = distance;
+			}
+		}
+		return nearestProjection;
+	}
+
+	/**
+	 * Returns the outlines of the given anchorage reference geometry within
+	 * the scene, as determined by {@link #getOutlineSegments(IGeometry)}. The
+	 * outlines are cached, and only recomputed if the given anchorage or
+	 * geometry differ from the last call, or if the local-to-scene transform
+	 * of the anchorage changed in the meantime. Therefore, the anchorage
+	 * reference geometry may not be changed in-place.
+	 *
+	 * @param anchorage
+	 *            The anchorage visual.
+	 * @param anchorageReferenceGeometryInLocal
+	 *            The anchorage reference geometry within the local coordinate
+	 *            system of the anchorage visual.
+	 * @return A list of {@link ICurve}s representing the outline of the
+	 *         anchorage reference geometry within the scene, which may not be
+	 *         modified.
+	 */
+	protected List<ICurve> getAnchorageOutlinesInScene(Node anchorage,
+			IGeometry anchorageReferenceGeometryInLocal) {
+		Affine localToSceneTransform = new Affine(
+				anchorage.getLocalToSceneTransform());
+		if (cachedAnchorage != anchorage
+				|| cachedAnchorageGeometryInLocal != anchorageReferenceGeometryInLocal
+				|| !NodeUtils.equals(cachedAnchorageLocalToSceneTransform,
+						localToSceneTransform)) {
+			// determine anchorage geometry in scene
+			IGeometry anchorageGeometryInScene = NodeUtils
+					.localToScene(anchorage, anchorageReferenceGeometryInLocal);
+			// determine anchorage outlines (and their bounds) in scene
+			List<ICurve> outlines = getOutlineSegments(
+					anchorageGeometryInScene);
+			Rectangle[] bounds = new Rectangle[outlines.size()];
+			for (int i = 0; i < bounds.length; i++) {
+				bounds[i] = outlines.get(i).getBounds();
+			}
+			cachedAnchorage = anchorage;
+			cachedAnchorageGeometryInLocal = anchorageReferenceGeometryInLocal;
+			cachedAnchorageLocalToSceneTransform = localToSceneTransform;
+			cachedAnchorageOutlinesInScene = Collections
+					.unmodifiableList(outlines);
+			cachedAnchorageOutlineBoundsInScene = bounds;
+		}
+		return cachedAnchorageOutlinesInScene;
+	}
+
+	// the distance of the given point to the given rectangle, i.e. the
+	// minimum distance to any point within the rectangle
+	private static double getDistance(Rectangle bounds, Point point) {
+		double dx = Math.max(0, Math.max(bounds.getX() - point.x,
+				point.x - bounds.getX() - bounds.getWidth()));
+		double dy = Math.max(0, Math.max(bounds.getY() - point.y,
+				point.y - bounds.getY() - bounds.getHeight()));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Returns the (cached) bounds of the outline at the given index, if the
+	 * given outlines were returned by
+	 * {@link #getAnchorageOutlinesInScene(Node, IGeometry)} and are still
+	 * cached. The bounds can be used to skip outlines that are irrelevant for
+	 * a computation.
+	 *
+	 * @param anchorageOutlinesInScene
+	 *            The anchorage outlines within the scene.
+	 * @param index
+	 *            The index of the outline.
+	 * @return The bounds of the outline at the given index, or
+	 *         <code>null</code> if the bounds are not cached.
+	 */
+	protected Rectangle getOutlineBoundsInScene(
+			List<ICurve> anchorageOutlinesInScene, int index) {
+		if (anchorageOutlinesInScene != cachedAnchorageOutlinesInScene) {
+			return null;
 		}
-		return Point.nearest(anchoredReferencePointInScene, projections);
+		return cachedAnchorageOutlineBoundsInScene[index];
 	}
 
 	/**
@@ -395,7 +395,7 @@ public abstract class AbstractRouter implements IConnectionRouter {
 
 	@Override
 	public void route(Connection connection) {
-		this.connection = connection;
+		setConnection(connection);
 
 		// Remove previously inserted route points, so that the Connection is
 		// only constituted by the user-defined anchors.
@@ -428,6 +428,19 @@ public abstract class AbstractRouter implements IConnectionRouter {
 		return outDirection;
 	}
 
+	/**
+	 * Sets the {@link Connection} that is currently routed (see
+	 * {@link #getConnection()}). This is done by {@link #route(Connection)},
+	 * but may also be needed by subclasses that route a {@link Connection} in
+	 * multiple steps.
+	 *
+	 * @param connection
+	 *            The {@link Connection} that is currently routed.
+	 */
+	protected void setConnection(Connection connection) {
+		this.connection = connection;
+	}
+
 	/**
 	 * Updates all computation parameters for the anchors of the given
 	 * {@link Connection}.
@@ -17,9 +17,12 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.gef.common.beans.property.ReadOnlyListPropertyBaseEx;
@@ -39,6 +42,8 @@ import org.eclipse.gef.geometry.planar.PolyBezier;
 
 import com.google.common.collect.Iterators;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanPropertyBase;
@@ -235,6 +240,65 @@ public class Connection extends Group {
 	 */
 	private static final String CONTROL_POINT_ROLE_PREFIX = "controlpoint-";
 
+	/**
+	 * Refreshes the connections that scheduled a refresh, once per JavaFX
+	 * pulse, i.e. before CSS is applied and the scene graph is laid out and
+	 * rendered.
+	 */
+	private static class RefreshScheduler extends AnimationTimer {
+
+		private static RefreshScheduler instance;
+
+		private Set<Connection> scheduledConnections = new LinkedHashSet<>();
+		private boolean running;
+
+		public static void schedule(Connection connection) {
+			if (instance == null) {
+				instance = new RefreshScheduler();
+			}
+			instance.scheduledConnections.add(connection);
+			if (!instance.running) {
+				instance.running = true;
+				instance.start();
+			}
+		}
+
+		@Override
+		public void handle(long now) {
+			// refreshes may schedule further refreshes (of other
+			// connections), which are performed within the next pulse
+			List<Connection> connections = new ArrayList<>(
+					scheduledConnections);
+			scheduledConnections.clear();
+			// connections that share an IBatchConnectionRouter are routed
+			// together
+			Map<IBatchConnectionRouter, List<Connection>> batches = new IdentityHashMap<>();
+			for (Connection connection : connections) {
+				IConnectionRouter router = connection.getRouter();
+				if (router instanceof IBatchConnectionRouter) {
+					List<Connection> batch = batches.get(router);
+					if (batch == null) {
+						batch = new ArrayList<>();
+						batches.put((IBatchConnectionRouter) router, batch);
+					}
+					batch.add(connection);
+				} else {
+					connection.flushRefresh();
+				}
+			}
+			for (Map.Entry<IBatchConnectionRouter, List<Connection>> batch : batches
+					.entrySet()) {
+				flushRefresh(batch.getValue(), batch.getKey());
+			}
+			if (scheduledConnections.isEmpty()) {
+				running = false;
+				stop();
+			}
+		}
+	}
+
+	private static boolean synchronousRefresh = false;
+
 	private ObjectProperty<Node> curveProperty = new SimpleObjectProperty<>();
 	private ObjectProperty<Node> startDecorationProperty = null;
 	private ObjectProperty<Node> endDecorationProperty = null;
@@ -290,7 +354,7 @@ public class Connection extends Group {
 				}
 				// refresh decoration clip in case the layout bounds of
 				// the decorations have changed
-				refresh();
+				scheduleRefresh();
 			}
 		};
 
@@ -308,10 +372,11 @@ public class Connection extends Group {
 				newValue.layoutBoundsProperty()
 						.addListener(decorationLayoutBoundsListener);
 			}
-			refresh();
+			scheduleRefresh();
 		}
 	};
 	private boolean inRefresh = false;
+	private boolean refreshScheduled = false;
 
 	/**
 	 * Constructs a new {@link Connection} whose start and end point are set to
@@ -330,7 +395,7 @@ public class Connection extends Group {
 				if (inRefresh) {
 					return;
 				}
-				refresh();
+				scheduleRefresh();
 			}
 		});
 
@@ -341,7 +406,7 @@ public class Connection extends Group {
 							ObservableValue<? extends IConnectionInterpolator> observable,
 							IConnectionInterpolator oldValue,
 							IConnectionInterpolator newValue) {
-						refresh();
+						scheduleRefresh();
 					}
 				});
 
@@ -351,7 +416,7 @@ public class Connection extends Group {
 				public void changed(
 						ObservableValue<? extends Transform> observable,
 						Transform oldValue, Transform newValue) {
-					refresh();
+					scheduleRefresh();
 				}
 			};
 
@@ -360,7 +425,7 @@ public class Connection extends Group {
 				public void changed(
 						ObservableValue<? extends Bounds> observable,
 						Bounds oldValue, Bounds newValue) {
-					refresh();
+					scheduleRefresh();
 				}
 			};
 
@@ -392,7 +457,7 @@ public class Connection extends Group {
 				reattachAnchorKeys(oldValue, newValue);
 
 				inRefresh = false;
-				refresh();
+				scheduleRefresh();
 			}
 		});
 
@@ -422,7 +487,7 @@ public class Connection extends Group {
 		if (anchorKey == null) {
 			throw new IllegalArgumentException("anchorKey may not be null.");
 		}
-		if (anchorKey.getAnchored() != getCurve()) {
+		if (anchorKey.getAnchored() != curveProperty.get()) {
 			throw new IllegalArgumentException(
 					"anchorKey may only be anchored to curveProperty node");
 		}
@@ -471,7 +536,7 @@ public class Connection extends Group {
 		// update lists
 		anchors.add(getAnchorIndex(anchorKey), anchor);
 		points.add(getAnchorIndex(anchorKey),
-				FX2Geometry.toPoint(getCurve().localToParent(
+				FX2Geometry.toPoint(curveProperty.get().localToParent(
 						Geometry2FX.toFXPoint(anchor.getPosition(anchorKey)))));
 
 		if (!anchorKey.equals(startAnchorKey)
@@ -489,14 +554,14 @@ public class Connection extends Group {
 				int anchorIndex = getAnchorIndex(ak);
 				anchors.add(anchorIndex, a);
 				points.add(anchorIndex,
-						FX2Geometry.toPoint(getCurve().localToParent(
+						FX2Geometry.toPoint(curveProperty.get().localToParent(
 								Geometry2FX.toFXPoint(a.getPosition(ak)))));
 
 				registerPCL(ak, a);
 			}
 		}
 		registerPCL(anchorKey, anchor);
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -546,6 +611,7 @@ public class Connection extends Group {
 	 *         {@link Connection}'s anchors.
 	 */
 	public ReadOnlyListProperty<IAnchor> anchorsUnmodifiableProperty() {
+		flushRefresh();
 		// property is created lazily to save memory
 		if (anchorsUnmodifiableProperty == null) {
 			anchorsUnmodifiableProperty = new AnchorsUnmodifiableProperty();
@@ -576,13 +642,13 @@ public class Connection extends Group {
 				// }
 				if (change.getKey().equals(anchorKey)) {
 					if (change.wasAdded() && change.wasRemoved()) {
-						Point newPoint = FX2Geometry
-								.toPoint(getCurve().localToParent(Geometry2FX
+						Point newPoint = FX2Geometry.toPoint(curveProperty.get()
+								.localToParent(Geometry2FX
 										.toFXPoint(change.getValueAdded())));
 						if (!points.get(getAnchorIndex(anchorKey))
 								.equals(newPoint)) {
 							points.set(getAnchorIndex(anchorKey), newPoint);
-							refresh();
+							scheduleRefresh();
 						}
 					}
 				}
@@ -623,6 +689,7 @@ public class Connection extends Group {
 	 * @return The anchor at the given index.
 	 */
 	public IAnchor getAnchor(int index) {
+		flushRefresh();
 		return anchorsByKeys.get(getAnchorKey(index));
 	}
 
@@ -668,6 +735,7 @@ public class Connection extends Group {
 	 *         to this {@link Connection}.
 	 */
 	public ObservableList<IAnchor> getAnchorsUnmodifiable() {
+		flushRefresh();
 		return FXCollections.unmodifiableObservableList(anchors);
 	}
 
@@ -679,6 +747,7 @@ public class Connection extends Group {
 	 * @return The logical center of this {@link Connection}.
 	 */
 	public Point getCenter() {
+		flushRefresh();
 		// TODO: we would better delegate this to interpolator, as there we can
 		// exchange the logic
 		BezierCurve[] bezierCurves = null;
@@ -711,6 +780,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public IAnchor getControlAnchor(int index) {
+		flushRefresh();
 		return anchorsByKeys.get(getControlAnchorKey(index));
 	}
 
@@ -746,7 +816,8 @@ public class Connection extends Group {
 	 * @return The {@link AnchorKey} for the given control anchor index.
 	 */
 	protected AnchorKey getControlAnchorKey(int index) {
-		return new AnchorKey(getCurve(), CONTROL_POINT_ROLE_PREFIX + index);
+		return new AnchorKey(curveProperty.get(),
+				CONTROL_POINT_ROLE_PREFIX + index);
 	}
 
 	/**
@@ -791,6 +862,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public Point getControlPoint(int index) {
+		flushRefresh();
 		int anchorIndex = getAnchorIndex(getControlAnchorKey(index));
 		return anchorIndex < 0 ? null : points.get(anchorIndex);
 	}
@@ -803,6 +875,7 @@ public class Connection extends Group {
 	 *         {@link Connection}.
 	 */
 	public List<Point> getControlPoints() {
+		flushRefresh();
 		int controlPointCount = getControlAnchors().size();
 		List<Point> controlPoints = new ArrayList<>(controlPointCount);
 		for (int i = 0; i < controlPointCount; i++) {
@@ -818,6 +891,7 @@ public class Connection extends Group {
 	 * @return The {@link Node} which displays the curveProperty geometry.
 	 */
 	public Node getCurve() {
+		flushRefresh();
 		return curveProperty.get();
 	}
 
@@ -829,6 +903,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public IAnchor getEndAnchor() {
+		flushRefresh();
 		return anchorsByKeys.get(getEndAnchorKey());
 	}
 
@@ -841,7 +916,7 @@ public class Connection extends Group {
 	 */
 	// TODO: AnchorKeys should not be exposed -> make protected
 	protected AnchorKey getEndAnchorKey() {
-		return new AnchorKey(getCurve(), END_ROLE);
+		return new AnchorKey(curveProperty.get(), END_ROLE);
 	}
 
 	/**
@@ -852,6 +927,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public Node getEndDecoration() {
+		flushRefresh();
 		if (endDecorationProperty == null) {
 			return null;
 		}
@@ -868,6 +944,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public Point getEndPoint() {
+		flushRefresh();
 		int anchorIndex = getAnchorIndex(getEndAnchorKey());
 		return anchorIndex < 0 ? null : points.get(anchorIndex);
 	}
@@ -908,6 +985,7 @@ public class Connection extends Group {
 	 * @see #getPointsUnmodifiable()
 	 */
 	public Point getPoint(int index) {
+		flushRefresh();
 		return points.get(index);
 	}
 
@@ -919,6 +997,7 @@ public class Connection extends Group {
 	 * @return The {@link Point}s constituting this {@link Connection}.
 	 */
 	public ObservableList<Point> getPointsUnmodifiable() {
+		flushRefresh();
 		return FXCollections.unmodifiableObservableList(points);
 	}
 
@@ -939,6 +1018,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public IAnchor getStartAnchor() {
+		flushRefresh();
 		return anchorsByKeys.get(getStartAnchorKey());
 	}
 
@@ -951,7 +1031,7 @@ public class Connection extends Group {
 	 */
 	// TODO: AnchorKeys should not be exposed -> make protected
 	protected AnchorKey getStartAnchorKey() {
-		return new AnchorKey(getCurve(), START_ROLE);
+		return new AnchorKey(curveProperty.get(), START_ROLE);
 	}
 
 	/**
@@ -962,6 +1042,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public Node getStartDecoration() {
+		flushRefresh();
 		if (startDecorationProperty == null) {
 			return null;
 		}
@@ -978,6 +1059,7 @@ public class Connection extends Group {
 	 *         <code>null</code>.
 	 */
 	public Point getStartPoint() {
+		flushRefresh();
 		int anchorIndex = getAnchorIndex(getStartAnchorKey());
 		return anchorIndex < 0 ? null : points.get(anchorIndex);
 	}
@@ -1079,6 +1161,24 @@ public class Connection extends Group {
 		return isConnected(getStartAnchor());
 	}
 
+	/**
+	 * Returns whether connections are refreshed synchronously upon changes,
+	 * instead of once per JavaFX pulse.
+	 *
+	 * @return <code>true</code> if connections are refreshed synchronously,
+	 *         otherwise <code>false</code>.
+	 * @see #setSynchronousRefresh(boolean)
+	 */
+	public static boolean isSynchronousRefresh() {
+		return synchronousRefresh;
+	}
+
+	@Override
+	protected void layoutChildren() {
+		flushRefresh();
+		super.layoutChildren();
+	}
+
 	@Override
 	public double maxHeight(double width) {
 		return Double.MAX_VALUE;
@@ -1107,6 +1207,7 @@ public class Connection extends Group {
 	 *         {@link Connection}'s points.
 	 */
 	public ReadOnlyListProperty<Point> pointsUnmodifiableProperty() {
+		flushRefresh();
 		// property is created lazily to save memory
 		if (pointsUnmodifiableProperty == null) {
 			pointsUnmodifiableProperty = new PointsUnmodifiableProperty();
@@ -1114,6 +1215,18 @@ public class Connection extends Group {
 		return pointsUnmodifiableProperty;
 	}
 
+	@Override
+	public double prefHeight(double width) {
+		flushRefresh();
+		return super.prefHeight(width);
+	}
+
+	@Override
+	public double prefWidth(double height) {
+		flushRefresh();
+		return super.prefWidth(height);
+	}
+
 	/**
 	 * Re-attaches all {@link AnchorKey}s that are managed by this
 	 * {@link Connection}.
@@ -1177,6 +1290,39 @@ public class Connection extends Group {
 		}
 	}
 
+	// performs the scheduled refreshes of the given connections, which are
+	// routed together by the given router
+	private static void flushRefresh(List<Connection> connections,
+			IBatchConnectionRouter router) {
+		List<Connection> refreshing = new ArrayList<>();
+		for (Connection connection : connections) {
+			// the router may have changed since the refresh was scheduled
+			if (connection.refreshScheduled && !connection.inRefresh
+					&& connection.getRouter() == router) {
+				connection.beginRefresh();
+				connection.refreshPoints();
+				refreshing.add(connection);
+			} else {
+				connection.flushRefresh();
+			}
+		}
+		if (refreshing.size() == 1) {
+			router.route(refreshing.get(0));
+		} else if (!refreshing.isEmpty()) {
+			router.route(refreshing);
+		}
+		for (Connection connection : refreshing) {
+			connection.endRefresh();
+		}
+	}
+
+	// performs a scheduled refresh
+	private void flushRefresh() {
+		if (refreshScheduled && !inRefresh) {
+			refresh();
+		}
+	}
+
 	/**
 	 * Refreshes the visualization in response to anchor, position,
 	 * transformation, etc. changes. This method is safe against reentrance,
@@ -1233,7 +1379,37 @@ public class Connection extends Group {
 		if (inRefresh) {
 			return;
 		}
+		beginRefresh();
+
+		// update our anchorsByKeys/points
+		IConnectionRouter router = getRouter();
+		if (router != null) {
+			// we might need to apply a new transform to each of the points
+			// TODO: Do this when the transform changes!
+			refreshPoints();
+
+			// compute parameters and insert volatile anchors
+			router.route(this);
+
+			// tx = getCurve().getLocalToParentTransform();
+			// System.out.println("| +--- Routed ---+");
+			// System.out.println("| | curve-t: " + tx.getTx() + "," +
+			// tx.getTy());
+			// System.out.println("| | points: " + points);
+			// System.out.println("| | anchors: " + anchors);
+		} else {
+			throw new IllegalStateException(
+					"An IConnectionRouter is mandatory for a Connection.");
+		}
+
+		endRefresh();
+	}
+
+	// starts a refresh, i.e. disables the position change listeners, so that
+	// the router can manipulate the anchors
+	private void beginRefresh() {
 		inRefresh = true;
+		refreshScheduled = false;
 		// System.out.println("+--- Refresh ---+");
 
 		// unregister PCLs
@@ -1246,7 +1422,7 @@ public class Connection extends Group {
 		}
 
 		// clear visuals except for the curveProperty
-		getChildren().retainAll(getCurve());
+		getChildren().retainAll(curveProperty.get());
 
 		// z-order: place decorations above curve
 		Node startDecoration = getStartDecoration();
@@ -1264,32 +1440,16 @@ public class Connection extends Group {
 		// System.out.println("| | points: " + points);
 		// System.out.println("| | anchors: " + anchors);
 
-		// update our anchorsByKeys/points
-		IConnectionRouter router = getRouter();
-		if (router != null) {
-			// we might need to apply a new transform to each of the points
-			// TODO: Do this when the transform changes!
-			refreshPoints();
-
-			// compute parameters and insert volatile anchors
-			router.route(this);
-
-			// since PCLs are disabled (to prevent CME), points need to be
-			// refreshed again
-			// XXX: The Router performs the transformation internally after
-			// updating the parameters and before routing.
-			refreshPoints();
+	}
 
-			// tx = getCurve().getLocalToParentTransform();
-			// System.out.println("| +--- Routed ---+");
-			// System.out.println("| | curve-t: " + tx.getTx() + "," +
-			// tx.getTy());
-			// System.out.println("| | points: " + points);
-			// System.out.println("| | anchors: " + anchors);
-		} else {
-			throw new IllegalStateException(
-					"An IConnectionRouter is mandatory for a Connection.");
-		}
+	// finishes a refresh after routing, i.e. interpolates the curve and
+	// enables the position change listeners again
+	private void endRefresh() {
+		// since PCLs are disabled (to prevent CME), points need to be
+		// refreshed again
+		// XXX: The Router performs the transformation internally after
+		// updating the parameters and before routing.
+		refreshPoints();
 
 		IConnectionInterpolator interpolator = getInterpolator();
 		if (interpolator != null) {
@@ -1350,8 +1510,8 @@ public class Connection extends Group {
 			Point position = getAnchor(i).getPosition(getAnchorKey(i));
 			// XXX: Here the same computation is used that
 			// is also used within #createPCL().
-			Point newPoint = FX2Geometry.toPoint(
-					getCurve().localToParent(Geometry2FX.toFXPoint(position)));
+			Point newPoint = FX2Geometry.toPoint(curveProperty.get()
+					.localToParent(Geometry2FX.toFXPoint(position)));
 			if (!points.get(i).equals(newPoint)) {
 				points.set(i, newPoint);
 				changed = true;
@@ -1465,13 +1625,13 @@ public class Connection extends Group {
 				int anchorIndex = getAnchorIndex(ak);
 				anchors.add(anchorIndex, a);
 				points.add(anchorIndex,
-						FX2Geometry.toPoint(getCurve().localToParent(
+						FX2Geometry.toPoint(curveProperty.get().localToParent(
 								Geometry2FX.toFXPoint(a.getPosition(ak)))));
 
 				registerPCL(ak, a);
 			}
 		}
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -1527,6 +1687,36 @@ public class Connection extends Group {
 		return routerProperty;
 	}
 
+	/**
+	 * Schedules a {@link #refresh()} of this {@link Connection} for the next
+	 * JavaFX pulse, so that multiple changes (e.g. anchor position changes
+	 * for all connections of a moved node) lead to a single refresh per
+	 * pulse. A scheduled refresh is performed immediately when the points,
+	 * anchors, curve, or decorations of this {@link Connection} are queried in
+	 * the meantime, as well as when its preferred size is computed or its
+	 * children are laid out. As {@link #getLayoutBounds()} and the other bounds
+	 * getters are final, they reflect the last performed refresh. The
+	 * connections that are refreshed within the same pulse and that share an
+	 * {@link IBatchConnectionRouter} are routed together.
+	 * <p>
+	 * The refresh is performed synchronously if this {@link Connection} is not
+	 * part of a scene, if this method is not called on the JavaFX application
+	 * thread, or if synchronous refreshes are enabled (see
+	 * {@link #setSynchronousRefresh(boolean)}).
+	 */
+	protected void scheduleRefresh() {
+		if (inRefresh) {
+			return;
+		}
+		if (synchronousRefresh || getScene() == null
+				|| !Platform.isFxApplicationThread()) {
+			refresh();
+		} else if (!refreshScheduled) {
+			refreshScheduled = true;
+			RefreshScheduler.schedule(this);
+		}
+	}
+
 	/**
 	 * Replaces the anchor currently registered for the given {@link AnchorKey}
 	 * with the given {@link IAnchor}.
@@ -1541,7 +1731,7 @@ public class Connection extends Group {
 		if (anchorKey == null) {
 			throw new IllegalArgumentException("anchorKey may not be null.");
 		}
-		if (anchorKey.getAnchored() != getCurve()) {
+		if (anchorKey.getAnchored() != curveProperty.get()) {
 			throw new IllegalArgumentException(
 					"anchorKey may only be anchored to curveProperty node");
 		}
@@ -1562,13 +1752,14 @@ public class Connection extends Group {
 		int anchorIndex = getAnchorIndex(anchorKey);
 		anchors.set(anchorIndex, anchor);
 		// update position (if changed)
-		Point newPosition = FX2Geometry.toPoint(getCurve().localToParent(
-				Geometry2FX.toFXPoint(anchor.getPosition(anchorKey))));
+		Point newPosition = FX2Geometry
+				.toPoint(curveProperty.get().localToParent(
+						Geometry2FX.toFXPoint(anchor.getPosition(anchorKey))));
 		if (!newPosition.equals(points.get(anchorIndex))) {
 			points.set(anchorIndex, newPosition);
 		}
 		registerPCL(anchorKey, anchor);
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -1600,7 +1791,7 @@ public class Connection extends Group {
 		}
 		setEndAnchor(anchors.get(anchors.size() - 1));
 		inRefresh = oldInRefresh;
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -1654,7 +1845,7 @@ public class Connection extends Group {
 			removeControlAnchor(controlSize - 1 - (i - initialRemovalIndex));
 		}
 		inRefresh = oldInRefresh;
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -1699,7 +1890,7 @@ public class Connection extends Group {
 			removeControlPoint(controlSize - 1 - (i - initialRemovalIndex));
 		}
 		inRefresh = oldInRefresh;
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -1779,7 +1970,7 @@ public class Connection extends Group {
 		} else {
 			hintsByKeys.put(endAnchorKey, endPositionHint);
 		}
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -1823,7 +2014,7 @@ public class Connection extends Group {
 		}
 		setEndPoint(points.get(points.size() - 1));
 		inRefresh = oldInRefresh;
-		refresh();
+		scheduleRefresh();
 	}
 
 	/**
@@ -1904,7 +2095,22 @@ public class Connection extends Group {
 		} else {
 			hintsByKeys.put(startAnchorKey, startPositionHint);
 		}
-		refresh();
+		scheduleRefresh();
+	}
+
+	/**
+	 * Sets whether connections are refreshed synchronously upon changes (as
+	 * needed by tests that evaluate the visualization of a connection that is
+	 * part of a scene), instead of once per JavaFX pulse. By default,
+	 * refreshes are scheduled for the next pulse (see
+	 * {@link #scheduleRefresh()}).
+	 *
+	 * @param synchronousRefresh
+	 *            <code>true</code> to refresh connections synchronously,
+	 *            otherwise <code>false</code>.
+	 */
+	public static void setSynchronousRefresh(boolean synchronousRefresh) {
+		Connection.synchronousRefresh = synchronousRefresh;
 	}
 
 	/**
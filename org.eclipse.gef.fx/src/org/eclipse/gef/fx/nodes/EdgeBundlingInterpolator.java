@@ -0,0 +1,564 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.fx.nodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.gef.geometry.convert.fx.FX2Geometry;
+import org.eclipse.gef.geometry.convert.fx.Geometry2FX;
+import org.eclipse.gef.geometry.planar.ICurve;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.PolyBezier;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * The {@link EdgeBundlingInterpolator} is a {@link PolyBezierInterpolator}
+ * that bundles the {@link Connection}s it interpolates using force-directed
+ * edge bundling (Holten and van Wijk, 2009), so that dense graphs become
+ * readable. In order to bundle connections, the same
+ * {@link EdgeBundlingInterpolator} instance has to be used for all of them.
+ * <p>
+ * Only connections that consist of a start and an end point (e.g. routed by
+ * a {@link StraightRouter}) are bundled. Each bundled connection is subdivided
+ * into way points, which are attracted by the corresponding way points of
+ * compatible connections (i.e. connections of similar angle, length, and
+ * position), and a cubic Bezier spline is interpolated through the way points.
+ * Compatible connections are determined using a grid of the connection
+ * midpoints, so that not all pairs of connections need to be compared.
+ * <p>
+ * Bundling is performed for all connections at once. When a connection is
+ * interpolated whose start or end point changed, it is interpolated without
+ * bundling and a bundling pass is scheduled for a later JavaFX pulse, which
+ * is performed at most every {@link #BUNDLING_INTERVAL_MILLIS} milliseconds.
+ * The bundled way points are computed by the
+ * {@link ForkJoinPool#commonPool()}, so that the JavaFX application thread is
+ * not blocked, and are applied on the JavaFX application thread afterwards,
+ * where only the connections whose bundled way points changed are refreshed.
+ * A bundling pass can also be triggered directly using {@link #applyBundling()}.
+ * <p>
+ * Note that bundling makes rendering more expensive: Each bundled connection
+ * is subdivided into 9 way points, i.e. it is rendered as a spline of 8 cubic
+ * Bezier segments instead of a single line. Therefore, bundling only pays off
+ * for dense graphs, where it reduces visual clutter.
+ * <p>
+ * Connections whose start and end point (nearly) coincide are not bundled.
+ *
+ * @author agent
+ *
+ */
+public class EdgeBundlingInterpolator extends PolyBezierInterpolator {
+
+	/**
+	 * The minimum time (in milliseconds) between two bundling passes.
+	 */
+	public static final long BUNDLING_INTERVAL_MILLIS = 100;
+
+	/**
+	 * The minimum compatibility of two connections so that they attract each
+	 * other.
+	 */
+	private static final double COMPATIBILITY_THRESHOLD = 0.6;
+
+	/**
+	 * The maximum number of compatible connections that attract a connection.
+	 */
+	private static final int MAX_PARTNERS = 30;
+
+	/**
+	 * The stiffness of the connections.
+	 */
+	private static final double SPRING_CONSTANT = 0.1;
+
+	/**
+	 * The number of subdivision cycles, each doubling the number of segments,
+	 * which results in 2^CYCLES + 1 way points per connection.
+	 */
+	private static final int CYCLES = 3;
+
+	/**
+	 * The number of iterations within the first cycle, which is reduced by
+	 * 1/3 for each subsequent cycle.
+	 */
+	private static final int INITIAL_ITERATIONS = 50;
+
+	/**
+	 * The distance a way point is moved per unit of force within the first
+	 * cycle, which is halved for each subsequent cycle.
+	 */
+	private static final double INITIAL_STEP = 0.1;
+
+	/**
+	 * The tolerance within which start and end points are regarded as
+	 * unchanged.
+	 */
+	private static final double TOLERANCE = 0.5;
+
+	/**
+	 * The maximum length ratio of two connections for which the scale
+	 * compatibility reaches the {@link #COMPATIBILITY_THRESHOLD}, i.e. the
+	 * solution of <code>(1 + r) / 2 + 2r / (1 + r) = 2 / threshold</code>.
+	 */
+	private static final double MAX_LENGTH_RATIO = 2 / COMPATIBILITY_THRESHOLD
+			- 3 + Math.sqrt(Math.pow(2 - 2 / COMPATIBILITY_THRESHOLD, 2) + 4);
+
+	// the interpolated connections (weakly referenced)
+	private Set<Connection> connections = Collections
+			.newSetFromMap(new WeakHashMap<Connection, Boolean>());
+	// the bundled way points (in scene) per connection
+	private Map<Connection, List<Point>> bundledPointsInScene = new WeakHashMap<>();
+
+	private boolean bundlingScheduled = false;
+	// a bundling pass is computed in the background, and another one was
+	// requested in the meantime
+	private boolean bundlingInProgress = false;
+	private boolean bundlingPending = false;
+	private long lastBundlingTime = Long.MIN_VALUE;
+	private AnimationTimer bundlingTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			if (now < lastBundlingTime + BUNDLING_INTERVAL_MILLIS * 1000000) {
+				return;
+			}
+			lastBundlingTime = now;
+			applyBundling();
+		}
+	};
+
+	/**
+	 * Stores the bundled way points that were computed in the background, and
+	 * refreshes the bundled connections whose way points changed. Connections
+	 * that changed while the bundling was computed are bundled again when they
+	 * are interpolated. This method is called on the JavaFX application thread.
+	 *
+	 * @param bundled
+	 *            The bundled {@link Connection}s.
+	 * @param bundledPoints
+	 *            The bundled way points (in scene) for each connection, as
+	 *            returned by {@link #computeBundling(List, List)}, or
+	 *            <code>null</code> if the computation failed.
+	 */
+	protected void applyBundledPoints(List<Connection> bundled,
+			List<List<Point>> bundledPoints) {
+		bundlingInProgress = false;
+		if (bundledPoints != null) {
+			for (int i = 0; i < bundled.size(); i++) {
+				Connection connection = bundled.get(i);
+				if (connections.contains(connection)) {
+					List<Point> points = bundledPoints.get(i);
+					if (!points.equals(
+							bundledPointsInScene.put(connection, points))) {
+						connection.scheduleRefresh();
+					}
+				}
+			}
+		}
+		if (bundlingPending) {
+			bundlingPending = false;
+			scheduleBundling();
+		}
+	}
+
+	/**
+	 * Bundles all connections that were interpolated by this
+	 * {@link EdgeBundlingInterpolator}, are part of a scene, and consist of a
+	 * start and an end point. The bundled way points are computed by the
+	 * {@link ForkJoinPool#commonPool()}, and are applied on the JavaFX
+	 * application thread afterwards, where the bundled connections are
+	 * refreshed (see {@link #applyBundledPoints(List, List)}). If a bundling
+	 * pass is still computed, another pass is
+	 * performed after it is applied. This method has to be called on the
+	 * JavaFX application thread.
+	 */
+	public void applyBundling() {
+		if (bundlingScheduled) {
+			bundlingScheduled = false;
+			bundlingTimer.stop();
+		}
+		if (bundlingInProgress) {
+			bundlingPending = true;
+			return;
+		}
+
+		// collect connections and their start and end points (in scene)
+		final List<Connection> bundled = new ArrayList<>();
+		final List<Point> starts = new ArrayList<>();
+		final List<Point> ends = new ArrayList<>();
+		for (Connection connection : new ArrayList<>(connections)) {
+			if (connection.getInterpolator() != this
+					|| connection.getScene() == null) {
+				connections.remove(connection);
+				bundledPointsInScene.remove(connection);
+				continue;
+			}
+			List<Point> points = connection.getPointsUnmodifiable();
+			if (points.size() != 2) {
+				bundledPointsInScene.remove(connection);
+				continue;
+			}
+			Point start = toScene(connection, points.get(0));
+			Point end = toScene(connection, points.get(1));
+			if (start.getDistance(end) < TOLERANCE) {
+				bundledPointsInScene.remove(connection);
+				continue;
+			}
+			bundled.add(connection);
+			starts.add(start);
+			ends.add(end);
+		}
+
+		if (bundled.isEmpty()) {
+			return;
+		}
+
+		// compute the bundling in the background, and apply it on the JavaFX
+		// application thread
+		bundlingInProgress = true;
+		ForkJoinPool.commonPool().execute(new Runnable() {
+			@Override
+			public void run() {
+				List<List<Point>> bundledPoints = null;
+				try {
+					bundledPoints = computeBundling(starts, ends);
+				} finally {
+					final List<List<Point>> result = bundledPoints;
+					Platform.runLater(new Runnable() {
+						@Override
+						public void run() {
+							applyBundledPoints(bundled, result);
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Computes the bundled way points for the given connections, which are
+	 * specified by their start and end points. All points are specified within
+	 * the same (i.e. the scene) coordinate system. Connections whose start and
+	 * end point (nearly) coincide are not bundled, i.e. their way points are
+	 * located on the line from start to end point. This method is called by
+	 * the {@link ForkJoinPool#commonPool()}, so that it may not access the
+	 * scene graph.
+	 *
+	 * @param starts
+	 *            The start points of the connections.
+	 * @param ends
+	 *            The end points of the connections.
+	 * @return The bundled way points for each connection, including its start
+	 *         and end point.
+	 */
+	protected List<List<Point>> computeBundling(List<Point> starts,
+			List<Point> ends) {
+		int n = starts.size();
+		double[] lengths = new double[n];
+		double maxLength = 0;
+		double averageLength = 0;
+		for (int i = 0; i < n; i++) {
+			lengths[i] = starts.get(i).getDistance(ends.get(i));
+			maxLength = Math.max(maxLength, lengths[i]);
+			averageLength += lengths[i] / n;
+		}
+
+		// determine compatible connections; a negative partner index
+		// indicates that the partner runs in opposite direction
+		int[][] partners = computePartners(starts, ends, lengths, maxLength,
+				Math.max(1, averageLength));
+
+		// way points (including start and end point)
+		int subdivisions = 1;
+		double[][] xs = new double[n][];
+		double[][] ys = new double[n][];
+		for (int i = 0; i < n; i++) {
+			Point s = starts.get(i);
+			Point e = ends.get(i);
+			xs[i] = new double[] { s.x, (s.x + e.x) / 2, e.x };
+			ys[i] = new double[] { s.y, (s.y + e.y) / 2, e.y };
+		}
+
+		double step = INITIAL_STEP;
+		int iterations = INITIAL_ITERATIONS;
+		double[][] newXs = new double[n][];
+		double[][] newYs = new double[n][];
+		for (int cycle = 0; cycle < CYCLES; cycle++) {
+			if (cycle > 0) {
+				// insert a way point between each pair of way points
+				subdivisions = 2 * subdivisions + 1;
+				for (int i = 0; i < n; i++) {
+					xs[i] = subdivide(xs[i]);
+					ys[i] = subdivide(ys[i]);
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				newXs[i] = xs[i].clone();
+				newYs[i] = ys[i].clone();
+			}
+			for (int iteration = 0; iteration < iterations; iteration++) {
+				for (int i = 0; i < n; i++) {
+					if (lengths[i] < TOLERANCE) {
+						// degenerate connections are not bundled
+						continue;
+					}
+					double kp = SPRING_CONSTANT
+							/ (lengths[i] * (subdivisions + 1));
+					for (int k = 1; k <= subdivisions; k++) {
+						double x = xs[i][k];
+						double y = ys[i][k];
+						// spring force of the neighboring way points
+						double fx = kp * (xs[i][k - 1] - x + xs[i][k + 1] - x);
+						double fy = kp * (ys[i][k - 1] - y + ys[i][k + 1] - y);
+						// electrostatic force of the compatible connections
+						for (int p : partners[i]) {
+							int j = p < 0 ? -p - 1 : p;
+							int l = p < 0 ? subdivisions + 1 - k : k;
+							double dx = xs[j][l] - x;
+							double dy = ys[j][l] - y;
+							double d = Math.sqrt(dx * dx + dy * dy);
+							if (d > TOLERANCE) {
+								fx += dx / d;
+								fy += dy / d;
+							}
+						}
+						newXs[i][k] = x + step * fx;
+						newYs[i][k] = y + step * fy;
+					}
+				}
+				for (int i = 0; i < n; i++) {
+					System.arraycopy(newXs[i], 1, xs[i], 1, subdivisions);
+					System.arraycopy(newYs[i], 1, ys[i], 1, subdivisions);
+				}
+			}
+			step /= 2;
+			iterations = Math.max(1, iterations * 2 / 3);
+		}
+
+		List<List<Point>> bundledPoints = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			List<Point> points = new ArrayList<>(xs[i].length);
+			for (int k = 0; k < xs[i].length; k++) {
+				points.add(new Point(xs[i][k], ys[i][k]));
+			}
+			bundledPoints.add(points);
+		}
+		return bundledPoints;
+	}
+
+	@Override
+	protected ICurve computeCurve(Connection connection) {
+		List<Point> bundled = getBundledPoints(connection);
+		if (bundled == null) {
+			return super.computeCurve(connection);
+		}
+		Point[] points = new Point[bundled.size()];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = FX2Geometry.toPoint(connection
+					.sceneToLocal(Geometry2FX.toFXPoint(bundled.get(i))));
+		}
+		// use the exact start and end points
+		List<Point> connectionPoints = connection.getPointsUnmodifiable();
+		points[0] = connectionPoints.get(0);
+		points[points.length - 1] = connectionPoints.get(1);
+		return PolyBezier.interpolateCubic(points);
+	}
+
+	// determines the compatible connections per connection, using a grid of
+	// the connection midpoints to find candidates
+	private int[][] computePartners(List<Point> starts, List<Point> ends,
+			double[] lengths, double maxLength, double cellSize) {
+		int n = starts.size();
+		double[] mx = new double[n];
+		double[] my = new double[n];
+		Map<Long, List<Integer>> cells = new HashMap<>();
+		for (int i = 0; i < n; i++) {
+			mx[i] = (starts.get(i).x + ends.get(i).x) / 2;
+			my[i] = (starts.get(i).y + ends.get(i).y) / 2;
+			long cell = getCell((int) Math.floor(mx[i] / cellSize),
+					(int) Math.floor(my[i] / cellSize));
+			List<Integer> members = cells.get(cell);
+			if (members == null) {
+				members = new ArrayList<>();
+				cells.put(cell, members);
+			}
+			members.add(i);
+		}
+
+		List<List<Integer>> partners = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			partners.add(new ArrayList<Integer>());
+		}
+		double positionFactor = 1 / COMPATIBILITY_THRESHOLD - 1;
+		for (int i = 0; i < n; i++) {
+			if (lengths[i] < TOLERANCE) {
+				// degenerate connections have no direction
+				continue;
+			}
+			// the scale compatibility bounds the length of a compatible
+			// connection, and the position compatibility bounds the distance
+			// of the midpoints
+			double radius = (lengths[i]
+					+ Math.min(maxLength, MAX_LENGTH_RATIO * lengths[i])) / 2
+					* positionFactor;
+			int minX = (int) Math.floor((mx[i] - radius) / cellSize);
+			int maxX = (int) Math.floor((mx[i] + radius) / cellSize);
+			int minY = (int) Math.floor((my[i] - radius) / cellSize);
+			int maxY = (int) Math.floor((my[i] + radius) / cellSize);
+			for (int cx = minX; cx <= maxX; cx++) {
+				for (int cy = minY; cy <= maxY; cy++) {
+					List<Integer> members = cells.get(getCell(cx, cy));
+					if (members == null) {
+						continue;
+					}
+					for (int j : members) {
+						if (j <= i || lengths[j] < TOLERANCE) {
+							continue;
+						}
+						double compatibility = getCompatibility(starts.get(i),
+								ends.get(i), lengths[i], starts.get(j),
+								ends.get(j), lengths[j]);
+						if (compatibility >= COMPATIBILITY_THRESHOLD) {
+							boolean opposite = isOpposite(starts.get(i),
+									ends.get(i), starts.get(j), ends.get(j));
+							if (partners.get(i).size() < MAX_PARTNERS) {
+								partners.get(i).add(opposite ? -j - 1 : j);
+							}
+							if (partners.get(j).size() < MAX_PARTNERS) {
+								partners.get(j).add(opposite ? -i - 1 : i);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		int[][] result = new int[n][];
+		for (int i = 0; i < n; i++) {
+			List<Integer> p = partners.get(i);
+			result[i] = new int[p.size()];
+			for (int k = 0; k < result[i].length; k++) {
+				result[i][k] = p.get(k);
+			}
+		}
+		return result;
+	}
+
+	// returns the bundled way points (in scene) of the given connection if
+	// they are up-to-date, otherwise schedules a bundling pass (unless the
+	// connection is not bundled at all)
+	private List<Point> getBundledPoints(Connection connection) {
+		connections.add(connection);
+		List<Point> points = connection.getPointsUnmodifiable();
+		if (points.size() != 2 || connection.getScene() == null) {
+			bundledPointsInScene.remove(connection);
+			return null;
+		}
+		Point start = toScene(connection, points.get(0));
+		Point end = toScene(connection, points.get(1));
+		if (start.getDistance(end) < TOLERANCE) {
+			bundledPointsInScene.remove(connection);
+			return null;
+		}
+		List<Point> bundled = bundledPointsInScene.get(connection);
+		if (bundled != null && bundled.get(0).getDistance(start) < TOLERANCE
+				&& bundled.get(bundled.size() - 1)
+						.getDistance(end) < TOLERANCE) {
+			return bundled;
+		}
+		scheduleBundling();
+		return null;
+	}
+
+	private long getCell(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xffffffffL);
+	}
+
+	// computes the compatibility of the given connections as the product of
+	// angle, scale, position, and visibility compatibility
+	private double getCompatibility(Point p0, Point p1, double pl, Point q0,
+			Point q1, double ql) {
+		// each factor is at most 1, so that the computation can stop as soon
+		// as the product falls below the threshold
+		double compatibility = Math.abs(((p1.x - p0.x) * (q1.x - q0.x)
+				+ (p1.y - p0.y) * (q1.y - q0.y)) / (pl * ql));
+		if (compatibility < COMPATIBILITY_THRESHOLD) {
+			return compatibility;
+		}
+		double lavg = (pl + ql) / 2;
+		compatibility *= 2
+				/ (lavg / Math.min(pl, ql) + Math.max(pl, ql) / lavg);
+		if (compatibility < COMPATIBILITY_THRESHOLD) {
+			return compatibility;
+		}
+		double dx = (q0.x + q1.x - p0.x - p1.x) / 2;
+		double dy = (q0.y + q1.y - p0.y - p1.y) / 2;
+		compatibility *= lavg / (lavg + Math.sqrt(dx * dx + dy * dy));
+		if (compatibility < COMPATIBILITY_THRESHOLD) {
+			return compatibility;
+		}
+		return compatibility * Math.min(getVisibility(p0, p1, q0, q1),
+				getVisibility(q0, q1, p0, p1));
+	}
+
+	// computes how much of the first connection is visible from the second
+	// one, i.e. projects the second connection onto the first one
+	private double getVisibility(Point p0, Point p1, Point q0, Point q1) {
+		double dx = p1.x - p0.x;
+		double dy = p1.y - p0.y;
+		double l2 = dx * dx + dy * dy;
+		double t0 = ((q0.x - p0.x) * dx + (q0.y - p0.y) * dy) / l2;
+		double t1 = ((q1.x - p0.x) * dx + (q1.y - p0.y) * dy) / l2;
+		Point i0 = new Point(p0.x + t0 * dx, p0.y + t0 * dy);
+		Point i1 = new Point(p0.x + t1 * dx, p0.y + t1 * dy);
+		double il = i0.getDistance(i1);
+		if (il == 0) {
+			return 0;
+		}
+		Point im = new Point((i0.x + i1.x) / 2, (i0.y + i1.y) / 2);
+		Point pm = new Point((p0.x + p1.x) / 2, (p0.y + p1.y) / 2);
+		return Math.max(0, 1 - 2 * pm.getDistance(im) / il);
+	}
+
+	private boolean isOpposite(Point p0, Point p1, Point q0, Point q1) {
+		return (p1.x - p0.x) * (q1.x - q0.x) + (p1.y - p0.y) * (q1.y - q0.y) < 0;
+	}
+
+	private void scheduleBundling() {
+		if (!bundlingScheduled) {
+			bundlingScheduled = true;
+			bundlingTimer.start();
+		}
+	}
+
+	private double[] subdivide(double[] values) {
+		double[] subdivided = new double[2 * values.length - 1];
+		for (int i = 0; i < values.length - 1; i++) {
+			subdivided[2 * i] = values[i];
+			subdivided[2 * i + 1] = (values[i] + values[i + 1]) / 2;
+		}
+		subdivided[subdivided.length - 1] = values[values.length - 1];
+		return subdivided;
+	}
+
+	private Point toScene(Connection connection, Point point) {
+		return FX2Geometry
+				.toPoint(connection.localToScene(Geometry2FX.toFXPoint(point)));
+	}
+}
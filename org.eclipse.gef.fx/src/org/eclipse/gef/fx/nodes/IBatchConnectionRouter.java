@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.fx.nodes;
+
+import java.util.List;
+
+/**
+ * An {@link IBatchConnectionRouter} is an {@link IConnectionRouter} that is
+ * able to route multiple {@link Connection}s together, so that work can be
+ * shared between them (e.g. the look-up of obstacles). When a
+ * {@link Connection} refresh is scheduled, all connections that are refreshed
+ * within the same JavaFX pulse and that use the same
+ * {@link IBatchConnectionRouter} instance are passed to
+ * {@link #route(List)} at once.
+ * <p>
+ * The connections are routed while their refresh is in progress, i.e. anchor
+ * position changes caused by the router do not trigger further refreshes.
+ * <p>
+ * Note that connections are only batched if they share the same router
+ * instance. Zest edges share a router instance if it is set as the router
+ * attribute of their graph (<code>ZestProperties.ROUTER__G</code>), or if the
+ * same instance is set as the router attribute of the individual edges.
+ *
+ * @author agent
+ *
+ */
+public interface IBatchConnectionRouter extends IConnectionRouter {
+
+	/**
+	 * Adjusts the anchors of all given {@link Connection}s, which all use
+	 * this {@link IBatchConnectionRouter}. The result has to be the same as
+	 * when {@link #route(Connection)} is called for each of the given
+	 * {@link Connection}s.
+	 *
+	 * @param connections
+	 *            The {@link Connection}s to route.
+	 */
+	public void route(List<Connection> connections);
+
+}
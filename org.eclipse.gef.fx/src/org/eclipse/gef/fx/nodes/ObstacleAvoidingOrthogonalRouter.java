@@ -0,0 +1,1072 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.fx.nodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.gef.fx.anchors.IAnchor;
+import org.eclipse.gef.geometry.convert.fx.FX2Geometry;
+import org.eclipse.gef.geometry.convert.fx.Geometry2FX;
+import org.eclipse.gef.geometry.planar.Line;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+/**
+ * An {@link OrthogonalRouter} that routes a {@link Connection} around the
+ * other nodes (obstacles) within its parent (layer), in case the orthogonal
+ * route would cross any of them.
+ * <p>
+ * The obstacles are maintained in an {@link ObstacleIndex}, which is shared
+ * by all connections within the same layer, and which is updated
+ * incrementally when nodes are added, removed, or moved. The connections near
+ * an obstacle that is added, removed, or moved are rerouted, which are
+ * determined using a grid index of the connections as well. To route around
+ * the obstacles, an orthogonal visibility graph is built from the (slightly
+ * expanded) obstacle bounds that are located near the connection, onto which
+ * the obstacles are rasterized, and the shortest path (with a penalty for each
+ * bend) is determined using A*.
+ * <p>
+ * Connections with explicit (i.e. user-defined) control anchors are routed by
+ * the {@link OrthogonalRouter} only, so that the way points are respected.
+ * <p>
+ * When the same router instance is used for multiple connections, the
+ * connections that are refreshed within the same pulse are routed together
+ * (see {@link IBatchConnectionRouter}), and the routes around the obstacles
+ * can be computed concurrently (see {@link #setParallelism(int)}).
+ *
+ * @author agent
+ *
+ */
+public class ObstacleAvoidingOrthogonalRouter extends OrthogonalRouter
+		implements IBatchConnectionRouter {
+
+	/**
+	 * A spatial index (uniform grid) of the bounds of the children of a
+	 * {@link Parent} (except for {@link Connection}s). The index registers
+	 * listeners on the children list and on the bounds of the individual
+	 * children, so that it is kept up-to-date incrementally, and schedules a
+	 * refresh of the {@link Connection}s (that are routed around obstacles)
+	 * near an obstacle that is added, removed, or moved. Therefore, the
+	 * {@link Connection}s are kept within a separate grid, so that only the
+	 * cells touched by the old and new bounds of the obstacle are queried. The
+	 * listeners are
+	 * unregistered by {@link #dispose()}, which is called automatically when
+	 * the last such {@link Connection} is removed from the {@link Parent}.
+	 */
+	protected static class ObstacleIndex {
+
+		private static final double CELL_SIZE = 128;
+
+		private Parent layer;
+		private Map<Node, Rectangle> boundsByObstacle = new HashMap<>();
+		private Map<Long, List<Node>> obstaclesByCell = new HashMap<>();
+		private Map<Connection, Rectangle> boundsByConnection = new HashMap<>();
+		private Map<Long, List<Connection>> connectionsByCell = new HashMap<>();
+
+		private ChangeListener<Bounds> connectionBoundsInParentObserver = new ChangeListener<Bounds>() {
+			@Override
+			public void changed(ObservableValue<? extends Bounds> observable,
+					Bounds oldValue, Bounds newValue) {
+				Connection connection = (Connection) ((ReadOnlyProperty<?>) observable)
+						.getBean();
+				unindexConnection(connection);
+				indexConnection(connection);
+			}
+		};
+
+		private ChangeListener<Bounds> boundsInParentObserver = new ChangeListener<Bounds>() {
+			@Override
+			public void changed(ObservableValue<? extends Bounds> observable,
+					Bounds oldValue, Bounds newValue) {
+				Node obstacle = (Node) ((ReadOnlyProperty<?>) observable)
+						.getBean();
+				Rectangle oldBounds = unindex(obstacle);
+				index(obstacle);
+				invalidateRoutes(oldBounds, boundsByObstacle.get(obstacle));
+			}
+		};
+
+		private ListChangeListener<Node> childrenObserver = new ListChangeListener<Node>() {
+			@Override
+			public void onChanged(
+					ListChangeListener.Change<? extends Node> change) {
+				boolean connectionRemoved = false;
+				while (change.next()) {
+					for (Node removed : change.getRemoved()) {
+						if (removed instanceof Connection) {
+							connectionRemoved |= removeConnection(
+									(Connection) removed);
+						} else {
+							invalidateRoutes(remove(removed), null);
+						}
+					}
+					for (Node added : change.getAddedSubList()) {
+						if (add(added)) {
+							invalidateRoutes(null, boundsByObstacle.get(added));
+						}
+					}
+				}
+				if (connectionRemoved && !isUsed()) {
+					dispose();
+				}
+			}
+		};
+
+		/**
+		 * Constructs a new {@link ObstacleIndex} for the children of the given
+		 * {@link Parent}.
+		 *
+		 * @param layer
+		 *            The {@link Parent} whose children are indexed.
+		 */
+		public ObstacleIndex(Parent layer) {
+			this.layer = layer;
+			layer.getChildrenUnmodifiable().addListener(childrenObserver);
+			for (Node child : layer.getChildrenUnmodifiable()) {
+				add(child);
+			}
+		}
+
+		// returns true if the given child was added as an obstacle
+		private boolean add(Node child) {
+			if (child instanceof Connection) {
+				addConnection((Connection) child);
+				return false;
+			}
+			if (boundsByObstacle.containsKey(child)) {
+				return false;
+			}
+			child.boundsInParentProperty().addListener(boundsInParentObserver);
+			index(child);
+			return true;
+		}
+
+		private void addConnection(Connection connection) {
+			if (boundsByConnection.containsKey(connection)) {
+				return;
+			}
+			connection.boundsInParentProperty()
+					.addListener(connectionBoundsInParentObserver);
+			indexConnection(connection);
+		}
+
+		// adds the given element to all cells that are touched by the given
+		// bounds
+		private <T> void addToCells(Map<Long, List<T>> cells, T element,
+				Rectangle bounds) {
+			int minX = (int) Math.floor(bounds.getX() / CELL_SIZE);
+			int minY = (int) Math.floor(bounds.getY() / CELL_SIZE);
+			int maxX = (int) Math
+					.floor((bounds.getX() + bounds.getWidth()) / CELL_SIZE);
+			int maxY = (int) Math
+					.floor((bounds.getY() + bounds.getHeight()) / CELL_SIZE);
+			for (int cx = minX; cx <= maxX; cx++) {
+				for (int cy = minY; cy <= maxY; cy++) {
+					long cell = getCell(cx, cy);
+					List<T> members = cells.get(cell);
+					if (members == null) {
+						members = new ArrayList<>(2);
+						cells.put(cell, members);
+					}
+					members.add(element);
+				}
+			}
+		}
+
+		/**
+		 * Unregisters all listeners of this {@link ObstacleIndex} and removes
+		 * it from the {@link Node#getProperties() properties} of the layer
+		 * (see {@link ObstacleAvoidingOrthogonalRouter#getObstacleIndex(Parent)}).
+		 * The {@link ObstacleIndex} may not be used afterwards.
+		 */
+		public void dispose() {
+			layer.getChildrenUnmodifiable().removeListener(childrenObserver);
+			for (Node obstacle : boundsByObstacle.keySet()) {
+				obstacle.boundsInParentProperty()
+						.removeListener(boundsInParentObserver);
+			}
+			for (Connection connection : boundsByConnection.keySet()) {
+				connection.boundsInParentProperty()
+						.removeListener(connectionBoundsInParentObserver);
+			}
+			boundsByObstacle.clear();
+			obstaclesByCell.clear();
+			boundsByConnection.clear();
+			connectionsByCell.clear();
+			layer.getProperties().remove(ObstacleIndex.class, this);
+		}
+
+		/**
+		 * Returns the bounds of the given obstacle within the coordinate
+		 * system of the layer.
+		 *
+		 * @param obstacle
+		 *            The obstacle, which was returned by
+		 *            {@link #getObstacles(Rectangle)}.
+		 * @return The bounds of the given obstacle, or <code>null</code> if
+		 *         its bounds are empty.
+		 */
+		public Rectangle getBounds(Node obstacle) {
+			return boundsByObstacle.get(obstacle);
+		}
+
+		private long getCell(int cx, int cy) {
+			return ((long) cx << 32) | (cy & 0xffffffffL);
+		}
+
+		/**
+		 * Returns the {@link Parent} whose children are indexed.
+		 *
+		 * @return The indexed {@link Parent}.
+		 */
+		public Parent getLayer() {
+			return layer;
+		}
+
+		/**
+		 * Returns all visible obstacles whose bounds touch the given region,
+		 * which is specified within the coordinate system of the layer.
+		 *
+		 * @param region
+		 *            The region for which to return the obstacles.
+		 * @return The obstacles whose bounds touch the given region.
+		 */
+		public Set<Node> getObstacles(Rectangle region) {
+			Set<Node> obstacles = new LinkedHashSet<>();
+			int minX = (int) Math.floor(region.getX() / CELL_SIZE);
+			int minY = (int) Math.floor(region.getY() / CELL_SIZE);
+			int maxX = (int) Math
+					.floor((region.getX() + region.getWidth()) / CELL_SIZE);
+			int maxY = (int) Math
+					.floor((region.getY() + region.getHeight()) / CELL_SIZE);
+			if ((double) (maxX - minX + 1) * (maxY - minY + 1) > boundsByObstacle
+					.size()) {
+				// fewer obstacles than cells => test all obstacles
+				for (Node obstacle : boundsByObstacle.keySet()) {
+					if (isRelevant(obstacle, region)) {
+						obstacles.add(obstacle);
+					}
+				}
+				return obstacles;
+			}
+			for (int cx = minX; cx <= maxX; cx++) {
+				for (int cy = minY; cy <= maxY; cy++) {
+					List<Node> cellObstacles = obstaclesByCell
+							.get(getCell(cx, cy));
+					if (cellObstacles != null) {
+						for (Node obstacle : cellObstacles) {
+							if (isRelevant(obstacle, region)) {
+								obstacles.add(obstacle);
+							}
+						}
+					}
+				}
+			}
+			return obstacles;
+		}
+
+		private void index(Node obstacle) {
+			Bounds boundsInParent = obstacle.getBoundsInParent();
+			if (boundsInParent.isEmpty()) {
+				// empty bounds are not indexed
+				boundsByObstacle.put(obstacle, null);
+				return;
+			}
+			Rectangle bounds = FX2Geometry.toRectangle(boundsInParent);
+			boundsByObstacle.put(obstacle, bounds);
+			addToCells(obstaclesByCell, obstacle, bounds);
+		}
+
+		private void indexConnection(Connection connection) {
+			Bounds boundsInParent = connection.getBoundsInParent();
+			if (boundsInParent.isEmpty()) {
+				// empty bounds are not indexed
+				boundsByConnection.put(connection, null);
+				return;
+			}
+			// the routes keep a margin to the obstacles
+			Rectangle bounds = FX2Geometry.toRectangle(boundsInParent)
+					.getExpanded(2 * MARGIN, 2 * MARGIN);
+			boundsByConnection.put(connection, bounds);
+			addToCells(connectionsByCell, connection, bounds);
+		}
+
+		// schedules a refresh of the connections (that are routed around
+		// obstacles) near the old or new bounds of an obstacle
+		private void invalidateRoutes(Rectangle oldBounds,
+				Rectangle newBounds) {
+			Set<Connection> invalidated = new LinkedHashSet<>();
+			for (Rectangle bounds : new Rectangle[] { oldBounds, newBounds }) {
+				if (bounds == null) {
+					continue;
+				}
+				int minX = (int) Math.floor(bounds.getX() / CELL_SIZE);
+				int minY = (int) Math.floor(bounds.getY() / CELL_SIZE);
+				int maxX = (int) Math
+						.floor((bounds.getX() + bounds.getWidth()) / CELL_SIZE);
+				int maxY = (int) Math.floor(
+						(bounds.getY() + bounds.getHeight()) / CELL_SIZE);
+				for (int cx = minX; cx <= maxX; cx++) {
+					for (int cy = minY; cy <= maxY; cy++) {
+						List<Connection> cellConnections = connectionsByCell
+								.get(getCell(cx, cy));
+						if (cellConnections == null) {
+							continue;
+						}
+						for (Connection connection : cellConnections) {
+							if (isRouted(connection) && bounds.touches(
+									boundsByConnection.get(connection))) {
+								invalidated.add(connection);
+							}
+						}
+					}
+				}
+			}
+			for (Connection connection : invalidated) {
+				connection.scheduleRefresh();
+			}
+		}
+
+		private boolean isRelevant(Node obstacle, Rectangle region) {
+			Rectangle bounds = boundsByObstacle.get(obstacle);
+			return bounds != null && obstacle.isVisible()
+					&& bounds.touches(region);
+		}
+
+		// tests if the given child is a connection that is routed around
+		// obstacles
+		private boolean isRouted(Node child) {
+			return child instanceof Connection && ((Connection) child)
+					.getRouter() instanceof ObstacleAvoidingOrthogonalRouter;
+		}
+
+		// tests if any connection within the layer is routed around obstacles
+		private boolean isUsed() {
+			for (Connection connection : boundsByConnection.keySet()) {
+				if (isRouted(connection)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// returns the bounds of the removed obstacle
+		private Rectangle remove(Node child) {
+			if (!boundsByObstacle.containsKey(child)) {
+				return null;
+			}
+			child.boundsInParentProperty()
+					.removeListener(boundsInParentObserver);
+			return unindex(child);
+		}
+
+		// returns true if the given connection was indexed
+		private boolean removeConnection(Connection connection) {
+			if (!boundsByConnection.containsKey(connection)) {
+				return false;
+			}
+			connection.boundsInParentProperty()
+					.removeListener(connectionBoundsInParentObserver);
+			unindexConnection(connection);
+			return true;
+		}
+
+		// removes the given element from all cells that are touched by the
+		// given bounds
+		private <T> void removeFromCells(Map<Long, List<T>> cells, T element,
+				Rectangle bounds) {
+			int minX = (int) Math.floor(bounds.getX() / CELL_SIZE);
+			int minY = (int) Math.floor(bounds.getY() / CELL_SIZE);
+			int maxX = (int) Math
+					.floor((bounds.getX() + bounds.getWidth()) / CELL_SIZE);
+			int maxY = (int) Math
+					.floor((bounds.getY() + bounds.getHeight()) / CELL_SIZE);
+			for (int cx = minX; cx <= maxX; cx++) {
+				for (int cy = minY; cy <= maxY; cy++) {
+					long cell = getCell(cx, cy);
+					List<T> members = cells.get(cell);
+					if (members != null) {
+						members.remove(element);
+						if (members.isEmpty()) {
+							cells.remove(cell);
+						}
+					}
+				}
+			}
+		}
+
+		// returns the bounds of the unindexed obstacle
+		private Rectangle unindex(Node obstacle) {
+			Rectangle bounds = boundsByObstacle.remove(obstacle);
+			if (bounds != null) {
+				removeFromCells(obstaclesByCell, obstacle, bounds);
+			}
+			return bounds;
+		}
+
+		private void unindexConnection(Connection connection) {
+			Rectangle bounds = boundsByConnection.remove(connection);
+			if (bounds != null) {
+				removeFromCells(connectionsByCell, connection, bounds);
+			}
+		}
+	}
+
+	// a connection that is routed around obstacles, together with the input
+	// and the result of the route computation, which does not access the
+	// scene graph, so that it can be performed concurrently
+	private class RouteComputation {
+		private Connection connection;
+		private Point start;
+		private Rectangle startBounds;
+		private Point end;
+		private Rectangle endBounds;
+		private List<Rectangle> obstacles;
+		private List<Point> route;
+
+		private void compute() {
+			route = computeRoute(start, startBounds, end, endBounds,
+					obstacles);
+		}
+	}
+
+	/**
+	 * Performs a subset of the route computations, so that the subsets can be
+	 * performed in parallel by the {@link ForkJoinPool#commonPool()}.
+	 */
+	private static class RouteComputationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<RouteComputation> computations;
+
+		public RouteComputationTask(List<RouteComputation> computations) {
+			this.computations = computations;
+		}
+
+		@Override
+		protected void compute() {
+			for (RouteComputation computation : computations) {
+				computation.compute();
+			}
+		}
+	}
+
+	// an entry of the A* open list
+	private static class SearchEntry implements Comparable<SearchEntry> {
+		private int state;
+		private double estimate;
+
+		private SearchEntry(int state, double estimate) {
+			this.state = state;
+			this.estimate = estimate;
+		}
+
+		@Override
+		public int compareTo(SearchEntry o) {
+			return Double.compare(estimate, o.estimate);
+		}
+	}
+
+	/**
+	 * The distance that is kept between a connection and the obstacles.
+	 */
+	private static final double MARGIN = 10;
+
+	/**
+	 * The length of the first and last segment when routing around obstacles.
+	 */
+	private static final double STUB_LENGTH = 2 * MARGIN;
+
+	/**
+	 * The costs of a bend in relation to the length of the route.
+	 */
+	private static final double BEND_PENALTY = 40;
+
+	/**
+	 * The maximum number of times the search region is expanded to include
+	 * the obstacles near the connection.
+	 */
+	private static final int MAX_REGION_EXPANSIONS = 4;
+
+	// the index of the start and end anchorage within the terminals
+	private static final int START = 0;
+	private static final int END = 1;
+
+	// orientations of the A* states
+	private static final int HORIZONTAL = 0;
+	private static final int VERTICAL = 1;
+
+	private int parallelism = 1;
+
+	private void addBend(List<Point> route, Point point) {
+		int size = route.size();
+		if (size > 0 && route.get(size - 1).equals(point)) {
+			return;
+		}
+		if (size > 1) {
+			// remove the last point if it is located on the line from the
+			// second last point to the new point
+			Point p = route.get(size - 2);
+			Point q = route.get(size - 1);
+			if (p.x == q.x && q.x == point.x || p.y == q.y && q.y == point.y) {
+				route.remove(size - 1);
+			}
+		}
+		route.add(point);
+	}
+
+	// replaces the inserted anchors by the bend points of the computed route
+	private void applyRoute(RouteComputation computation) {
+		if (computation.route == null) {
+			// no way around the obstacles => keep the orthogonal route
+			return;
+		}
+		Connection connection = computation.connection;
+		setConnection(connection);
+		removeVolatileAnchors(connection);
+		ControlPointManipulator cpm = createControlPointManipulator(
+				connection);
+		for (int i = 1; i < computation.route.size() - 1; i++) {
+			cpm.addRoutingPoint(1,
+					FX2Geometry.toPoint(connection.parentToLocal(
+							Geometry2FX.toFXPoint(computation.route.get(i)))),
+					0, 0);
+		}
+		cpm.applyChanges();
+
+		// adjust the anchored reference points to the new route
+		updateComputationParameters(connection);
+	}
+
+	/**
+	 * Computes an orthogonal route from the given start point to the given
+	 * end point that does not cross the given obstacles, or returns
+	 * <code>null</code> if no such route exists. The points are specified
+	 * within the coordinate system of the layer.
+	 *
+	 * @param start
+	 *            The start point.
+	 * @param startBounds
+	 *            The bounds of the start anchorage, or <code>null</code> if
+	 *            the start is not connected.
+	 * @param end
+	 *            The end point.
+	 * @param endBounds
+	 *            The bounds of the end anchorage, or <code>null</code> if the
+	 *            end is not connected.
+	 * @param obstacles
+	 *            The bounds of the obstacles (including the anchorages) that
+	 *            are located near the connection.
+	 * @return The route from start to end (including both), or
+	 *         <code>null</code> if no route could be found, e.g. because an
+	 *         obstacle blocks the first or last segment, which leaves the
+	 *         anchorage orthogonally.
+	 */
+	protected List<Point> computeRoute(Point start, Rectangle startBounds,
+			Point end, Rectangle endBounds, List<Rectangle> obstacles) {
+		// leave the anchorages orthogonally
+		int startOrientation = startBounds == null ? -1
+				: getStubOrientation(start, startBounds);
+		int endOrientation = endBounds == null ? -1
+				: getStubOrientation(end, endBounds);
+		Point startStub = startBounds == null ? start
+				: getStub(start, startBounds);
+		Point endStub = endBounds == null ? end : getStub(end, endBounds);
+
+		// determine region that contains all routes around the obstacles
+		Rectangle region = new Rectangle(startStub, endStub);
+		for (Rectangle o : obstacles) {
+			region.union(o);
+		}
+		region = region.getExpanded(2 * MARGIN, 2 * MARGIN);
+
+		// expand obstacles so that a margin is kept
+		List<Rectangle> expanded = new ArrayList<>(obstacles.size());
+		for (Rectangle o : obstacles) {
+			expanded.add(o.getExpanded(MARGIN, MARGIN));
+		}
+		if (isBlocked(startStub, expanded) || isBlocked(endStub, expanded)
+				|| isStubCrossing(start, startStub, startBounds, obstacles,
+						expanded)
+				|| isStubCrossing(end, endStub, endBounds, obstacles,
+						expanded)) {
+			return null;
+		}
+
+		// determine the coordinates of the orthogonal visibility graph
+		double[] xs = new double[2 * expanded.size() + 4];
+		double[] ys = new double[xs.length];
+		int c = 0;
+		xs[c] = startStub.x;
+		ys[c++] = startStub.y;
+		xs[c] = endStub.x;
+		ys[c++] = endStub.y;
+		xs[c] = region.getX();
+		ys[c++] = region.getY();
+		xs[c] = region.getX() + region.getWidth();
+		ys[c++] = region.getY() + region.getHeight();
+		for (Rectangle e : expanded) {
+			xs[c] = e.getX();
+			ys[c++] = e.getY();
+			xs[c] = e.getX() + e.getWidth();
+			ys[c++] = e.getY() + e.getHeight();
+		}
+		xs = getSortedUnique(xs);
+		ys = getSortedUnique(ys);
+
+		// determine blocked vertices and edges by rasterizing the obstacles
+		// onto the visibility graph, whose coordinates include the obstacle
+		// sides; the edges are specified by their lower (left or top) vertex
+		int width = xs.length;
+		int height = ys.length;
+		boolean[] blocked = new boolean[width * height];
+		boolean[] blockedHorizontal = new boolean[width * height];
+		boolean[] blockedVertical = new boolean[width * height];
+		for (Rectangle e : expanded) {
+			int minI = Arrays.binarySearch(xs, e.getX());
+			int maxI = Arrays.binarySearch(xs, e.getX() + e.getWidth());
+			int minJ = Arrays.binarySearch(ys, e.getY());
+			int maxJ = Arrays.binarySearch(ys, e.getY() + e.getHeight());
+			for (int i = minI; i <= maxI; i++) {
+				boolean insideX = i > minI && i < maxI;
+				for (int j = minJ; j <= maxJ; j++) {
+					boolean insideY = j > minJ && j < maxJ;
+					int vertex = i * height + j;
+					if (insideX && insideY) {
+						blocked[vertex] = true;
+					}
+					if (insideY && i < maxI) {
+						blockedHorizontal[vertex] = true;
+					}
+					if (insideX && j < maxJ) {
+						blockedVertical[vertex] = true;
+					}
+				}
+			}
+		}
+
+		// A* search, where the states represent the vertex and the
+		// orientation of the segment that leads to the vertex
+		int startVertex = Arrays.binarySearch(xs, startStub.x) * height
+				+ Arrays.binarySearch(ys, startStub.y);
+		int endVertex = Arrays.binarySearch(xs, endStub.x) * height
+				+ Arrays.binarySearch(ys, endStub.y);
+		double[] costs = new double[2 * width * height];
+		int[] predecessors = new int[costs.length];
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		PriorityQueue<SearchEntry> open = new PriorityQueue<>();
+		for (int orientation = HORIZONTAL; orientation <= VERTICAL;
+				orientation++) {
+			int state = 2 * startVertex + orientation;
+			costs[state] = startOrientation < 0
+					|| startOrientation == orientation ? 0 : BEND_PENALTY;
+			predecessors[state] = -1;
+			open.add(new SearchEntry(state, costs[state]
+					+ getEstimate(xs, ys, startVertex, endVertex, height)));
+		}
+		int endState = -1;
+		double endCosts = Double.POSITIVE_INFINITY;
+		while (!open.isEmpty()) {
+			SearchEntry entry = open.poll();
+			if (entry.estimate >= endCosts) {
+				break;
+			}
+			int state = entry.state;
+			int vertex = state / 2;
+			int orientation = state % 2;
+			if (entry.estimate > costs[state]
+					+ getEstimate(xs, ys, vertex, endVertex, height)) {
+				// outdated entry
+				continue;
+			}
+			if (vertex == endVertex) {
+				double total = costs[state] + (endOrientation < 0
+						|| endOrientation == orientation ? 0 : BEND_PENALTY);
+				if (total < endCosts) {
+					endCosts = total;
+					endState = state;
+				}
+				continue;
+			}
+			int i = vertex / height;
+			int j = vertex % height;
+			for (int d = 0; d < 4; d++) {
+				int ni = i + (d == 0 ? 1 : d == 1 ? -1 : 0);
+				int nj = j + (d == 2 ? 1 : d == 3 ? -1 : 0);
+				if (ni < 0 || ni >= width || nj < 0 || nj >= height) {
+					continue;
+				}
+				int neighbor = ni * height + nj;
+				int neighborOrientation = d < 2 ? HORIZONTAL : VERTICAL;
+				int edge = Math.min(vertex, neighbor);
+				if (blocked[neighbor] || (neighborOrientation == HORIZONTAL
+						? blockedHorizontal[edge] : blockedVertical[edge])) {
+					continue;
+				}
+				double neighborCosts = costs[state]
+						+ Math.abs(xs[ni] - xs[i]) + Math.abs(ys[nj] - ys[j])
+						+ (neighborOrientation == orientation ? 0
+								: BEND_PENALTY);
+				int neighborState = 2 * neighbor + neighborOrientation;
+				if (neighborCosts < costs[neighborState]) {
+					costs[neighborState] = neighborCosts;
+					predecessors[neighborState] = state;
+					open.add(new SearchEntry(neighborState,
+							neighborCosts + getEstimate(xs, ys, neighbor,
+									endVertex, height)));
+				}
+			}
+		}
+		if (endState < 0) {
+			return null;
+		}
+
+		// collect the route (only bends are kept)
+		List<Point> route = new ArrayList<>();
+		route.add(end);
+		addBend(route, endStub);
+		for (int state = endState; state >= 0; state = predecessors[state]) {
+			int vertex = state / 2;
+			addBend(route, new Point(xs[vertex / height], ys[vertex % height]));
+		}
+		addBend(route, start);
+		Collections.reverse(route);
+		return route;
+	}
+
+	private double getEstimate(double[] xs, double[] ys, int vertex,
+			int endVertex, int height) {
+		return Math.abs(xs[vertex / height] - xs[endVertex / height])
+				+ Math.abs(ys[vertex % height] - ys[endVertex % height]);
+	}
+
+	/**
+	 * Returns the {@link ObstacleIndex} for the given layer. The index is
+	 * stored within the {@link Node#getProperties() properties} of the layer,
+	 * so that it is shared by all connections within the layer, until it is
+	 * {@link ObstacleIndex#dispose() disposed}.
+	 *
+	 * @param layer
+	 *            The {@link Parent} for which to return the
+	 *            {@link ObstacleIndex}.
+	 * @return The {@link ObstacleIndex} for the given layer.
+	 */
+	protected ObstacleIndex getObstacleIndex(Parent layer) {
+		Object index = layer.getProperties().get(ObstacleIndex.class);
+		if (!(index instanceof ObstacleIndex)) {
+			index = new ObstacleIndex(layer);
+			layer.getProperties().put(ObstacleIndex.class, index);
+		}
+		return (ObstacleIndex) index;
+	}
+
+	private List<Rectangle> getObstacles(ObstacleIndex index, Rectangle region,
+			Node[] exclusions) {
+		List<Rectangle> obstacles = new ArrayList<>();
+		for (Node obstacle : index.getObstacles(region)) {
+			if (obstacle != exclusions[START] && obstacle != exclusions[END]) {
+				obstacles.add(index.getBounds(obstacle));
+			}
+		}
+		return obstacles;
+	}
+
+	/**
+	 * Returns the number of threads that are used to compute the routes
+	 * around obstacles when multiple connections are routed together.
+	 *
+	 * @return The number of threads used to compute the routes.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	private double[] getSortedUnique(double[] values) {
+		Arrays.sort(values);
+		int size = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (size == 0 || values[size - 1] != values[i]) {
+				values[size++] = values[i];
+			}
+		}
+		return Arrays.copyOf(values, size);
+	}
+
+	// the end of the first/last segment, which leaves the anchorage
+	// orthogonally through its nearest side
+	private Point getStub(Point point, Rectangle bounds) {
+		double left = Math.abs(point.x - bounds.getX());
+		double right = Math.abs(bounds.getX() + bounds.getWidth() - point.x);
+		double top = Math.abs(point.y - bounds.getY());
+		double bottom = Math.abs(bounds.getY() + bounds.getHeight() - point.y);
+		double min = Math.min(Math.min(left, right), Math.min(top, bottom));
+		if (min == left) {
+			return new Point(bounds.getX() - STUB_LENGTH, point.y);
+		} else if (min == right) {
+			return new Point(bounds.getX() + bounds.getWidth() + STUB_LENGTH,
+					point.y);
+		} else if (min == top) {
+			return new Point(point.x, bounds.getY() - STUB_LENGTH);
+		}
+		return new Point(point.x,
+				bounds.getY() + bounds.getHeight() + STUB_LENGTH);
+	}
+
+	private int getStubOrientation(Point point, Rectangle bounds) {
+		Point stub = getStub(point, bounds);
+		return stub.y == point.y ? HORIZONTAL : VERTICAL;
+	}
+
+	// tests if the given point is located strictly inside an obstacle
+	private boolean isBlocked(Point point, List<Rectangle> obstacles) {
+		for (Rectangle o : obstacles) {
+			if (point.x > o.getX() && point.x < o.getX() + o.getWidth()
+					&& point.y > o.getY()
+					&& point.y < o.getY() + o.getHeight()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// tests if the given orthogonal segment crosses the interior of the given
+	// rectangle
+	private boolean isCrossing(Point p, Point q, Rectangle rectangle) {
+		return Math.max(p.x, q.x) > rectangle.getX()
+				&& Math.min(p.x, q.x) < rectangle.getX() + rectangle.getWidth()
+				&& Math.max(p.y, q.y) > rectangle.getY()
+				&& Math.min(p.y, q.y) < rectangle.getY()
+						+ rectangle.getHeight();
+	}
+
+	private boolean isCrossing(Line segment, List<Rectangle> obstacles) {
+		for (Rectangle o : obstacles) {
+			if (isCrossing(segment, o)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// tests if the given segment crosses the interior of the given obstacle
+	private boolean isCrossing(Line segment, Rectangle obstacle) {
+		if (obstacle == null || obstacle.getWidth() <= 2
+				|| obstacle.getHeight() <= 2) {
+			return false;
+		}
+		return obstacle.getShrinked(1, 1).touches(segment);
+	}
+
+	// tests if the segment from the given point to its stub crosses any of
+	// the given expanded obstacles, except for the anchorage (bounds) the
+	// point belongs to
+	private boolean isStubCrossing(Point point, Point stub, Rectangle bounds,
+			List<Rectangle> obstacles, List<Rectangle> expanded) {
+		if (bounds == null) {
+			return false;
+		}
+		for (int i = 0; i < obstacles.size(); i++) {
+			if (!bounds.equals(obstacles.get(i))
+					&& isCrossing(point, stub, expanded.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// routes the given connection orthogonally, and returns the computation
+	// of the route around obstacles if the orthogonal route crosses any
+	private RouteComputation prepareRoute(Connection connection) {
+		super.route(connection);
+
+		// respect explicit control anchors
+		for (IAnchor anchor : connection.getControlAnchors()) {
+			if (!wasInserted(anchor)) {
+				return null;
+			}
+		}
+		Parent layer = connection.getParent();
+		if (layer == null) {
+			return null;
+		}
+
+		// determine connection points within the layer
+		List<Point> points = new ArrayList<>();
+		for (int i = 0; i < connection.getAnchorsUnmodifiable().size(); i++) {
+			Point position = connection.getAnchor(i)
+					.getPosition(connection.getAnchorKey(i));
+			points.add(FX2Geometry.toPoint(connection.localToParent(connection
+					.getCurve().localToParent(Geometry2FX.toFXPoint(position)))));
+		}
+		Point start = points.get(0);
+		Point end = points.get(points.size() - 1);
+
+		// determine the anchorage bounds and the layer children that contain
+		// the anchorages, which are not regarded as obstacles
+		Rectangle[] terminalBounds = new Rectangle[2];
+		Node[] terminalObstacles = new Node[2];
+		for (int t = START; t <= END; t++) {
+			IAnchor anchor = t == START ? connection.getStartAnchor()
+					: connection.getEndAnchor();
+			if (connection.isConnected(anchor)) {
+				Node anchorage = anchor.getAnchorage();
+				terminalBounds[t] = FX2Geometry.toRectangle(layer.sceneToLocal(
+						anchorage.localToScene(anchorage.getLayoutBounds())));
+				while (anchorage != null && anchorage.getParent() != layer) {
+					anchorage = anchorage.getParent();
+				}
+				terminalObstacles[t] = anchorage;
+			}
+		}
+
+		// check if the orthogonal route crosses an obstacle
+		ObstacleIndex index = getObstacleIndex(layer);
+		Rectangle routeBounds = new Rectangle(start, end);
+		for (Point p : points) {
+			routeBounds.union(p);
+		}
+		List<Rectangle> obstacles = getObstacles(index,
+				routeBounds.getExpanded(MARGIN, MARGIN), terminalObstacles);
+		boolean crossing = false;
+		for (int i = 0; i < points.size() - 1 && !crossing; i++) {
+			Line segment = new Line(points.get(i), points.get(i + 1));
+			crossing = isCrossing(segment, obstacles)
+					|| i > 0 && isCrossing(segment, terminalBounds[START])
+					|| i < points.size() - 2
+							&& isCrossing(segment, terminalBounds[END]);
+		}
+		if (!crossing) {
+			return null;
+		}
+
+		// collect obstacles near the connection, expanding the search region
+		// so that routes around the obstacles are covered
+		Rectangle region = routeBounds.getExpanded(MARGIN, MARGIN);
+		for (int i = 0; i < MAX_REGION_EXPANSIONS; i++) {
+			Rectangle expandedRegion = region.getCopy();
+			for (Rectangle o : obstacles) {
+				expandedRegion.union(o.getExpanded(2 * MARGIN, 2 * MARGIN));
+			}
+			if (expandedRegion.equals(region)) {
+				break;
+			}
+			region = expandedRegion;
+			obstacles = getObstacles(index, region, terminalObstacles);
+		}
+		for (Rectangle bounds : terminalBounds) {
+			if (bounds != null) {
+				obstacles.add(bounds);
+			}
+		}
+
+		RouteComputation computation = new RouteComputation();
+		computation.connection = connection;
+		computation.start = start;
+		computation.startBounds = terminalBounds[START];
+		computation.end = end;
+		computation.endBounds = terminalBounds[END];
+		computation.obstacles = obstacles;
+		return computation;
+	}
+
+	@Override
+	public void route(Connection connection) {
+		RouteComputation computation = prepareRoute(connection);
+		if (computation != null) {
+			computation.compute();
+			applyRoute(computation);
+		}
+	}
+
+	@Override
+	public void route(List<Connection> connections) {
+		List<RouteComputation> computations = new ArrayList<>();
+		for (Connection connection : connections) {
+			RouteComputation computation = prepareRoute(connection);
+			if (computation != null) {
+				computations.add(computation);
+			}
+		}
+
+		// compute the routes around obstacles (concurrently), distributing
+		// them round-robin over the tasks
+		if (parallelism > 1 && computations.size() > 1) {
+			int taskCount = Math.min(parallelism, computations.size());
+			List<List<RouteComputation>> subsets = new ArrayList<>();
+			for (int t = 0; t < taskCount; t++) {
+				subsets.add(new ArrayList<RouteComputation>());
+			}
+			for (int c = 0; c < computations.size(); c++) {
+				subsets.get(c % taskCount).add(computations.get(c));
+			}
+			final List<RouteComputationTask> tasks = new ArrayList<>();
+			for (List<RouteComputation> subset : subsets) {
+				tasks.add(new RouteComputationTask(subset));
+			}
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} else {
+			for (RouteComputation computation : computations) {
+				computation.compute();
+			}
+		}
+
+		for (RouteComputation computation : computations) {
+			applyRoute(computation);
+		}
+	}
+
+	/**
+	 * Sets the number of threads that are used to compute the routes around
+	 * obstacles when multiple connections are routed together (default is
+	 * 1). If the parallelism is greater than 1, the route computations are
+	 * split into (at most) the given number of tasks, which are executed by
+	 * the {@link ForkJoinPool#commonPool()}, so that no threads have to be
+	 * managed by this router. The computed routes do not depend on the
+	 * parallelism.
+	 *
+	 * @param parallelism
+	 *            The number of threads used to compute the routes.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(
+					"parallelism has to be at least 1.");
+		}
+		this.parallelism = parallelism;
+	}
+}
@@ -12,11 +12,14 @@
 package org.eclipse.gef.graph.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 import java.util.function.BiConsumer;
 
 import org.eclipse.gef.graph.Edge;
@@ -295,4 +298,44 @@ public class GraphBuilderTests {
 		}
 	}
 
+	/**
+	 * Builds a graph with 100k nodes and 300k (random) edges via keyed
+	 * builders and checks that all nodes and edges are properly contained.
+	 * The time needed to do so is measured by the GraphBuilderBenchmark (in
+	 * org.eclipse.gef.graph.benchmarks).
+	 */
+	@Test
+	public void buildLargeGraph() {
+		int nodeCount = 100000;
+		int edgeCount = 300000;
+		Random random = new Random(nodeCount);
+		Graph.Builder gb = new Graph.Builder();
+		for (int i = 0; i < nodeCount; i++) {
+			gb.node(i);
+		}
+		for (int i = 0; i < edgeCount; i++) {
+			gb.edge(random.nextInt(nodeCount), random.nextInt(nodeCount));
+		}
+		Graph graph = gb.build();
+
+		assertEquals(nodeCount, graph.getNodes().size());
+		assertEquals(edgeCount, graph.getEdges().size());
+		int incoming = 0;
+		int outgoing = 0;
+		for (Node node : graph.getNodes()) {
+			assertSame(graph, node.getGraph());
+			incoming += node.getIncomingEdges().size();
+			outgoing += node.getOutgoingEdges().size();
+		}
+		assertEquals(edgeCount, incoming);
+		assertEquals(edgeCount, outgoing);
+		for (Edge edge : graph.getEdges()) {
+			assertSame(graph, edge.getGraph());
+			assertSame(graph, edge.getSource().getGraph());
+			assertSame(graph, edge.getTarget().getGraph());
+			assertTrue(edge.getSource().getOutgoingEdges().contains(edge));
+			assertTrue(edge.getTarget().getIncomingEdges().contains(edge));
+		}
+	}
+
 }
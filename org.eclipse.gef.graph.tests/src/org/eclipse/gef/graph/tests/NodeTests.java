@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.graph.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.junit.Test;
+
+public class NodeTests {
+
+	@Test
+	public void adjacency() {
+		Node n1 = new Node();
+		Node n2 = new Node();
+		Node n3 = new Node();
+		Edge e12 = new Edge(n1, n2);
+		Edge e13 = new Edge(n1, n3);
+		Edge e32 = new Edge(n3, n2);
+		Graph graph = new Graph(Arrays.asList(n1, n2, n3),
+				Arrays.asList(e12, e13, e32));
+
+		assertEquals(Collections.emptySet(), n1.getIncomingEdges());
+		assertEquals(new HashSet<>(Arrays.asList(e12, e13)),
+				n1.getOutgoingEdges());
+		assertEquals(new HashSet<>(Arrays.asList(e12, e32)),
+				n2.getIncomingEdges());
+		assertEquals(Collections.emptySet(), n2.getOutgoingEdges());
+		assertEquals(new HashSet<>(Arrays.asList(n1, n3)),
+				n2.getPredecessorNodes());
+		assertEquals(new HashSet<>(Arrays.asList(n2, n3)),
+				n1.getSuccessorNodes());
+		assertEquals(new HashSet<>(Arrays.asList(n1, n2)), n3.getNeighbors());
+
+		// removing an edge updates the adjacency of source and target
+		graph.getEdges().remove(e13);
+		assertEquals(Collections.singleton(e12), n1.getOutgoingEdges());
+		assertEquals(Collections.emptySet(), n3.getIncomingEdges());
+		assertEquals(Collections.singleton(n2), n3.getNeighbors());
+
+		// a node that is not contained in a graph has no adjacency
+		graph.getNodes().remove(n3);
+		assertEquals(Collections.emptySet(), n3.getOutgoingEdges());
+		assertEquals(Collections.emptySet(), n3.getNeighbors());
+	}
+
+	@Test
+	public void adjacencyAfterReconnect() {
+		Node n1 = new Node();
+		Node n2 = new Node();
+		Node n3 = new Node();
+		Edge e = new Edge(n1, n2);
+		new Graph(Arrays.asList(n1, n2, n3), Arrays.asList(e));
+
+		e.setTarget(n3);
+		assertEquals(Collections.emptySet(), n2.getIncomingEdges());
+		assertEquals(Collections.emptySet(), n2.getPredecessorNodes());
+		assertEquals(Collections.singleton(e), n3.getIncomingEdges());
+		assertEquals(Collections.singleton(n3), n1.getSuccessorNodes());
+
+		e.setSource(n2);
+		assertEquals(Collections.emptySet(), n1.getOutgoingEdges());
+		assertEquals(Collections.singleton(e), n2.getOutgoingEdges());
+		assertEquals(Collections.singleton(n2), n3.getPredecessorNodes());
+	}
+
+	@Test
+	public void adjacencyOfMultiEdgesAndLoops() {
+		Node n1 = new Node();
+		Node n2 = new Node();
+		Edge e12a = new Edge(n1, n2);
+		Edge e12b = new Edge(n1, n2);
+		Edge e11 = new Edge(n1, n1);
+		Graph graph = new Graph(Arrays.asList(n1, n2),
+				Arrays.asList(e12a, e12b, e11));
+
+		assertEquals(new HashSet<>(Arrays.asList(e12a, e12b, e11)),
+				n1.getOutgoingEdges());
+		assertEquals(new HashSet<>(Arrays.asList(n1, n2)),
+				n1.getSuccessorNodes());
+		assertEquals(Collections.singleton(n1), n2.getPredecessorNodes());
+
+		// the remaining parallel edge keeps the nodes adjacent
+		graph.getEdges().remove(e12a);
+		assertEquals(Collections.singleton(n1), n2.getPredecessorNodes());
+		assertEquals(new HashSet<>(Arrays.asList(n1, n2)), n1.getNeighbors());
+
+		graph.getEdges().removeAll(e12b, e11);
+		assertEquals(Collections.emptySet(), n1.getNeighbors());
+		assertEquals(Collections.emptySet(), n2.getNeighbors());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void adjacencyIsUnmodifiable() {
+		Node n1 = new Node();
+		Node n2 = new Node();
+		new Graph(Arrays.asList(n1, n2), Arrays.asList(new Edge(n1, n2)));
+		assertTrue(n1.getSuccessorNodes().contains(n2));
+		n1.getSuccessorNodes().remove(n2);
+	}
+
+}
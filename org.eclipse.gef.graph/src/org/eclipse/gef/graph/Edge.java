@@ -291,15 +291,14 @@ public class Edge implements IAttributeStore {
 
 	/**
 	 * Sets the {@link Graph} to which this {@link Edge} belongs to the given
-	 * value.
+	 * value. Only called by the {@link Graph} in reaction to a change of its
+	 * {@link Graph#getEdges() edges}, so that it is not checked whether this
+	 * {@link Edge} is actually contained in the given {@link Graph}.
 	 *
 	 * @param graph
 	 *            The new {@link Graph} for this {@link Edge}.
 	 */
 	void setGraph(Graph graph) {
-		if (graph != null && !graph.getEdges().contains(this)) {
-			throw new IllegalArgumentException("Edge is not contained in graph " + graph);
-		}
 		this.graph = graph;
 	}
 
@@ -310,7 +309,13 @@ public class Edge implements IAttributeStore {
 	 *            The new source {@link Node} for this {@link Edge}.
 	 */
 	public void setSource(Node source) {
+		if (graph != null) {
+			graph.unindex(this);
+		}
 		this.source = source;
+		if (graph != null) {
+			graph.index(this);
+		}
 	}
 
 	/**
@@ -320,7 +325,13 @@ public class Edge implements IAttributeStore {
 	 *            The new target {@link Node} for this {@link Edge}.
 	 */
 	public void setTarget(Node target) {
+		if (graph != null) {
+			graph.unindex(this);
+		}
 		this.target = target;
+		if (graph != null) {
+			graph.index(this);
+		}
 	}
 
 	@Override
@@ -17,12 +17,14 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.UUID;
 import java.util.function.BiConsumer;
 
 import org.eclipse.gef.common.attributes.IAttributeStore;
@@ -190,7 +192,8 @@ public final class Graph implements IAttributeStore {
 		 * @return <code>this</code> for convenience.
 		 */
 		public Graph.Builder edges(Collection<Edge> edges) {
-			return edges(edges.toArray(new Edge[] {}));
+			this.edges.addAll(edges);
+			return this;
 		}
 
 		/**
@@ -272,7 +275,15 @@ public final class Graph implements IAttributeStore {
 		 * @return <code>this</code> for convenience.
 		 */
 		public Graph.Builder nodes(Collection<Node> nodes) {
-			return nodes(nodes.toArray(new Node[] {}));
+			for (Node n : nodes) {
+				// use a unique key for each given node (they are not
+				// identifiable from outside, so we just have to ensure the key
+				// is not already used)
+				Object key = new Object();
+				context.nodeKeys.add(key);
+				this.nodes.put(key, n);
+			}
+			return this;
 		}
 
 		/**
@@ -285,15 +296,49 @@ public final class Graph implements IAttributeStore {
 		 * @return <code>this</code> for convenience.
 		 */
 		public Graph.Builder nodes(Node... nodes) {
-			for (Node n : nodes) {
-				// use a unique id for each given node (they are not
-				// identifiable from outside, so we just have to ensure the key
-				// is not already used)
-				UUID key = UUID.randomUUID();
-				context.nodeKeys.add(key);
-				this.nodes.put(key, n);
+			return nodes(Arrays.asList(nodes));
+		}
+	}
+
+	/**
+	 * Index of the local incoming and outgoing {@link Edge}s of a single
+	 * {@link Node}. Predecessor, successor, and neighbor {@link Node}s are
+	 * reference counted, so that multiple {@link Edge}s between the same pair
+	 * of {@link Node}s are properly accounted for.
+	 */
+	private static class Adjacency {
+
+		private final Set<Edge> incoming = Collections.newSetFromMap(new IdentityHashMap<Edge, Boolean>());
+		private final Set<Edge> outgoing = Collections.newSetFromMap(new IdentityHashMap<Edge, Boolean>());
+		private final Map<Node, Integer> predecessors = new IdentityHashMap<>();
+		private final Map<Node, Integer> successors = new IdentityHashMap<>();
+		private final Map<Node, Integer> neighbors = new IdentityHashMap<>();
+
+		private final Set<Edge> incomingView = Collections.unmodifiableSet(incoming);
+		private final Set<Edge> outgoingView = Collections.unmodifiableSet(outgoing);
+		private final Set<Node> predecessorsView = Collections.unmodifiableSet(predecessors.keySet());
+		private final Set<Node> successorsView = Collections.unmodifiableSet(successors.keySet());
+		private final Set<Node> neighborsView = Collections.unmodifiableSet(neighbors.keySet());
+
+		private static void decrement(Map<Node, Integer> counts, Node node) {
+			Integer count = counts.get(node);
+			if (count == null) {
+				return;
 			}
-			return this;
+			if (count == 1) {
+				counts.remove(node);
+			} else {
+				counts.put(node, count - 1);
+			}
+		}
+
+		private static void increment(Map<Node, Integer> counts, Node node) {
+			Integer count = counts.get(node);
+			counts.put(node, count == null ? 1 : count + 1);
+		}
+
+		private boolean isEmpty() {
+			return incoming.isEmpty() && outgoing.isEmpty();
 		}
 	}
 
@@ -332,6 +377,12 @@ public final class Graph implements IAttributeStore {
 	 */
 	private Node nestingNode; // when contained as a nested graph within a node
 
+	/**
+	 * Index of the local incoming and outgoing {@link Edge}s per {@link Node},
+	 * which is maintained by the {@link #edgesProperty} listener.
+	 */
+	private final Map<Node, Adjacency> adjacencies = new IdentityHashMap<>();
+
 	/**
 	 * Default constructor, using empty collections for attributes, nodes, and
 	 * edges.
@@ -372,12 +423,12 @@ public final class Graph implements IAttributeStore {
 			@Override
 			public void onChanged(ListChangeListener.Change<? extends Node> c) {
 				while (c.next()) {
-					for (Node n : c.getAddedSubList()) {
-						n.setGraph(Graph.this);
-					}
 					for (Node n : c.getRemoved()) {
 						n.setGraph(null);
 					}
+					for (Node n : c.getAddedSubList()) {
+						n.setGraph(Graph.this);
+					}
 				}
 			}
 		});
@@ -385,12 +436,14 @@ public final class Graph implements IAttributeStore {
 			@Override
 			public void onChanged(ListChangeListener.Change<? extends Edge> c) {
 				while (c.next()) {
-					for (Edge e : c.getAddedSubList()) {
-						e.setGraph(Graph.this);
-					}
 					for (Edge e : c.getRemoved()) {
+						unindex(e);
 						e.setGraph(null);
 					}
+					for (Edge e : c.getAddedSubList()) {
+						e.setGraph(Graph.this);
+						index(e);
+					}
 				}
 			}
 		});
@@ -413,13 +466,24 @@ public final class Graph implements IAttributeStore {
 		return edgesProperty.getReadOnlyProperty();
 	}
 
+	private Adjacency getAdjacency(Node node) {
+		Adjacency adjacency = adjacencies.get(node);
+		if (adjacency == null) {
+			adjacency = new Adjacency();
+			adjacencies.put(node, adjacency);
+		}
+		return adjacency;
+	}
+
 	@Override
 	public ObservableMap<String, Object> getAttributes() {
 		return attributesProperty.get();
 	}
 
 	/**
-	 * Returns the edgesProperty of this {@link Graph}.
+	 * Returns the edgesProperty of this {@link Graph}. Multiple {@link Edge}s
+	 * should be added via {@link ObservableList#addAll(Collection)}, so that
+	 * only a single list change notification is fired.
 	 *
 	 * @return A list containing the edgesProperty.
 	 */
@@ -427,6 +491,33 @@ public final class Graph implements IAttributeStore {
 		return edgesProperty.getReadOnlyProperty();
 	}
 
+	/**
+	 * Returns an unmodifiable view on the {@link Edge}s of this {@link Graph}
+	 * that have the given {@link Node} as their {@link Edge#getTarget()
+	 * target}.
+	 *
+	 * @param node
+	 *            The {@link Node} whose incoming {@link Edge}s to return.
+	 * @return An unmodifiable view on the incoming {@link Edge}s.
+	 */
+	Set<Edge> getIncomingEdges(Node node) {
+		Adjacency adjacency = adjacencies.get(node);
+		return adjacency == null ? Collections.<Edge> emptySet() : adjacency.incomingView;
+	}
+
+	/**
+	 * Returns an unmodifiable view on the {@link Node}s that are connected to
+	 * the given {@link Node} by an {@link Edge} of this {@link Graph}.
+	 *
+	 * @param node
+	 *            The {@link Node} whose neighbors to return.
+	 * @return An unmodifiable view on the neighbor {@link Node}s.
+	 */
+	Set<Node> getNeighbors(Node node) {
+		Adjacency adjacency = adjacencies.get(node);
+		return adjacency == null ? Collections.<Node> emptySet() : adjacency.neighborsView;
+	}
+
 	/**
 	 * Returns the {@link Node} in which this {@link Graph} is nested. Returns
 	 * <code>null</code> when this {@link Graph} is not nested.
@@ -439,7 +530,9 @@ public final class Graph implements IAttributeStore {
 	}
 
 	/**
-	 * Returns the nodes of this Graph.
+	 * Returns the nodes of this Graph. Multiple {@link Node}s should be added
+	 * via {@link ObservableList#addAll(Collection)}, so that only a single list
+	 * change notification is fired.
 	 *
 	 * @return A list containing the nodes.
 	 */
@@ -447,6 +540,34 @@ public final class Graph implements IAttributeStore {
 		return nodesProperty.getReadOnlyProperty();
 	}
 
+	/**
+	 * Returns an unmodifiable view on the {@link Edge}s of this {@link Graph}
+	 * that have the given {@link Node} as their {@link Edge#getSource()
+	 * source}.
+	 *
+	 * @param node
+	 *            The {@link Node} whose outgoing {@link Edge}s to return.
+	 * @return An unmodifiable view on the outgoing {@link Edge}s.
+	 */
+	Set<Edge> getOutgoingEdges(Node node) {
+		Adjacency adjacency = adjacencies.get(node);
+		return adjacency == null ? Collections.<Edge> emptySet() : adjacency.outgoingView;
+	}
+
+	/**
+	 * Returns an unmodifiable view on the {@link Node}s that are the
+	 * {@link Edge#getSource() source} of an {@link Edge} of this {@link Graph}
+	 * that targets the given {@link Node}.
+	 *
+	 * @param node
+	 *            The {@link Node} whose predecessors to return.
+	 * @return An unmodifiable view on the predecessor {@link Node}s.
+	 */
+	Set<Node> getPredecessorNodes(Node node) {
+		Adjacency adjacency = adjacencies.get(node);
+		return adjacency == null ? Collections.<Node> emptySet() : adjacency.predecessorsView;
+	}
+
 	/**
 	 * Returns the root graph of this Graph.
 	 *
@@ -460,6 +581,49 @@ public final class Graph implements IAttributeStore {
 		}
 	}
 
+	/**
+	 * Returns an unmodifiable view on the {@link Node}s that are the
+	 * {@link Edge#getTarget() target} of an {@link Edge} of this {@link Graph}
+	 * that originates at the given {@link Node}.
+	 *
+	 * @param node
+	 *            The {@link Node} whose successors to return.
+	 * @return An unmodifiable view on the successor {@link Node}s.
+	 */
+	Set<Node> getSuccessorNodes(Node node) {
+		Adjacency adjacency = adjacencies.get(node);
+		return adjacency == null ? Collections.<Node> emptySet() : adjacency.successorsView;
+	}
+
+	/**
+	 * Adds the given {@link Edge} to the adjacency index of its
+	 * {@link Edge#getSource() source} and {@link Edge#getTarget() target}
+	 * {@link Node}s.
+	 *
+	 * @param edge
+	 *            The {@link Edge} to index.
+	 */
+	void index(Edge edge) {
+		Node source = edge.getSource();
+		Node target = edge.getTarget();
+		if (source != null) {
+			Adjacency adjacency = getAdjacency(source);
+			adjacency.outgoing.add(edge);
+			if (target != null) {
+				Adjacency.increment(adjacency.successors, target);
+				Adjacency.increment(adjacency.neighbors, target);
+			}
+		}
+		if (target != null) {
+			Adjacency adjacency = getAdjacency(target);
+			adjacency.incoming.add(edge);
+			if (source != null) {
+				Adjacency.increment(adjacency.predecessors, source);
+				Adjacency.increment(adjacency.neighbors, source);
+			}
+		}
+	}
+
 	/**
 	 * Returns a read-only list property containing the {@link Node}s of this
 	 * {@link Graph}.
@@ -530,4 +694,41 @@ public final class Graph implements IAttributeStore {
 		return sb.toString();
 	}
 
+	/**
+	 * Removes the given {@link Edge} from the adjacency index of its
+	 * {@link Edge#getSource() source} and {@link Edge#getTarget() target}
+	 * {@link Node}s.
+	 *
+	 * @param edge
+	 *            The {@link Edge} to remove from the index.
+	 */
+	void unindex(Edge edge) {
+		Node source = edge.getSource();
+		Node target = edge.getTarget();
+		if (source != null) {
+			Adjacency adjacency = adjacencies.get(source);
+			if (adjacency != null && adjacency.outgoing.remove(edge)) {
+				if (target != null) {
+					Adjacency.decrement(adjacency.successors, target);
+					Adjacency.decrement(adjacency.neighbors, target);
+				}
+				if (adjacency.isEmpty()) {
+					adjacencies.remove(source);
+				}
+			}
+		}
+		if (target != null) {
+			Adjacency adjacency = adjacencies.get(target);
+			if (adjacency != null && adjacency.incoming.remove(edge)) {
+				if (source != null) {
+					Adjacency.decrement(adjacency.predecessors, source);
+					Adjacency.decrement(adjacency.neighbors, source);
+				}
+				if (adjacency.isEmpty()) {
+					adjacencies.remove(target);
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.graph.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gef.graph.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks building a {@link Graph} with keyed nodes and (random) edges via
+ * the {@link Graph.Builder}, which has to scale linearly with the number of
+ * nodes and edges. Each graph has three times as many edges as nodes.
+ *
+ * @author agent
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphBuilderBenchmark {
+
+	/**
+	 * The number of nodes of the graph to build.
+	 */
+	@Param({ "25000", "100000" })
+	public int nodes;
+
+	private int[] sources;
+	private int[] targets;
+
+	/**
+	 * Builds the graph.
+	 *
+	 * @return The {@link Graph}, so that the build is not optimized away.
+	 */
+	@Benchmark
+	public Graph build() {
+		Graph.Builder gb = new Graph.Builder();
+		for (int i = 0; i < nodes; i++) {
+			gb.node(i);
+		}
+		for (int i = 0; i < sources.length; i++) {
+			gb.edge(sources[i], targets[i]);
+		}
+		return gb.build();
+	}
+
+	/**
+	 * Creates the (random) edges for the current parameters.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(nodes);
+		sources = new int[3 * nodes];
+		targets = new int[3 * nodes];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = random.nextInt(nodes);
+			targets[i] = random.nextInt(nodes);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.LayoutContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link AbstractLayoutBenchmark} measures the time of a full layout pass
+ * ({@link LayoutContext#applyLayout(boolean)}) for the synthetic graphs of all
+ * {@link GraphFamily graph families}. Subclasses provide the
+ * {@link ILayoutAlgorithm} and the number of nodes, which is limited by what
+ * the algorithm can handle in reasonable time.
+ * <p>
+ * The graph and the layout algorithm are created once per trial, i.e. the
+ * layout is repeatedly applied to the same graph. No JavaFX toolkit is needed.
+ *
+ * @author agent
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public abstract class AbstractLayoutBenchmark {
+
+	/**
+	 * The {@link GraphFamily} of the graph to layout.
+	 */
+	@Param
+	public GraphFamily family;
+
+	private Graph graph;
+	private LayoutContext layoutContext;
+
+	/**
+	 * Applies the layout algorithm to the graph.
+	 *
+	 * @return The {@link Graph}, so that the layout is not optimized away.
+	 */
+	@Benchmark
+	public Graph applyLayout() {
+		layoutContext.applyLayout(true);
+		return graph;
+	}
+
+	/**
+	 * Creates the {@link ILayoutAlgorithm} that is benchmarked.
+	 *
+	 * @return The {@link ILayoutAlgorithm} to benchmark.
+	 */
+	protected abstract ILayoutAlgorithm createLayoutAlgorithm();
+
+	/**
+	 * Returns the number of nodes of the graph to layout.
+	 *
+	 * @return The number of nodes.
+	 */
+	protected abstract int getNodeCount();
+
+	/**
+	 * Creates the graph and the {@link LayoutContext} for the current
+	 * parameters.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		graph = family.createGraph(getNodeCount());
+		layoutContext = new LayoutContext();
+		layoutContext.setGraph(graph);
+		layoutContext.setLayoutAlgorithm(createLayoutAlgorithm());
+	}
+}
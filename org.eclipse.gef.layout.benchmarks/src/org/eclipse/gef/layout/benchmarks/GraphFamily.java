@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.LayoutProperties;
+
+/**
+ * The {@link GraphFamily} enumerates the kinds of synthetic graphs that are
+ * used to benchmark the layout algorithms. The graphs are generated from a
+ * fixed seed, so that the same graph is used for every run.
+ *
+ * @author agent
+ *
+ */
+public enum GraphFamily {
+
+	/**
+	 * A random tree, i.e. every node (except the root) is connected to a
+	 * randomly chosen predecessor.
+	 */
+	TREE,
+
+	/**
+	 * A random directed acyclic graph, in which every node (except the first)
+	 * has one to three incoming edges from randomly chosen predecessors.
+	 */
+	DAG,
+
+	/**
+	 * A scale-free graph, which is generated by preferential attachment, i.e.
+	 * every new node is connected to two existing nodes, which are chosen with
+	 * a probability proportional to their degree.
+	 */
+	SCALE_FREE,
+
+	/**
+	 * A square grid, in which every node is connected to its right and bottom
+	 * neighbor.
+	 */
+	GRID,
+
+	/**
+	 * Dense clusters of {@link #CLUSTER_SIZE} nodes, in which every pair of
+	 * nodes is connected with a probability of 1/2, and each cluster is
+	 * connected to the next one by a single edge.
+	 */
+	CLUSTERS;
+
+	/**
+	 * The number of nodes per cluster of a {@link #CLUSTERS} graph.
+	 */
+	public static final int CLUSTER_SIZE = 20;
+
+	private static final long SEED = 4711;
+
+	/**
+	 * Creates a new {@link Graph} of this family with the given number of
+	 * nodes. The nodes are located at the origin, have random sizes, and the
+	 * layout bounds of the graph grow with the number of nodes.
+	 *
+	 * @param nodeCount
+	 *            The number of nodes to create.
+	 * @return The new {@link Graph}.
+	 */
+	public Graph createGraph(int nodeCount) {
+		Random random = new Random(SEED);
+		List<Node> nodes = new ArrayList<>(nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			Node node = new Node();
+			LayoutProperties.setLocation(node, new Point());
+			LayoutProperties.setSize(node, new Dimension(
+					10 + random.nextInt(20), 10 + random.nextInt(10)));
+			nodes.add(node);
+		}
+
+		List<Edge> edges = new ArrayList<>();
+		switch (this) {
+		case TREE:
+			for (int i = 1; i < nodeCount; i++) {
+				edges.add(new Edge(nodes.get(random.nextInt(i)), nodes.get(i)));
+			}
+			break;
+		case DAG:
+			for (int i = 1; i < nodeCount; i++) {
+				int incoming = Math.min(i, 1 + random.nextInt(3));
+				for (int j = 0; j < incoming; j++) {
+					edges.add(new Edge(nodes.get(random.nextInt(i)),
+							nodes.get(i)));
+				}
+			}
+			break;
+		case SCALE_FREE:
+			// every edge contributes both of its end points, so that choosing
+			// a random end point prefers nodes with a high degree
+			List<Node> endPoints = new ArrayList<>();
+			for (int i = 1; i < nodeCount; i++) {
+				Node node = nodes.get(i);
+				int outgoing = Math.min(i, 2);
+				for (int j = 0; j < outgoing; j++) {
+					Node target = endPoints.isEmpty() ? nodes.get(0)
+							: endPoints.get(random.nextInt(endPoints.size()));
+					edges.add(new Edge(node, target));
+					endPoints.add(node);
+					endPoints.add(target);
+				}
+			}
+			break;
+		case GRID:
+			int columns = (int) Math.ceil(Math.sqrt(nodeCount));
+			for (int i = 0; i < nodeCount; i++) {
+				if ((i + 1) % columns != 0 && i + 1 < nodeCount) {
+					edges.add(new Edge(nodes.get(i), nodes.get(i + 1)));
+				}
+				if (i + columns < nodeCount) {
+					edges.add(new Edge(nodes.get(i), nodes.get(i + columns)));
+				}
+			}
+			break;
+		case CLUSTERS:
+			for (int start = 0; start < nodeCount; start += CLUSTER_SIZE) {
+				int end = Math.min(nodeCount, start + CLUSTER_SIZE);
+				for (int i = start; i < end; i++) {
+					for (int j = i + 1; j < end; j++) {
+						if (random.nextBoolean()) {
+							edges.add(new Edge(nodes.get(i), nodes.get(j)));
+						}
+					}
+				}
+				if (end < nodeCount) {
+					edges.add(new Edge(nodes.get(start), nodes.get(end)));
+				}
+			}
+			break;
+		}
+
+		Graph graph = new Graph(nodes, edges);
+		double size = 100 * Math.ceil(Math.sqrt(nodeCount));
+		LayoutProperties.setBounds(graph, new Rectangle(0, 0, size, size));
+		return graph;
+	}
+}
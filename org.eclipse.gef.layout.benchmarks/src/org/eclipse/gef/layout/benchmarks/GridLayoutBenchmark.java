@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.benchmarks;
+
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.GridLayoutAlgorithm;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the {@link GridLayoutAlgorithm}.
+ *
+ * @author agent
+ *
+ */
+public class GridLayoutBenchmark extends AbstractLayoutBenchmark {
+
+	/**
+	 * The number of nodes of the graph to layout.
+	 */
+	@Param({ "100", "1000", "10000", "100000" })
+	public int nodes;
+
+	@Override
+	protected ILayoutAlgorithm createLayoutAlgorithm() {
+		return new GridLayoutAlgorithm();
+	}
+
+	@Override
+	protected int getNodeCount() {
+		return nodes;
+	}
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the layout benchmarks, as well as the graph benchmarks (within the
+ * <code>org.eclipse.gef.graph.benchmarks</code> package), which measure the
+ * construction of the graphs that are laid out. The command line arguments
+ * are interpreted by JMH (use <code>-h</code> to list them), for example
+ * <code>java -jar target/benchmarks.jar Spring -p family=TREE</code> runs the
+ * {@link SpringLayoutBenchmark} for trees only.
+ * <p>
+ * Unless specified otherwise, the time and the allocated memory
+ * (<code>gc.alloc.rate.norm</code>) per layout pass are measured, and the
+ * results are written to <code>jmh-result.json</code>, so that they can be
+ * compared across releases.
+ *
+ * @author agent
+ *
+ */
+public class LayoutBenchmarks {
+
+	/**
+	 * The default file to which the results are written.
+	 */
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	/**
+	 * The package of the graph benchmarks, which are run by default as well.
+	 */
+	public static final String GRAPH_BENCHMARKS_PACKAGE = "org.eclipse.gef.graph"
+			+ ".benchmarks";
+
+	/**
+	 * Runs the layout and graph benchmarks.
+	 *
+	 * @param args
+	 *            The JMH command line arguments.
+	 * @throws IOException
+	 *             if the help could not be printed.
+	 * @throws RunnerException
+	 *             if a benchmark could not be run.
+	 */
+	public static void main(String[] args)
+			throws IOException, RunnerException {
+		CommandLineOptions commandLineOptions;
+		try {
+			commandLineOptions = new CommandLineOptions(args);
+		} catch (CommandLineOptionException e) {
+			System.err.println("Error parsing command line:");
+			System.err.println(" " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(commandLineOptions);
+		if (!commandLineOptions.getJvmArgsAppend().hasValue()) {
+			// the layout algorithms do not need a display
+			options.jvmArgsAppend("-Djava.awt.headless=true");
+		}
+		if (commandLineOptions.getIncludes().isEmpty()) {
+			options.include(LayoutBenchmarks.class.getPackage().getName());
+			options.include(GRAPH_BENCHMARKS_PACKAGE);
+		}
+		if (commandLineOptions.getProfilers().isEmpty()) {
+			options.addProfiler(GCProfiler.class);
+		}
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLineOptions.getResult().hasValue()) {
+			options.result(DEFAULT_RESULT_FILE);
+		}
+		Runner runner = new Runner(options.build());
+		if (commandLineOptions.shouldList()) {
+			runner.list();
+			return;
+		}
+		runner.run();
+	}
+}
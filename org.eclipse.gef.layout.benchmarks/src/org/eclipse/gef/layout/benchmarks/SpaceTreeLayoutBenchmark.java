@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.benchmarks;
+
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.SpaceTreeLayoutAlgorithm;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the {@link SpaceTreeLayoutAlgorithm}, which expands the layers
+ * that fit into the layout bounds and places the expanded nodes in linear
+ * time.
+ *
+ * @author agent
+ *
+ */
+public class SpaceTreeLayoutBenchmark extends AbstractLayoutBenchmark {
+
+	/**
+	 * The number of nodes of the graph to layout.
+	 */
+	@Param({ "20", "100", "1000", "10000" })
+	public int nodes;
+
+	@Override
+	protected ILayoutAlgorithm createLayoutAlgorithm() {
+		return new SpaceTreeLayoutAlgorithm();
+	}
+
+	@Override
+	protected int getNodeCount() {
+		return nodes;
+	}
+}
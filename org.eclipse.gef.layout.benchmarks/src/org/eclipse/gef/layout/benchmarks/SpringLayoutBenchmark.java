@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.benchmarks;
+
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.SpringLayoutAlgorithm;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the {@link SpringLayoutAlgorithm}. The random placement uses a fixed seed, so that every run starts from the same locations.
+ *
+ * @author agent
+ *
+ */
+public class SpringLayoutBenchmark extends AbstractLayoutBenchmark {
+
+	/**
+	 * The number of nodes of the graph to layout.
+	 */
+	@Param({ "100", "1000", "10000" })
+	public int nodes;
+
+	@Override
+	protected ILayoutAlgorithm createLayoutAlgorithm() {
+		SpringLayoutAlgorithm layoutAlgorithm = new SpringLayoutAlgorithm();
+		layoutAlgorithm.setRandomSeed(4711L);
+		return layoutAlgorithm;
+	}
+
+	@Override
+	protected int getNodeCount() {
+		return nodes;
+	}
+}
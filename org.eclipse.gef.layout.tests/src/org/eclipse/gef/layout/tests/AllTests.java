@@ -17,6 +17,8 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ LayoutAlgorithmTests.class })
+@SuiteClasses({ BarnesHutTreeTests.class, LayoutAlgorithmTests.class,
+		LayoutContextTests.class, LayoutGraphTests.class,
+		SpaceTreeLayoutAlgorithmTests.class })
 public class AllTests {
 }
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.eclipse.gef.layout.internal.algorithms.BarnesHutTree;
+import org.junit.Test;
+
+public class BarnesHutTreeTests {
+
+	private static final double GRAVITATION = 2.5;
+	private static final double MIN_DISTANCE = 0.05;
+
+	/**
+	 * Asserts that the given forces equal the given expected forces (relative
+	 * to the largest expected force).
+	 */
+	private static void assertForces(double[] expectedX, double[] expectedY,
+			double[] forcesX, double[] forcesY) {
+		double max = 0;
+		for (int i = 0; i < expectedX.length; i++) {
+			max = Math.max(max, Math.hypot(expectedX[i], expectedY[i]));
+		}
+		for (int i = 0; i < expectedX.length; i++) {
+			assertEquals(expectedX[i], forcesX[i], max * 1e-9);
+			assertEquals(expectedY[i], forcesY[i], max * 1e-9);
+		}
+	}
+
+	/**
+	 * Computes the repulsion between all pairs of points, i.e.
+	 * <code>gravitation / max(d, minDistance)^2</code>.
+	 */
+	private static void computeExactRepulsion(double[] x, double[] y,
+			double[] forcesX, double[] forcesY) {
+		for (int i = 0; i < x.length; i++) {
+			for (int j = 0; j < x.length; j++) {
+				if (j != i) {
+					double dx = x[i] - x[j];
+					double dy = y[i] - y[j];
+					double distance = Math.max(MIN_DISTANCE,
+							Math.hypot(dx, dy));
+					double f = GRAVITATION / (distance * distance);
+					forcesX[i] += f * dx / distance;
+					forcesY[i] += f * dy / distance;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates random points, half of which are clustered within a region that
+	 * is smaller than the minimum distance, so that cells exist which are
+	 * completely within the minimum distance of a point.
+	 */
+	private static double[][] createPoints(int n) {
+		Random random = new Random(n);
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			double extent = i % 2 == 0 ? 1 : MIN_DISTANCE / 4;
+			x[i] = random.nextDouble() * extent;
+			y[i] = random.nextDouble() * extent;
+		}
+		return new double[][] { x, y };
+	}
+
+	@Test
+	public void repulsionOfAllPointsWithoutApproximation() {
+		double[][] points = createPoints(300);
+		double[] x = points[0];
+		double[] y = points[1];
+		double[] expectedX = new double[x.length];
+		double[] expectedY = new double[x.length];
+		computeExactRepulsion(x, y, expectedX, expectedY);
+
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.build(x, y);
+		double[] forcesX = new double[x.length];
+		double[] forcesY = new double[x.length];
+		tree.accumulateRepulsion(GRAVITATION, MIN_DISTANCE, 0, forcesX,
+				forcesY);
+		assertForces(expectedX, expectedY, forcesX, forcesY);
+	}
+
+	@Test
+	public void repulsionOfPointWithoutApproximation() {
+		double[][] points = createPoints(300);
+		double[] x = points[0];
+		double[] y = points[1];
+		double[] expectedX = new double[x.length];
+		double[] expectedY = new double[x.length];
+		computeExactRepulsion(x, y, expectedX, expectedY);
+
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.build(x, y);
+		double[] forcesX = new double[x.length];
+		double[] forcesY = new double[x.length];
+		for (int i = 0; i < x.length; i++) {
+			tree.accumulateRepulsion(i, GRAVITATION, MIN_DISTANCE, 0, forcesX,
+					forcesY);
+		}
+		assertForces(expectedX, expectedY, forcesX, forcesY);
+	}
+}
@@ -10,7 +10,35 @@
  *******************************************************************************/
 package org.eclipse.gef.layout.tests;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
 import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutJob;
+import org.eclipse.gef.layout.LayoutProperties;
+import org.eclipse.gef.layout.algorithms.ConnectedComponentsLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.GridLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.MultilevelLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.RadialLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.SpaceTreeLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.SpringLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.SugiyamaLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.SugiyamaLayoutAlgorithm.NodeWrapper;
+import org.eclipse.gef.layout.algorithms.TreeLayoutAlgorithm;
 import org.eclipse.gef.layout.algorithms.TreeLayoutHelper;
 import org.junit.Assert;
 import org.junit.Test;
@@ -83,4 +111,708 @@ public class LayoutAlgorithmTests {
 		Assert.assertFalse(node3.isAncestorOf(node4));
 		Assert.assertFalse(node4.isAncestorOf(node3));
 	}
+
+	/**
+	 * Tests that deep trees can be laid out without exhausting the stack.
+	 */
+	@Test
+	public void testTreeLayoutDeepChain() {
+		for (boolean tidyTree : new boolean[] { false, true }) {
+			List<Node> nodes = new ArrayList<>();
+			List<Edge> edges = new ArrayList<>();
+			for (int i = 0; i < 100000; i++) {
+				Node node = new Node();
+				LayoutProperties.setSize(node, new Dimension(10, 10));
+				nodes.add(node);
+				if (i > 0) {
+					edges.add(new Edge(nodes.get(i - 1), node));
+				}
+			}
+			Graph graph = new Graph(nodes, edges);
+			TreeLayoutAlgorithm algorithm = new TreeLayoutAlgorithm(
+					TreeLayoutAlgorithm.TOP_DOWN, new Dimension(20, 20));
+			algorithm.setTidyTree(tidyTree);
+			LayoutContext context = new LayoutContext();
+			context.setGraph(graph);
+			context.setLayoutAlgorithm(algorithm);
+			context.applyLayout(true);
+			Point last = LayoutProperties.getLocation(nodes.get(99999));
+			Assert.assertEquals(10, last.x, 1e-9);
+			Assert.assertEquals(99999.5 * 20, last.y, 1e-9);
+		}
+	}
+
+	/**
+	 * Tests that a tidy tree centers each node above its children, and does
+	 * not place nodes of the same layer closer than the node space.
+	 */
+	@Test
+	public void testTreeLayoutTidyTree() {
+		Graph graph = createRandomGraph(300, 6);
+		TreeLayoutAlgorithm algorithm = new TreeLayoutAlgorithm(
+				TreeLayoutAlgorithm.TOP_DOWN, new Dimension(20, 20));
+		algorithm.setTidyTree(true);
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(algorithm);
+		context.applyLayout(true);
+
+		List<List<Double>> layers = new ArrayList<>();
+		double maxX = 0;
+		for (Node node : graph.getNodes()) {
+			Point location = LayoutProperties.getLocation(node);
+			int layer = (int) (location.y / 20);
+			while (layers.size() <= layer) {
+				layers.add(new ArrayList<Double>());
+			}
+			layers.get(layer).add(location.x);
+			maxX = Math.max(maxX, location.x);
+
+			double minChildX = Double.POSITIVE_INFINITY;
+			double maxChildX = Double.NEGATIVE_INFINITY;
+			for (Node child : node.getSuccessorNodes()) {
+				double x = LayoutProperties.getLocation(child).x;
+				minChildX = Math.min(minChildX, x);
+				maxChildX = Math.max(maxChildX, x);
+			}
+			if (!node.getSuccessorNodes().isEmpty()) {
+				Assert.assertEquals((minChildX + maxChildX) / 2, location.x,
+						1e-6);
+			}
+		}
+		for (List<Double> layer : layers) {
+			Collections.sort(layer);
+			for (int i = 1; i < layer.size(); i++) {
+				Assert.assertTrue(layer.get(i) - layer.get(i - 1) > 20 - 1e-6);
+			}
+		}
+
+		// a tidy tree is narrower than a tree with a slot per leaf
+		int leaves = 0;
+		for (Node node : graph.getNodes()) {
+			if (node.getSuccessorNodes().isEmpty()) {
+				leaves++;
+			}
+		}
+		Assert.assertTrue(maxX + 10 < leaves * 20);
+	}
+
+	private static Graph createRandomGraph(int nodeCount, long seed) {
+		Random random = new Random(seed);
+		List<Node> nodes = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
+		for (int i = 0; i < nodeCount; i++) {
+			Node node = new Node();
+			LayoutProperties.setLocation(node, new Point(
+					random.nextDouble() * 400, random.nextDouble() * 300));
+			LayoutProperties.setSize(node, new Dimension(10, 10));
+			nodes.add(node);
+			if (i > 0) {
+				edges.add(new Edge(nodes.get(random.nextInt(i)), node));
+			}
+		}
+		Graph graph = new Graph(nodes, edges);
+		LayoutProperties.setBounds(graph, new Rectangle(0, 0, 400, 300));
+		return graph;
+	}
+
+	private static Point[] applySpringLayout(Graph graph,
+			SpringLayoutAlgorithm.Repulsion repulsion) {
+		SpringLayoutAlgorithm algorithm = new SpringLayoutAlgorithm();
+		algorithm.setRandom(false);
+		algorithm.setRepulsion(repulsion);
+		return applySpringLayout(graph, algorithm);
+	}
+
+	private static Point[] applySpringLayout(Graph graph,
+			SpringLayoutAlgorithm algorithm) {
+		algorithm.setIterations(20);
+		algorithm.setSpringTimeout(0);
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(algorithm);
+		context.applyLayout(true);
+		Point[] locations = new Point[graph.getNodes().size()];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = LayoutProperties
+					.getLocation(graph.getNodes().get(i));
+		}
+		return locations;
+	}
+
+	/**
+	 * Tests that the Barnes-Hut approximation of the repulsion results in
+	 * (nearly) the same layout as the exact computation.
+	 */
+	@Test
+	public void testSpringLayoutBarnesHutApproximatesExactRepulsion() {
+		Point[] exact = applySpringLayout(createRandomGraph(200, 1),
+				SpringLayoutAlgorithm.Repulsion.EXACT);
+		Point[] approximated = applySpringLayout(createRandomGraph(200, 1),
+				SpringLayoutAlgorithm.Repulsion.BARNES_HUT);
+		double sumOfDistances = 0;
+		for (int i = 0; i < exact.length; i++) {
+			Assert.assertFalse(Double.isNaN(approximated[i].x));
+			sumOfDistances += exact[i].getDistance(approximated[i]);
+		}
+		// on average, nodes deviate less than 4% of the diagonal of the bounds
+		Assert.assertTrue(sumOfDistances / exact.length < 20);
+	}
+
+	/**
+	 * Tests that the spring layout is reproducible for a given seed, and does
+	 * not depend on the number of threads that compute the forces.
+	 */
+	@Test
+	public void testSpringLayoutParallelismIsDeterministic() {
+		for (SpringLayoutAlgorithm.Repulsion repulsion : SpringLayoutAlgorithm.Repulsion
+				.values()) {
+			Point[] expected = null;
+			for (int parallelism : new int[] { 1, 3, 1 }) {
+				SpringLayoutAlgorithm algorithm = new SpringLayoutAlgorithm();
+				algorithm.setRandomSeed(42L);
+				algorithm.setRepulsion(repulsion);
+				algorithm.setParallelism(parallelism);
+				Point[] locations = applySpringLayout(
+						createRandomGraph(300, 2), algorithm);
+				if (expected == null) {
+					expected = locations;
+				} else {
+					Assert.assertArrayEquals(expected, locations);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that the multilevel layout is reproducible for a given seed, and
+	 * places all nodes within the layout bounds.
+	 */
+	@Test
+	public void testMultilevelLayout() {
+		Point[] expected = null;
+		for (int run = 0; run < 2; run++) {
+			Graph graph = createRandomGraph(500, 3);
+			MultilevelLayoutAlgorithm algorithm = new MultilevelLayoutAlgorithm();
+			algorithm.setRandomSeed(42L);
+			LayoutContext context = new LayoutContext();
+			context.setGraph(graph);
+			context.setLayoutAlgorithm(algorithm);
+			context.applyLayout(true);
+			Point[] locations = new Point[graph.getNodes().size()];
+			for (int i = 0; i < locations.length; i++) {
+				locations[i] = LayoutProperties
+						.getLocation(graph.getNodes().get(i));
+				Assert.assertTrue(new Rectangle(0, 0, 400, 300)
+						.contains(locations[i]));
+			}
+			if (expected == null) {
+				expected = locations;
+			} else {
+				Assert.assertArrayEquals(expected, locations);
+			}
+		}
+	}
+
+	/**
+	 * Tests that the multilevel layout can be applied to a graph without
+	 * layout bounds, in which case the locations are not fitted into bounds.
+	 */
+	@Test
+	public void testMultilevelLayoutWithoutBounds() {
+		Graph graph = createRandomGraph(100, 4);
+		graph.getAttributes().remove(LayoutProperties.BOUNDS_PROPERTY);
+		MultilevelLayoutAlgorithm algorithm = new MultilevelLayoutAlgorithm();
+		algorithm.setRandomSeed(42L);
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(algorithm);
+		context.applyLayout(true);
+		for (Node node : graph.getNodes()) {
+			Point location = LayoutProperties.getLocation(node);
+			Assert.assertFalse(Double.isNaN(location.x));
+			Assert.assertFalse(Double.isNaN(location.y));
+		}
+	}
+
+	/**
+	 * Tests that an incremental layout pass only moves the added node and its
+	 * neighbor, while all other nodes keep their locations.
+	 */
+	@Test
+	public void testSpringLayoutIncremental() {
+		Graph graph = createRandomGraph(50, 3);
+		SpringLayoutAlgorithm algorithm = new SpringLayoutAlgorithm();
+		algorithm.setRandomSeed(3L);
+		algorithm.setIterations(20);
+		algorithm.setSpringTimeout(0);
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(algorithm);
+		context.applyLayout(true);
+		List<Node> nodes = new ArrayList<>(graph.getNodes());
+		Point[] locations = new Point[nodes.size()];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = LayoutProperties.getLocation(nodes.get(i));
+		}
+
+		Node added = new Node();
+		LayoutProperties.setSize(added, new Dimension(10, 10));
+		graph.getNodes().add(added);
+		graph.getEdges().add(new Edge(nodes.get(0), added));
+		context.applyIncrementalLayout();
+
+		Point location = LayoutProperties.getLocation(added);
+		Assert.assertTrue(location.getDistance(
+				LayoutProperties.getLocation(nodes.get(0))) < 150);
+		for (int i = 1; i < locations.length; i++) {
+			Assert.assertSame(locations[i],
+					LayoutProperties.getLocation(nodes.get(i)));
+		}
+	}
+
+	/**
+	 * Tests that an incremental layout pass can be applied to a graph without
+	 * layout bounds, in which case added nodes without placed neighbors are
+	 * placed within the extent of the other nodes.
+	 */
+	@Test
+	public void testSpringLayoutIncrementalWithoutBounds() {
+		Graph graph = createRandomGraph(50, 5);
+		SpringLayoutAlgorithm algorithm = new SpringLayoutAlgorithm();
+		algorithm.setRandomSeed(5L);
+		algorithm.setIterations(20);
+		algorithm.setSpringTimeout(0);
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(algorithm);
+		context.applyLayout(true);
+		graph.getAttributes().remove(LayoutProperties.BOUNDS_PROPERTY);
+
+		Node isolated = new Node();
+		LayoutProperties.setSize(isolated, new Dimension(10, 10));
+		graph.getNodes().add(isolated);
+		context.applyIncrementalLayout();
+
+		// the relaxation may push the node outwards by less than 150 (the
+		// ideal distance is about 50)
+		Point location = LayoutProperties.getLocation(isolated);
+		Assert.assertFalse(Double.isNaN(location.x));
+		Assert.assertFalse(Double.isNaN(location.y));
+		Assert.assertTrue(new Rectangle(-150, -150, 700, 600).contains(location));
+	}
+
+	/**
+	 * Tests that a continuous spring layout converges step by step, executing
+	 * the post layout pass after each batch of steps, and that a stopped
+	 * continuous layout does not change the graph anymore.
+	 */
+	@Test
+	public void testSpringLayoutContinuous() {
+		Graph graph = createRandomGraph(50, 6);
+		SpringLayoutAlgorithm algorithm = new SpringLayoutAlgorithm();
+		algorithm.setRandomSeed(6L);
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(algorithm);
+		final int[] postLayoutPasses = new int[1];
+		context.schedulePostLayoutPass(new Runnable() {
+			@Override
+			public void run() {
+				postLayoutPasses[0]++;
+			}
+		});
+
+		Assert.assertTrue(context.startContinuousLayout(true));
+		Assert.assertTrue(context.isContinuousLayoutRunning());
+		int batches = 1;
+		while (!context.applyContinuousLayoutSteps(10)) {
+			batches++;
+			Assert.assertTrue(batches * 10 <= algorithm.getIterations());
+		}
+		Assert.assertTrue(batches > 1);
+		Assert.assertEquals(batches, postLayoutPasses[0]);
+		Assert.assertFalse(context.isContinuousLayoutRunning());
+		Assert.assertTrue(context.applyContinuousLayoutSteps(10));
+
+		context.startContinuousLayout(true);
+		Assert.assertFalse(context.applyContinuousLayoutSteps(10));
+		context.stopContinuousLayout();
+		List<Node> nodes = new ArrayList<>(graph.getNodes());
+		Point[] locations = new Point[nodes.size()];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = LayoutProperties.getLocation(nodes.get(i));
+		}
+		Assert.assertTrue(context.applyContinuousLayoutSteps(10));
+		for (int i = 0; i < locations.length; i++) {
+			Assert.assertSame(locations[i],
+					LayoutProperties.getLocation(nodes.get(i)));
+		}
+	}
+
+	/**
+	 * Tests that the connected components are packed without overlapping each
+	 * other, and that the layout does not depend on the parallelism.
+	 */
+	@Test
+	public void testConnectedComponentsLayout() {
+		// a forest of random trees, and some isolated nodes
+		Random random = new Random(7);
+		List<Node> nodes = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
+		List<List<Node>> components = new ArrayList<>();
+		for (int c = 0; c < 30; c++) {
+			List<Node> component = new ArrayList<>();
+			int size = c % 3 == 0 ? 1 : 2 + random.nextInt(15);
+			for (int i = 0; i < size; i++) {
+				Node node = new Node();
+				LayoutProperties.setLocation(node, new Point());
+				LayoutProperties.setSize(node, new Dimension(10, 10));
+				if (i > 0) {
+					edges.add(new Edge(
+							component.get(random.nextInt(i)), node));
+				}
+				component.add(node);
+			}
+			nodes.addAll(component);
+			components.add(component);
+		}
+		Graph graph = new Graph(nodes, edges);
+		LayoutProperties.setBounds(graph, new Rectangle(0, 0, 800, 600));
+
+		Point[] expected = null;
+		for (int parallelism : new int[] { 1, 4 }) {
+			ConnectedComponentsLayoutAlgorithm algorithm = new ConnectedComponentsLayoutAlgorithm(
+					new Supplier<ILayoutAlgorithm>() {
+						@Override
+						public ILayoutAlgorithm get() {
+							SpringLayoutAlgorithm spring = new SpringLayoutAlgorithm();
+							spring.setRandomSeed(7L);
+							spring.setIterations(20);
+							spring.setSpringTimeout(0);
+							return spring;
+						}
+					});
+			algorithm.setParallelism(parallelism);
+			LayoutContext context = new LayoutContext();
+			context.setGraph(graph);
+			context.setLayoutAlgorithm(algorithm);
+			context.applyLayout(true);
+
+			Point[] locations = new Point[nodes.size()];
+			for (int i = 0; i < locations.length; i++) {
+				locations[i] = LayoutProperties.getLocation(nodes.get(i));
+			}
+			if (expected == null) {
+				expected = locations;
+			} else {
+				Assert.assertArrayEquals(expected, locations);
+			}
+		}
+
+		Rectangle[] extents = new Rectangle[components.size()];
+		for (int c = 0; c < extents.length; c++) {
+			for (Node node : components.get(c)) {
+				Rectangle nodeBounds = new Rectangle(
+						LayoutProperties.getLocation(node)
+								.getTranslated(-5, -5),
+						LayoutProperties.getSize(node));
+				extents[c] = extents[c] == null ? nodeBounds
+						: extents[c].union(nodeBounds);
+			}
+			for (int d = 0; d < c; d++) {
+				Assert.assertFalse(extents[c].touches(extents[d]));
+			}
+		}
+	}
+
+	/**
+	 * Tests that an asynchronous layout pass yields the same result as a
+	 * synchronous one, which is only transferred to the graph by the apply
+	 * executor, and that a superseded layout pass is discarded.
+	 */
+	@Test
+	public void testAsyncLayout() throws Exception {
+		SpringLayoutAlgorithm algorithm = new SpringLayoutAlgorithm();
+		algorithm.setRandomSeed(5L);
+		Point[] expected = applySpringLayout(createRandomGraph(50, 4),
+				algorithm);
+
+		Graph graph = createRandomGraph(50, 4);
+		algorithm = new SpringLayoutAlgorithm();
+		algorithm.setRandomSeed(5L);
+		algorithm.setIterations(20);
+		algorithm.setSpringTimeout(0);
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(algorithm);
+		final List<Runnable> tasks = new ArrayList<>();
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		};
+		LayoutJob superseded = context.applyLayoutAsync(true, executor,
+				executor);
+		LayoutJob job = context.applyLayoutAsync(true, executor, executor);
+		Assert.assertTrue(superseded.isCancelled());
+		Point location = LayoutProperties.getLocation(graph.getNodes().get(0));
+
+		// run the layout passes and the transfer of their results
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+			if (!job.isDone()) {
+				Assert.assertSame(location,
+						LayoutProperties.getLocation(graph.getNodes().get(0)));
+			}
+		}
+		Assert.assertTrue(job.isDone());
+		job.get();
+		Assert.assertEquals(1, job.getProgress(), 0);
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals(expected[i],
+					LayoutProperties.getLocation(graph.getNodes().get(i)));
+		}
+	}
+
+	/**
+	 * Tests that only the attributes that were changed by an asynchronous
+	 * layout pass are transferred to the graph, so that changes that are made
+	 * to the graph during the layout pass are preserved.
+	 */
+	@Test
+	public void testAsyncLayoutPreservesConcurrentChanges() {
+		Graph graph = createRandomGraph(20, 7);
+		Node node = graph.getNodes().get(0);
+		node.getAttributes().put("label", "before");
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		SpringLayoutAlgorithm algorithm = new SpringLayoutAlgorithm();
+		algorithm.setRandomSeed(7L);
+		algorithm.setIterations(20);
+		algorithm.setSpringTimeout(0);
+		context.setLayoutAlgorithm(algorithm);
+		final List<Runnable> tasks = new ArrayList<>();
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		};
+		LayoutJob job = context.applyLayoutAsync(true, executor, executor);
+		Point location = LayoutProperties.getLocation(node);
+
+		// change and add attributes while the layout pass is running
+		node.getAttributes().put("label", "after");
+		graph.getNodes().get(1).getAttributes().put("label", "added");
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+		Assert.assertTrue(job.isDone());
+		Assert.assertNotEquals(location, LayoutProperties.getLocation(node));
+		Assert.assertEquals("after", node.getAttributes().get("label"));
+		Assert.assertEquals("added",
+				graph.getNodes().get(1).getAttributes().get("label"));
+	}
+
+	/**
+	 * Tests that a synchronous layout pass waits for a canceled asynchronous
+	 * layout pass of the same algorithm to return, so that the algorithm is
+	 * never applied concurrently.
+	 */
+	@Test
+	public void testSyncLayoutWaitsForAsyncLayout() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicBoolean overlapped = new AtomicBoolean();
+		ILayoutAlgorithm algorithm = new ILayoutAlgorithm() {
+			@Override
+			public void applyLayout(LayoutContext context, boolean clean) {
+				if (active.incrementAndGet() > 1) {
+					overlapped.set(true);
+				}
+				started.countDown();
+				long end = System.currentTimeMillis() + 200;
+				while (System.currentTimeMillis() < end) {
+					// simulate a long running layout pass, which does not
+					// check for cancellation
+					Thread.yield();
+				}
+				active.decrementAndGet();
+			}
+		};
+		LayoutContext context = new LayoutContext();
+		context.setGraph(createRandomGraph(10, 8));
+		context.setLayoutAlgorithm(algorithm);
+		final Thread[] thread = new Thread[1];
+		LayoutJob job = context.applyLayoutAsync(true, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				thread[0] = new Thread(command);
+				thread[0].start();
+			}
+		}, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				// the result of the canceled layout pass is discarded
+			}
+		});
+		started.await();
+		context.applyLayout(true);
+		thread[0].join();
+		Assert.assertTrue(job.isCancelled());
+		Assert.assertFalse(overlapped.get());
+	}
+
+	/**
+	 * Tests that the static layout algorithms return without changing the
+	 * layout when the layout pass is canceled, so that a canceled pass does
+	 * not block a subsequent one.
+	 */
+	@Test
+	public void testCanceledLayout() {
+		ILayoutAlgorithm[] algorithms = new ILayoutAlgorithm[] {
+				new SugiyamaLayoutAlgorithm(), new TreeLayoutAlgorithm(),
+				new RadialLayoutAlgorithm(), new GridLayoutAlgorithm(),
+				new SpaceTreeLayoutAlgorithm() };
+		for (ILayoutAlgorithm algorithm : algorithms) {
+			Graph graph = createRandomGraph(30, 9);
+			Point[] locations = new Point[graph.getNodes().size()];
+			for (int i = 0; i < locations.length; i++) {
+				locations[i] = LayoutProperties
+						.getLocation(graph.getNodes().get(i));
+			}
+			LayoutContext context = new LayoutContext() {
+				@Override
+				public boolean isLayoutCanceled() {
+					return true;
+				}
+			};
+			context.setGraph(graph);
+			context.setLayoutAlgorithm(algorithm);
+			context.applyLayout(true);
+			for (int i = 0; i < locations.length; i++) {
+				Assert.assertEquals(algorithm.getClass().getSimpleName(),
+						locations[i], LayoutProperties
+								.getLocation(graph.getNodes().get(i)));
+			}
+		}
+	}
+
+	/**
+	 * Tests the crossing counts for complete bipartite graphs, which do not
+	 * depend on the order of the nodes.
+	 */
+	@Test
+	public void testCrossingCounter() {
+		for (int size = 2; size <= 5; size++) {
+			List<Node> nodes = new ArrayList<>();
+			List<Edge> edges = new ArrayList<>();
+			for (int i = 0; i < 2 * size; i++) {
+				nodes.add(new Node());
+			}
+			for (int i = 0; i < size; i++) {
+				for (int j = size; j < 2 * size; j++) {
+					edges.add(new Edge(nodes.get(i), nodes.get(j)));
+				}
+			}
+			new Graph(nodes, edges);
+			List<List<NodeWrapper>> layers = new SugiyamaLayoutAlgorithm.SimpleLayerProvider()
+					.calculateLayers(nodes);
+			Assert.assertEquals(2, layers.size());
+
+			SugiyamaLayoutAlgorithm.CrossingCounter counter = new SugiyamaLayoutAlgorithm.CrossingCounter(
+					layers);
+			int pairs = size * (size - 1) / 2;
+			Assert.assertEquals(pairs * pairs, counter
+					.getNumberOfCrossings(layers.get(0), layers.get(1)));
+			Assert.assertEquals(pairs * pairs, counter
+					.getNumberOfCrossings(layers.get(1), layers.get(0)));
+			// the edges of two nodes of the same layer cross once per pair of
+			// neighbors
+			counter.prepare(layers.get(0));
+			Assert.assertEquals(pairs, counter.getNumberOfCrossings(
+					layers.get(0).get(0), layers.get(0).get(1)));
+		}
+	}
+
+	private static SugiyamaLayoutAlgorithm applyNetworkSimplexLayout(
+			List<Node> nodes, List<Edge> edges) {
+		SugiyamaLayoutAlgorithm algorithm = new SugiyamaLayoutAlgorithm(
+				SugiyamaLayoutAlgorithm.Direction.VERTICAL,
+				new Dimension(400, 400),
+				new SugiyamaLayoutAlgorithm.NetworkSimplexLayerProvider(),
+				null);
+		algorithm.setCoordinateAssigner(
+				new SugiyamaLayoutAlgorithm.BrandesKoepfCoordinateAssigner());
+		LayoutContext context = new LayoutContext();
+		context.setGraph(new Graph(nodes, edges));
+		context.setLayoutAlgorithm(algorithm);
+		context.applyLayout(true);
+		return algorithm;
+	}
+
+	/**
+	 * Tests that the network simplex layering minimizes the total edge length,
+	 * i.e. a source is placed directly above its successor, and that cycles
+	 * are broken.
+	 */
+	@Test
+	public void testNetworkSimplexLayering() {
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			nodes.add(new Node());
+		}
+		List<Edge> edges = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			edges.add(new Edge(nodes.get(i), nodes.get(i + 1)));
+		}
+		edges.add(new Edge(nodes.get(4), nodes.get(3)));
+		applyNetworkSimplexLayout(nodes, edges);
+		double[] expected = { 50, 150, 250, 350, 250 };
+		for (int i = 0; i < nodes.size(); i++) {
+			Assert.assertEquals(expected[i],
+					LayoutProperties.getLocation(nodes.get(i)).y, 1e-9);
+		}
+
+		// close a cycle
+		edges.add(new Edge(nodes.get(3), nodes.get(0)));
+		applyNetworkSimplexLayout(nodes, edges);
+		for (Node node : nodes) {
+			Point location = LayoutProperties.getLocation(node);
+			Assert.assertTrue(location.x >= 0 && location.x <= 400);
+			Assert.assertTrue(location.y >= 0 && location.y <= 400);
+		}
+	}
+
+	/**
+	 * Tests that the Brandes-Köpf coordinate assignment centers each node of a
+	 * binary tree above its children.
+	 */
+	@Test
+	public void testBrandesKoepfCoordinateAssignment() {
+		List<Node> nodes = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
+		for (int i = 0; i < 15; i++) {
+			nodes.add(new Node());
+			if (i > 0) {
+				edges.add(new Edge(nodes.get((i - 1) / 2), nodes.get(i)));
+			}
+		}
+		applyNetworkSimplexLayout(nodes, edges);
+		for (int i = 0; i < 7; i++) {
+			Point parent = LayoutProperties.getLocation(nodes.get(i));
+			Point left = LayoutProperties.getLocation(nodes.get(2 * i + 1));
+			Point right = LayoutProperties.getLocation(nodes.get(2 * i + 2));
+			Assert.assertEquals((left.x + right.x) / 2, parent.x, 1e-9);
+			Assert.assertTrue(parent.y < left.y);
+		}
+		// the leaves are placed next to each other
+		double leafDistance = 400 / 8d;
+		for (int i = 7; i < 15; i++) {
+			double x = LayoutProperties.getLocation(nodes.get(i)).x;
+			Assert.assertEquals(0.5, x / leafDistance % 1, 1e-9);
+		}
+	}
 }
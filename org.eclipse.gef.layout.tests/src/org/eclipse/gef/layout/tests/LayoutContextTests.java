@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.ILayoutFilter;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutProperties;
+import org.junit.Test;
+
+public class LayoutContextTests {
+
+	private static Node createNode(double x, double y) {
+		Node node = new Node();
+		LayoutProperties.setLocation(node, new Point(x, y));
+		LayoutProperties.setSize(node, new Dimension(10, 20));
+		return node;
+	}
+
+	@Test
+	public void cachedLayoutFilters() {
+		Node n0 = createNode(0, 0);
+		Node n1 = createNode(1, 1);
+		Graph graph = new Graph(Arrays.asList(n0, n1),
+				Arrays.asList(new Edge(n0, n1)));
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		final Set<Node> hidden = new HashSet<>();
+		final int[] calls = new int[1];
+		context.addLayoutFilter(new ILayoutFilter() {
+			@Override
+			public boolean isLayoutIrrelevant(Edge edge) {
+				calls[0]++;
+				return false;
+			}
+
+			@Override
+			public boolean isLayoutIrrelevant(Node node) {
+				calls[0]++;
+				return hidden.contains(node);
+			}
+		});
+
+		// the filters are only consulted once
+		assertEquals(2, context.getNodes().length);
+		assertEquals(1, context.getEdges().length);
+		assertEquals(3, calls[0]);
+		Node[] nodes = context.getNodes();
+		nodes[0] = null;
+		assertSame(n0, context.getNodes()[0]);
+		assertEquals(1, context.getEdges().length);
+		assertEquals(3, calls[0]);
+
+		// changes of the graph are detected
+		Node n2 = createNode(2, 2);
+		graph.getNodes().add(n2);
+		assertSame(n2, context.getNodes()[2]);
+
+		// changes of the filter input need to be announced
+		hidden.add(n0);
+		assertEquals(3, context.getNodes().length);
+		context.invalidateLayoutFilters();
+		assertEquals(2, context.getNodes().length);
+		assertSame(n1, context.getNodes()[0]);
+	}
+
+}
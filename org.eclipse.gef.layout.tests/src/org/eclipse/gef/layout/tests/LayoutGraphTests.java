@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.ILayoutFilter;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutGraph;
+import org.eclipse.gef.layout.LayoutProperties;
+import org.junit.Test;
+
+import javafx.collections.MapChangeListener;
+
+public class LayoutGraphTests {
+
+	private static Node createNode(double x, double y) {
+		Node node = new Node();
+		LayoutProperties.setLocation(node, new Point(x, y));
+		LayoutProperties.setSize(node, new Dimension(10, 20));
+		return node;
+	}
+
+	@Test
+	public void adjacency() {
+		Node n0 = createNode(0, 0);
+		Node n1 = createNode(1, 1);
+		Node n2 = createNode(2, 2);
+		Node hidden = createNode(3, 3);
+		Edge e01 = new Edge(n0, n1);
+		Edge e02 = new Edge(n0, n2);
+		Edge e21 = new Edge(n2, n1);
+		LayoutProperties.setWeight(e21, 2);
+		Edge e0h = new Edge(n0, hidden);
+		Graph graph = new Graph(Arrays.asList(n0, n1, n2, hidden),
+				Arrays.asList(e01, e0h, e02, e21));
+
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.addLayoutFilter(new ILayoutFilter() {
+			@Override
+			public boolean isLayoutIrrelevant(Edge edge) {
+				return false;
+			}
+
+			@Override
+			public boolean isLayoutIrrelevant(Node node) {
+				return node == hidden;
+			}
+		});
+		LayoutGraph layoutGraph = new LayoutGraph(context);
+
+		assertEquals(3, layoutGraph.getNodeCount());
+		assertEquals(-1, layoutGraph.getNodeId(hidden));
+		assertEquals(2, layoutGraph.getNodeId(n2));
+		// edge to the irrelevant node is omitted
+		assertEquals(3, layoutGraph.getEdgeCount());
+		assertSame(e02, layoutGraph.getEdge(1));
+		assertEquals(2, layoutGraph.getOutDegree(0));
+		assertEquals(0, layoutGraph.getEdgeSource(
+				layoutGraph.getOutgoingEdge(0, 0)));
+		assertEquals(1, layoutGraph.getEdgeTarget(
+				layoutGraph.getOutgoingEdge(0, 0)));
+		assertEquals(2, layoutGraph.getEdgeTarget(
+				layoutGraph.getOutgoingEdge(0, 1)));
+		assertEquals(2, layoutGraph.getInDegree(1));
+		assertEquals(2, layoutGraph.getEdgeSource(
+				layoutGraph.getIncomingEdge(1, 1)));
+		assertEquals(0, layoutGraph.getInDegree(0));
+		assertEquals(2, layoutGraph.getEdgeWeight(2), 0);
+		assertEquals(0, layoutGraph.getEdgeWeight(0), 0);
+	}
+
+	@Test
+	public void flushChanges() {
+		Node n0 = createNode(5, 5);
+		Node n1 = createNode(7, 7);
+		LayoutProperties.setResizable(n1, false);
+		Graph graph = new Graph(Arrays.asList(n0, n1), Arrays.<Edge> asList());
+		LayoutProperties.setBounds(graph, new Rectangle(0, 0, 100, 100));
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		LayoutGraph layoutGraph = new LayoutGraph(context);
+
+		assertEquals(new Rectangle(0, 0, 100, 100), layoutGraph.getBounds());
+		assertEquals(5, layoutGraph.getX(0), 0);
+		assertEquals(20, layoutGraph.getHeight(1), 0);
+		assertTrue(layoutGraph.isMovable(1));
+		assertFalse(layoutGraph.isResizable(1));
+
+		// changes are only transferred to the nodes when flushing
+		Point initialLocation = LayoutProperties.getLocation(n0);
+		layoutGraph.setLocation(0, 50, 60);
+		layoutGraph.setSize(0, 30, 40);
+		assertSame(initialLocation, LayoutProperties.getLocation(n0));
+		layoutGraph.flushChanges();
+		assertEquals(new Point(50, 60), LayoutProperties.getLocation(n0));
+		assertEquals(new Dimension(30, 40), LayoutProperties.getSize(n0));
+		assertEquals(new Point(7, 7), LayoutProperties.getLocation(n1));
+
+		// unchanged values are neither replaced nor published
+		final int[] changes = new int[1];
+		n0.getAttributes().addListener(new MapChangeListener<String, Object>() {
+			@Override
+			public void onChanged(
+					MapChangeListener.Change<? extends String, ? extends Object> change) {
+				changes[0]++;
+			}
+		});
+		Point location = LayoutProperties.getLocation(n0);
+		Dimension size = LayoutProperties.getSize(n0);
+		layoutGraph.setLocation(0, 50, 60);
+		layoutGraph.setSize(0, 30, 40);
+		layoutGraph.flushChanges();
+		assertSame(location, LayoutProperties.getLocation(n0));
+		assertSame(size, LayoutProperties.getSize(n0));
+		assertEquals(0, changes[0]);
+		layoutGraph.setLocation(0, 50, 70);
+		layoutGraph.flushChanges();
+		assertEquals(new Point(50, 70), LayoutProperties.getLocation(n0));
+		assertEquals(1, changes[0]);
+	}
+
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutProperties;
+import org.eclipse.gef.layout.algorithms.SpaceTreeLayoutAlgorithm;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link SpaceTreeLayoutAlgorithm} expands as many layers as
+ * fit into the layout bounds, and places the nodes of the expanded layers
+ * without overlaps.
+ */
+public class SpaceTreeLayoutAlgorithmTests {
+
+	/**
+	 * The location of the nodes before the layout pass, which is kept for the
+	 * nodes that are not expanded.
+	 */
+	private static final Point HIDDEN = new Point(-1000, -1000);
+
+	private List<Node> nodes = new ArrayList<>();
+	private Map<Node, Node> parents = new IdentityHashMap<>();
+	private List<Edge> edges = new ArrayList<>();
+
+	/**
+	 * Lays out the created tree within the given bounds and returns the nodes
+	 * that were placed, i.e. that are expanded.
+	 */
+	private List<Node> applyLayout(double width, double height) {
+		Graph graph = new Graph(nodes, edges);
+		LayoutProperties.setBounds(graph, new Rectangle(0, 0, width, height));
+		LayoutContext context = new LayoutContext();
+		context.setGraph(graph);
+		context.setLayoutAlgorithm(new SpaceTreeLayoutAlgorithm());
+		context.applyLayout(true);
+
+		List<Node> placed = new ArrayList<>();
+		for (Node node : nodes) {
+			if (!HIDDEN.equals(LayoutProperties.getLocation(node))) {
+				placed.add(node);
+			}
+		}
+		return placed;
+	}
+
+	/**
+	 * Asserts that the given nodes of the same layer do not overlap and keep
+	 * the leaf gap (the default branch gap is larger), and that each parent is
+	 * centered above its placed children.
+	 */
+	private void assertTidy(List<Node> placed) {
+		// group the placed nodes by layer, and order them within the layer
+		Map<Double, TreeMap<Double, Node>> layers = new TreeMap<>();
+		for (Node node : placed) {
+			Point location = LayoutProperties.getLocation(node);
+			if (!layers.containsKey(location.y)) {
+				layers.put(location.y, new TreeMap<Double, Node>());
+			}
+			assertNull(layers.get(location.y).put(location.x, node));
+		}
+		for (TreeMap<Double, Node> layer : layers.values()) {
+			Node previous = null;
+			for (Node node : layer.values()) {
+				if (previous != null) {
+					double gap = LayoutProperties.getLocation(node).x
+							- LayoutProperties.getSize(node).width / 2
+							- LayoutProperties.getLocation(previous).x
+							- LayoutProperties.getSize(previous).width / 2;
+					assertTrue("gap " + gap + " is too small",
+							gap >= new SpaceTreeLayoutAlgorithm().getLeafGap()
+									- 1e-6);
+				}
+				previous = node;
+			}
+		}
+		// the extent of the placed children of each parent
+		Map<Node, double[]> childExtents = new IdentityHashMap<>();
+		for (Node child : placed) {
+			double x = LayoutProperties.getLocation(child).x;
+			double[] extent = childExtents.get(parents.get(child));
+			if (extent == null) {
+				childExtents.put(parents.get(child), new double[] { x, x });
+			} else {
+				extent[0] = Math.min(extent[0], x);
+				extent[1] = Math.max(extent[1], x);
+			}
+		}
+		for (Node parent : placed) {
+			double[] extent = childExtents.get(parent);
+			if (extent != null) {
+				assertEquals((extent[0] + extent[1]) / 2,
+						LayoutProperties.getLocation(parent).x, 1e-6);
+			}
+		}
+	}
+
+	private Node createNode(Node parent, double width) {
+		Node node = new Node();
+		LayoutProperties.setLocation(node, HIDDEN);
+		LayoutProperties.setSize(node, new Dimension(width, 10));
+		nodes.add(node);
+		if (parent != null) {
+			parents.put(node, parent);
+			edges.add(new Edge(parent, node));
+		}
+		return node;
+	}
+
+	/**
+	 * Creates a complete tree with the given number of children per node on
+	 * each level, where all nodes have a width of 20.
+	 */
+	private void createTree(int... childCounts) {
+		List<Node> level = new ArrayList<>();
+		level.add(createNode(null, 20));
+		for (int childCount : childCounts) {
+			List<Node> nextLevel = new ArrayList<>();
+			for (Node parent : level) {
+				for (int i = 0; i < childCount; i++) {
+					nextLevel.add(createNode(parent, 20));
+				}
+			}
+			level = nextLevel;
+		}
+	}
+
+	@Test
+	public void expandLayersThatFit() {
+		// the layers require 20, 125 (4 * 20 + 3 * 15), 560 (16 * 20 + 4 *
+		// 3 * 15 + 3 * 20), and 1740 (48 * 20 + 16 * 2 * 15 + 15 * 20)
+		createTree(4, 4, 3);
+		List<Node> placed = applyLayout(300, 300);
+		assertEquals(5, placed.size());
+		assertTidy(placed);
+		// the expanded layers are centered within the bounds
+		assertEquals(150,
+				LayoutProperties.getLocation(nodes.get(0)).x, 1e-6);
+
+		for (Node node : nodes) {
+			LayoutProperties.setLocation(node, HIDDEN);
+		}
+		placed = applyLayout(600, 300);
+		assertEquals(21, placed.size());
+		assertTidy(placed);
+		for (Node node : placed) {
+			Point location = LayoutProperties.getLocation(node);
+			assertTrue(location.x - 10 >= 0 && location.x + 10 <= 600);
+		}
+	}
+
+	@Test
+	public void largeTreeWithoutOverlaps() {
+		// a random tree with nodes of different widths, which is too wide to
+		// fit into the bounds
+		Random random = new Random(12);
+		createNode(null, 20);
+		for (int i = 1; i < 5000; i++) {
+			createNode(nodes.get(random.nextInt(i)), 10 + random.nextInt(30));
+		}
+		List<Node> placed = applyLayout(10000, 1000);
+		assertTrue(placed.size() > 100 && placed.size() < nodes.size());
+		assertTidy(placed);
+
+		// all nodes are expanded if the bounds are wide enough
+		for (Node node : nodes) {
+			LayoutProperties.setLocation(node, HIDDEN);
+		}
+		placed = applyLayout(1e7, 1000);
+		assertEquals(nodes.size(), placed.size());
+		assertTidy(placed);
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout;
+
+/**
+ * An {@link ILayoutAlgorithm} that is able to compute its layout in steps, so
+ * that the layout can be rendered while it settles, for example one batch of
+ * steps per frame. The algorithm decides when the layout converged, so that
+ * stepping can stop automatically.
+ *
+ * @see LayoutContext#startContinuousLayout(boolean)
+ * @see LayoutContext#applyContinuousLayoutSteps(int)
+ *
+ * @author agent
+ *
+ */
+public interface IContinuousLayoutAlgorithm extends ILayoutAlgorithm {
+
+	/**
+	 * Prepares a continuous layout of the given {@link LayoutContext}, without
+	 * performing any steps yet. The layout relevant nodes and edges are
+	 * determined once, i.e. they are not supposed to change until the
+	 * continuous layout converged or a new one is started.
+	 *
+	 * @param layoutContext
+	 *            The {@link LayoutContext} that provides all relevant
+	 *            information about what to layout.
+	 * @param clean
+	 *            <code>true</code> to indicate that the algorithm has to fully
+	 *            re-compute the layout, otherwise <code>false</code>.
+	 */
+	public void startContinuousLayout(LayoutContext layoutContext,
+			boolean clean);
+
+	/**
+	 * Performs (up to) the given number of steps of the continuous layout that
+	 * was started last, and transfers the locations of the nodes that moved to
+	 * the {@link LayoutContext}.
+	 *
+	 * @param steps
+	 *            The maximum number of steps to perform.
+	 * @return <code>true</code> if the layout converged, i.e. further steps
+	 *         would not change it significantly, otherwise <code>false</code>.
+	 */
+	public boolean performContinuousLayoutSteps(int steps);
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout;
+
+import java.util.List;
+
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Node;
+
+/**
+ * An {@link ILayoutAlgorithm} that is able to update a previously computed
+ * layout when only a few nodes and edges changed, keeping the locations of the
+ * unaffected nodes stable.
+ *
+ * @see LayoutContext#applyIncrementalLayout()
+ *
+ * @author agent
+ *
+ */
+public interface IIncrementalLayoutAlgorithm extends ILayoutAlgorithm {
+
+	/**
+	 * Updates the layout of the given {@link LayoutContext} after the given
+	 * nodes and edges were added or removed. This is only called after this
+	 * algorithm performed a layout pass for the same graph, so that all other
+	 * nodes are already placed.
+	 *
+	 * @param layoutContext
+	 *            The {@link LayoutContext} that provides all relevant
+	 *            information about what to layout.
+	 * @param addedNodes
+	 *            The layout relevant {@link Node}s that were added since the
+	 *            last layout pass.
+	 * @param removedNodes
+	 *            The {@link Node}s that were removed or became layout
+	 *            irrelevant since the last layout pass.
+	 * @param addedEdges
+	 *            The layout relevant {@link Edge}s that were added since the
+	 *            last layout pass.
+	 * @param removedEdges
+	 *            The {@link Edge}s that were removed or became layout
+	 *            irrelevant since the last layout pass.
+	 */
+	public void applyIncrementalLayout(LayoutContext layoutContext,
+			List<Node> addedNodes, List<Node> removedNodes,
+			List<Edge> addedEdges, List<Edge> removedEdges);
+}
@@ -17,7 +17,10 @@ import org.eclipse.gef.graph.Node;
 
 /**
  * An {@link ILayoutFilter} can be used to filter layout objects, so that they
- * are not reported to any {@link ILayoutAlgorithm}.
+ * are not reported to any {@link ILayoutAlgorithm}. The results are cached by
+ * the {@link LayoutContext}, so that
+ * {@link LayoutContext#invalidateLayoutFilters()} needs to be called when they
+ * change outside of a layout pass.
  */
 public interface ILayoutFilter {
 
@@ -13,12 +13,22 @@
 package org.eclipse.gef.layout;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.eclipse.gef.graph.Edge;
 import org.eclipse.gef.graph.Graph;
 import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.internal.algorithms.AttributeCopies;
 
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.ObservableList;
@@ -28,6 +38,12 @@ import javafx.collections.ObservableList;
  * {@link Graph}. It maintains an {@link ILayoutAlgorithm} that can be applied,
  * supports the handling and execution of pre and post {@link Runnable}s, and
  * filtering of layout objects using {@link ILayoutFilter}.
+ * <p>
+ * The layout relevant nodes and edges are cached, so that the
+ * {@link ILayoutFilter layout filters} are only consulted again after the
+ * nodes or edges of the graph changed, after a layout filter was added or
+ * removed, at the start of each layout pass, or after
+ * {@link #invalidateLayoutFilters()} was called.
  * 
  * @author mwienand
  *
@@ -48,6 +64,37 @@ public class LayoutContext {
 	private final List<Runnable> preLayoutPass = new ArrayList<>();
 	private final List<ILayoutFilter> layoutFilters = new ArrayList<>();
 
+	// the layout relevance of the graph's nodes and edges (by index), which is
+	// valid as long as its version matches the current version
+	private int layoutRelevanceVersion;
+	private int relevantNodesVersion = -1;
+	private int relevantEdgesVersion = -1;
+	private final BitSet relevantNodes = new BitSet();
+	private final BitSet relevantEdges = new BitSet();
+	private final InvalidationListener graphObserver = new InvalidationListener() {
+		@Override
+		public void invalidated(Observable observable) {
+			invalidateLayoutFilters();
+		}
+	};
+
+	// the state of the last layout pass, used to determine the changes for
+	// an incremental layout pass
+	private Graph previousGraph;
+	private ILayoutAlgorithm previousLayoutAlgorithm;
+	private Node[] previousNodes;
+	private Edge[] previousEdges;
+
+	// the last asynchronous layout pass that was started by this context
+	private LayoutJob asyncLayoutJob;
+	// the asynchronous layout pass that is executed within this context (only
+	// set for the snapshot contexts that are created for such a layout pass)
+	private LayoutJob layoutJob;
+
+	// the algorithm that performs the continuous layout which was started by
+	// this context and did not converge yet
+	private IContinuousLayoutAlgorithm continuousLayoutAlgorithm;
+
 	/**
 	 * Adds the given ILayoutFilter to this {@link LayoutContext}.
 	 * 
@@ -56,6 +103,7 @@ public class LayoutContext {
 	 */
 	public void addLayoutFilter(ILayoutFilter layoutFilter) {
 		layoutFilters.add(layoutFilter);
+		invalidateLayoutFilters();
 	}
 
 	/**
@@ -68,11 +116,353 @@ public class LayoutContext {
 	 *            re-compute the layout, otherwise <code>false</code>.
 	 */
 	public void applyLayout(boolean clear) {
+		cancelAsyncLayout();
+		stopContinuousLayout();
 		ILayoutAlgorithm layoutAlgorithm = layoutAlgorithmProperty.get();
 		if (layoutAlgorithm != null) {
 			preLayout();
-			layoutAlgorithm.applyLayout(this, clear);
+			invalidateLayoutFilters();
+			// wait for a canceled asynchronous layout pass of the same
+			// algorithm to return
+			synchronized (layoutAlgorithm) {
+				layoutAlgorithm.applyLayout(this, clear);
+			}
 			postLayout();
+			previousGraph = graph;
+			previousLayoutAlgorithm = layoutAlgorithm;
+			previousNodes = getNodes();
+			previousEdges = getEdges();
+		}
+	}
+
+	/**
+	 * Applies the layout algorithm of this LayoutContext incrementally. If the
+	 * layout algorithm is an {@link IIncrementalLayoutAlgorithm} and it
+	 * already performed a layout pass for the current graph, only the nodes
+	 * and edges that were added or removed since that layout pass are passed
+	 * to the algorithm, so that the locations of the other nodes can be kept
+	 * stable. Otherwise, the layout is fully re-computed (see
+	 * {@link #applyLayout(boolean)}).
+	 */
+	public void applyIncrementalLayout() {
+		ILayoutAlgorithm layoutAlgorithm = layoutAlgorithmProperty.get();
+		if (!(layoutAlgorithm instanceof IIncrementalLayoutAlgorithm)
+				|| layoutAlgorithm != previousLayoutAlgorithm
+				|| graph != previousGraph) {
+			applyLayout(true);
+			return;
+		}
+		cancelAsyncLayout();
+		stopContinuousLayout();
+
+		// determine the changes since the last layout pass
+		invalidateLayoutFilters();
+		Node[] nodes = getNodes();
+		Edge[] edges = getEdges();
+		List<Node> addedNodes = new ArrayList<>();
+		List<Node> removedNodes = new ArrayList<>();
+		List<Edge> addedEdges = new ArrayList<>();
+		List<Edge> removedEdges = new ArrayList<>();
+		computeDifference(previousNodes, nodes, addedNodes, removedNodes);
+		computeDifference(previousEdges, edges, addedEdges, removedEdges);
+		previousNodes = nodes;
+		previousEdges = edges;
+		if (addedNodes.isEmpty() && removedNodes.isEmpty()
+				&& addedEdges.isEmpty() && removedEdges.isEmpty()) {
+			return;
+		}
+
+		preLayout();
+		synchronized (layoutAlgorithm) {
+			((IIncrementalLayoutAlgorithm) layoutAlgorithm)
+					.applyIncrementalLayout(this, addedNodes, removedNodes,
+							addedEdges, removedEdges);
+		}
+		postLayout();
+	}
+
+	private static <T> void computeDifference(T[] oldElements,
+			T[] newElements, List<T> added, List<T> removed) {
+		Set<T> oldSet = Collections
+				.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		Collections.addAll(oldSet, oldElements);
+		Set<T> newSet = Collections
+				.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		for (T element : newElements) {
+			newSet.add(element);
+			if (!oldSet.contains(element)) {
+				added.add(element);
+			}
+		}
+		for (T element : oldElements) {
+			if (!newSet.contains(element)) {
+				removed.add(element);
+			}
+		}
+	}
+
+	/**
+	 * Applies the layout algorithm of this LayoutContext asynchronously. The
+	 * pre-layout pass is executed and a snapshot of the layout relevant nodes
+	 * and edges is taken on the calling thread. Afterwards, the layout
+	 * algorithm is applied to the snapshot using the given {@link Executor}.
+	 * The layout result is then transferred to the graph in a single batch,
+	 * followed by the post-layout pass, using the given apply
+	 * {@link Executor}. A previously started asynchronous layout pass that did
+	 * not complete yet is canceled, as is one that is still running when
+	 * {@link #applyLayout(boolean)} is called.
+	 * <p>
+	 * Long running layout algorithms should regularly check
+	 * {@link #isLayoutCanceled()} and report their progress via
+	 * {@link #reportLayoutProgress(double)}.
+	 * <p>
+	 * As the same {@link ILayoutAlgorithm} instance is used for the snapshot,
+	 * all layout passes of the same algorithm (including synchronous,
+	 * incremental, and continuous ones) are executed one after the other,
+	 * i.e. a new layout pass waits for a canceled one to return. Only those
+	 * attributes that were changed by the layout algorithm are transferred to
+	 * the graph, so that other changes that are made to the graph in the
+	 * meantime are preserved.
+	 *
+	 * @param clear
+	 *            <code>true</code> to indicate that the algorithm has to fully
+	 *            re-compute the layout, otherwise <code>false</code>.
+	 * @param executor
+	 *            The {@link Executor} that is used to apply the layout
+	 *            algorithm.
+	 * @param applyExecutor
+	 *            The {@link Executor} that is used to transfer the layout
+	 *            result to the graph, i.e. the JavaFX application thread when
+	 *            the graph is rendered.
+	 * @return A {@link LayoutJob} that is completed after the layout result
+	 *         was transferred to the graph.
+	 */
+	public LayoutJob applyLayoutAsync(final boolean clear, Executor executor,
+			final Executor applyExecutor) {
+		cancelAsyncLayout();
+		stopContinuousLayout();
+		final LayoutJob job = new LayoutJob(applyExecutor);
+		final ILayoutAlgorithm layoutAlgorithm = layoutAlgorithmProperty.get();
+		if (layoutAlgorithm == null) {
+			job.complete(null);
+			return job;
+		}
+		asyncLayoutJob = job;
+		preLayout();
+		invalidateLayoutFilters();
+
+		// take a snapshot of the layout relevant nodes and edges (in the same
+		// order, so that the result does not differ from a synchronous pass)
+		final Graph graph = this.graph;
+		final Node[] nodes = getNodes();
+		final Edge[] edges = getEdges();
+		// (the attributes as taken are kept, so that only the attributes that
+		// are changed by the layout algorithm are transferred)
+		final Map<Object, Map<String, Object>> attributesByCopy = new IdentityHashMap<>();
+		Map<Node, Node> nodeCopies = new IdentityHashMap<>();
+		final Map<Node, Node> nodesByCopy = new IdentityHashMap<>();
+		for (Node node : nodes) {
+			Map<String, Object> attributes = AttributeCopies.copyAttributes(
+					node.getAttributes());
+			Node copy = new Node(AttributeCopies.copyAttributes(attributes));
+			nodeCopies.put(node, copy);
+			nodesByCopy.put(copy, node);
+			attributesByCopy.put(copy, attributes);
+		}
+		List<Edge> edgeCopies = new ArrayList<>();
+		final Map<Edge, Edge> edgesByCopy = new IdentityHashMap<>();
+		for (Edge edge : edges) {
+			Node source = nodeCopies.get(edge.getSource());
+			Node target = nodeCopies.get(edge.getTarget());
+			if (source != null && target != null) {
+				Map<String, Object> attributes = AttributeCopies.copyAttributes(
+						edge.getAttributes());
+				Edge copy = new Edge(
+						AttributeCopies.copyAttributes(attributes), source,
+						target);
+				edgeCopies.add(copy);
+				edgesByCopy.put(copy, edge);
+				attributesByCopy.put(copy, attributes);
+			}
+		}
+		List<Node> snapshotNodes = new ArrayList<>();
+		for (Node node : nodes) {
+			snapshotNodes.add(nodeCopies.get(node));
+		}
+		Map<String, Object> graphAttributes = AttributeCopies.copyAttributes(
+				graph.getAttributes());
+		final Graph snapshotGraph = new Graph(
+				AttributeCopies.copyAttributes(graphAttributes), snapshotNodes,
+				edgeCopies);
+		attributesByCopy.put(snapshotGraph, graphAttributes);
+		final LayoutContext snapshotContext = new LayoutContext();
+		snapshotContext.setGraph(snapshotGraph);
+		snapshotContext.setLayoutAlgorithm(layoutAlgorithm);
+		snapshotContext.layoutJob = job;
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					synchronized (layoutAlgorithm) {
+						if (job.isDone()) {
+							return;
+						}
+						layoutAlgorithm.applyLayout(snapshotContext, clear);
+					}
+				} catch (Throwable t) {
+					job.completeExceptionally(t);
+					return;
+				}
+				if (job.isDone()) {
+					return;
+				}
+				job.setProgress(1);
+				applyExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						if (job.isDone()) {
+							return;
+						}
+						// transfer the layout result in a single batch
+						transferAttributes(snapshotGraph.getAttributes(),
+								attributesByCopy.get(snapshotGraph),
+								graph.getAttributes());
+						for (Node copy : snapshotGraph.getNodes()) {
+							transferAttributes(copy.getAttributes(),
+									attributesByCopy.get(copy),
+									nodesByCopy.get(copy).getAttributes());
+						}
+						for (Edge copy : snapshotGraph.getEdges()) {
+							transferAttributes(copy.getAttributes(),
+									attributesByCopy.get(copy),
+									edgesByCopy.get(copy).getAttributes());
+						}
+						postLayout();
+						previousGraph = graph;
+						previousLayoutAlgorithm = layoutAlgorithm;
+						previousNodes = nodes;
+						previousEdges = edges;
+						if (asyncLayoutJob == job) {
+							asyncLayoutJob = null;
+						}
+						job.complete(null);
+					}
+				});
+			}
+		});
+		return job;
+	}
+
+	/**
+	 * Starts a continuous layout, i.e. a layout that is computed in steps (see
+	 * {@link #applyContinuousLayoutSteps(int)}), so that it can be rendered
+	 * while it settles. The layout relevant nodes and edges are determined
+	 * once, when the continuous layout is started. If the layout algorithm is
+	 * not an {@link IContinuousLayoutAlgorithm}, the layout is applied at once
+	 * (see {@link #applyLayout(boolean)}).
+	 *
+	 * @param clear
+	 *            <code>true</code> to indicate that the algorithm has to fully
+	 *            re-compute the layout, otherwise <code>false</code>.
+	 * @return <code>true</code> if a continuous layout was started,
+	 *         <code>false</code> if the layout was applied at once.
+	 */
+	public boolean startContinuousLayout(boolean clear) {
+		ILayoutAlgorithm layoutAlgorithm = layoutAlgorithmProperty.get();
+		if (!(layoutAlgorithm instanceof IContinuousLayoutAlgorithm)) {
+			applyLayout(clear);
+			return false;
+		}
+		cancelAsyncLayout();
+		preLayout();
+		invalidateLayoutFilters();
+		continuousLayoutAlgorithm = (IContinuousLayoutAlgorithm) layoutAlgorithm;
+		synchronized (layoutAlgorithm) {
+			continuousLayoutAlgorithm.startContinuousLayout(this, clear);
+		}
+		return true;
+	}
+
+	/**
+	 * Performs (up to) the given number of steps of the continuous layout that
+	 * was started last (see {@link #startContinuousLayout(boolean)}). In
+	 * contrast to a complete layout pass, the pre layout pass is not executed
+	 * for the individual steps, and the layout algorithm only transfers the
+	 * locations of the nodes that moved, before the post layout pass is
+	 * executed.
+	 *
+	 * @param steps
+	 *            The maximum number of steps to perform.
+	 * @return <code>true</code> if the continuous layout converged or no
+	 *         continuous layout is running, otherwise <code>false</code>.
+	 */
+	public boolean applyContinuousLayoutSteps(int steps) {
+		IContinuousLayoutAlgorithm layoutAlgorithm = continuousLayoutAlgorithm;
+		if (layoutAlgorithm == null) {
+			return true;
+		}
+		boolean converged;
+		synchronized (layoutAlgorithm) {
+			converged = layoutAlgorithm.performContinuousLayoutSteps(steps);
+		}
+		postLayout();
+		if (converged && continuousLayoutAlgorithm == layoutAlgorithm) {
+			continuousLayoutAlgorithm = null;
+			previousGraph = graph;
+			previousLayoutAlgorithm = layoutAlgorithm;
+			previousNodes = getNodes();
+			previousEdges = getEdges();
+		}
+		return converged;
+	}
+
+	/**
+	 * Returns <code>true</code> if a continuous layout was started (see
+	 * {@link #startContinuousLayout(boolean)}), which did not converge and was
+	 * not stopped yet.
+	 *
+	 * @return <code>true</code> if a continuous layout is running, otherwise
+	 *         <code>false</code>.
+	 */
+	public boolean isContinuousLayoutRunning() {
+		return continuousLayoutAlgorithm != null;
+	}
+
+	/**
+	 * Stops the running continuous layout (if any), keeping the locations of
+	 * the nodes that were transferred by the steps performed so far.
+	 *
+	 * @see #startContinuousLayout(boolean)
+	 */
+	public void stopContinuousLayout() {
+		continuousLayoutAlgorithm = null;
+	}
+
+	private void cancelAsyncLayout() {
+		if (asyncLayoutJob != null) {
+			asyncLayoutJob.cancel(false);
+			asyncLayoutJob = null;
+		}
+	}
+
+	/**
+	 * Transfers the attributes that were changed by a layout pass, i.e. those
+	 * that differ between the layout result and the snapshot as taken, to the
+	 * given target attributes.
+	 */
+	private static void transferAttributes(Map<String, Object> result,
+			Map<String, Object> snapshot, Map<String, Object> target) {
+		for (Map.Entry<String, Object> entry : result.entrySet()) {
+			if (!Objects.equals(entry.getValue(),
+					snapshot.get(entry.getKey()))) {
+				target.put(entry.getKey(), entry.getValue());
+			}
+		}
+		for (String key : snapshot.keySet()) {
+			if (!result.containsKey(key)) {
+				target.remove(key);
+			}
 		}
 	}
 
@@ -119,7 +509,15 @@ public class LayoutContext {
 		if (graph == null) {
 			graph = new Graph();
 		}
+		if (this.graph != null) {
+			this.graph.getNodes().removeListener(graphObserver);
+			this.graph.getEdges().removeListener(graphObserver);
+		}
+		stopContinuousLayout();
 		this.graph = graph;
+		graph.getNodes().addListener(graphObserver);
+		graph.getEdges().addListener(graphObserver);
+		invalidateLayoutFilters();
 	}
 
 	/**
@@ -131,13 +529,22 @@ public class LayoutContext {
 	// TODO: remove this (algorithms should use getGraph().getNodes())
 	public Node[] getNodes() {
 		ObservableList<Node> nodes = graph.getNodes();
-		List<Node> layoutRelevantNodes = new ArrayList<>();
-		for (Node n : nodes) {
-			if (!isLayoutIrrelevant(n)) {
-				layoutRelevantNodes.add(n);
+		if (relevantNodesVersion != layoutRelevanceVersion) {
+			relevantNodes.clear();
+			for (int i = 0; i < nodes.size(); i++) {
+				if (!isLayoutIrrelevant(nodes.get(i))) {
+					relevantNodes.set(i);
+				}
 			}
+			relevantNodesVersion = layoutRelevanceVersion;
+		}
+		Node[] layoutRelevantNodes = new Node[relevantNodes.cardinality()];
+		int j = 0;
+		for (int i = relevantNodes.nextSetBit(0); i >= 0; i = relevantNodes
+				.nextSetBit(i + 1)) {
+			layoutRelevantNodes[j++] = nodes.get(i);
 		}
-		return layoutRelevantNodes.toArray(new Node[] {});
+		return layoutRelevantNodes;
 	}
 
 	/**
@@ -148,13 +555,22 @@ public class LayoutContext {
 	 */
 	public Edge[] getEdges() {
 		ObservableList<Edge> edges = graph.getEdges();
-		List<Edge> layoutRelevantEdges = new ArrayList<>();
-		for (Edge e : edges) {
-			if (!isLayoutIrrelevant(e)) {
-				layoutRelevantEdges.add(e);
+		if (relevantEdgesVersion != layoutRelevanceVersion) {
+			relevantEdges.clear();
+			for (int i = 0; i < edges.size(); i++) {
+				if (!isLayoutIrrelevant(edges.get(i))) {
+					relevantEdges.set(i);
+				}
 			}
+			relevantEdgesVersion = layoutRelevanceVersion;
+		}
+		Edge[] layoutRelevantEdges = new Edge[relevantEdges.cardinality()];
+		int j = 0;
+		for (int i = relevantEdges.nextSetBit(0); i >= 0; i = relevantEdges
+				.nextSetBit(i + 1)) {
+			layoutRelevantEdges[j++] = edges.get(i);
 		}
-		return layoutRelevantEdges.toArray(new Edge[] {});
+		return layoutRelevantEdges;
 	}
 
 	/**
@@ -207,6 +623,50 @@ public class LayoutContext {
 		return false;
 	}
 
+	/**
+	 * Notifies this {@link LayoutContext} that the result of its
+	 * {@link ILayoutFilter layout filters} may have changed, so that the
+	 * layout relevant nodes and edges (see {@link #getNodes()} and
+	 * {@link #getEdges()}) are determined anew. This is done automatically at
+	 * the start of each layout pass, as well as when the graph, its nodes or
+	 * edges, or the layout filters change. Clients only need to call this
+	 * when the input of a layout filter changes in between.
+	 */
+	public void invalidateLayoutFilters() {
+		layoutRelevanceVersion++;
+	}
+
+	/**
+	 * Returns <code>true</code> if the asynchronous layout pass that is
+	 * executed within this {@link LayoutContext} was canceled, for example
+	 * because it was superseded by a newer layout pass. Long running layout
+	 * algorithms should check this regularly, and return early if the layout
+	 * pass was canceled, as its result is discarded anyway.
+	 *
+	 * @return <code>true</code> if the current layout pass was canceled,
+	 *         otherwise <code>false</code>.
+	 * @see #applyLayoutAsync(boolean, Executor, Executor)
+	 */
+	public boolean isLayoutCanceled() {
+		return layoutJob != null && layoutJob.isCancelled();
+	}
+
+	/**
+	 * Initiated by an {@link ILayoutAlgorithm} to report the progress of the
+	 * current layout pass, which is forwarded to the {@link LayoutJob} of an
+	 * asynchronous layout pass. Should not be called by clients.
+	 *
+	 * @param progress
+	 *            The progress of the current layout pass, between
+	 *            <code>0</code> and <code>1</code>.
+	 * @see #applyLayoutAsync(boolean, Executor, Executor)
+	 */
+	public void reportLayoutProgress(double progress) {
+		if (layoutJob != null) {
+			layoutJob.setProgress(progress);
+		}
+	}
+
 	/**
 	 * A property representing the layout algorithm used by this
 	 * {@link LayoutContext}.
@@ -228,6 +688,7 @@ public class LayoutContext {
 	 */
 	public void removeLayoutFilter(ILayoutFilter layoutFilter) {
 		layoutFilters.remove(layoutFilter);
+		invalidateLayoutFilters();
 	}
 
 	/**
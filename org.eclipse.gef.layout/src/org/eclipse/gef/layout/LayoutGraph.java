@@ -0,0 +1,460 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API & implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+
+/**
+ * A {@link LayoutGraph} is a compact snapshot of the layout relevant
+ * {@link Node}s and {@link Edge}s of a {@link LayoutContext}, which can be used
+ * by {@link ILayoutAlgorithm}s to perform their computations on primitive
+ * arrays rather than on the attributes of the {@link Graph}.
+ * <p>
+ * Nodes and edges are identified by <code>int</code> ids, which are assigned
+ * in the order of {@link LayoutContext#getNodes()} and
+ * {@link LayoutContext#getEdges()} respectively (edges whose source or target
+ * is not a layout relevant node are omitted). The structure of the snapshot,
+ * i.e. the adjacency (in compressed sparse row format), the movable and
+ * resizable states, as well as the edge weights, is immutable. The locations
+ * and sizes of the nodes are initialized from the {@link LayoutProperties} of
+ * the nodes and may be changed by an {@link ILayoutAlgorithm}. All changes can
+ * then be transferred back to the nodes in a single pass using
+ * {@link #flushChanges()}.
+ *
+ * @author agent
+ *
+ */
+public final class LayoutGraph {
+
+	private final Node[] nodes;
+	private final Edge[] edges;
+	private final Map<Node, Integer> nodeIds;
+	private final Rectangle bounds;
+
+	// edge data
+	private final int[] edgeSources;
+	private final int[] edgeTargets;
+	private final double[] edgeWeights;
+
+	// adjacency in compressed sparse row format (edge ids)
+	private final int[] outgoingOffsets;
+	private final int[] outgoingEdges;
+	private final int[] incomingOffsets;
+	private final int[] incomingEdges;
+
+	// node data
+	private final BitSet movable;
+	private final BitSet resizable;
+	private final double[] x;
+	private final double[] y;
+	private final double[] width;
+	private final double[] height;
+	private final BitSet locationChanged;
+	private final BitSet sizeChanged;
+
+	/**
+	 * Creates a new {@link LayoutGraph} from the layout relevant {@link Node}s
+	 * and {@link Edge}s of the given {@link LayoutContext}.
+	 *
+	 * @param context
+	 *            The {@link LayoutContext} to create a snapshot of.
+	 */
+	public LayoutGraph(LayoutContext context) {
+		this(context.getGraph(), context.getNodes(), context.getEdges());
+	}
+
+	/**
+	 * Creates a new {@link LayoutGraph} from the given {@link Node}s and those
+	 * of the given {@link Edge}s that connect two of them.
+	 *
+	 * @param graph
+	 *            The {@link Graph} that provides the
+	 *            {@link LayoutProperties#getBounds(Graph) layout bounds}.
+	 * @param nodes
+	 *            The {@link Node}s to include in the snapshot.
+	 * @param edges
+	 *            The {@link Edge}s to include in the snapshot.
+	 */
+	public LayoutGraph(Graph graph, Node[] nodes, Edge[] edges) {
+		int nodeCount = nodes.length;
+		this.nodes = nodes.clone();
+		this.nodeIds = new IdentityHashMap<>(nodeCount);
+		Rectangle graphBounds = graph == null ? null
+				: LayoutProperties.getBounds(graph);
+		this.bounds = graphBounds == null ? null : graphBounds.getCopy();
+
+		// node data
+		movable = new BitSet(nodeCount);
+		resizable = new BitSet(nodeCount);
+		locationChanged = new BitSet(nodeCount);
+		sizeChanged = new BitSet(nodeCount);
+		x = new double[nodeCount];
+		y = new double[nodeCount];
+		width = new double[nodeCount];
+		height = new double[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			Node node = nodes[i];
+			nodeIds.put(node, i);
+			movable.set(i, LayoutProperties.isMovable(node));
+			resizable.set(i, LayoutProperties.isResizable(node));
+			Point location = LayoutProperties.getLocation(node);
+			if (location != null) {
+				x[i] = location.x;
+				y[i] = location.y;
+			}
+			Dimension size = LayoutProperties.getSize(node);
+			if (size != null) {
+				width[i] = size.width;
+				height[i] = size.height;
+			}
+		}
+
+		// edge data (only edges between layout relevant nodes)
+		Edge[] relevantEdges = new Edge[edges.length];
+		int[] sources = new int[edges.length];
+		int[] targets = new int[edges.length];
+		int edgeCount = 0;
+		for (int i = 0; i < edges.length; i++) {
+			Integer source = nodeIds.get(edges[i].getSource());
+			Integer target = nodeIds.get(edges[i].getTarget());
+			if (source != null && target != null) {
+				sources[edgeCount] = source;
+				targets[edgeCount] = target;
+				relevantEdges[edgeCount] = edges[i];
+				edgeCount++;
+			}
+		}
+		this.edges = new Edge[edgeCount];
+		System.arraycopy(relevantEdges, 0, this.edges, 0, edgeCount);
+		edgeSources = new int[edgeCount];
+		edgeTargets = new int[edgeCount];
+		edgeWeights = new double[edgeCount];
+		System.arraycopy(sources, 0, edgeSources, 0, edgeCount);
+		System.arraycopy(targets, 0, edgeTargets, 0, edgeCount);
+		for (int i = 0; i < edgeCount; i++) {
+			edgeWeights[i] = LayoutProperties.getWeight(this.edges[i]);
+		}
+
+		// adjacency
+		outgoingOffsets = new int[nodeCount + 1];
+		outgoingEdges = new int[edgeCount];
+		incomingOffsets = new int[nodeCount + 1];
+		incomingEdges = new int[edgeCount];
+		fillAdjacency(edgeSources, outgoingOffsets, outgoingEdges);
+		fillAdjacency(edgeTargets, incomingOffsets, incomingEdges);
+	}
+
+	/**
+	 * Fills the given offsets and adjacency arrays (in compressed sparse row
+	 * format) so that the edges of node <code>i</code> are stored in the
+	 * adjacency array in the range <code>[offsets[i], offsets[i + 1])</code>,
+	 * in the order of their ids.
+	 */
+	private static void fillAdjacency(int[] endpoints, int[] offsets,
+			int[] adjacency) {
+		for (int e = 0; e < endpoints.length; e++) {
+			offsets[endpoints[e] + 1]++;
+		}
+		for (int i = 1; i < offsets.length; i++) {
+			offsets[i] += offsets[i - 1];
+		}
+		int[] next = new int[offsets.length - 1];
+		System.arraycopy(offsets, 0, next, 0, next.length);
+		for (int e = 0; e < endpoints.length; e++) {
+			adjacency[next[endpoints[e]]++] = e;
+		}
+	}
+
+	/**
+	 * Transfers all locations and sizes that were changed within this
+	 * {@link LayoutGraph} to the {@link LayoutProperties} of the respective
+	 * {@link Node}s. Values that are equal to the current values of a
+	 * {@link Node} are skipped, so that no change is published for them.
+	 */
+	public void flushChanges() {
+		for (int i = locationChanged.nextSetBit(0); i >= 0; i = locationChanged
+				.nextSetBit(i + 1)) {
+			LayoutProperties.setLocation(nodes[i], x[i], y[i]);
+		}
+		for (int i = sizeChanged.nextSetBit(0); i >= 0; i = sizeChanged
+				.nextSetBit(i + 1)) {
+			LayoutProperties.setSize(nodes[i], width[i], height[i]);
+		}
+		locationChanged.clear();
+		sizeChanged.clear();
+	}
+
+	/**
+	 * Returns a copy of the {@link LayoutProperties#getBounds(Graph) layout
+	 * bounds} at the time this snapshot was created, or <code>null</code> if
+	 * no bounds were specified.
+	 *
+	 * @return The layout bounds or <code>null</code>.
+	 */
+	public Rectangle getBounds() {
+		return bounds == null ? null : bounds.getCopy();
+	}
+
+	/**
+	 * Returns the {@link Edge} with the given id.
+	 *
+	 * @param edge
+	 *            The id of the edge.
+	 * @return The {@link Edge} with the given id.
+	 */
+	public Edge getEdge(int edge) {
+		return edges[edge];
+	}
+
+	/**
+	 * Returns the number of edges within this {@link LayoutGraph}.
+	 *
+	 * @return The number of edges.
+	 */
+	public int getEdgeCount() {
+		return edges.length;
+	}
+
+	/**
+	 * Returns the id of the source node of the given edge.
+	 *
+	 * @param edge
+	 *            The id of the edge.
+	 * @return The id of the source node.
+	 */
+	public int getEdgeSource(int edge) {
+		return edgeSources[edge];
+	}
+
+	/**
+	 * Returns the id of the target node of the given edge.
+	 *
+	 * @param edge
+	 *            The id of the edge.
+	 * @return The id of the target node.
+	 */
+	public int getEdgeTarget(int edge) {
+		return edgeTargets[edge];
+	}
+
+	/**
+	 * Returns the {@link LayoutProperties#getWeight(Edge) weight} of the given
+	 * edge.
+	 *
+	 * @param edge
+	 *            The id of the edge.
+	 * @return The weight of the edge.
+	 */
+	public double getEdgeWeight(int edge) {
+		return edgeWeights[edge];
+	}
+
+	/**
+	 * Returns the height of the given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return The height of the node.
+	 */
+	public double getHeight(int node) {
+		return height[node];
+	}
+
+	/**
+	 * Returns the id of the <i>index</i>-th incoming edge of the given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @param index
+	 *            The index of the incoming edge, within
+	 *            <code>[0, getInDegree(node))</code>.
+	 * @return The id of the incoming edge.
+	 */
+	public int getIncomingEdge(int node, int index) {
+		return incomingEdges[incomingOffsets[node] + index];
+	}
+
+	/**
+	 * Returns the number of incoming edges of the given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return The number of incoming edges.
+	 */
+	public int getInDegree(int node) {
+		return incomingOffsets[node + 1] - incomingOffsets[node];
+	}
+
+	/**
+	 * Returns the {@link Node} with the given id.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return The {@link Node} with the given id.
+	 */
+	public Node getNode(int node) {
+		return nodes[node];
+	}
+
+	/**
+	 * Returns the number of nodes within this {@link LayoutGraph}.
+	 *
+	 * @return The number of nodes.
+	 */
+	public int getNodeCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the id of the given {@link Node} within this {@link LayoutGraph}
+	 * , or <code>-1</code> if it is not contained.
+	 *
+	 * @param node
+	 *            The {@link Node} to look up.
+	 * @return The id of the given {@link Node} or <code>-1</code>.
+	 */
+	public int getNodeId(Node node) {
+		Integer id = nodeIds.get(node);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the number of outgoing edges of the given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return The number of outgoing edges.
+	 */
+	public int getOutDegree(int node) {
+		return outgoingOffsets[node + 1] - outgoingOffsets[node];
+	}
+
+	/**
+	 * Returns the id of the <i>index</i>-th outgoing edge of the given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @param index
+	 *            The index of the outgoing edge, within
+	 *            <code>[0, getOutDegree(node))</code>.
+	 * @return The id of the outgoing edge.
+	 */
+	public int getOutgoingEdge(int node, int index) {
+		return outgoingEdges[outgoingOffsets[node] + index];
+	}
+
+	/**
+	 * Returns the width of the given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return The width of the node.
+	 */
+	public double getWidth(int node) {
+		return width[node];
+	}
+
+	/**
+	 * Returns the horizontal coordinate of the (center) location of the given
+	 * node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return The horizontal coordinate of the location of the node.
+	 */
+	public double getX(int node) {
+		return x[node];
+	}
+
+	/**
+	 * Returns the vertical coordinate of the (center) location of the given
+	 * node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return The vertical coordinate of the location of the node.
+	 */
+	public double getY(int node) {
+		return y[node];
+	}
+
+	/**
+	 * Returns the {@link LayoutProperties#isMovable(Node) movable} state of the
+	 * given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return <code>true</code> if the node may be moved, otherwise
+	 *         <code>false</code>.
+	 */
+	public boolean isMovable(int node) {
+		return movable.get(node);
+	}
+
+	/**
+	 * Returns the {@link LayoutProperties#isResizable(Node) resizable} state of
+	 * the given node.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @return <code>true</code> if the node may be resized, otherwise
+	 *         <code>false</code>.
+	 */
+	public boolean isResizable(int node) {
+		return resizable.get(node);
+	}
+
+	/**
+	 * Changes the (center) location of the given node. The change is
+	 * transferred to the {@link Node} upon {@link #flushChanges()}.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @param x
+	 *            The new horizontal coordinate.
+	 * @param y
+	 *            The new vertical coordinate.
+	 */
+	public void setLocation(int node, double x, double y) {
+		this.x[node] = x;
+		this.y[node] = y;
+		locationChanged.set(node);
+	}
+
+	/**
+	 * Changes the size of the given node. The change is transferred to the
+	 * {@link Node} upon {@link #flushChanges()}.
+	 *
+	 * @param node
+	 *            The id of the node.
+	 * @param width
+	 *            The new width.
+	 * @param height
+	 *            The new height.
+	 */
+	public void setSize(int node, double width, double height) {
+		this.width[node] = width;
+		this.height[node] = height;
+		sizeChanged.set(node);
+	}
+
+}
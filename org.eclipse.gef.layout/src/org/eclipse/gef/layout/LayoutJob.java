@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+
+/**
+ * A {@link LayoutJob} represents an asynchronous layout pass that was started
+ * via {@link LayoutContext#applyLayoutAsync(boolean, Executor, Executor)}. It
+ * is completed after the layout result was applied to the graph, and it can be
+ * canceled via {@link #cancel(boolean)}, in which case the layout result is
+ * discarded.
+ *
+ * @author agent
+ *
+ */
+public class LayoutJob extends CompletableFuture<Void> {
+
+	/**
+	 * A {@link LayoutJob} notifies registered listeners about changes to the
+	 * progress using this property name.
+	 */
+	public static final String PROGRESS_PROPERTY = "progress";
+
+	private final Executor applyExecutor;
+	private final ReadOnlyDoubleWrapper progressProperty = new ReadOnlyDoubleWrapper(
+			this, PROGRESS_PROPERTY, 0);
+	private final AtomicBoolean progressUpdatePending = new AtomicBoolean();
+	private volatile double progress;
+
+	/**
+	 * Constructs a new {@link LayoutJob} that uses the given {@link Executor}
+	 * to update its {@link #progressProperty()}.
+	 *
+	 * @param applyExecutor
+	 *            The {@link Executor} that is used to apply the layout result,
+	 *            and to update the {@link #progressProperty()}.
+	 */
+	LayoutJob(Executor applyExecutor) {
+		this.applyExecutor = applyExecutor;
+	}
+
+	/**
+	 * Returns the progress of the layout pass, which is a value between
+	 * <code>0</code> and <code>1</code>. In contrast to
+	 * {@link #progressProperty()}, the value may be queried from any thread.
+	 *
+	 * @return The progress of the layout pass.
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
+	/**
+	 * A read-only property representing the progress of the layout pass. The
+	 * property is only updated by the {@link Executor} that applies the layout
+	 * result, i.e. the JavaFX application thread within Zest.
+	 *
+	 * @return A read-only property named {@link #PROGRESS_PROPERTY}.
+	 */
+	public ReadOnlyDoubleProperty progressProperty() {
+		return progressProperty.getReadOnlyProperty();
+	}
+
+	/**
+	 * Updates the progress of the layout pass. Subsequent updates are
+	 * coalesced, so that at most one update of the {@link #progressProperty()}
+	 * is pending at a time.
+	 *
+	 * @param progress
+	 *            The new progress.
+	 */
+	void setProgress(double progress) {
+		this.progress = Math.max(0, Math.min(1, progress));
+		if (progressUpdatePending.compareAndSet(false, true)) {
+			applyExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					progressUpdatePending.set(false);
+					progressProperty.set(LayoutJob.this.progress);
+				}
+			});
+		}
+	}
+}
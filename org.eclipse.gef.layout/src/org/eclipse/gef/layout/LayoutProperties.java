@@ -26,6 +26,13 @@ import org.eclipse.gef.graph.Node;
  */
 public class LayoutProperties {
 
+	/**
+	 * The prefix of the names of all layout properties.
+	 * 
+	 * @see #isLayoutProperty(String)
+	 */
+	public static final String PREFIX = "layout_";
+
 	/**
 	 * Stores the bounds in which the graph elements can be placed.
 	 */
@@ -112,6 +119,24 @@ public class LayoutProperties {
 	 */
 	public static final Integer DEFAULT_DIRECTION = DIRECTION_TOP_DOWN;
 
+	/**
+	 * Returns <code>true</code> if the attribute with the given name is a
+	 * layout property, i.e. if its name starts with {@link #PREFIX}. The layout
+	 * properties are only exchanged between the {@link ILayoutAlgorithm}s and
+	 * the pre and post layout passes of a {@link LayoutContext}. Therefore,
+	 * observers of the attributes of a graph element that are not involved in
+	 * layout passes can ignore changes of layout properties; the results of a
+	 * layout pass should be published within the post layout pass instead.
+	 * 
+	 * @param name
+	 *            The name of the attribute to test.
+	 * @return <code>true</code> if the given name denotes a layout property,
+	 *         otherwise <code>false</code>.
+	 */
+	public static boolean isLayoutProperty(String name) {
+		return name != null && name.startsWith(PREFIX);
+	}
+
 	/**
 	 * Returns the value of the {@link #BOUNDS_PROPERTY} of the given
 	 * {@link LayoutContext}.
@@ -230,6 +255,27 @@ public class LayoutProperties {
 		node.getAttributes().put(LOCATION_PROPERTY, location);
 	}
 
+	/**
+	 * Sets the value of the {@link #LOCATION_PROPERTY} of the given
+	 * {@link Node} to a {@link Point} with the given coordinates. If the
+	 * {@link Node} is already located at the given coordinates, its location is
+	 * not changed, so that neither a new {@link Point} is allocated nor a
+	 * change is published.
+	 * 
+	 * @param node
+	 *            The {@link Node} whose {@link #LOCATION_PROPERTY} is changed.
+	 * @param x
+	 *            The new x-coordinate.
+	 * @param y
+	 *            The new y-coordinate.
+	 */
+	public static void setLocation(Node node, double x, double y) {
+		Point location = getLocation(node);
+		if (location == null || location.x != x || location.y != y) {
+			setLocation(node, new Point(x, y));
+		}
+	}
+
 	/**
 	 * Sets the value of the {@link #SIZE_PROPERTY} of the given {@link Node} to
 	 * the given value.
@@ -244,6 +290,26 @@ public class LayoutProperties {
 		node.getAttributes().put(SIZE_PROPERTY, size);
 	}
 
+	/**
+	 * Sets the value of the {@link #SIZE_PROPERTY} of the given {@link Node} to
+	 * a {@link Dimension} with the given width and height. If the {@link Node}
+	 * already has the given size, its size is not changed, so that neither a
+	 * new {@link Dimension} is allocated nor a change is published.
+	 * 
+	 * @param node
+	 *            The {@link Node} whose {@link #SIZE_PROPERTY} is changed.
+	 * @param width
+	 *            The new width.
+	 * @param height
+	 *            The new height.
+	 */
+	public static void setSize(Node node, double width, double height) {
+		Dimension size = getSize(node);
+		if (size == null || size.width != width || size.height != height) {
+			setSize(node, new Dimension(width, height));
+		}
+	}
+
 	/**
 	 * Sets the value of the {@link #RESIZABLE_PROPERTY} of the given
 	 * {@link Node} to the given value.
@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.layout.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutGraph;
+import org.eclipse.gef.layout.LayoutProperties;
+import org.eclipse.gef.layout.internal.algorithms.AttributeCopies;
+
+/**
+ * The {@link ConnectedComponentsLayoutAlgorithm} is a variant of the
+ * {@link CompositeLayoutAlgorithm} that splits the graph into its connected
+ * components, lays out each component separately, and packs the components
+ * into rows afterwards. This is considerably faster than laying out the whole
+ * graph at once if the applied algorithm needs super-linear time, and prevents
+ * that disconnected components are scattered across the layout bounds.
+ * <p>
+ * As the {@link ILayoutAlgorithm}s keep state during a layout pass, a new
+ * algorithm is obtained from the given factory for each component, so that the
+ * components can be laid out concurrently (see {@link #setParallelism(int)}).
+ * Each component is laid out within bounds that have the aspect ratio of the
+ * layout bounds, and whose area is proportional to the number of nodes of the
+ * component. Components that consist of a single node are not laid out.
+ * Components that contain a node that is not
+ * {@link LayoutProperties#isMovable(Node) movable} keep their location, i.e.
+ * they are not packed.
+ *
+ * @author agent
+ *
+ */
+public class ConnectedComponentsLayoutAlgorithm implements ILayoutAlgorithm {
+
+	/**
+	 * Lays out a subset of the components, so that the subsets can be laid out
+	 * in parallel by the {@link ForkJoinPool#commonPool()}.
+	 */
+	private class ComponentLayout extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Component> components;
+
+		public ComponentLayout(List<Component> components) {
+			this.components = components;
+		}
+
+		@Override
+		protected void compute() {
+			for (Component component : components) {
+				component.layout();
+			}
+		}
+	}
+
+	private class Component {
+
+		private final LayoutGraph layoutGraph;
+		private final int[] nodes;
+		private final int[] edges;
+		private final Rectangle bounds;
+		private Node[] copies;
+		private Rectangle extent;
+		private boolean movable = true;
+
+		public Component(LayoutGraph layoutGraph, int[] nodes, int[] edges,
+				Rectangle bounds) {
+			this.layoutGraph = layoutGraph;
+			this.nodes = nodes;
+			this.edges = edges;
+			this.bounds = bounds;
+		}
+
+		/**
+		 * Lays out a copy of this component, so that components can be laid
+		 * out concurrently without changing the original graph.
+		 */
+		public void layout() {
+			Map<Node, Node> nodeCopies = new IdentityHashMap<>();
+			copies = new Node[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				Node node = layoutGraph.getNode(nodes[i]);
+				copies[i] = new Node(
+						AttributeCopies.copyAttributes(node.getAttributes()));
+				nodeCopies.put(node, copies[i]);
+				movable &= layoutGraph.isMovable(nodes[i]);
+			}
+			if (nodes.length > 1) {
+				List<Edge> edgeCopies = new ArrayList<>(edges.length);
+				for (int e : edges) {
+					Edge edge = layoutGraph.getEdge(e);
+					edgeCopies.add(new Edge(
+							AttributeCopies
+									.copyAttributes(edge.getAttributes()),
+							nodeCopies.get(edge.getSource()),
+							nodeCopies.get(edge.getTarget())));
+				}
+				Graph graph = new Graph(Arrays.asList(copies), edgeCopies);
+				LayoutProperties.setBounds(graph, bounds);
+				LayoutContext context = new LayoutContext();
+				context.setGraph(graph);
+				context.setLayoutAlgorithm(algorithmFactory.get());
+				context.applyLayout(true);
+			}
+			for (Node copy : copies) {
+				if (LayoutProperties.getLocation(copy) == null) {
+					LayoutProperties.setLocation(copy, new Point());
+				}
+				if (LayoutProperties.getSize(copy) == null) {
+					LayoutProperties.setSize(copy, new Dimension());
+				}
+			}
+			extent = AlgorithmHelper.getLayoutBounds(copies, true);
+		}
+
+		/**
+		 * Transfers the layout of the copies to the original nodes,
+		 * translated by the given offset.
+		 */
+		public void transfer(double dx, double dy) {
+			for (int i = 0; i < nodes.length; i++) {
+				Node node = layoutGraph.getNode(nodes[i]);
+				Point location = LayoutProperties.getLocation(copies[i]);
+				Dimension size = LayoutProperties.getSize(copies[i]);
+				if (location != null) {
+					LayoutProperties.setLocation(node,
+							new Point(location.x + dx, location.y + dy));
+				}
+				if (size != null
+						&& !size.equals(LayoutProperties.getSize(node))) {
+					LayoutProperties.setSize(node, size.getCopy());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The default value for the spacing between components.
+	 */
+	private static final double DEFAULT_SPACING = 20;
+
+	/**
+	 * The default value for the number of threads that lay out components.
+	 */
+	private static final int DEFAULT_PARALLELISM = Runtime.getRuntime()
+			.availableProcessors();
+
+	private final Supplier<? extends ILayoutAlgorithm> algorithmFactory;
+	private double spacing = DEFAULT_SPACING;
+	private int parallelism = DEFAULT_PARALLELISM;
+
+	/**
+	 * Constructs a new {@link ConnectedComponentsLayoutAlgorithm} that lays out
+	 * each connected component with a new {@link ILayoutAlgorithm} that is
+	 * obtained from the given factory.
+	 *
+	 * @param algorithmFactory
+	 *            The factory that provides a new {@link ILayoutAlgorithm} for
+	 *            each connected component.
+	 */
+	public ConnectedComponentsLayoutAlgorithm(
+			Supplier<? extends ILayoutAlgorithm> algorithmFactory) {
+		if (algorithmFactory == null) {
+			throw new IllegalArgumentException(
+					"algorithmFactory may not be null.");
+		}
+		this.algorithmFactory = algorithmFactory;
+	}
+
+	@Override
+	public void applyLayout(LayoutContext layoutContext, boolean clean) {
+		if (!clean) {
+			return;
+		}
+		LayoutGraph layoutGraph = new LayoutGraph(layoutContext);
+		Rectangle bounds = LayoutProperties
+				.getBounds(layoutContext.getGraph());
+		List<Component> components = findComponents(layoutGraph, bounds);
+		if (components.isEmpty()) {
+			return;
+		}
+
+		// lay out the components (concurrently), distributing them round-robin
+		// over the tasks, so that the large components (which tend to come
+		// first) are not all laid out by the same task
+		if (parallelism > 1 && components.size() > 1) {
+			int taskCount = Math.min(parallelism, components.size());
+			List<List<Component>> subsets = new ArrayList<>();
+			for (int t = 0; t < taskCount; t++) {
+				subsets.add(new ArrayList<Component>());
+			}
+			for (int c = 0; c < components.size(); c++) {
+				subsets.get(c % taskCount).add(components.get(c));
+			}
+			final List<ComponentLayout> tasks = new ArrayList<>();
+			for (List<Component> subset : subsets) {
+				tasks.add(new ComponentLayout(subset));
+			}
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} else {
+			for (Component component : components) {
+				component.layout();
+			}
+		}
+		if (layoutContext.isLayoutCanceled()) {
+			return;
+		}
+
+		pack(components, bounds);
+	}
+
+	/**
+	 * Determines the connected components of the given {@link LayoutGraph},
+	 * ordered by their first node, and computes the bounds within which each
+	 * component is laid out.
+	 */
+	private List<Component> findComponents(LayoutGraph layoutGraph,
+			Rectangle bounds) {
+		int nodeCount = layoutGraph.getNodeCount();
+		// union-find with path halving
+		int[] parents = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			parents[i] = i;
+		}
+		for (int e = 0; e < layoutGraph.getEdgeCount(); e++) {
+			int s = find(parents, layoutGraph.getEdgeSource(e));
+			int t = find(parents, layoutGraph.getEdgeTarget(e));
+			if (s != t) {
+				parents[Math.max(s, t)] = Math.min(s, t);
+			}
+		}
+		// the roots are the smallest nodes of their components, so that the
+		// components are numbered in the order of their first nodes
+		int[] componentIds = new int[nodeCount];
+		int[] componentSizes = new int[nodeCount];
+		int componentCount = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			int root = find(parents, i);
+			componentIds[i] = root == i ? componentCount++
+					: componentIds[root];
+			componentSizes[componentIds[i]]++;
+		}
+		int[][] componentNodes = new int[componentCount][];
+		for (int c = 0; c < componentCount; c++) {
+			componentNodes[c] = new int[componentSizes[c]];
+		}
+		int[] fill = new int[componentCount];
+		for (int i = 0; i < nodeCount; i++) {
+			int c = componentIds[i];
+			componentNodes[c][fill[c]++] = i;
+		}
+		int[] componentEdgeCounts = new int[componentCount];
+		for (int e = 0; e < layoutGraph.getEdgeCount(); e++) {
+			componentEdgeCounts[componentIds[layoutGraph
+					.getEdgeSource(e)]]++;
+		}
+		int[][] componentEdges = new int[componentCount][];
+		for (int c = 0; c < componentCount; c++) {
+			componentEdges[c] = new int[componentEdgeCounts[c]];
+		}
+		Arrays.fill(fill, 0);
+		for (int e = 0; e < layoutGraph.getEdgeCount(); e++) {
+			int c = componentIds[layoutGraph.getEdgeSource(e)];
+			componentEdges[c][fill[c]++] = e;
+		}
+
+		List<Component> components = new ArrayList<>(componentCount);
+		for (int c = 0; c < componentCount; c++) {
+			Rectangle componentBounds = null;
+			if (bounds != null) {
+				double scale = Math
+						.sqrt((double) componentNodes[c].length / nodeCount);
+				componentBounds = new Rectangle(0, 0,
+						bounds.getWidth() * scale, bounds.getHeight() * scale);
+			}
+			components.add(new Component(layoutGraph, componentNodes[c],
+					componentEdges[c], componentBounds));
+		}
+		return components;
+	}
+
+	private static int find(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Packs the movable components into rows (tallest components first), so
+	 * that the packing approximately has the aspect ratio of the layout
+	 * bounds, and centers the packing within the layout bounds.
+	 */
+	private void pack(List<Component> components, Rectangle bounds) {
+		List<Component> packed = new ArrayList<>();
+		double area = 0;
+		double maxWidth = 0;
+		for (Component component : components) {
+			if (component.movable) {
+				packed.add(component);
+				area += (component.extent.getWidth() + spacing)
+						* (component.extent.getHeight() + spacing);
+				maxWidth = Math.max(maxWidth,
+						component.extent.getWidth() + spacing);
+			} else {
+				component.transfer(0, 0);
+			}
+		}
+		if (packed.isEmpty()) {
+			return;
+		}
+		// the sort is stable, so that the packing is deterministic
+		packed.sort(new Comparator<Component>() {
+			@Override
+			public int compare(Component c1, Component c2) {
+				return Double.compare(c2.extent.getHeight(),
+						c1.extent.getHeight());
+			}
+		});
+		double aspectRatio = bounds == null || bounds.getHeight() <= 0 ? 1
+				: bounds.getWidth() / bounds.getHeight();
+		double rowWidth = Math.max(maxWidth, Math.sqrt(area * aspectRatio));
+
+		// shelf packing
+		double[] x = new double[packed.size()];
+		double[] y = new double[packed.size()];
+		double rowX = 0;
+		double rowY = 0;
+		double rowHeight = 0;
+		double packingWidth = 0;
+		for (int i = 0; i < packed.size(); i++) {
+			Rectangle extent = packed.get(i).extent;
+			if (rowX > 0 && rowX + extent.getWidth() > rowWidth) {
+				rowY += rowHeight + spacing;
+				rowX = 0;
+				rowHeight = 0;
+			}
+			x[i] = rowX;
+			y[i] = rowY;
+			rowX += extent.getWidth() + spacing;
+			rowHeight = Math.max(rowHeight, extent.getHeight());
+			packingWidth = Math.max(packingWidth, rowX - spacing);
+		}
+		double packingHeight = rowY + rowHeight;
+
+		// center the packing within the layout bounds
+		double originX = 0;
+		double originY = 0;
+		if (bounds != null) {
+			originX = bounds.getX()
+					+ Math.max(0, bounds.getWidth() - packingWidth) / 2;
+			originY = bounds.getY()
+					+ Math.max(0, bounds.getHeight() - packingHeight) / 2;
+		}
+		for (int i = 0; i < packed.size(); i++) {
+			Component component = packed.get(i);
+			component.transfer(originX + x[i] - component.extent.getX(),
+					originY + y[i] - component.extent.getY());
+		}
+	}
+
+	/**
+	 * Returns the number of threads that are used to lay out the components.
+	 *
+	 * @return The number of threads used to lay out the components.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Returns the spacing between the packed components.
+	 *
+	 * @return The spacing between components.
+	 */
+	public double getSpacing() {
+		return spacing;
+	}
+
+	/**
+	 * Sets the number of threads that are used to lay out the components
+	 * (default is the number of available processors). If the parallelism is
+	 * greater than 1, the components are split into (at most) the given number
+	 * of tasks, which are executed by the {@link ForkJoinPool#commonPool()}, so
+	 * that no threads have to be managed by this algorithm. The computed layout
+	 * does not depend on the parallelism.
+	 *
+	 * @param parallelism
+	 *            The number of threads used to lay out the components.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(
+					"parallelism has to be at least 1.");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets the spacing between the packed components.
+	 *
+	 * @param spacing
+	 *            The spacing between components.
+	 */
+	public void setSpacing(double spacing) {
+		if (spacing < 0) {
+			throw new IllegalArgumentException(
+					"spacing may not be negative.");
+		}
+		this.spacing = spacing;
+	}
+}
@@ -12,12 +12,10 @@
  ******************************************************************************/
 package org.eclipse.gef.layout.algorithms;
 
-import org.eclipse.gef.geometry.planar.Dimension;
-import org.eclipse.gef.geometry.planar.Point;
 import org.eclipse.gef.geometry.planar.Rectangle;
-import org.eclipse.gef.graph.Node;
 import org.eclipse.gef.layout.ILayoutAlgorithm;
 import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutGraph;
 import org.eclipse.gef.layout.LayoutProperties;
 
 /**
@@ -91,7 +89,11 @@ public class GridLayoutAlgorithm implements ILayoutAlgorithm {
 	public void applyLayout(LayoutContext context, boolean clean) {
 		if (!clean)
 			return;
-		numChildren = context.getNodes().length;
+		LayoutGraph layoutGraph = new LayoutGraph(context);
+		if (context.isLayoutCanceled()) {
+			return;
+		}
+		numChildren = layoutGraph.getNodeCount();
 		Rectangle bounds = LayoutProperties.getBounds(context.getGraph());
 		calculateGrid(bounds);
 
@@ -99,22 +101,21 @@ public class GridLayoutAlgorithm implements ILayoutAlgorithm {
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < cols; j++) {
 				if ((i * cols + j) < numChildren) {
-					Node node = context.getNodes()[index++];
-					if (resize && LayoutProperties.isResizable(node))
-						LayoutProperties.setSize(node, new Dimension(
+					int node = index++;
+					if (resize && layoutGraph.isResizable(node))
+						layoutGraph.setSize(node,
 								Math.max(childrenWidth, MIN_ENTITY_SIZE),
-								Math.max(childrenHeight, MIN_ENTITY_SIZE)));
-					Dimension size = LayoutProperties.getSize(node);
+								Math.max(childrenHeight, MIN_ENTITY_SIZE));
 					double xmove = bounds.getX() + j * colWidth + offsetX
-							+ size.width / 2;
+							+ layoutGraph.getWidth(node) / 2;
 					double ymove = bounds.getY() + i * rowHeight + offsetY
-							+ size.height / 2;
-					if (LayoutProperties.isMovable(node))
-						LayoutProperties.setLocation(node,
-								new Point(xmove, ymove));
+							+ layoutGraph.getHeight(node) / 2;
+					if (layoutGraph.isMovable(node))
+						layoutGraph.setLocation(node, xmove, ymove);
 				}
 			}
 		}
+		layoutGraph.flushChanges();
 	}
 
 	/**
@@ -0,0 +1,528 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ ******************************************************************************/
+package org.eclipse.gef.layout.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutGraph;
+import org.eclipse.gef.layout.internal.algorithms.BarnesHutTree;
+
+/**
+ * The {@link MultilevelLayoutAlgorithm} is a force-directed layout algorithm
+ * that is suitable for large graphs. It follows the multilevel approach of
+ * FM3 and sfdp:
+ * <ol>
+ * <li>The graph is coarsened repeatedly, by merging pairs of adjacent nodes
+ * (heavy edge matching), until it is small enough.</li>
+ * <li>The coarsest graph is laid out using a spring-electrical model.</li>
+ * <li>The layout of each coarser graph is transferred to the next finer graph
+ * (prolongation) and refined, until the original graph is laid out.</li>
+ * </ol>
+ * The repulsion between nodes is approximated using a Barnes-Hut quad-tree, so
+ * that each iteration takes <code>O(n log n)</code>. As the finer graphs start
+ * from a good layout, only a few iterations are needed per level.
+ *
+ * @author agent
+ *
+ */
+public class MultilevelLayoutAlgorithm implements ILayoutAlgorithm {
+
+	/**
+	 * A level of the coarsening hierarchy, i.e. an undirected graph with
+	 * weighted edges, stored as symmetric compressed rows.
+	 */
+	private static class Level {
+		private int nodeCount;
+		private int[] offsets;
+		private int[] neighbors;
+		private double[] weights;
+		// index of the node within the next coarser level
+		private int[] coarseNodes;
+		private double[] x;
+		private double[] y;
+	}
+
+	/**
+	 * The default value for the maximum number of iterations per level.
+	 */
+	private static final int DEFAULT_ITERATIONS = 50;
+
+	/**
+	 * The default value for the number of nodes below which the graph is not
+	 * coarsened any further.
+	 */
+	private static final int DEFAULT_COARSEST_SIZE = 50;
+
+	/**
+	 * Coarsening stops when a level contains more than this fraction of the
+	 * nodes of the previous level.
+	 */
+	private static final double MIN_COARSENING_RATIO = 0.8;
+
+	/**
+	 * The natural spring length.
+	 */
+	private static final double K = 1;
+
+	/**
+	 * The relative strength of the repulsion.
+	 */
+	private static final double C = 0.2;
+
+	/**
+	 * The Barnes-Hut approximation threshold.
+	 */
+	private static final double THETA = 1.2;
+
+	/**
+	 * The factor by which the step length is cooled down.
+	 */
+	private static final double COOLING = 0.9;
+
+	/**
+	 * The relative movement below which a level is considered to be
+	 * converged.
+	 */
+	private static final double TOLERANCE = 0.01;
+
+	private int iterations = DEFAULT_ITERATIONS;
+	private int coarsestSize = DEFAULT_COARSEST_SIZE;
+	private Long randomSeed = null;
+	private boolean resize = false;
+
+	/**
+	 * Default constructor.
+	 */
+	public MultilevelLayoutAlgorithm() {
+	}
+
+	@Override
+	public void applyLayout(LayoutContext layoutContext, boolean clean) {
+		if (!clean) {
+			return;
+		}
+		LayoutGraph layoutGraph = new LayoutGraph(layoutContext);
+		if (layoutGraph.getNodeCount() == 0) {
+			return;
+		}
+		Random random = randomSeed == null ? new Random()
+				: new Random(randomSeed);
+
+		// coarsen
+		List<Level> levels = new ArrayList<>();
+		levels.add(createLevel(layoutGraph));
+		while (levels.get(levels.size() - 1).nodeCount > coarsestSize) {
+			Level fine = levels.get(levels.size() - 1);
+			Level coarse = coarsen(fine, random);
+			if (coarse.nodeCount > MIN_COARSENING_RATIO * fine.nodeCount) {
+				fine.coarseNodes = null;
+				break;
+			}
+			levels.add(coarse);
+		}
+
+		// layout coarsest level
+		Level coarsest = levels.get(levels.size() - 1);
+		coarsest.x = new double[coarsest.nodeCount];
+		coarsest.y = new double[coarsest.nodeCount];
+		double extent = K * Math.sqrt(coarsest.nodeCount);
+		for (int i = 0; i < coarsest.nodeCount; i++) {
+			coarsest.x[i] = random.nextDouble() * extent;
+			coarsest.y[i] = random.nextDouble() * extent;
+		}
+		refine(coarsest, extent / 4);
+
+		// prolongate and refine
+		for (int l = levels.size() - 2; l >= 0; l--) {
+			if (layoutContext.isLayoutCanceled()) {
+				return;
+			}
+			layoutContext.reportLayoutProgress(
+					(double) (levels.size() - 1 - l) / levels.size());
+			prolongate(levels.get(l), levels.get(l + 1), random);
+			refine(levels.get(l), 0.2 * K);
+		}
+
+		// transfer locations
+		Level finest = levels.get(0);
+		Node[] nodes = new Node[finest.nodeCount];
+		for (int i = 0; i < finest.nodeCount; i++) {
+			nodes[i] = layoutGraph.getNode(i);
+			if (layoutGraph.isMovable(i)) {
+				layoutGraph.setLocation(i, finest.x[i], finest.y[i]);
+			}
+		}
+		layoutGraph.flushChanges();
+
+		if (resize) {
+			AlgorithmHelper.maximizeSizes(nodes);
+		}
+		Rectangle bounds = layoutGraph.getBounds();
+		if (bounds == null) {
+			// no bounds to fit into => keep the computed locations
+			return;
+		}
+		int insets = 4;
+		bounds.setX(bounds.getX() + insets);
+		bounds.setY(bounds.getY() + insets);
+		bounds.setWidth(bounds.getWidth() - 2 * insets);
+		bounds.setHeight(bounds.getHeight() - 2 * insets);
+		AlgorithmHelper.fitWithinBounds(nodes, bounds, resize);
+	}
+
+	/**
+	 * Creates the coarser {@link Level} for the given {@link Level}. Adjacent
+	 * nodes are matched (preferring heavy edges), and each unmatched node is
+	 * merged into the group of its heaviest matched neighbor. Each resulting
+	 * group of nodes forms a node of the coarser level.
+	 */
+	private Level coarsen(Level fine, Random random) {
+		int n = fine.nodeCount;
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+
+		// heavy edge matching
+		int[] coarseNodes = new int[n];
+		Arrays.fill(coarseNodes, -1);
+		int coarseCount = 0;
+		for (int u : order) {
+			if (coarseNodes[u] >= 0) {
+				continue;
+			}
+			int match = -1;
+			double matchWeight = 0;
+			for (int k = fine.offsets[u]; k < fine.offsets[u + 1]; k++) {
+				int v = fine.neighbors[k];
+				if (coarseNodes[v] < 0 && fine.weights[k] > matchWeight) {
+					match = v;
+					matchWeight = fine.weights[k];
+				}
+			}
+			if (match >= 0) {
+				coarseNodes[u] = coarseCount;
+				coarseNodes[match] = coarseCount;
+				coarseCount++;
+			}
+		}
+
+		// merge unmatched nodes into neighboring groups
+		for (int u : order) {
+			if (coarseNodes[u] >= 0) {
+				continue;
+			}
+			int group = -1;
+			double groupWeight = 0;
+			for (int k = fine.offsets[u]; k < fine.offsets[u + 1]; k++) {
+				int v = fine.neighbors[k];
+				if (coarseNodes[v] >= 0 && fine.weights[k] > groupWeight) {
+					group = coarseNodes[v];
+					groupWeight = fine.weights[k];
+				}
+			}
+			coarseNodes[u] = group >= 0 ? group : coarseCount++;
+		}
+		fine.coarseNodes = coarseNodes;
+
+		// group the nodes by coarse node
+		int[] memberOffsets = new int[coarseCount + 1];
+		for (int u = 0; u < n; u++) {
+			memberOffsets[coarseNodes[u] + 1]++;
+		}
+		for (int c = 0; c < coarseCount; c++) {
+			memberOffsets[c + 1] += memberOffsets[c];
+		}
+		int[] fill = new int[coarseCount];
+		int[] members = new int[n];
+		for (int u = 0; u < n; u++) {
+			int c = coarseNodes[u];
+			members[memberOffsets[c] + fill[c]++] = u;
+		}
+
+		// sum up the weights of the edges between groups
+		Level coarse = new Level();
+		coarse.nodeCount = coarseCount;
+		coarse.offsets = new int[coarseCount + 1];
+		int[] neighbors = new int[fine.neighbors.length];
+		double[] weights = new double[fine.neighbors.length];
+		int[] lastSeen = new int[coarseCount];
+		int[] slot = new int[coarseCount];
+		Arrays.fill(lastSeen, -1);
+		int size = 0;
+		for (int c = 0; c < coarseCount; c++) {
+			coarse.offsets[c] = size;
+			for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+				int u = members[m];
+				for (int k = fine.offsets[u]; k < fine.offsets[u + 1]; k++) {
+					int d = coarseNodes[fine.neighbors[k]];
+					if (d == c) {
+						continue;
+					}
+					if (lastSeen[d] != c) {
+						lastSeen[d] = c;
+						slot[d] = size;
+						neighbors[size] = d;
+						weights[size] = fine.weights[k];
+						size++;
+					} else {
+						weights[slot[d]] += fine.weights[k];
+					}
+				}
+			}
+		}
+		coarse.offsets[coarseCount] = size;
+		coarse.neighbors = Arrays.copyOf(neighbors, size);
+		coarse.weights = Arrays.copyOf(weights, size);
+		return coarse;
+	}
+
+	/**
+	 * Creates the finest {@link Level} from the given {@link LayoutGraph}.
+	 * Edges are considered undirected, parallel edges are merged, and loops
+	 * are ignored.
+	 */
+	private Level createLevel(LayoutGraph layoutGraph) {
+		int n = layoutGraph.getNodeCount();
+		Level level = new Level();
+		level.nodeCount = n;
+		level.offsets = new int[n + 1];
+		int[] neighbors = new int[2 * layoutGraph.getEdgeCount()];
+		double[] weights = new double[neighbors.length];
+		int[] lastSeen = new int[n];
+		int[] slot = new int[n];
+		Arrays.fill(lastSeen, -1);
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			level.offsets[i] = size;
+			int outDegree = layoutGraph.getOutDegree(i);
+			int degree = outDegree + layoutGraph.getInDegree(i);
+			for (int k = 0; k < degree; k++) {
+				int edge;
+				int j;
+				if (k < outDegree) {
+					edge = layoutGraph.getOutgoingEdge(i, k);
+					j = layoutGraph.getEdgeTarget(edge);
+				} else {
+					edge = layoutGraph.getIncomingEdge(i, k - outDegree);
+					j = layoutGraph.getEdgeSource(edge);
+				}
+				if (j == i) {
+					continue;
+				}
+				double weight = layoutGraph.getEdgeWeight(edge);
+				weight = weight <= 0 ? 1 : weight;
+				if (lastSeen[j] != i) {
+					lastSeen[j] = i;
+					slot[j] = size;
+					neighbors[size] = j;
+					weights[size] = weight;
+					size++;
+				} else {
+					weights[slot[j]] += weight;
+				}
+			}
+		}
+		level.offsets[n] = size;
+		level.neighbors = Arrays.copyOf(neighbors, size);
+		level.weights = Arrays.copyOf(weights, size);
+		return level;
+	}
+
+	/**
+	 * Returns the maximum number of iterations per level.
+	 *
+	 * @return The maximum number of iterations per level.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Returns the number of nodes below which the graph is not coarsened any
+	 * further.
+	 *
+	 * @return The number of nodes of the coarsest level.
+	 */
+	public int getCoarsestSize() {
+		return coarsestSize;
+	}
+
+	/**
+	 * Returns the seed that is used for the initial placement and for the
+	 * coarsening.
+	 *
+	 * @return The seed, or <code>null</code> if a random seed is used.
+	 */
+	public Long getRandomSeed() {
+		return randomSeed;
+	}
+
+	/**
+	 * @return true if this algorithm is set to resize elements
+	 */
+	public boolean isResizing() {
+		return resize;
+	}
+
+	/**
+	 * Transfers the locations of the coarse {@link Level} to the fine
+	 * {@link Level}. The coarse layout is scaled, so that the area grows with
+	 * the number of nodes, and nodes that were merged are slightly displaced,
+	 * so that they can be separated by the refinement.
+	 */
+	private void prolongate(Level fine, Level coarse, Random random) {
+		double scale = Math
+				.sqrt((double) fine.nodeCount / coarse.nodeCount);
+		fine.x = new double[fine.nodeCount];
+		fine.y = new double[fine.nodeCount];
+		for (int i = 0; i < fine.nodeCount; i++) {
+			int c = fine.coarseNodes[i];
+			fine.x[i] = coarse.x[c] * scale
+					+ (random.nextDouble() - 0.5) * K * 0.1;
+			fine.y[i] = coarse.y[c] * scale
+					+ (random.nextDouble() - 0.5) * K * 0.1;
+		}
+	}
+
+	/**
+	 * Refines the layout of the given {@link Level} using a spring-electrical
+	 * model with attraction <code>d^2 / K</code> and repulsion
+	 * <code>C K^3 / d^2</code>. Nodes are moved by the current step length in
+	 * the direction of their force, and the step length is adapted to the
+	 * progress of the layout (see Hu, Efficient and High Quality
+	 * Force-Directed Graph Drawing, 2005).
+	 */
+	private void refine(Level level, double initialStep) {
+		int n = level.nodeCount;
+		double[] x = level.x;
+		double[] y = level.y;
+		double[] forcesX = new double[n];
+		double[] forcesY = new double[n];
+		BarnesHutTree tree = new BarnesHutTree();
+		double step = initialStep;
+		double energy = Double.POSITIVE_INFINITY;
+		int progress = 0;
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			Arrays.fill(forcesX, 0);
+			Arrays.fill(forcesY, 0);
+			tree.build(x, y);
+			tree.accumulateRepulsion(C * K * K * K, 0.01 * K, THETA, forcesX,
+					forcesY);
+			for (int i = 0; i < n; i++) {
+				for (int k = level.offsets[i]; k < level.offsets[i
+						+ 1]; k++) {
+					int j = level.neighbors[k];
+					double dx = x[j] - x[i];
+					double dy = y[j] - y[i];
+					double distance = Math.sqrt(dx * dx + dy * dy);
+					double f = distance * level.weights[k] / K;
+					forcesX[i] += f * dx;
+					forcesY[i] += f * dy;
+				}
+			}
+
+			// move nodes by the step length
+			double previousEnergy = energy;
+			energy = 0;
+			double movement = 0;
+			for (int i = 0; i < n; i++) {
+				double f = Math.sqrt(
+						forcesX[i] * forcesX[i] + forcesY[i] * forcesY[i]);
+				energy += f * f;
+				if (f > 0) {
+					double dx = step * forcesX[i] / f;
+					double dy = step * forcesY[i] / f;
+					x[i] += dx;
+					y[i] += dy;
+					movement += Math.sqrt(dx * dx + dy * dy);
+				}
+			}
+
+			// adapt step length
+			if (energy < previousEnergy) {
+				progress++;
+				if (progress >= 5) {
+					progress = 0;
+					step /= COOLING;
+				}
+			} else {
+				progress = 0;
+				step *= COOLING;
+			}
+			if (movement < TOLERANCE * K * n) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Sets the number of nodes below which the graph is not coarsened any
+	 * further.
+	 *
+	 * @param coarsestSize
+	 *            The number of nodes of the coarsest level.
+	 */
+	public void setCoarsestSize(int coarsestSize) {
+		if (coarsestSize < 2) {
+			throw new IllegalArgumentException(
+					"coarsestSize has to be at least 2.");
+		}
+		this.coarsestSize = coarsestSize;
+	}
+
+	/**
+	 * Sets the maximum number of iterations per level.
+	 *
+	 * @param iterations
+	 *            The maximum number of iterations per level.
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Sets the seed that is used for the initial placement and for the
+	 * coarsening, so that the layout is reproducible. If <code>null</code> is
+	 * passed in, a random seed is used (default).
+	 *
+	 * @param seed
+	 *            The seed, or <code>null</code>.
+	 */
+	public void setRandomSeed(Long seed) {
+		randomSeed = seed;
+	}
+
+	/**
+	 * @param resizing
+	 *            true if this algorithm should resize elements (default is
+	 *            false)
+	 */
+	public void setResizing(boolean resizing) {
+		resize = resizing;
+	}
+
+}
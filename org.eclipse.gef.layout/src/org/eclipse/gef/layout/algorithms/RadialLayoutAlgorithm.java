@@ -47,6 +47,9 @@ public class RadialLayoutAlgorithm implements ILayoutAlgorithm {
 		if (!clean)
 			return;
 		treeLayout.internalApplyLayout(layoutContext);
+		if (layoutContext.isLayoutCanceled()) {
+			return;
+		}
 		Node[] entities = layoutContext.getNodes();
 		Rectangle bounds = LayoutProperties.getBounds(layoutContext.getGraph())
 				.getCopy();
@@ -119,4 +122,30 @@ public class RadialLayoutAlgorithm implements ILayoutAlgorithm {
 		resize = resizing;
 		treeLayout.setResizing(resize);
 	}
+
+	/**
+	 * Returns <code>true</code> if the nodes are arranged based on a tidy
+	 * tree, otherwise <code>false</code>.
+	 * 
+	 * @return <code>true</code> if the nodes are arranged based on a tidy
+	 *         tree, otherwise <code>false</code>.
+	 * @see TreeLayoutAlgorithm#setTidyTree(boolean)
+	 */
+	public boolean isTidyTree() {
+		return treeLayout.isTidyTree();
+	}
+
+	/**
+	 * Specifies whether the nodes are arranged based on a tidy tree, so that
+	 * subtrees occupy only as much of the angle range as necessary (see
+	 * {@link TreeLayoutAlgorithm#setTidyTree(boolean)}). By default, each leaf
+	 * occupies the same angle.
+	 * 
+	 * @param tidyTree
+	 *            <code>true</code> to arrange the nodes based on a tidy tree,
+	 *            otherwise <code>false</code>.
+	 */
+	public void setTidyTree(boolean tidyTree) {
+		treeLayout.setTidyTree(tidyTree);
+	}
 }
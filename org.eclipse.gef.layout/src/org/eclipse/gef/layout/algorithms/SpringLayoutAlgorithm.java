@@ -14,16 +14,22 @@
  ******************************************************************************/
 package org.eclipse.gef.layout.algorithms;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import org.eclipse.gef.geometry.planar.Dimension;
-import org.eclipse.gef.geometry.planar.Point;
 import org.eclipse.gef.geometry.planar.Rectangle;
 import org.eclipse.gef.graph.Edge;
 import org.eclipse.gef.graph.Node;
-import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.IContinuousLayoutAlgorithm;
+import org.eclipse.gef.layout.IIncrementalLayoutAlgorithm;
 import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutGraph;
 import org.eclipse.gef.layout.LayoutProperties;
+import org.eclipse.gef.layout.internal.algorithms.BarnesHutTree;
 
 /**
  * The SpringLayoutAlgorithm has its own data repository and relation
@@ -37,13 +43,77 @@ import org.eclipse.gef.layout.LayoutProperties;
  * @author Mateusz Matela
  * @author mwienand
  */
-public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
+public class SpringLayoutAlgorithm
+		implements IIncrementalLayoutAlgorithm, IContinuousLayoutAlgorithm {
+
+	/**
+	 * The strategy that is used to compute the repulsion between nodes.
+	 */
+	public enum Repulsion {
+		/**
+		 * The repulsion is computed exactly for all pairs of nodes, which
+		 * needs quadratic time per iteration.
+		 */
+		EXACT,
+
+		/**
+		 * The repulsion is approximated using a Barnes-Hut quad-tree, which
+		 * needs <code>O(n log n)</code> time per iteration, and is therefore
+		 * suitable for large graphs.
+		 */
+		BARNES_HUT
+	}
+
+	/**
+	 * Accumulates the forces for a range of nodes, so that the ranges can be
+	 * executed in parallel by the {@link ForkJoinPool#commonPool()}.
+	 */
+	private class ForceAccumulation extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] locationsX;
+		private final double[] locationsY;
+		private final double[] forcesX;
+		private final double[] forcesY;
+		private final int from;
+		private final int to;
+
+		public ForceAccumulation(double[] locationsX, double[] locationsY,
+				double[] forcesX, double[] forcesY, int from, int to) {
+			this.locationsX = locationsX;
+			this.locationsY = locationsY;
+			this.forcesX = forcesX;
+			this.forcesY = forcesY;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			for (int i = from; i < to; i++) {
+				if (repulsion == Repulsion.BARNES_HUT) {
+					accumulateApproximatedForce(i, locationsX, locationsY,
+							forcesX, forcesY);
+				} else {
+					accumulateExactForce(i, locationsX, locationsY, forcesX,
+							forcesY);
+				}
+			}
+		}
+	}
 
 	/**
 	 * The default value for the spring layout number of iterations.
 	 */
 	private static final int DEFAULT_SPRING_ITERATIONS = 1000;
 
+	/**
+	 * The default value for the number of iterations of an incremental layout
+	 * pass.
+	 */
+	private static final int DEFAULT_INCREMENTAL_ITERATIONS = 50;
+
 	/**
 	 * the default value for the time algorithm runs.
 	 */
@@ -74,16 +144,62 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 	 */
 	private static final double DEFAULT_SPRING_GRAVITATION = 2.0f;
 
+	/**
+	 * The default value for the repulsion strategy.
+	 */
+	private static final Repulsion DEFAULT_REPULSION = Repulsion.EXACT;
+
+	/**
+	 * The default value for the Barnes-Hut approximation threshold.
+	 */
+	private static final double DEFAULT_BARNES_HUT_THETA = 0.7;
+
+	/**
+	 * The default value for the number of threads used to compute forces.
+	 */
+	private static final int DEFAULT_PARALLELISM = 1;
+
+	/**
+	 * The minimum number of nodes for which forces are computed in parallel,
+	 * and the minimum number of nodes per parallel task.
+	 */
+	private static final int MIN_PARALLEL_NODES = 256;
+
 	/**
 	 * Minimum distance considered between nodes
 	 */
 	private static final double MIN_DISTANCE = 1.0d;
 
+	/**
+	 * The default value for the maximum displacement of a node within one
+	 * iteration, below which a continuous layout is regarded as converged.
+	 */
+	private static final double DEFAULT_CONVERGENCE_THRESHOLD = 0.5d;
+
+	/**
+	 * The minimum distance a node has to move during the steps of a
+	 * continuous layout, so that its new location is written back.
+	 */
+	private static final double MIN_CONTINUOUS_MOVEMENT = 0.1d;
+
+	/**
+	 * The number of iterations after which a continuous layout is regarded as
+	 * converged if the maximum displacement did not decrease noticeably, i.e.
+	 * when nodes only oscillate.
+	 */
+	private static final int MAX_STALLED_ITERATIONS = 100;
+
 	/**
 	 * The variable can be customized to set the number of iterations used.
 	 */
 	private int sprIterations = DEFAULT_SPRING_ITERATIONS;
 
+	/**
+	 * The variable can be customized to set the number of iterations used for
+	 * an incremental layout pass.
+	 */
+	private int incrementalIterations = DEFAULT_INCREMENTAL_ITERATIONS;
+
 	/**
 	 * This variable can be customized to set the max number of MS the algorithm
 	 * should run
@@ -117,14 +233,58 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 	 */
 	private double sprGravitation = DEFAULT_SPRING_GRAVITATION;
 
+	/**
+	 * The variable can be customized to set the repulsion strategy.
+	 */
+	private Repulsion repulsion = DEFAULT_REPULSION;
+
+	/**
+	 * The variable can be customized to set the Barnes-Hut approximation
+	 * threshold.
+	 */
+	private double barnesHutTheta = DEFAULT_BARNES_HUT_THETA;
+
+	/**
+	 * The variable can be customized to set the number of threads used to
+	 * compute forces.
+	 */
+	private int parallelism = DEFAULT_PARALLELISM;
+
+	/**
+	 * The variable can be customized to set the seed used to place nodes
+	 * randomly. If <code>null</code>, a random seed is used.
+	 */
+	private Long randomSeed = null;
+
+	/**
+	 * The variable can be customized to set the maximum displacement of a node
+	 * within one iteration, below which a continuous layout stops.
+	 */
+	private double convergenceThreshold = DEFAULT_CONVERGENCE_THRESHOLD;
+
 	/**
 	 * Variable indicating whether the algorithm should resize elements.
 	 */
 	private boolean resize = false;
 
 	private int iteration;
-	private double[][] srcDestToSumOfWeights;
+	// maximum displacement of a node within the last iteration
+	private double maxDisplacement;
+	// minimum of the maximum displacements of the continuous layout, and the
+	// number of iterations since it decreased noticeably
+	private double minMaxDisplacement;
+	private int stalledIterations;
+	// whether a continuous layout was started and did not converge yet
+	private boolean continuous = false;
+	// sum of edge weights per pair of adjacent nodes, stored symmetrically as
+	// compressed rows (neighbors of node i are stored within
+	// [neighborOffsets[i], neighborOffsets[i + 1]), sorted by index)
+	private int[] neighborOffsets;
+	private int[] neighbors;
+	private double[] neighborWeights;
+	private BarnesHutTree barnesHutTree;
 	private Node[] entities;
+	private LayoutGraph layoutGraph;
 	private double[] forcesX, forcesY;
 	private double[] locationsX, locationsY;
 	private double[] sizeW, sizeH;
@@ -145,6 +305,7 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 			return;
 		}
 
+		continuous = false;
 		while (performAnotherNonContinuousIteration()) {
 			computeOneIteration();
 		}
@@ -164,6 +325,297 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 		}
 	}
 
+	/**
+	 * Places the added nodes at the barycenter of their already placed
+	 * neighbors, and relaxes the added nodes as well as the end points of all
+	 * added or removed edges for {@link #getIncrementalIterations()}
+	 * iterations. All other nodes keep their locations.
+	 * <p>
+	 * As the layout is neither re-centered nor scaled during an incremental
+	 * pass, the global spring forces would push the relaxed nodes outwards.
+	 * Therefore, the relaxation uses local forces instead: Adjacent nodes
+	 * attract each other, and nodes closer than twice the ideal distance repel
+	 * each other. Moreover, the previous layout is regarded as balanced, i.e.
+	 * the forces that acted on a node before the change are subtracted, so
+	 * that only the change moves the existing nodes.
+	 */
+	@Override
+	public void applyIncrementalLayout(LayoutContext layoutContext,
+			List<Node> addedNodes, List<Node> removedNodes,
+			List<Edge> addedEdges, List<Edge> removedEdges) {
+		this.layoutContext = layoutContext;
+		entities = layoutContext.getNodes();
+		layoutGraph = new LayoutGraph(layoutContext.getGraph(), entities,
+				layoutContext.getEdges());
+		bounds = LayoutProperties.getBounds(layoutContext.getGraph());
+		loadLocations();
+		loadNeighborWeights();
+
+		// relax the added nodes and the end points of the changed edges,
+		// which covers the neighbors of added and removed nodes
+		boolean[] added = new boolean[entities.length];
+		boolean[] relaxed = new boolean[entities.length];
+		for (Node node : addedNodes) {
+			int i = layoutGraph.getNodeId(node);
+			if (i >= 0) {
+				added[i] = relaxed[i] = true;
+			}
+		}
+		for (List<Edge> edges : Arrays.asList(addedEdges, removedEdges)) {
+			for (Edge edge : edges) {
+				int source = layoutGraph.getNodeId(edge.getSource());
+				int target = layoutGraph.getNodeId(edge.getTarget());
+				if (source >= 0) {
+					relaxed[source] = true;
+				}
+				if (target >= 0) {
+					relaxed[target] = true;
+				}
+			}
+		}
+		Rectangle placementBounds = getPlacementBounds(added);
+		double idealDistance = getIdealDistance(added, placementBounds);
+
+		// compute the forces of the previous layout, i.e. without the added
+		// nodes and edges, but with the removed edges
+		boolean[] addedEdge = new boolean[neighbors.length];
+		for (Edge edge : addedEdges) {
+			int source = layoutGraph.getNodeId(edge.getSource());
+			int target = layoutGraph.getNodeId(edge.getTarget());
+			if (source >= 0 && target >= 0) {
+				markNeighbor(addedEdge, source, target);
+				markNeighbor(addedEdge, target, source);
+			}
+		}
+		double[] balanceX = new double[entities.length];
+		double[] balanceY = new double[entities.length];
+		for (int i = 0; i < entities.length; i++) {
+			if (relaxed[i] && !added[i]) {
+				computeLocalForce(i, idealDistance, added, addedEdge);
+				balanceX[i] = forcesX[i];
+				balanceY[i] = forcesY[i];
+			}
+		}
+		for (Edge edge : removedEdges) {
+			int source = layoutGraph.getNodeId(edge.getSource());
+			int target = layoutGraph.getNodeId(edge.getTarget());
+			if (source >= 0 && target >= 0 && source != target) {
+				addAttraction(balanceX, balanceY, source, target, idealDistance);
+				addAttraction(balanceX, balanceY, target, source, idealDistance);
+			}
+		}
+		placeAddedNodes(added, idealDistance, placementBounds);
+
+		int[] relaxedNodes = new int[entities.length];
+		int relaxedCount = 0;
+		for (int i = 0; i < entities.length; i++) {
+			if (relaxed[i] && layoutGraph.isMovable(i)) {
+				relaxedNodes[relaxedCount++] = i;
+			}
+		}
+		relaxedNodes = Arrays.copyOf(relaxedNodes, relaxedCount);
+		for (int k = 0; k < incrementalIterations; k++) {
+			// cool down linearly
+			double maxMovement = 0.25 * idealDistance
+					* (1 - (double) k / incrementalIterations);
+			relax(relaxedNodes, idealDistance, maxMovement, balanceX, balanceY);
+		}
+
+		for (int i : relaxedNodes) {
+			layoutGraph.setLocation(i, locationsX[i], locationsY[i]);
+		}
+		layoutGraph.flushChanges();
+	}
+
+	/**
+	 * Returns the ideal distance between adjacent nodes for the relaxation,
+	 * i.e. the side length of the square that is available for each node
+	 * within the area that is covered by the nodes that are not added. If these
+	 * do not span an area, the given placement bounds are used instead.
+	 */
+	private double getIdealDistance(boolean[] added,
+			Rectangle placementBounds) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < entities.length; i++) {
+			if (!added[i]) {
+				minX = Math.min(minX, locationsX[i]);
+				minY = Math.min(minY, locationsY[i]);
+				maxX = Math.max(maxX, locationsX[i]);
+				maxY = Math.max(maxY, locationsY[i]);
+			}
+		}
+		double area = maxX > minX && maxY > minY
+				? (maxX - minX) * (maxY - minY)
+				: placementBounds.getWidth() * placementBounds.getHeight();
+		return Math.max(1, Math.sqrt(area / Math.max(1, entities.length)));
+	}
+
+	/**
+	 * Returns the bounds within which added nodes without placed neighbors are
+	 * randomly placed. These are the layout bounds if set, otherwise the extent
+	 * of the nodes that are not added, or a square at the origin that provides
+	 * as much space as all nodes occupy if no node is placed yet.
+	 */
+	private Rectangle getPlacementBounds(boolean[] added) {
+		if (bounds != null) {
+			return bounds;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double area = 0;
+		for (int i = 0; i < entities.length; i++) {
+			area += sizeW[i] * sizeH[i];
+			if (!added[i]) {
+				minX = Math.min(minX, locationsX[i] - sizeW[i] / 2);
+				minY = Math.min(minY, locationsY[i] - sizeH[i] / 2);
+				maxX = Math.max(maxX, locationsX[i] + sizeW[i] / 2);
+				maxY = Math.max(maxY, locationsY[i] + sizeH[i] / 2);
+			}
+		}
+		if (maxX >= minX && maxY >= minY) {
+			return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+		}
+		double side = Math.sqrt(area);
+		return new Rectangle(0, 0, side, side);
+	}
+
+	/**
+	 * Places each added node at the barycenter of its neighbors that are
+	 * already placed (slightly displaced, so that the node does not coincide
+	 * with a neighbor), or randomly within the given placement bounds if none
+	 * of its neighbors is placed yet.
+	 */
+	private void placeAddedNodes(boolean[] added, double idealDistance,
+			Rectangle placementBounds) {
+		Random random = randomSeed == null ? new Random()
+				: new Random(randomSeed);
+		boolean[] placed = new boolean[added.length];
+		for (int i = 0; i < added.length; i++) {
+			placed[i] = !added[i];
+		}
+		for (int i = 0; i < added.length; i++) {
+			if (!added[i]) {
+				continue;
+			}
+			double sumX = 0;
+			double sumY = 0;
+			int count = 0;
+			for (int n = neighborOffsets[i]; n < neighborOffsets[i + 1]; n++) {
+				int j = neighbors[n];
+				if (placed[j]) {
+					sumX += locationsX[j];
+					sumY += locationsY[j];
+					count++;
+				}
+			}
+			if (count > 0) {
+				double angle = random.nextDouble() * 2 * Math.PI;
+				locationsX[i] = sumX / count
+						+ 0.5 * idealDistance * Math.cos(angle);
+				locationsY[i] = sumY / count
+						+ 0.5 * idealDistance * Math.sin(angle);
+			} else {
+				locationsX[i] = placementBounds.getX()
+						+ random.nextDouble() * placementBounds.getWidth();
+				locationsY[i] = placementBounds.getY()
+						+ random.nextDouble() * placementBounds.getHeight();
+			}
+			placed[i] = true;
+		}
+	}
+
+	/**
+	 * Marks the entry for the given neighbor of the given node.
+	 */
+	private void markNeighbor(boolean[] marks, int i, int j) {
+		for (int n = neighborOffsets[i]; n < neighborOffsets[i + 1]; n++) {
+			if (neighbors[n] == j) {
+				marks[n] = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Adds the attraction between the given nodes to the force of the first
+	 * node.
+	 */
+	private void addAttraction(double[] fx, double[] fy, int i, int j,
+			double idealDistance) {
+		double dx = locationsX[i] - locationsX[j];
+		double dy = locationsY[i] - locationsY[j];
+		double distance = Math.hypot(dx, dy);
+		if (distance > 0) {
+			fx[i] -= distance * dx / idealDistance;
+			fy[i] -= distance * dy / idealDistance;
+		}
+	}
+
+	/**
+	 * Computes the local force for the given node, ignoring the given nodes
+	 * and neighbor entries if those are not <code>null</code>.
+	 */
+	private void computeLocalForce(int i, double idealDistance,
+			boolean[] ignoredNodes, boolean[] ignoredNeighbors) {
+		double minDistance = 0.01 * idealDistance;
+		double fx = 0;
+		double fy = 0;
+		int n = neighborOffsets[i];
+		for (int j = 0; j < entities.length; j++) {
+			boolean adjacent = false;
+			if (n < neighborOffsets[i + 1] && neighbors[n] == j) {
+				adjacent = ignoredNeighbors == null || !ignoredNeighbors[n];
+				n++;
+			}
+			if (j == i || ignoredNodes != null && ignoredNodes[j]) {
+				continue;
+			}
+			double dx = locationsX[i] - locationsX[j];
+			double dy = locationsY[i] - locationsY[j];
+			double distance = Math.max(minDistance, Math.hypot(dx, dy));
+			double f = 0;
+			if (distance < 2 * idealDistance) {
+				// repulsion
+				f += idealDistance * idealDistance / distance;
+			}
+			if (adjacent) {
+				// attraction
+				f -= distance * distance / idealDistance;
+			}
+			fx += f * dx / distance;
+			fy += f * dy / distance;
+		}
+		forcesX[i] = fx;
+		forcesY[i] = fy;
+	}
+
+	/**
+	 * Moves the given nodes according to the local forces minus the given
+	 * balancing forces, limiting the movement of each node to the given
+	 * distance.
+	 */
+	private void relax(int[] nodes, double idealDistance, double maxMovement,
+			double[] balanceX, double[] balanceY) {
+		for (int i : nodes) {
+			computeLocalForce(i, idealDistance, null, null);
+			forcesX[i] -= balanceX[i];
+			forcesY[i] -= balanceY[i];
+		}
+		for (int i : nodes) {
+			double force = Math.hypot(forcesX[i], forcesY[i]);
+			if (force > 0) {
+				double movement = Math.min(force, maxMovement) / force;
+				locationsX[i] += forcesX[i] * movement;
+				locationsY[i] += forcesY[i] * movement;
+			}
+		}
+	}
+
 	/**
 	 * Performs the given number of iterations.
 	 * 
@@ -173,15 +625,13 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 	public void performNIteration(int n) {
 		layoutContext.preLayout();
 		if (iteration == 0) {
-			entities = layoutContext.getNodes();
-			loadLocations();
 			initLayout(layoutContext);
 		}
 		bounds = LayoutProperties.getBounds(layoutContext.getGraph());
 		for (int i = 0; i < n; i++) {
 			computeOneIteration();
-			saveLocations();
 		}
+		saveLocations();
 		layoutContext.postLayout();
 	}
 
@@ -192,8 +642,6 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 	public void performOneIteration() {
 		layoutContext.preLayout();
 		if (iteration == 0) {
-			entities = layoutContext.getNodes();
-			loadLocations();
 			initLayout(layoutContext);
 		}
 		bounds = LayoutProperties.getBounds(layoutContext.getGraph());
@@ -202,6 +650,86 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 		layoutContext.postLayout();
 	}
 
+	/**
+	 * Starts a continuous layout, which moves the nodes from their current
+	 * locations (or random locations if the layout is <i>clean</i> and
+	 * {@link #getRandom()} is set) towards a balanced layout. In contrast to
+	 * {@link #applyLayout(LayoutContext, boolean)}, the layout is neither
+	 * limited by {@link #getSpringTimeout()} nor fitted into the layout bounds
+	 * at the end, so that the nodes do not jump when it converged.
+	 */
+	@Override
+	public void startContinuousLayout(LayoutContext layoutContext,
+			boolean clean) {
+		this.layoutContext = layoutContext;
+		initLayout(layoutContext, clean && sprRandom);
+		minMaxDisplacement = Double.POSITIVE_INFINITY;
+		stalledIterations = 0;
+		continuous = true;
+	}
+
+	/**
+	 * Performs the given number of iterations of the continuous layout, and
+	 * writes back the locations of all nodes that moved noticeably. The layout
+	 * converged if no node moved by more than the
+	 * {@link #getConvergenceThreshold() convergence threshold} within the last
+	 * iteration, if the maximum displacement did not decrease for a while (as
+	 * the movement of the nodes is limited in relation to the layout bounds,
+	 * crowded nodes oscillate instead of settling), or if the
+	 * {@link #getIterations() maximum number of iterations} was exceeded. When
+	 * the layout converged, all locations are written back exactly.
+	 */
+	@Override
+	public boolean performContinuousLayoutSteps(int steps) {
+		if (!continuous) {
+			return true;
+		}
+		boolean converged = entities.length == 0;
+		for (int i = 0; i < steps && !converged; i++) {
+			computeOneIteration();
+			if (maxDisplacement < 0.99 * minMaxDisplacement) {
+				minMaxDisplacement = maxDisplacement;
+				stalledIterations = 0;
+			} else {
+				stalledIterations++;
+			}
+			converged = maxDisplacement < convergenceThreshold
+					|| stalledIterations >= MAX_STALLED_ITERATIONS
+					|| iteration > sprIterations;
+		}
+		saveMovedLocations(converged ? 0 : MIN_CONTINUOUS_MOVEMENT);
+		if (converged) {
+			continuous = false;
+		}
+		return converged;
+	}
+
+	/**
+	 * Sets the maximum displacement of a node within one iteration, below which
+	 * a continuous layout is regarded as converged.
+	 * 
+	 * @param threshold
+	 *            The convergence threshold.
+	 * @see #performContinuousLayoutSteps(int)
+	 */
+	public void setConvergenceThreshold(double threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException(
+					"threshold may not be negative.");
+		}
+		convergenceThreshold = threshold;
+	}
+
+	/**
+	 * Returns the maximum displacement of a node within one iteration, below
+	 * which a continuous layout is regarded as converged.
+	 * 
+	 * @return The convergence threshold.
+	 */
+	public double getConvergenceThreshold() {
+		return convergenceThreshold;
+	}
+
 	/**
 	 * 
 	 * @return true if this algorithm is set to resize elements
@@ -329,6 +857,28 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 		sprIterations = iterations;
 	}
 
+	/**
+	 * Sets the number of iterations that are used to relax the changed nodes
+	 * within an incremental layout pass.
+	 * 
+	 * @param iterations
+	 *            The number of iterations.
+	 * @see #applyIncrementalLayout(LayoutContext, List, List, List, List)
+	 */
+	public void setIncrementalIterations(int iterations) {
+		incrementalIterations = iterations;
+	}
+
+	/**
+	 * Returns the number of iterations that are used to relax the changed
+	 * nodes within an incremental layout pass.
+	 * 
+	 * @return The number of iterations.
+	 */
+	public int getIncrementalIterations() {
+		return incrementalIterations;
+	}
+
 	/**
 	 * Returns the number of iterations to be used.
 	 * 
@@ -360,35 +910,125 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 		return sprRandom;
 	}
 
+	/**
+	 * Sets the seed that is used when placing nodes randomly before beginning
+	 * iterations, so that the layout is reproducible. If <code>null</code> is
+	 * passed in, a random seed is used (default).
+	 * 
+	 * @param seed
+	 *            The seed for the random placement, or <code>null</code>.
+	 */
+	public void setRandomSeed(Long seed) {
+		randomSeed = seed;
+	}
+
+	/**
+	 * Returns the seed that is used when placing nodes randomly before
+	 * beginning iterations.
+	 * 
+	 * @return The seed for the random placement, or <code>null</code> if a
+	 *         random seed is used.
+	 */
+	public Long getRandomSeed() {
+		return randomSeed;
+	}
+
+	/**
+	 * Sets the number of threads that are used to compute the forces between
+	 * nodes (default is 1, i.e. forces are computed on the calling thread).
+	 * Otherwise, the nodes are split into (at most) the given number of tasks,
+	 * which are executed by the {@link ForkJoinPool#commonPool()}, so that no
+	 * threads have to be managed by this algorithm. The computed layout does
+	 * not depend on the parallelism.
+	 * 
+	 * @param parallelism
+	 *            The number of threads used to compute forces.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(
+					"parallelism has to be at least 1.");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads that are used to compute the forces
+	 * between nodes.
+	 * 
+	 * @return The number of threads used to compute forces.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the strategy that is used to compute the repulsion between nodes.
+	 * Per default, the repulsion is computed exactly, which needs quadratic
+	 * time per iteration. For large graphs, {@link Repulsion#BARNES_HUT}
+	 * should be used instead.
+	 * 
+	 * @param repulsion
+	 *            The {@link Repulsion} strategy to use.
+	 */
+	public void setRepulsion(Repulsion repulsion) {
+		if (repulsion == null) {
+			throw new IllegalArgumentException("repulsion may not be null.");
+		}
+		this.repulsion = repulsion;
+	}
+
+	/**
+	 * Returns the strategy that is used to compute the repulsion between
+	 * nodes.
+	 * 
+	 * @return The {@link Repulsion} strategy.
+	 */
+	public Repulsion getRepulsion() {
+		return repulsion;
+	}
+
+	/**
+	 * Sets the Barnes-Hut approximation threshold, i.e. the ratio between the
+	 * size of a group of nodes and its distance, below which the group is
+	 * approximated by its center of mass. Larger values result in faster but
+	 * less accurate iterations. Only used for {@link Repulsion#BARNES_HUT}.
+	 * 
+	 * @param theta
+	 *            The approximation threshold.
+	 */
+	public void setBarnesHutTheta(double theta) {
+		if (theta < 0) {
+			throw new IllegalArgumentException("theta may not be negative.");
+		}
+		barnesHutTheta = theta;
+	}
+
+	/**
+	 * Returns the Barnes-Hut approximation threshold.
+	 * 
+	 * @return The approximation threshold.
+	 */
+	public double getBarnesHutTheta() {
+		return barnesHutTheta;
+	}
+
 	private long startTime = 0;
 
 	private void initLayout(LayoutContext context) {
+		initLayout(context, sprRandom);
+	}
+
+	private void initLayout(LayoutContext context, boolean random) {
 		entities = context.getNodes();
+		layoutGraph = new LayoutGraph(context.getGraph(), entities,
+				context.getEdges());
 		bounds = LayoutProperties.getBounds(context.getGraph());
 		loadLocations();
 
-		srcDestToSumOfWeights = new double[entities.length][entities.length];
-		HashMap<Node, Integer> entityToPosition = new HashMap<>();
-		for (int i = 0; i < entities.length; i++) {
-			entityToPosition.put(entities[i], new Integer(i));
-		}
-
-		Edge[] connections = context.getEdges();
-		for (int i = 0; i < connections.length; i++) {
-			Edge connection = connections[i];
-			Integer source = entityToPosition.get(connection.getSource());
-			Integer target = entityToPosition.get(connection.getTarget());
-			if (source == null || target == null)
-				continue;
-			double weight = LayoutProperties.getWeight(connection);
-			weight = (weight <= 0 ? 0.1 : weight);
-			srcDestToSumOfWeights[source.intValue()][target
-					.intValue()] += weight;
-			srcDestToSumOfWeights[target.intValue()][source
-					.intValue()] += weight;
-		}
+		loadNeighborWeights();
 
-		if (sprRandom)
+		if (random)
 			placeRandomly(); // put vertices in random places
 
 		iteration = 1;
@@ -407,29 +1047,122 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 			forcesY = new double[length];
 		}
 		for (int i = 0; i < entities.length; i++) {
-			Point location = LayoutProperties.getLocation(entities[i]);
-			locationsX[i] = location.x;
-			locationsY[i] = location.y;
-			Dimension size = LayoutProperties.getSize(entities[i]);
-			sizeW[i] = size.width;
-			sizeH[i] = size.height;
+			locationsX[i] = layoutGraph.getX(i);
+			locationsY[i] = layoutGraph.getY(i);
+			sizeW[i] = layoutGraph.getWidth(i);
+			sizeH[i] = layoutGraph.getHeight(i);
+		}
+	}
+
+	/**
+	 * Sums up the weights of all edges between each pair of adjacent nodes.
+	 * The sums are stored symmetrically, with the neighbors of each node
+	 * sorted by index, so that only O(V + E) memory is needed.
+	 */
+	private void loadNeighborWeights() {
+		int nodeCount = layoutGraph.getNodeCount();
+		int[] offsets = new int[nodeCount + 1];
+		for (int i = 0; i < nodeCount; i++) {
+			offsets[i + 1] = offsets[i] + layoutGraph.getOutDegree(i)
+					+ layoutGraph.getInDegree(i);
+		}
+		// collect both directions of all edges, grouped by node
+		int[] fill = new int[nodeCount];
+		int[] entryNodes = new int[offsets[nodeCount]];
+		double[] entryWeights = new double[offsets[nodeCount]];
+		for (int e = 0; e < layoutGraph.getEdgeCount(); e++) {
+			int source = layoutGraph.getEdgeSource(e);
+			int target = layoutGraph.getEdgeTarget(e);
+			if (source == target) {
+				continue;
+			}
+			double weight = layoutGraph.getEdgeWeight(e);
+			weight = (weight <= 0 ? 0.1 : weight);
+			int s = offsets[source] + fill[source]++;
+			entryNodes[s] = target;
+			entryWeights[s] = weight;
+			int t = offsets[target] + fill[target]++;
+			entryNodes[t] = source;
+			entryWeights[t] = weight;
+		}
+		// merge parallel edges
+		int[] mergedOffsets = new int[nodeCount + 1];
+		int[] mergedNodes = new int[offsets[nodeCount]];
+		double[] mergedWeights = new double[offsets[nodeCount]];
+		int[] lastSeen = new int[nodeCount];
+		int[] slot = new int[nodeCount];
+		Arrays.fill(lastSeen, -1);
+		int size = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			mergedOffsets[i] = size;
+			for (int k = offsets[i]; k < offsets[i] + fill[i]; k++) {
+				int j = entryNodes[k];
+				if (lastSeen[j] != i) {
+					lastSeen[j] = i;
+					slot[j] = size;
+					mergedNodes[size] = j;
+					mergedWeights[size] = entryWeights[k];
+					size++;
+				} else {
+					mergedWeights[slot[j]] += entryWeights[k];
+				}
+			}
+		}
+		mergedOffsets[nodeCount] = size;
+		// transpose (the rows are symmetric), so that the neighbors within
+		// each row are sorted by index
+		neighborOffsets = new int[nodeCount + 1];
+		for (int i = 0; i < nodeCount; i++) {
+			neighborOffsets[i + 1] = neighborOffsets[i] + mergedOffsets[i + 1]
+					- mergedOffsets[i];
+		}
+		neighbors = new int[size];
+		neighborWeights = new double[size];
+		Arrays.fill(fill, 0);
+		for (int j = 0; j < nodeCount; j++) {
+			for (int k = mergedOffsets[j]; k < mergedOffsets[j + 1]; k++) {
+				int i = mergedNodes[k];
+				int n = neighborOffsets[i] + fill[i]++;
+				neighbors[n] = j;
+				neighborWeights[n] = mergedWeights[k];
+			}
 		}
 	}
 
 	private void saveLocations() {
-		if (entities == null)
+		if (layoutGraph == null)
 			return;
 		for (int i = 0; i < entities.length; i++) {
-			// TODO ensure no dynamic layout passes are triggered as a result of
-			// storing the positions
 			// TODO: check where NaN values originate from
 			if (Double.isNaN(locationsX[i]) || Double.isNaN(locationsY[i])) {
 				locationsX[i] = 0;
 				locationsY[i] = 0;
 			}
-			LayoutProperties.setLocation(entities[i],
-					new Point(locationsX[i], locationsY[i]));
+			layoutGraph.setLocation(i, locationsX[i], locationsY[i]);
+		}
+		// transfer all locations to the nodes in a single pass
+		// TODO ensure no dynamic layout passes are triggered as a result of
+		// storing the positions
+		layoutGraph.flushChanges();
+	}
+
+	/**
+	 * Writes back the locations of the nodes that moved by more than the given
+	 * distance since their locations were written back last.
+	 */
+	private void saveMovedLocations(double minMovement) {
+		for (int i = 0; i < entities.length; i++) {
+			if (Double.isNaN(locationsX[i]) || Double.isNaN(locationsY[i])) {
+				locationsX[i] = 0;
+				locationsY[i] = 0;
+			}
+			if (Math.abs(locationsX[i] - layoutGraph.getX(i)) > minMovement
+					|| Math.abs(
+							locationsY[i] - layoutGraph.getY(i)) > minMovement) {
+				layoutGraph.setLocation(i, locationsX[i], locationsY[i]);
+			}
 		}
+		layoutGraph.flushChanges();
 	}
 
 	/**
@@ -454,10 +1187,15 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 	 * Performs one iteration based on time.
 	 * 
 	 * @return <code>true</code> if the maximum number of iterations was not
-	 *         reached yet, otherwise <code>false</code>.
+	 *         reached yet and the layout pass was not canceled, otherwise
+	 *         <code>false</code>.
 	 */
 	protected boolean performAnotherNonContinuousIteration() {
+		if (layoutContext.isLayoutCanceled()) {
+			return false;
+		}
 		setSprIterationsBasedOnTime();
+		layoutContext.reportLayoutProgress((double) iteration / sprIterations);
 		return (iteration <= sprIterations);
 	}
 
@@ -511,11 +1249,13 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 			locationsY[0] = bounds.getY();
 			locationsX[1] = bounds.getX() + bounds.getWidth();
 			locationsY[1] = bounds.getY() + bounds.getHeight();
+			Random random = randomSeed == null ? new Random()
+					: new Random(randomSeed);
 			for (int i = 2; i < locationsX.length; i++) {
 				locationsX[i] = bounds.getX()
-						+ Math.random() * bounds.getWidth();
+						+ random.nextDouble() * bounds.getWidth();
 				locationsY[i] = bounds.getY()
-						+ Math.random() * bounds.getHeight();
+						+ random.nextDouble() * bounds.getHeight();
 			}
 		}
 	}
@@ -540,51 +1280,12 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 				locationsY[i] = this.locationsY[i];
 			}
 		}
-		// TODO: Again really really slow!
 
 		for (int k = 0; k < 2; k++) {
-			for (int i = 0; i < this.locationsX.length; i++) {
-
-				for (int j = i + 1; j < locationsX.length; j++) {
-					double dx = (locationsX[i] - locationsX[j])
-							/ bounds.getWidth() / boundsScaleX;
-					double dy = (locationsY[i] - locationsY[j])
-							/ bounds.getHeight() / boundsScaleY;
-					double distance_sq = dx * dx + dy * dy;
-					// make sure distance and distance squared not too small
-					distance_sq = Math.max(MIN_DISTANCE * MIN_DISTANCE,
-							distance_sq);
-					double distance = Math.sqrt(distance_sq);
-
-					// If there are relationships between srcObj and destObj
-					// then decrease force on srcObj (a pull) in direction of
-					// destObj
-					// If no relation between srcObj and destObj then increase
-					// force on srcObj (a push) from direction of destObj.
-					double sumOfWeights = srcDestToSumOfWeights[i][j];
-
-					double f;
-					if (sumOfWeights > 0) {
-						// nodes are pulled towards each other
-						f = -sprStrain * Math.log(distance / sprLength)
-								* sumOfWeights;
-					} else {
-						// nodes are repelled from each other
-						f = sprGravitation / (distance_sq);
-					}
-					double dfx = f * dx / distance;
-					double dfy = f * dy / distance;
-
-					forcesX[k][i] += dfx;
-					forcesY[k][i] += dfy;
-
-					forcesX[k][j] -= dfx;
-					forcesY[k][j] -= dfy;
-				}
-			}
+			accumulateForces(locationsX, locationsY, forcesX[k], forcesY[k]);
 
 			for (int i = 0; i < entities.length; i++) {
-				if (LayoutProperties.isMovable(entities[i])) {
+				if (layoutGraph.isMovable(i)) {
 					double deltaX = sprMove * forcesX[k][i];
 					double deltaY = sprMove * forcesY[k][i];
 
@@ -622,14 +1323,183 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 
 	}
 
+	/**
+	 * Computes the forces between all pairs of nodes: Adjacent nodes are pulled
+	 * towards each other, all other nodes are repelled from each other. If
+	 * more than one thread may be used, the force of each node is accumulated
+	 * independently, in the same order as within the sequential computation,
+	 * so that the results do not depend on the parallelism.
+	 */
+	private void accumulateForces(double[] locationsX, double[] locationsY,
+			double[] forcesX, double[] forcesY) {
+		double[] x = locationsX;
+		double[] y = locationsY;
+		if (repulsion == Repulsion.BARNES_HUT) {
+			// use normalized locations for the quad-tree
+			x = new double[locationsX.length];
+			y = new double[locationsY.length];
+			for (int i = 0; i < x.length; i++) {
+				x[i] = locationsX[i] / bounds.getWidth() / boundsScaleX;
+				y[i] = locationsY[i] / bounds.getHeight() / boundsScaleY;
+			}
+			if (barnesHutTree == null) {
+				barnesHutTree = new BarnesHutTree();
+			}
+			barnesHutTree.build(x, y);
+		}
+
+		if (parallelism > 1 && x.length >= MIN_PARALLEL_NODES) {
+			int taskCount = Math.min(parallelism,
+					x.length / (MIN_PARALLEL_NODES / 2));
+			final List<ForceAccumulation> tasks = new ArrayList<>();
+			for (int t = 0; t < taskCount; t++) {
+				tasks.add(new ForceAccumulation(x, y, forcesX, forcesY,
+						t * x.length / taskCount,
+						(t + 1) * x.length / taskCount));
+			}
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} else if (repulsion == Repulsion.BARNES_HUT) {
+			for (int i = 0; i < x.length; i++) {
+				accumulateApproximatedForce(i, x, y, forcesX, forcesY);
+			}
+		} else {
+			accumulateExactForces(x, y, forcesX, forcesY);
+		}
+	}
+
+	/**
+	 * Accumulates the forces that all other nodes exert on the node with the
+	 * given index, approximating the repulsion using the {@link BarnesHutTree}.
+	 * The repulsion is first approximated for all other nodes, and is then
+	 * replaced by the attraction for all adjacent nodes, so that the same
+	 * forces as in {@link #accumulateExactForce(int, double[], double[],
+	 * double[], double[])} are approximated.
+	 */
+	private void accumulateApproximatedForce(int i, double[] x, double[] y,
+			double[] forcesX, double[] forcesY) {
+		barnesHutTree.accumulateRepulsion(i, sprGravitation, MIN_DISTANCE,
+				barnesHutTheta, forcesX, forcesY);
+		for (int n = neighborOffsets[i]; n < neighborOffsets[i + 1]; n++) {
+			int j = neighbors[n];
+			double dx = x[i] - x[j];
+			double dy = y[i] - y[j];
+			double distance_sq = Math.max(MIN_DISTANCE * MIN_DISTANCE,
+					dx * dx + dy * dy);
+			double distance = Math.sqrt(distance_sq);
+			// replace repulsion by attraction
+			double f = -sprStrain * Math.log(distance / sprLength)
+					* neighborWeights[n] - sprGravitation / distance_sq;
+			forcesX[i] += f * dx / distance;
+			forcesY[i] += f * dy / distance;
+		}
+	}
+
+	/**
+	 * Accumulates the forces that all other nodes exert on the node with the
+	 * given index exactly. As the force between two nodes is antisymmetric,
+	 * the result is identical to the one computed by
+	 * {@link #accumulateExactForces(double[], double[], double[], double[])}.
+	 */
+	private void accumulateExactForce(int i, double[] locationsX,
+			double[] locationsY, double[] forcesX, double[] forcesY) {
+		int n = neighborOffsets[i];
+		for (int j = 0; j < locationsX.length; j++) {
+			double sumOfWeights = 0;
+			if (n < neighborOffsets[i + 1] && neighbors[n] == j) {
+				sumOfWeights = neighborWeights[n++];
+			}
+			if (j == i) {
+				continue;
+			}
+			double dx = (locationsX[i] - locationsX[j]) / bounds.getWidth()
+					/ boundsScaleX;
+			double dy = (locationsY[i] - locationsY[j]) / bounds.getHeight()
+					/ boundsScaleY;
+			double distance_sq = dx * dx + dy * dy;
+			distance_sq = Math.max(MIN_DISTANCE * MIN_DISTANCE, distance_sq);
+			double distance = Math.sqrt(distance_sq);
+			double f;
+			if (sumOfWeights > 0) {
+				f = -sprStrain * Math.log(distance / sprLength) * sumOfWeights;
+			} else {
+				f = sprGravitation / (distance_sq);
+			}
+			forcesX[i] += f * dx / distance;
+			forcesY[i] += f * dy / distance;
+		}
+	}
+
+	/**
+	 * Accumulates the forces between all pairs of nodes exactly, computing the
+	 * force between each pair of nodes only once.
+	 */
+	private void accumulateExactForces(double[] locationsX,
+			double[] locationsY, double[] forcesX, double[] forcesY) {
+		for (int i = 0; i < locationsX.length; i++) {
+			// skip the adjacent nodes that precede i
+			int n = neighborOffsets[i];
+			while (n < neighborOffsets[i + 1] && neighbors[n] <= i) {
+				n++;
+			}
+
+			for (int j = i + 1; j < locationsX.length; j++) {
+				double dx = (locationsX[i] - locationsX[j]) / bounds.getWidth()
+						/ boundsScaleX;
+				double dy = (locationsY[i] - locationsY[j])
+						/ bounds.getHeight() / boundsScaleY;
+				double distance_sq = dx * dx + dy * dy;
+				// make sure distance and distance squared not too small
+				distance_sq = Math.max(MIN_DISTANCE * MIN_DISTANCE,
+						distance_sq);
+				double distance = Math.sqrt(distance_sq);
+
+				// If there are relationships between srcObj and destObj
+				// then decrease force on srcObj (a pull) in direction of
+				// destObj
+				// If no relation between srcObj and destObj then increase
+				// force on srcObj (a push) from direction of destObj.
+				double sumOfWeights = 0;
+				if (n < neighborOffsets[i + 1] && neighbors[n] == j) {
+					sumOfWeights = neighborWeights[n++];
+				}
+
+				double f;
+				if (sumOfWeights > 0) {
+					// nodes are pulled towards each other
+					f = -sprStrain * Math.log(distance / sprLength)
+							* sumOfWeights;
+				} else {
+					// nodes are repelled from each other
+					f = sprGravitation / (distance_sq);
+				}
+				double dfx = f * dx / distance;
+				double dfy = f * dy / distance;
+
+				forcesX[i] += dfx;
+				forcesY[i] += dfy;
+
+				forcesX[j] -= dfx;
+				forcesY[j] -= dfy;
+			}
+		}
+	}
+
 	/**
 	 * Computes the position for each node in this SpringLayoutAlgorithm. The
 	 * computed position will be stored in the data repository. position =
 	 * position + sprMove * force
 	 */
 	protected void computePositions() {
+		maxDisplacement = 0;
 		for (int i = 0; i < entities.length; i++) {
-			if (LayoutProperties.isMovable(entities[i])) {
+			if (layoutGraph.isMovable(i)) {
 				double deltaX = sprMove * forcesX[i];
 				double deltaY = sprMove * forcesY[i];
 
@@ -642,8 +1512,12 @@ public class SpringLayoutAlgorithm implements ILayoutAlgorithm {
 					deltaY *= maxMovement / dist;
 				}
 
-				locationsX[i] += deltaX * bounds.getWidth() * boundsScaleX;
-				locationsY[i] += deltaY * bounds.getHeight() * boundsScaleY;
+				deltaX *= bounds.getWidth() * boundsScaleX;
+				deltaY *= bounds.getHeight() * boundsScaleY;
+				locationsX[i] += deltaX;
+				locationsY[i] += deltaY;
+				maxDisplacement = Math.max(maxDisplacement,
+						Math.sqrt(deltaX * deltaX + deltaY * deltaY));
 			}
 		}
 	}
@@ -13,14 +13,18 @@
  *    Adam Kovacs - implements the new LayerProvider and 
  *    		CrossingReducer interfaces
  *    Matthias Wienand (itemis AG) - refactorings
+ *    agent - CrossingCounter, NetworkSimplexLayerProvider, and
+ *    		BrandesKoepfCoordinateAssigner
  *    
  *******************************************************************************/
 package org.eclipse.gef.layout.algorithms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -258,129 +262,289 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 	}
 
 	/**
-	 * Implements the CrossingReducer interface. This algorithm divides each
-	 * layer by a pivot node based on the relative position of connected nodes
-	 * and decides which side of the pivot point it should be for the fewer edge
-	 * crossing.
-	 * 
-	 * @author Adam Kovacs
+	 * Counts edge crossings between the nodes of a layered graph. The
+	 * adjacency of the nodes (within the {@link org.eclipse.gef.graph.Graph})
+	 * is determined once, so that crossings can be counted in
+	 * <code>O(E log V)</code> using the current indices of the nodes:
+	 * <ul>
+	 * <li>{@link #getNumberOfCrossings(NodeWrapper, NodeWrapper)} counts the
+	 * crossings between the edges of two nodes of the same layer by merging
+	 * their neighbors, which are sorted by index (inversion counting).</li>
+	 * <li>{@link #getNumberOfCrossings(List, List)} counts all crossings
+	 * between two layers using an accumulator tree (Barth, Jünger, Mutzel).
+	 * </li>
+	 * </ul>
+	 * Dummy nodes are not considered. {@link CrossingReducer}s may use a
+	 * {@link CrossingCounter} to evaluate their decisions.
 	 * 
+	 * @author agent
 	 */
-	public static class SplitCrossingReducer implements CrossingReducer {
-		private final Map<Node, NodeWrapper> map = new IdentityHashMap<>();
+	public static class CrossingCounter {
+
+		private final Map<NodeWrapper, NodeWrapper[]> neighbors = new IdentityHashMap<>();
+		// neighbors (in other layers) sorted by index and distance
+		private final Map<NodeWrapper, long[]> neighborsAbove = new IdentityHashMap<>();
+		private final Map<NodeWrapper, long[]> neighborsBelow = new IdentityHashMap<>();
 
 		/**
-		 * Filters the multiple connections from the two arrays
+		 * Constructs a new {@link CrossingCounter} for the given layers.
 		 * 
-		 * @param a
-		 * @param b
-		 * @return
+		 * @param layers
+		 *            The layers of {@link NodeWrapper}s.
 		 */
-		private ArrayList<Node> unionOfNodes(Collection<Node> a,
-				Collection<Node> b) {
-			ArrayList<Node> res = new ArrayList<>(a);
-			for (Node n : b) {
-				if (!res.contains(n)) {
-					res.add(n);
+		public CrossingCounter(List<List<NodeWrapper>> layers) {
+			Map<Node, NodeWrapper> wrappers = new IdentityHashMap<>();
+			for (List<NodeWrapper> layer : layers) {
+				for (NodeWrapper nw : layer) {
+					if (nw.node != null) {
+						wrappers.put(nw.node, nw);
+					}
 				}
 			}
-			return res;
+			for (NodeWrapper nw : wrappers.values()) {
+				List<NodeWrapper> adjacent = new ArrayList<>();
+				for (Node neighbor : nw.node.getNeighbors()) {
+					NodeWrapper neighborWrapper = wrappers.get(neighbor);
+					if (neighborWrapper != null) {
+						adjacent.add(neighborWrapper);
+					}
+				}
+				neighbors.put(nw,
+						adjacent.toArray(new NodeWrapper[adjacent.size()]));
+			}
+		}
+
+		private static long key(int index, int distance) {
+			return ((long) index << 32) | distance;
+		}
+
+		private static int index(long key) {
+			return (int) (key >> 32);
+		}
+
+		private static int distance(long key) {
+			return (int) key;
 		}
 
 		/**
-		 * Returns the number of crosses between the two nodes and those
-		 * connected to them.
+		 * Counts the pairs of the given sorted keys where the distance of the
+		 * first is greater than the distance of the second.
+		 */
+		private static int countFarther(long[] a, int aFrom, int aTo, long[] b,
+				int bFrom, int bTo) {
+			int count = 0;
+			int j = bFrom;
+			for (int i = aFrom; i < aTo; i++) {
+				while (j < bTo && distance(b[j]) < distance(a[i])) {
+					j++;
+				}
+				count += j - bFrom;
+			}
+			return count;
+		}
+
+		private static int getNumberOfCrossings(long[] a, long[] b, int indexA,
+				int indexB) {
+			int count = 0;
+			int j = 0;
+			if (indexA < indexB) {
+				// neighbors of A that are right of neighbors of B
+				for (long ka : a) {
+					while (j < b.length && index(b[j]) < index(ka)) {
+						j++;
+					}
+					count += j;
+				}
+			} else {
+				// neighbors of A that are left of neighbors of B
+				for (long ka : a) {
+					while (j < b.length && index(b[j]) <= index(ka)) {
+						j++;
+					}
+					count += b.length - j;
+				}
+			}
+
+			// neighbors with equal indices (on different layers) cross if the
+			// farther one is on the inner side
+			int low = Math.min(indexA, indexB);
+			int high = Math.max(indexA, indexB);
+			int i = 0;
+			j = 0;
+			while (i < a.length && j < b.length) {
+				int index = index(a[i]);
+				if (index < index(b[j])) {
+					i++;
+				} else if (index > index(b[j])) {
+					j++;
+				} else {
+					int ie = i;
+					while (ie < a.length && index(a[ie]) == index) {
+						ie++;
+					}
+					int je = j;
+					while (je < b.length && index(b[je]) == index) {
+						je++;
+					}
+					boolean outerA = indexA < indexB ? index <= low
+							: index >= high;
+					boolean outerB = indexA < indexB ? index >= high
+							: index <= low;
+					if (outerA) {
+						count += countFarther(a, i, ie, b, j, je);
+					} else if (outerB) {
+						count += countFarther(b, j, je, a, i, ie);
+					}
+					i = ie;
+					j = je;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Returns the number of crossings between the edges of the two given
+		 * {@link NodeWrapper}s, which have to be on the same layer, with
+		 * respect to their current indices. Only edges that lead to the same
+		 * side (above or below the layer) can cross.
 		 * 
 		 * @param nodeA
+		 *            The first {@link NodeWrapper}.
 		 * @param nodeB
-		 * @return
+		 *            The second {@link NodeWrapper}.
+		 * @return The number of crossings between the edges of the given
+		 *         {@link NodeWrapper}s.
 		 */
-		private int numberOfCrosses(NodeWrapper nodeA, NodeWrapper nodeB) {
-			int numOfCrosses = 0;
-			if (nodeA.equals(nodeB))
+		public int getNumberOfCrossings(NodeWrapper nodeA, NodeWrapper nodeB) {
+			if (nodeA == nodeB || nodeA.index == nodeB.index) {
 				return 0;
+			}
+			if (!neighborsAbove.containsKey(nodeA)) {
+				prepare(nodeA);
+			}
+			if (!neighborsAbove.containsKey(nodeB)) {
+				prepare(nodeB);
+			}
+			return getNumberOfCrossings(neighborsAbove.get(nodeA),
+					neighborsAbove.get(nodeB), nodeA.index, nodeB.index)
+					+ getNumberOfCrossings(neighborsBelow.get(nodeA),
+							neighborsBelow.get(nodeB), nodeA.index,
+							nodeB.index);
+		}
 
-			// Filter nodes connected with bidirectional edges
-			ArrayList<Node> adjacentNodesOfA = unionOfNodes(
-					nodeA.node.getPredecessorNodes(),
-					nodeA.node.getSuccessorNodes());
-			ArrayList<Node> adjacentNodesOfB = unionOfNodes(
-					nodeB.node.getPredecessorNodes(),
-					nodeB.node.getSuccessorNodes());
-
-			for (Node aNode : adjacentNodesOfA) {
-				ArrayList<Integer> alreadyCrossed = new ArrayList<>();
-				NodeWrapper aNodeWrapper = map.get(aNode);
-				for (int i = 0; i < adjacentNodesOfB.size(); i++) {
-					NodeWrapper nw = map.get(adjacentNodesOfB.get(i));
-					if (!alreadyCrossed.contains(i) && nw != null) {
-						// only if on the same side
-						if ((nw.layer > nodeA.layer
-								&& aNodeWrapper.layer > nodeA.layer)
-								|| (nw.layer < nodeA.layer
-										&& aNodeWrapper.layer < nodeA.layer)) {
-							if (nodeA.index < nodeB.index) {
-								if (aNodeWrapper.index > nw.index) {
-									numOfCrosses++;
-									alreadyCrossed.add(i);
-								} else if (nw.index == aNodeWrapper.index) {
-									if (nodeA.index >= nw.index) {
-										// implies nodeB.index > nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& nodeA.layer < nw.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& nw.layer < nodeA.layer)) {
-											// top-left or bottom-left quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									} else if (nodeB.index <= nw.index) {
-										// implies nodeA.index < nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& aNodeWrapper.layer < nodeB.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& aNodeWrapper.layer > nodeB.layer)) {
-											// top-right or bottom-right quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									}
-								}
-							} else if (nodeA.index > nodeB.index) {
-								if (aNodeWrapper.index < nw.index) {
-									numOfCrosses++;
-									alreadyCrossed.add(i);
-								} else if (nw.index == aNodeWrapper.index) {
-									if (nodeB.index >= nw.index) {
-										// implies nodeB.index > nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& nodeB.layer > aNodeWrapper.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& aNodeWrapper.layer > nodeB.layer)) {
-											// top-left or bottom-left quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									} else if (nodeA.index <= nw.index) {
-										// implies nodeA.index < nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& nw.layer > nodeA.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& nw.layer < nodeA.layer)) {
-											// top-right or bottom-right quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									}
-								}
-							}
+		/**
+		 * Returns the number of crossings between the edges that connect the
+		 * two given layers, with respect to the order of the nodes within the
+		 * layers.
+		 * 
+		 * @param upper
+		 *            The upper layer.
+		 * @param lower
+		 *            The lower layer.
+		 * @return The number of crossings between the given layers.
+		 */
+		public long getNumberOfCrossings(List<NodeWrapper> upper,
+				List<NodeWrapper> lower) {
+			Map<NodeWrapper, Integer> lowerPositions = new IdentityHashMap<>();
+			for (int i = 0; i < lower.size(); i++) {
+				lowerPositions.put(lower.get(i), i);
+			}
+			// collect the lower ends of the edges, ordered by upper end
+			int edgeCount = 0;
+			int[] lowerEnds = new int[16];
+			for (NodeWrapper nw : upper) {
+				NodeWrapper[] adjacent = neighbors.get(nw);
+				if (adjacent == null) {
+					continue;
+				}
+				int from = edgeCount;
+				for (NodeWrapper neighbor : adjacent) {
+					Integer position = lowerPositions.get(neighbor);
+					if (position != null) {
+						if (edgeCount == lowerEnds.length) {
+							lowerEnds = Arrays.copyOf(lowerEnds,
+									2 * edgeCount);
 						}
+						lowerEnds[edgeCount++] = position;
 					}
 				}
+				Arrays.sort(lowerEnds, from, edgeCount);
 			}
+			// count inversions using an accumulator tree
+			int firstLeaf = 1;
+			while (firstLeaf < lower.size()) {
+				firstLeaf *= 2;
+			}
+			int[] tree = new int[2 * firstLeaf];
+			long crossings = 0;
+			for (int e = 0; e < edgeCount; e++) {
+				int position = lowerEnds[e] + firstLeaf;
+				tree[position]++;
+				while (position > 1) {
+					if (position % 2 == 0) {
+						crossings += tree[position + 1];
+					}
+					position /= 2;
+					tree[position]++;
+				}
+			}
+			return crossings;
+		}
+
+		private void prepare(NodeWrapper nw) {
+			NodeWrapper[] adjacent = neighbors.get(nw);
+			if (adjacent == null) {
+				adjacent = new NodeWrapper[0];
+			}
+			long[] above = new long[adjacent.length];
+			long[] below = new long[adjacent.length];
+			int aboveCount = 0;
+			int belowCount = 0;
+			for (NodeWrapper neighbor : adjacent) {
+				if (neighbor.layer > nw.layer) {
+					above[aboveCount++] = key(neighbor.index,
+							neighbor.layer - nw.layer);
+				} else if (neighbor.layer < nw.layer) {
+					below[belowCount++] = key(neighbor.index,
+							nw.layer - neighbor.layer);
+				}
+			}
+			above = Arrays.copyOf(above, aboveCount);
+			below = Arrays.copyOf(below, belowCount);
+			Arrays.sort(above);
+			Arrays.sort(below);
+			neighborsAbove.put(nw, above);
+			neighborsBelow.put(nw, below);
+		}
 
-			return numOfCrosses;
+		/**
+		 * Sorts the neighbors of the nodes of the given layer by their
+		 * current indices. Has to be called before counting crossings of the
+		 * nodes of the given layer, whenever the indices of the nodes of other
+		 * layers have changed.
+		 * 
+		 * @param layer
+		 *            The layer of {@link NodeWrapper}s to prepare.
+		 */
+		public void prepare(List<NodeWrapper> layer) {
+			for (NodeWrapper nw : layer) {
+				prepare(nw);
+			}
 		}
+	}
+
+	/**
+	 * Implements the CrossingReducer interface. This algorithm divides each
+	 * layer by a pivot node based on the relative position of connected nodes
+	 * and decides which side of the pivot point it should be for the fewer edge
+	 * crossing.
+	 * 
+	 * @author Adam Kovacs
+	 * 
+	 */
+	public static class SplitCrossingReducer implements CrossingReducer {
+		private final Map<Node, NodeWrapper> map = new IdentityHashMap<>();
+		private CrossingCounter crossingCounter;
 
 		/**
 		 * Selects the pivot node by random and decides the order.
@@ -401,8 +565,10 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 			for (NodeWrapper node : layer) {
 				if (!node.equals(pivot) && node.node != null
 						&& pivot.node != null) {
-					int num1 = numberOfCrosses(node, pivot);
-					int num2 = numberOfCrosses(pivot, node);
+					int num1 = crossingCounter.getNumberOfCrossings(node,
+							pivot);
+					int num2 = crossingCounter.getNumberOfCrossings(pivot,
+							node);
 					if (num1 < num2)
 						left.add(node);
 					else if (num1 > num2)
@@ -434,8 +600,10 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 			for (List<NodeWrapper> layer : nodes)
 				for (NodeWrapper nw : layer)
 					map.put(nw.node, nw);
+			crossingCounter = new CrossingCounter(nodes);
 			for (int i = 0; i < nodes.size(); i++) {
 				if (!nodes.get(i).isEmpty()) {
+					crossingCounter.prepare(nodes.get(i));
 					splitHeuristic(nodes.get(i));
 				}
 			}
@@ -451,122 +619,9 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 	 * 
 	 */
 	public static class GreedyCrossingReducer implements CrossingReducer {
-		private final Map<Node, NodeWrapper> map = new IdentityHashMap<>();
 		private List<List<NodeWrapper>> layers = new ArrayList<>();
 		private Map<Integer, Integer> crossesForLayers = new IdentityHashMap<>();
-
-		/**
-		 * Filters the multiple connections from the two arrays.
-		 * 
-		 * @param a
-		 * @param b
-		 * @return
-		 */
-		private ArrayList<Node> unionOfNodes(Collection<Node> a,
-				Collection<Node> b) {
-			ArrayList<Node> res = new ArrayList<>(a);
-			for (Node n : b) {
-				if (!res.contains(n)) {
-					res.add(n);
-				}
-			}
-			return res;
-		}
-
-		/**
-		 * Returns the number of crosses between the two nodes and those
-		 * connected to them.
-		 * 
-		 * @param nodeA
-		 * @param nodeB
-		 * @return
-		 */
-		private int numberOfCrosses(NodeWrapper nodeA, NodeWrapper nodeB) {
-			int numOfCrosses = 0;
-			if (nodeA.equals(nodeB))
-				return 0;
-
-			// Filter nodes connected with bidirectional edges
-			ArrayList<Node> adjacentNodesOfA = unionOfNodes(
-					nodeA.node.getPredecessorNodes(),
-					nodeA.node.getSuccessorNodes());
-			ArrayList<Node> adjacentNodesOfB = unionOfNodes(
-					nodeB.node.getPredecessorNodes(),
-					nodeB.node.getSuccessorNodes());
-
-			for (Node aNode : adjacentNodesOfA) {
-				ArrayList<Integer> alreadyCrossed = new ArrayList<>();
-				NodeWrapper aNodeWrapper = map.get(aNode);
-				for (int i = 0; i < adjacentNodesOfB.size(); i++) {
-					NodeWrapper nw = map.get(adjacentNodesOfB.get(i));
-					if (!alreadyCrossed.contains(i) && nw != null) {
-						// only if on the same side
-						if ((nw.layer > nodeA.layer
-								&& aNodeWrapper.layer > nodeA.layer)
-								|| (nw.layer < nodeA.layer
-										&& aNodeWrapper.layer < nodeA.layer)) {
-							if (nodeA.index < nodeB.index) {
-								if (aNodeWrapper.index > nw.index) {
-									numOfCrosses++;
-									alreadyCrossed.add(i);
-								} else if (nw.index == aNodeWrapper.index) {
-									if (nodeA.index >= nw.index) {
-										// implies nodeB.index > nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& nodeA.layer < nw.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& nw.layer < nodeA.layer)) {
-											// top-left or bottom-left quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									} else if (nodeB.index <= nw.index) {
-										// implies nodeA.index < nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& aNodeWrapper.layer < nodeB.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& aNodeWrapper.layer > nodeB.layer)) {
-											// top-right or bottom-right quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									}
-								}
-							} else if (nodeA.index > nodeB.index) {
-								if (aNodeWrapper.index < nw.index) {
-									numOfCrosses++;
-									alreadyCrossed.add(i);
-								} else if (nw.index == aNodeWrapper.index) {
-									if (nodeB.index >= nw.index) {
-										// implies nodeB.index > nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& nodeB.layer > aNodeWrapper.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& aNodeWrapper.layer > nodeB.layer)) {
-											// top-left or bottom-left quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									} else if (nodeA.index <= nw.index) {
-										// implies nodeA.index < nw.index
-										if ((aNodeWrapper.layer > nw.layer
-												&& nw.layer > nodeA.layer)
-												|| (aNodeWrapper.layer < nw.layer
-														&& nw.layer < nodeA.layer)) {
-											// top-right or bottom-right quarter
-											numOfCrosses++;
-											alreadyCrossed.add(i);
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-
-			return numOfCrosses;
-		}
+		private CrossingCounter crossingCounter;
 
 		/**
 		 * Iterates the list and switches that results in less crossings.
@@ -577,13 +632,14 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 		private boolean greedyHeuristic(List<NodeWrapper> layer) {
 			boolean res = false;
 			if (layer.size() > 1) {
+				crossingCounter.prepare(layer);
 				for (int i = 0; i < layer.size() - 1; i++) {
 					if (layer.get(i).node != null
 							&& layer.get(i + 1).node != null) {
-						int num1 = numberOfCrosses(layer.get(i),
-								layer.get(i + 1));
-						int num2 = numberOfCrosses(layer.get(i + 1),
-								layer.get(i));
+						int num1 = crossingCounter.getNumberOfCrossings(
+								layer.get(i), layer.get(i + 1));
+						int num2 = crossingCounter.getNumberOfCrossings(
+								layer.get(i + 1), layer.get(i));
 						if (num1 > num2 || (num1 == num2 && num1 > 0)) {
 							if (!crossesForLayers
 									.containsKey((layer.get(i).layer))
@@ -612,11 +668,7 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 		public void crossReduction(List<List<NodeWrapper>> nodes) {
 			crossesForLayers.clear();
 			layers = nodes;
-
-			// Builds the map
-			for (List<NodeWrapper> layer : nodes)
-				for (NodeWrapper node : layer)
-					map.put(node.node, node);
+			crossingCounter = new CrossingCounter(nodes);
 
 			// After three iteration with no change it stops
 			int iteration = 0;
@@ -1210,6 +1262,822 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 
 	}
 
+	/**
+	 * A {@link LayerProvider} that assigns the layers by solving the layering
+	 * problem with the network simplex method of Gansner et al.
+	 * (http://dx.doi.org/10.1109/32.221135), i.e. it minimizes the (weighted)
+	 * total length of all edges. Cycles are broken by reversing the back edges
+	 * of a depth-first search beforehand. Edges that span several layers are
+	 * subdivided by dummy {@link NodeWrapper}s, so that the resulting hierarchy
+	 * is proper, i.e. all predecessors and successors of a {@link NodeWrapper}
+	 * are located on the directly adjacent layers.
+	 *
+	 * @author agent
+	 */
+	public static class NetworkSimplexLayerProvider implements LayerProvider {
+
+		// upper bound for the number of pivots per node
+		private static final int MAX_ITERATIONS_PER_NODE = 20;
+
+		// number of tree edges with negative cut value that are compared when
+		// searching for the edge to leave the tree
+		private static final int SEARCH_SIZE = 30;
+
+		// the nodes, where index nodeCount refers to a virtual root that
+		// connects all components
+		private int nodeCount;
+		private int[] rank;
+
+		// edges, oriented so that they point downwards
+		private int edgeCount;
+		private int[] tail;
+		private int[] head;
+		private double[] weight;
+		private int[] incidentOffsets;
+		private int[] incidentEdges;
+
+		// the spanning tree
+		private boolean[] treeEdge;
+		private boolean[] inTree;
+		private int[] parentEdge;
+		private int[] low;
+		private int[] lim;
+		private int[] postOrder;
+		private double[] cutValue;
+		private int[] stack;
+		private int[] next;
+
+		public List<List<NodeWrapper>> calculateLayers(List<Node> nodes) {
+			List<List<NodeWrapper>> layers = new ArrayList<>();
+			if (nodes.isEmpty())
+				return layers;
+
+			loadEdges(nodes);
+			initRanks();
+			feasibleTree();
+			int maxIterations = MAX_ITERATIONS_PER_NODE * (nodeCount + 1);
+			int start = 0;
+			for (int i = 0; i < maxIterations; i++) {
+				int leave = leaveEdge(start);
+				if (leave < 0)
+					break;
+				exchangeEdges(leave, enterEdge(leave));
+				start = leave + 1;
+			}
+			int layerCount = normalize();
+			balance(layerCount);
+
+			// wrap the nodes and subdivide long edges by dummies
+			NodeWrapper[] wrappers = new NodeWrapper[nodeCount];
+			for (int l = 0; l < layerCount; l++)
+				layers.add(new ArrayList<NodeWrapper>());
+			for (int v = 0; v < nodeCount; v++) {
+				wrappers[v] = new NodeWrapper(nodes.get(v), rank[v]);
+				layers.get(rank[v]).add(wrappers[v]);
+			}
+			for (int e = 0; e < edgeCount; e++) {
+				if (tail[e] == nodeCount)
+					continue;
+				NodeWrapper predecessor = wrappers[tail[e]];
+				for (int l = rank[tail[e]] + 1; l < rank[head[e]]; l++) {
+					NodeWrapper dummy = new NodeWrapper(l);
+					dummy.addPredecessor(predecessor);
+					predecessor.addSuccessor(dummy);
+					layers.get(l).add(dummy);
+					predecessor = dummy;
+				}
+				NodeWrapper successor = wrappers[head[e]];
+				successor.addPredecessor(predecessor);
+				predecessor.addSuccessor(successor);
+			}
+			for (List<NodeWrapper> layer : layers)
+				for (int i = 0; i < layer.size(); i++)
+					layer.get(i).index = i;
+			return layers;
+		}
+
+		/**
+		 * Collects the edges between the given nodes, reverses the back edges
+		 * of a depth-first search, merges parallel edges, and connects all
+		 * sources to a virtual root (by edges of weight 0), so that the
+		 * resulting graph is acyclic and connected.
+		 */
+		private void loadEdges(List<Node> nodes) {
+			nodeCount = nodes.size();
+			Map<Node, Integer> ids = new IdentityHashMap<>();
+			for (int v = 0; v < nodeCount; v++)
+				ids.put(nodes.get(v), v);
+			List<int[]> pairs = new ArrayList<>();
+			List<Double> pairWeights = new ArrayList<>();
+			int[] outDegree = new int[nodeCount];
+			for (int v = 0; v < nodeCount; v++) {
+				for (Edge edge : nodes.get(v).getOutgoingEdges()) {
+					Integer w = ids.get(edge.getTarget());
+					if (w == null || w == v)
+						continue;
+					pairs.add(new int[] { v, w });
+					double edgeWeight = LayoutProperties.getWeight(edge);
+					pairWeights.add(edgeWeight > 0 ? edgeWeight : 1);
+					outDegree[v]++;
+				}
+			}
+
+			// depth-first search over the outgoing edges to find back edges
+			int[] outOffsets = new int[nodeCount + 1];
+			for (int v = 0; v < nodeCount; v++)
+				outOffsets[v + 1] = outOffsets[v] + outDegree[v];
+			int[] outEdges = new int[pairs.size()];
+			int[] fill = Arrays.copyOf(outOffsets, nodeCount);
+			for (int e = 0; e < pairs.size(); e++)
+				outEdges[fill[pairs.get(e)[0]]++] = e;
+			byte[] state = new byte[nodeCount]; // 0 new, 1 on stack, 2 done
+			int[] stack = new int[nodeCount];
+			int[] next = new int[nodeCount];
+			for (int s = 0; s < nodeCount; s++) {
+				if (state[s] != 0)
+					continue;
+				int size = 0;
+				stack[size++] = s;
+				state[s] = 1;
+				next[s] = outOffsets[s];
+				while (size > 0) {
+					int v = stack[size - 1];
+					if (next[v] == outOffsets[v + 1]) {
+						state[v] = 2;
+						size--;
+						continue;
+					}
+					int[] pair = pairs.get(outEdges[next[v]++]);
+					int w = pair[1];
+					if (state[w] == 1) {
+						pair[0] = w;
+						pair[1] = v;
+					} else if (state[w] == 0) {
+						state[w] = 1;
+						next[w] = outOffsets[w];
+						stack[size++] = w;
+					}
+				}
+			}
+
+			// merge parallel edges
+			Map<Long, Integer> merged = new HashMap<>();
+			List<Double> mergedWeights = new ArrayList<>();
+			List<int[]> mergedPairs = new ArrayList<>();
+			for (int e = 0; e < pairs.size(); e++) {
+				int[] pair = pairs.get(e);
+				Long key = ((long) pair[0] << 32) | pair[1];
+				Integer index = merged.get(key);
+				if (index == null) {
+					merged.put(key, mergedPairs.size());
+					mergedPairs.add(pair);
+					mergedWeights.add(pairWeights.get(e));
+				} else
+					mergedWeights.set(index,
+							mergedWeights.get(index) + pairWeights.get(e));
+			}
+
+			// connect the sources to the virtual root
+			boolean[] hasPredecessor = new boolean[nodeCount];
+			for (int[] pair : mergedPairs)
+				hasPredecessor[pair[1]] = true;
+			for (int v = 0; v < nodeCount; v++) {
+				if (!hasPredecessor[v]) {
+					mergedPairs.add(new int[] { nodeCount, v });
+					mergedWeights.add(0d);
+				}
+			}
+
+			edgeCount = mergedPairs.size();
+			tail = new int[edgeCount];
+			head = new int[edgeCount];
+			weight = new double[edgeCount];
+			int[] degree = new int[nodeCount + 1];
+			for (int e = 0; e < edgeCount; e++) {
+				tail[e] = mergedPairs.get(e)[0];
+				head[e] = mergedPairs.get(e)[1];
+				weight[e] = mergedWeights.get(e);
+				degree[tail[e]]++;
+				degree[head[e]]++;
+			}
+			incidentOffsets = new int[nodeCount + 2];
+			for (int v = 0; v <= nodeCount; v++)
+				incidentOffsets[v + 1] = incidentOffsets[v] + degree[v];
+			incidentEdges = new int[2 * edgeCount];
+			fill = Arrays.copyOf(incidentOffsets, nodeCount + 1);
+			for (int e = 0; e < edgeCount; e++) {
+				incidentEdges[fill[tail[e]]++] = e;
+				incidentEdges[fill[head[e]]++] = e;
+			}
+		}
+
+		/**
+		 * Computes an initial feasible ranking by the longest path method,
+		 * i.e. every node is placed directly above its highest successor.
+		 */
+		private void initRanks() {
+			int n = nodeCount + 1;
+			rank = new int[n];
+			int[] pending = new int[n];
+			for (int e = 0; e < edgeCount; e++)
+				pending[tail[e]]++;
+			int[] queue = new int[n];
+			int size = 0;
+			for (int v = 0; v < n; v++) {
+				if (pending[v] == 0)
+					queue[size++] = v;
+				else
+					rank[v] = Integer.MAX_VALUE;
+			}
+			for (int i = 0; i < size; i++) {
+				int v = queue[i];
+				for (int k = incidentOffsets[v]; k < incidentOffsets[v
+						+ 1]; k++) {
+					int e = incidentEdges[k];
+					if (head[e] != v)
+						continue;
+					int u = tail[e];
+					rank[u] = Math.min(rank[u], rank[v] - 1);
+					if (--pending[u] == 0)
+						queue[size++] = u;
+				}
+			}
+		}
+
+		private int slack(int e) {
+			return rank[head[e]] - rank[tail[e]] - 1;
+		}
+
+		/**
+		 * Constructs a spanning tree of tight edges, shifting the ranks of the
+		 * tree nodes whenever no further tight edge is available.
+		 */
+		private void feasibleTree() {
+			int n = nodeCount + 1;
+			treeEdge = new boolean[edgeCount];
+			inTree = new boolean[n];
+			int[] treeNodes = new int[n];
+			stack = new int[n];
+			next = new int[n];
+			inTree[nodeCount] = true;
+			treeNodes[0] = nodeCount;
+			int treeSize = 1;
+			while (true) {
+				// grow the tree along tight edges
+				int size = 0;
+				for (int i = 0; i < treeSize; i++)
+					stack[size++] = treeNodes[i];
+				while (size > 0) {
+					int v = stack[--size];
+					for (int k = incidentOffsets[v]; k < incidentOffsets[v
+							+ 1]; k++) {
+						int e = incidentEdges[k];
+						int w = tail[e] == v ? head[e] : tail[e];
+						if (!inTree[w] && slack(e) == 0) {
+							inTree[w] = true;
+							treeEdge[e] = true;
+							treeNodes[treeSize++] = w;
+							stack[size++] = w;
+						}
+					}
+				}
+				if (treeSize == n)
+					break;
+				// find the non-tree edge incident to the tree with minimum
+				// slack, and shift the tree so that this edge becomes tight
+				int minEdge = -1;
+				for (int e = 0; e < edgeCount; e++) {
+					if (inTree[tail[e]] != inTree[head[e]] && (minEdge < 0
+							|| slack(e) < slack(minEdge)))
+						minEdge = e;
+				}
+				int delta = inTree[tail[minEdge]] ? slack(minEdge)
+						: -slack(minEdge);
+				for (int i = 0; i < treeSize; i++)
+					rank[treeNodes[i]] += delta;
+			}
+			parentEdge = new int[n];
+			low = new int[n];
+			lim = new int[n];
+			postOrder = new int[n];
+			cutValue = new double[edgeCount];
+			Arrays.fill(low, -1);
+			parentEdge[nodeCount] = -1;
+			initLowLimValues(nodeCount, 0);
+			initCutValues();
+		}
+
+		/**
+		 * Numbers the nodes of the subtree below the given node in post-order,
+		 * starting with the given number, so that the nodes of the subtree
+		 * below a node v have lim values within [low(v), lim(v)]. Subtrees
+		 * whose parent edge and low value did not change are skipped.
+		 */
+		private void initLowLimValues(int root, int counter) {
+			int size = 0;
+			stack[size++] = root;
+			next[root] = incidentOffsets[root];
+			low[root] = counter;
+			while (size > 0) {
+				int v = stack[size - 1];
+				if (next[v] == incidentOffsets[v + 1]) {
+					lim[v] = counter;
+					postOrder[counter++] = v;
+					size--;
+					continue;
+				}
+				int e = incidentEdges[next[v]++];
+				if (!treeEdge[e] || e == parentEdge[v])
+					continue;
+				int w = tail[e] == v ? head[e] : tail[e];
+				if (parentEdge[w] == e && low[w] == counter) {
+					counter = lim[w] + 1;
+					continue;
+				}
+				parentEdge[w] = e;
+				low[w] = counter;
+				next[w] = incidentOffsets[w];
+				stack[size++] = w;
+			}
+		}
+
+		/**
+		 * Computes the cut values of all tree edges bottom-up, deriving the
+		 * cut value of the edge to a node's parent from the cut values of the
+		 * edges to its children.
+		 */
+		private void initCutValues() {
+			for (int i = 0; i < nodeCount; i++) {
+				int child = postOrder[i];
+				int pe = parentEdge[child];
+				boolean childIsTail = tail[pe] == child;
+				double value = weight[pe];
+				for (int k = incidentOffsets[child]; k < incidentOffsets[child
+						+ 1]; k++) {
+					int e = incidentEdges[k];
+					if (e == pe)
+						continue;
+					boolean pointsToHead = (tail[e] == child) == childIsTail;
+					value += pointsToHead ? weight[e] : -weight[e];
+					if (treeEdge[e])
+						value += pointsToHead ? -cutValue[e] : cutValue[e];
+				}
+				cutValue[pe] = value;
+			}
+		}
+
+		/**
+		 * Returns a tree edge with negative cut value, choosing the minimum
+		 * among the first candidates that are found from the given start
+		 * index on, or -1 if the solution is optimal.
+		 */
+		private int leaveEdge(int start) {
+			int leave = -1;
+			int candidates = 0;
+			for (int i = 0; i < edgeCount
+					&& candidates < SEARCH_SIZE; i++) {
+				int e = (start + i) % edgeCount;
+				if (treeEdge[e] && cutValue[e] < 0) {
+					candidates++;
+					if (leave < 0 || cutValue[e] < cutValue[leave])
+						leave = e;
+				}
+			}
+			return leave;
+		}
+
+		private boolean isDescendant(int v, int root) {
+			return low[root] <= lim[v] && lim[v] <= lim[root];
+		}
+
+		/**
+		 * Returns the non-tree edge with minimum slack that reconnects the
+		 * subtree, which is separated from the root by removing the given tree
+		 * edge, in the opposite direction of the given tree edge.
+		 */
+		private int enterEdge(int leave) {
+			int subtree = child(leave);
+			boolean tailInSubtree = subtree == tail[leave];
+			int enter = -1;
+			for (int i = low[subtree]; i <= lim[subtree]; i++) {
+				int v = postOrder[i];
+				for (int k = incidentOffsets[v]; k < incidentOffsets[v
+						+ 1]; k++) {
+					int e = incidentEdges[k];
+					if ((head[e] == v) == tailInSubtree
+							&& !isDescendant(tail[e] == v ? head[e] : tail[e],
+									subtree)
+							&& (enter < 0 || slack(e) < slack(enter)))
+						enter = e;
+				}
+			}
+			return enter;
+		}
+
+		private int child(int e) {
+			return lim[tail[e]] < lim[head[e]] ? tail[e] : head[e];
+		}
+
+		/**
+		 * Replaces the given tree edge by the given non-tree edge, and updates
+		 * the ranks, cut values, and post-order numbers of the affected nodes.
+		 */
+		private void exchangeEdges(int leave, int enter) {
+			// shift the separated subtree so that the entering edge is tight
+			int subtree = child(leave);
+			int delta = isDescendant(tail[enter], subtree) ? slack(enter)
+					: -slack(enter);
+			for (int i = low[subtree]; i <= lim[subtree]; i++)
+				rank[postOrder[i]] += delta;
+			// update the cut values along the cycle that is closed by the
+			// entering edge
+			double value = cutValue[leave];
+			int lca = updateCutValues(tail[enter], head[enter], value, true);
+			updateCutValues(head[enter], tail[enter], value, false);
+			cutValue[enter] = -value;
+			cutValue[leave] = 0;
+			treeEdge[leave] = false;
+			treeEdge[enter] = true;
+			// renumber the paths from the end points of the entering edge up
+			// to their common ancestor
+			int counter = low[lca];
+			invalidatePath(tail[enter], lca);
+			invalidatePath(head[enter], lca);
+			initLowLimValues(lca, counter);
+		}
+
+		private void invalidatePath(int v, int lca) {
+			while (v != lca && low[v] >= 0) {
+				low[v] = -1;
+				int e = parentEdge[v];
+				v = lim[tail[e]] > lim[head[e]] ? tail[e] : head[e];
+			}
+		}
+
+		/**
+		 * Adds (or subtracts) the given value to the cut values of the tree
+		 * edges on the path from the given node up to the first common
+		 * ancestor with the given other node, which is returned.
+		 */
+		private int updateCutValues(int v, int w, double value,
+				boolean direction) {
+			while (!isDescendant(w, v)) {
+				int e = parentEdge[v];
+				if ((v == tail[e]) == direction)
+					cutValue[e] += value;
+				else
+					cutValue[e] -= value;
+				v = lim[tail[e]] > lim[head[e]] ? tail[e] : head[e];
+			}
+			return v;
+		}
+
+		/**
+		 * Shifts the ranks of the nodes so that the smallest rank is 0 and
+		 * returns the number of layers.
+		 */
+		private int normalize() {
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (int v = 0; v < nodeCount; v++) {
+				min = Math.min(min, rank[v]);
+				max = Math.max(max, rank[v]);
+			}
+			for (int v = 0; v <= nodeCount; v++)
+				rank[v] -= min;
+			return max - min + 1;
+		}
+
+		/**
+		 * Moves the nodes, for which the weights of incoming and outgoing
+		 * edges are equal, to the feasible layer with the fewest nodes. This
+		 * does not change the total edge length, but reduces the width of the
+		 * layering.
+		 */
+		private void balance(int layerCount) {
+			int[] layerSizes = new int[layerCount];
+			for (int v = 0; v < nodeCount; v++)
+				layerSizes[rank[v]]++;
+			for (int v = 0; v < nodeCount; v++) {
+				double inWeight = 0;
+				double outWeight = 0;
+				int min = 0;
+				int max = layerCount - 1;
+				for (int k = incidentOffsets[v]; k < incidentOffsets[v
+						+ 1]; k++) {
+					int e = incidentEdges[k];
+					if (tail[e] == nodeCount)
+						continue;
+					if (tail[e] == v) {
+						outWeight += weight[e];
+						max = Math.min(max, rank[head[e]] - 1);
+					} else {
+						inWeight += weight[e];
+						min = Math.max(min, rank[tail[e]] + 1);
+					}
+				}
+				if (inWeight != outWeight)
+					continue;
+				int best = rank[v];
+				for (int r = min; r <= max; r++)
+					if (layerSizes[r] < layerSizes[best])
+						best = r;
+				layerSizes[rank[v]]--;
+				layerSizes[best]++;
+				rank[v] = best;
+			}
+		}
+	}
+
+	/**
+	 * An interface for computing the positions of the nodes within their
+	 * layers.
+	 *
+	 * @author agent
+	 */
+	public static interface CoordinateAssigner {
+
+		/**
+		 * Computes the position of each of the given {@link NodeWrapper}s
+		 * within its layer. The positions are measured in multiples of the
+		 * minimum distance between two neighboring {@link NodeWrapper}s, and
+		 * have to respect the order of the {@link NodeWrapper}s within the
+		 * layers.
+		 *
+		 * @param layers
+		 *            The layers of {@link NodeWrapper}s, as ordered by the
+		 *            {@link CrossingReducer}.
+		 * @return A {@link Map} that stores the position of each
+		 *         {@link NodeWrapper}.
+		 */
+		Map<NodeWrapper, Double> assignCoordinates(
+				List<List<NodeWrapper>> layers);
+	}
+
+	/**
+	 * A {@link CoordinateAssigner} that implements the algorithm of Brandes
+	 * and Köpf (http://dx.doi.org/10.1007/3-540-45848-4_3). It aligns each
+	 * node with the median of its upper (or lower) neighbors, preferring
+	 * straight edges between dummy nodes, and compacts the resulting blocks
+	 * horizontally. This is done for all four combinations of vertical and
+	 * horizontal directions, and the results are balanced. The running time is
+	 * linear in the size of the (proper) hierarchy.
+	 *
+	 * @author agent
+	 */
+	public static class BrandesKoepfCoordinateAssigner
+			implements CoordinateAssigner {
+
+		private int[] pos;
+		private int[][] layerIds;
+		private int[][] upper;
+		private int[][] lower;
+		private Set<Long> conflicts;
+
+		public Map<NodeWrapper, Double> assignCoordinates(
+				List<List<NodeWrapper>> layers) {
+			Map<NodeWrapper, Integer> ids = new IdentityHashMap<>();
+			layerIds = new int[layers.size()][];
+			List<NodeWrapper> wrappers = new ArrayList<>();
+			for (int l = 0; l < layers.size(); l++) {
+				List<NodeWrapper> layer = layers.get(l);
+				layerIds[l] = new int[layer.size()];
+				for (int i = 0; i < layer.size(); i++) {
+					layerIds[l][i] = wrappers.size();
+					ids.put(layer.get(i), wrappers.size());
+					wrappers.add(layer.get(i));
+				}
+			}
+			int n = wrappers.size();
+			Map<NodeWrapper, Double> result = new IdentityHashMap<>();
+			if (n == 0)
+				return result;
+
+			int[] layerOf = new int[n];
+			pos = new int[n];
+			for (int l = 0; l < layerIds.length; l++) {
+				for (int i = 0; i < layerIds[l].length; i++) {
+					layerOf[layerIds[l][i]] = l;
+					pos[layerIds[l][i]] = i;
+				}
+			}
+			// only consider the predecessors on the directly adjacent layer
+			upper = new int[n][];
+			int[] lowerDegree = new int[n];
+			for (int v = 0; v < n; v++) {
+				int[] neighbors = new int[wrappers.get(v).pred.size()];
+				int count = 0;
+				for (NodeWrapper p : wrappers.get(v).pred) {
+					Integer u = ids.get(p);
+					if (u != null && layerOf[u] == layerOf[v] - 1) {
+						neighbors[count++] = u;
+						lowerDegree[u]++;
+					}
+				}
+				upper[v] = sortByPosition(Arrays.copyOf(neighbors, count));
+			}
+			lower = new int[n][];
+			for (int v = 0; v < n; v++)
+				lower[v] = new int[lowerDegree[v]];
+			Arrays.fill(lowerDegree, 0);
+			for (int l = 0; l < layerIds.length; l++)
+				for (int v : layerIds[l])
+					for (int u : upper[v])
+						lower[u][lowerDegree[u]++] = v;
+			boolean[] dummy = new boolean[n];
+			for (int v = 0; v < n; v++)
+				dummy[v] = wrappers.get(v).isDummy();
+			markConflicts(dummy);
+
+			// compute the four alignments
+			double[][] xs = new double[4][];
+			int smallest = 0;
+			double[] min = new double[4];
+			double[] max = new double[4];
+			for (int a = 0; a < 4; a++) {
+				xs[a] = align(n, (a & 1) == 0, (a & 2) == 0);
+				min[a] = Double.MAX_VALUE;
+				max[a] = -Double.MAX_VALUE;
+				for (double x : xs[a]) {
+					min[a] = Math.min(min[a], x);
+					max[a] = Math.max(max[a], x);
+				}
+				if (max[a] - min[a] < max[smallest] - min[smallest])
+					smallest = a;
+			}
+			// align the left (right) alignments to the left (right) border of
+			// the narrowest one
+			for (int a = 0; a < 4; a++) {
+				double shift = (a & 2) == 0 ? min[smallest] - min[a]
+						: max[smallest] - max[a];
+				for (int v = 0; v < n; v++)
+					xs[a][v] += shift;
+			}
+			// balance by averaging the two median coordinates
+			double[] values = new double[4];
+			double[] balanced = new double[n];
+			double offset = Double.MAX_VALUE;
+			for (int v = 0; v < n; v++) {
+				for (int a = 0; a < 4; a++)
+					values[a] = xs[a][v];
+				Arrays.sort(values);
+				balanced[v] = (values[1] + values[2]) / 2;
+				offset = Math.min(offset, balanced[v]);
+			}
+			for (int v = 0; v < n; v++)
+				result.put(wrappers.get(v), balanced[v] - offset);
+			return result;
+		}
+
+		private int[] sortByPosition(int[] ids) {
+			// insertion sort, as the number of neighbors is usually small
+			for (int i = 1; i < ids.length; i++) {
+				int id = ids[i];
+				int j = i - 1;
+				for (; j >= 0 && pos[ids[j]] > pos[id]; j--)
+					ids[j + 1] = ids[j];
+				ids[j + 1] = id;
+			}
+			return ids;
+		}
+
+		private static Long key(int u, int v) {
+			return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+		}
+
+		/**
+		 * Marks type 1 conflicts, i.e. crossings of inner segments (edges
+		 * between two dummies) with non-inner segments, so that the
+		 * alignment will favor the inner segments.
+		 */
+		private void markConflicts(boolean[] dummy) {
+			conflicts = new HashSet<>();
+			for (int l = 1; l < layerIds.length; l++) {
+				int[] layer = layerIds[l];
+				int k0 = 0;
+				int scanPos = 0;
+				for (int i = 0; i < layer.length; i++) {
+					int v = layer[i];
+					int innerNeighbor = -1;
+					if (dummy[v])
+						for (int u : upper[v])
+							if (dummy[u])
+								innerNeighbor = u;
+					if (innerNeighbor < 0 && i != layer.length - 1)
+						continue;
+					int k1 = innerNeighbor >= 0 ? pos[innerNeighbor]
+							: layerIds[l - 1].length;
+					for (; scanPos <= i; scanPos++) {
+						int w = layer[scanPos];
+						for (int u : upper[w]) {
+							if ((pos[u] < k0 || k1 < pos[u])
+									&& !(dummy[u] && dummy[w]))
+								conflicts.add(key(u, w));
+						}
+					}
+					k0 = k1;
+				}
+			}
+		}
+
+		/**
+		 * Computes one of the four alignments, by aligning each node with the
+		 * median of its neighbors on the preceding layer (in vertical
+		 * direction), and compacting the resulting blocks towards the left or
+		 * right.
+		 */
+		private double[] align(int n, boolean down, boolean left) {
+			int[] root = new int[n];
+			int[] align = new int[n];
+			for (int v = 0; v < n; v++)
+				root[v] = align[v] = v;
+			int layerCount = layerIds.length;
+			for (int i = 0; i < layerCount; i++) {
+				int[] layer = layerIds[down ? i : layerCount - 1 - i];
+				int r = Integer.MIN_VALUE;
+				for (int j = 0; j < layer.length; j++) {
+					int v = layer[left ? j : layer.length - 1 - j];
+					int[] neighbors = down ? upper[v] : lower[v];
+					int d = neighbors.length;
+					for (int m = (d - 1) / 2; m <= d / 2 && d > 0; m++) {
+						int w = neighbors[left ? m : d - 1 - m];
+						int p = position(w, left);
+						if (align[v] == v && r < p
+								&& !conflicts.contains(key(v, w))) {
+							align[w] = v;
+							root[v] = root[w];
+							align[v] = root[v];
+							r = p;
+						}
+					}
+				}
+			}
+
+			// build the constraint graph of the blocks, where each block has
+			// to be placed at least one unit to the right of its left
+			// neighbors
+			int[] degree = new int[n];
+			for (int[] layer : layerIds)
+				for (int j = 1; j < layer.length; j++)
+					degree[root[neighbor(layer, j - 1, left)]]++;
+			int[] offsets = new int[n + 1];
+			for (int v = 0; v < n; v++)
+				offsets[v + 1] = offsets[v] + degree[v];
+			int[] successors = new int[offsets[n]];
+			int[] predecessorCount = new int[n];
+			Arrays.fill(degree, 0);
+			for (int[] layer : layerIds) {
+				for (int j = 1; j < layer.length; j++) {
+					int u = root[neighbor(layer, j - 1, left)];
+					int v = root[neighbor(layer, j, left)];
+					successors[offsets[u] + degree[u]++] = v;
+					predecessorCount[v]++;
+				}
+			}
+			// topological order of the blocks
+			int[] order = new int[n];
+			int size = 0;
+			for (int v = 0; v < n; v++)
+				if (root[v] == v && predecessorCount[v] == 0)
+					order[size++] = v;
+			for (int i = 0; i < size; i++) {
+				int u = order[i];
+				for (int k = offsets[u]; k < offsets[u + 1]; k++)
+					if (--predecessorCount[successors[k]] == 0)
+						order[size++] = successors[k];
+			}
+			// place each block as far left as possible, then pull the blocks
+			// towards their right neighbors
+			double[] blockX = new double[n];
+			for (int i = 0; i < size; i++) {
+				int u = order[i];
+				for (int k = offsets[u]; k < offsets[u + 1]; k++)
+					blockX[successors[k]] = Math.max(blockX[successors[k]],
+							blockX[u] + 1);
+			}
+			for (int i = size - 1; i >= 0; i--) {
+				int u = order[i];
+				double min = Double.MAX_VALUE;
+				for (int k = offsets[u]; k < offsets[u + 1]; k++)
+					min = Math.min(min, blockX[successors[k]] - 1);
+				if (min != Double.MAX_VALUE)
+					blockX[u] = Math.max(blockX[u], min);
+			}
+			double[] x = new double[n];
+			for (int v = 0; v < n; v++)
+				x[v] = left ? blockX[root[v]] : -blockX[root[v]];
+			return x;
+		}
+
+		private int position(int v, boolean left) {
+			return left ? pos[v] : -pos[v];
+		}
+
+		private static int neighbor(int[] layer, int j, boolean left) {
+			return layer[left ? j : layer.length - 1 - j];
+		}
+	}
+
 	private List<List<NodeWrapper>> layers = new ArrayList<>();
 	private Map<Node, NodeWrapper> map = new IdentityHashMap<>();
 	private final Direction direction;
@@ -1220,6 +2088,7 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 
 	private LayerProvider layerProvider;
 	private CrossingReducer crossingReducer;
+	private CoordinateAssigner coordinateAssigner;
 
 	/**
 	 * Constructs a tree-like, layered layout of a directed graph.
@@ -1330,6 +2199,32 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 		this(Direction.VERTICAL, null, null, null);
 	}
 
+	/**
+	 * Sets the {@link CoordinateAssigner} that is used to compute the
+	 * positions of the nodes within their layers. If <code>null</code> is
+	 * passed in (the default), the nodes are placed according to their indices
+	 * as determined by the {@link CrossingReducer}.
+	 * 
+	 * @param coordinateAssigner
+	 *            The {@link CoordinateAssigner} to use, e.g. a
+	 *            {@link BrandesKoepfCoordinateAssigner}, or <code>null</code>.
+	 */
+	public void setCoordinateAssigner(CoordinateAssigner coordinateAssigner) {
+		this.coordinateAssigner = coordinateAssigner;
+	}
+
+	/**
+	 * Returns the {@link CoordinateAssigner} that is used to compute the
+	 * positions of the nodes within their layers, or <code>null</code> if the
+	 * nodes are placed according to their indices.
+	 * 
+	 * @return The {@link CoordinateAssigner} of this
+	 *         {@link SugiyamaLayoutAlgorithm}.
+	 */
+	public CoordinateAssigner getCoordinateAssigner() {
+		return coordinateAssigner;
+	}
+
 	public void applyLayout(LayoutContext layoutContext, boolean clean) {
 		if (!clean)
 			return;
@@ -1343,7 +2238,15 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 			nodes2.add(node);
 		}
 		layers = layerProvider.calculateLayers(nodes);
+		if (layoutContext.isLayoutCanceled()) {
+			return;
+		}
+		layoutContext.reportLayoutProgress(1 / 3d);
 		crossingReducer.crossReduction(layers);
+		if (layoutContext.isLayoutCanceled()) {
+			return;
+		}
+		layoutContext.reportLayoutProgress(2 / 3d);
 
 		for (List<NodeWrapper> layer : layers) {
 			if (layer.size() > last)
@@ -1360,6 +2263,10 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 		if (dimension != null)
 			boundary = new Rectangle(0, 0, dimension.getWidth(),
 					dimension.getHeight());
+		if (coordinateAssigner != null) {
+			calculateAssignedPositions(context, boundary);
+			return;
+		}
 		double dx = boundary.getWidth() / layers.size();
 		double dy = boundary.getHeight() / (last + 1);
 		if (direction == Direction.HORIZONTAL)
@@ -1376,4 +2283,25 @@ public class SugiyamaLayoutAlgorithm implements ILayoutAlgorithm {
 			}
 	}
 
-}
\ No newline at end of file
+	private void calculateAssignedPositions(LayoutContext context,
+			Rectangle boundary) {
+		Map<NodeWrapper, Double> positions = coordinateAssigner
+				.assignCoordinates(layers);
+		double width = 0;
+		for (Double position : positions.values())
+			width = Math.max(width, position);
+		boolean horizontal = direction == Direction.HORIZONTAL;
+		double layerDistance = (horizontal ? boundary.getWidth()
+				: boundary.getHeight()) / layers.size();
+		double nodeDistance = (horizontal ? boundary.getHeight()
+				: boundary.getWidth()) / (width + 1);
+		for (Node node : context.getNodes()) {
+			NodeWrapper nw = map.get(node);
+			double along = (nw.layer + 0.5d) * layerDistance;
+			double across = (positions.get(nw) + 0.5d) * nodeDistance;
+			LayoutProperties.setLocation(node, horizontal
+					? new Point(along, across) : new Point(across, along));
+		}
+	}
+
+}
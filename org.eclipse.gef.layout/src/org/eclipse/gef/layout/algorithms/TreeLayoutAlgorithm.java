@@ -14,7 +14,11 @@
  ******************************************************************************/
 package org.eclipse.gef.layout.algorithms;
 
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.gef.geometry.planar.Dimension;
 import org.eclipse.gef.geometry.planar.Point;
@@ -24,10 +28,14 @@ import org.eclipse.gef.layout.ILayoutAlgorithm;
 import org.eclipse.gef.layout.LayoutContext;
 import org.eclipse.gef.layout.LayoutProperties;
 import org.eclipse.gef.layout.algorithms.TreeLayoutHelper.TreeNode;
+import org.eclipse.gef.layout.internal.algorithms.WalkerTree;
 
 /**
  * The TreeLayoutAlgorithm class implements a simple algorithm to arrange graph
- * nodes in a layered tree-like layout.
+ * nodes in a layered tree-like layout. By default, each leaf occupies its own
+ * slot and every other node is centered above its leaves. Alternatively, a
+ * tidy tree can be computed (see {@link #setTidyTree(boolean)}), which places
+ * subtrees as close to each other as possible.
  * 
  * @author Casey Best
  * @author Ian Bull
@@ -75,6 +83,14 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 
 	private Dimension nodeSpace;
 
+	private boolean tidyTree = false;
+
+	// the breadth positions of the tree nodes (only used for tidy trees)
+	private Map<TreeNode, Double> tidyPositions;
+
+	// the number of slots in breadth direction
+	private double breadth;
+
 	/**
 	 * Create a default Tree Layout.
 	 */
@@ -155,6 +171,34 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 		return resize;
 	}
 
+	/**
+	 * Returns <code>true</code> if this algorithm computes tidy trees,
+	 * otherwise <code>false</code>.
+	 * 
+	 * @return <code>true</code> if this algorithm computes tidy trees,
+	 *         otherwise <code>false</code>.
+	 * @see #setTidyTree(boolean)
+	 */
+	public boolean isTidyTree() {
+		return tidyTree;
+	}
+
+	/**
+	 * Specifies whether this algorithm computes tidy trees. For a tidy tree,
+	 * each node is centered above its children, and the subtrees are placed
+	 * as close to each other as possible, using the linear time version of
+	 * Walker's algorithm (see Buchheim, J&uuml;nger, Leipert, Improving
+	 * Walker's Algorithm to Run in Linear Time, 2002). Otherwise, each leaf
+	 * occupies its own slot (default).
+	 * 
+	 * @param tidyTree
+	 *            <code>true</code> to compute tidy trees, otherwise
+	 *            <code>false</code>.
+	 */
+	public void setTidyTree(boolean tidyTree) {
+		this.tidyTree = tidyTree;
+	}
+
 	/**
 	 * 
 	 * @param resizing
@@ -170,6 +214,9 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 			return;
 
 		internalApplyLayout(layoutContext);
+		if (layoutContext.isLayoutCanceled()) {
+			return;
+		}
 
 		Node[] entities = layoutContext.getNodes();
 		if (resize) {
@@ -192,7 +239,8 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 
 	/**
 	 * Performs a layout pass for the tree without scaling the entities to
-	 * maximum size / use the whole bounds.
+	 * maximum size / use the whole bounds. Returns early if the layout pass is
+	 * canceled (see {@link LayoutContext#isLayoutCanceled()}).
 	 * 
 	 * @param context
 	 *            The {@link LayoutContext} to use.
@@ -200,17 +248,69 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 	void internalApplyLayout(LayoutContext context) {
 		treeObserver = new TreeLayoutHelper(null);
 		treeObserver.computeTree(context.getNodes());
+		if (context.isLayoutCanceled()) {
+			return;
+		}
 
 		TreeNode superRoot = treeObserver.getSuperRoot();
 		bounds = LayoutProperties.getBounds(context.getGraph());
+		if (tidyTree) {
+			tidyPositions = computeTidyPositions(superRoot);
+			if (context.isLayoutCanceled()) {
+				return;
+			}
+		} else {
+			tidyPositions = null;
+			breadth = superRoot.numOfLeaves;
+		}
 		updateLeafAndLayerSizes();
-		int leafCountSoFar = 0;
-		for (Iterator<TreeNode> iterator = superRoot.getChildren()
-				.iterator(); iterator.hasNext();) {
-			TreeNode rootInfo = iterator.next();
-			computePositionRecursively(rootInfo, leafCountSoFar);
-			leafCountSoFar = leafCountSoFar + rootInfo.numOfLeaves;
+		computePositions(superRoot);
+	}
+
+	/**
+	 * Computes the breadth positions of all nodes of the tree using the linear
+	 * time version of Walker's algorithm. The positions are normalized so that
+	 * the leftmost node is placed at <code>0.5</code>, and {@link #breadth} is
+	 * updated accordingly.
+	 */
+	private Map<TreeNode, Double> computeTidyPositions(TreeNode superRoot) {
+		// index the tree in DFS pre-order
+		List<TreeNode> nodes = new ArrayList<>();
+		ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+		stack.push(superRoot);
+		while (!stack.isEmpty()) {
+			TreeNode node = stack.pop();
+			nodes.add(node);
+			for (int i = node.children.size() - 1; i >= 0; i--) {
+				stack.push(node.children.get(i));
+			}
+		}
+		Map<TreeNode, Integer> ids = new IdentityHashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			ids.put(nodes.get(i), i);
+		}
+		int[] parent = new int[nodes.size()];
+		parent[0] = -1;
+		for (int v = 0; v < nodes.size(); v++) {
+			for (TreeNode child : nodes.get(v).children) {
+				parent[ids.get(child)] = v;
+			}
+		}
+		double[] x = new WalkerTree(parent).layout();
+
+		// the super root is not placed
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int v = 1; v < x.length; v++) {
+			min = Math.min(min, x[v]);
+			max = Math.max(max, x[v]);
+		}
+		Map<TreeNode, Double> positions = new IdentityHashMap<>();
+		for (int v = 1; v < x.length; v++) {
+			positions.put(nodes.get(v), x[v] - min + 0.5);
 		}
+		breadth = x.length > 1 ? max - min + 1 : 0;
+		return positions;
 	}
 
 	private void updateLeafAndLayerSizes() {
@@ -225,22 +325,47 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 		} else {
 			TreeNode superRoot = treeObserver.getSuperRoot();
 			if (direction == TOP_DOWN || direction == BOTTOM_UP) {
-				leafSize = bounds.getWidth() / superRoot.numOfLeaves;
+				leafSize = bounds.getWidth() / breadth;
 				layerSize = bounds.getHeight() / superRoot.height;
 			} else {
-				leafSize = bounds.getHeight() / superRoot.numOfLeaves;
+				leafSize = bounds.getHeight() / breadth;
 				layerSize = bounds.getWidth() / superRoot.height;
 			}
 		}
 	}
 
 	/**
-	 * Computes positions recursively until the leaf nodes are reached.
+	 * Computes the positions of all nodes of the tree, using an explicit stack
+	 * so that deep trees can be processed.
 	 */
-	private void computePositionRecursively(TreeNode entityInfo,
-			int relativePosition) {
-		double breadthPosition = relativePosition
-				+ entityInfo.numOfLeaves / 2.0;
+	private void computePositions(TreeNode superRoot) {
+		ArrayDeque<TreeNode> nodes = new ArrayDeque<>();
+		// the number of leaves left of each node
+		ArrayDeque<Integer> relativePositions = new ArrayDeque<>();
+		nodes.push(superRoot);
+		relativePositions.push(0);
+		while (!nodes.isEmpty()) {
+			TreeNode node = nodes.pop();
+			int relativePosition = relativePositions.pop();
+			if (node != superRoot) {
+				computePosition(node,
+						tidyPositions != null ? tidyPositions.get(node)
+								: relativePosition + node.numOfLeaves / 2.0);
+			}
+			for (TreeNode child : node.children) {
+				nodes.push(child);
+				relativePositions.push(relativePosition);
+				relativePosition += child.numOfLeaves;
+			}
+		}
+	}
+
+	/**
+	 * Computes the location of the given node for the given position in
+	 * breadth direction.
+	 */
+	private void computePosition(TreeNode entityInfo,
+			double breadthPosition) {
 		double depthPosition = (entityInfo.depth + 0.5);
 
 		switch (direction) {
@@ -263,13 +388,6 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 							breadthPosition * leafSize));
 			break;
 		}
-
-		for (Iterator<TreeNode> iterator = entityInfo.children
-				.iterator(); iterator.hasNext();) {
-			TreeNode childInfo = iterator.next();
-			computePositionRecursively(childInfo, relativePosition);
-			relativePosition += childInfo.numOfLeaves;
-		}
 	}
 
 	@Override
@@ -291,6 +409,7 @@ public class TreeLayoutAlgorithm implements ILayoutAlgorithm {
 			break;
 		}
 		sb.append(", resize : " + resize);
+		sb.append(", tidy : " + tidyTree);
 		sb.append(" }");
 		// TODO: include node space??
 		return sb.toString();
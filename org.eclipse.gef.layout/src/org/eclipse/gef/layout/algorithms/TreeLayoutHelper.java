@@ -13,13 +13,13 @@
  ******************************************************************************/
 package org.eclipse.gef.layout.algorithms;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.gef.graph.Node;
@@ -245,29 +245,47 @@ public class TreeLayoutHelper {
 		/**
 		 * Performs a DFS on the tree structure and calculates all parameters of
 		 * its nodes. Should be called on {@link TreeLayoutHelper#getSuperRoot()
-		 * Super Root}. Uses recurrence to go through all the nodes.
+		 * Super Root}. Uses an explicit stack instead of recurrence to go
+		 * through all the nodes, so that deep trees can be processed, and does
+		 * therefore not call this method for the descendants of this node.
 		 */
 		protected void precomputeTree() {
-			if (children.isEmpty()) {
-				height = 0;
-				numOfLeaves = 1;
-				numOfDescendants = 0;
-			} else {
-				height = 0;
-				numOfLeaves = 0;
-				numOfDescendants = 0;
-				for (ListIterator<TreeNode> iterator = children
-						.listIterator(); iterator.hasNext();) {
-					TreeNode child = iterator.next();
-					child.depth = this.depth + 1;
-					child.order = this.order + this.numOfLeaves;
-					child.precomputeTree();
-					child.firstChild = (this.numOfLeaves == 0);
-					child.lastChild = !iterator.hasNext();
-
-					this.height = Math.max(this.height, child.height + 1);
-					this.numOfLeaves += child.numOfLeaves;
-					this.numOfDescendants += child.numOfDescendants + 1;
+			// collect the subtree in DFS pre-order, so that all descendants
+			// of a node succeed it
+			List<TreeNode> preOrder = new ArrayList<>();
+			ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+			stack.push(this);
+			while (!stack.isEmpty()) {
+				TreeNode node = stack.pop();
+				preOrder.add(node);
+				for (int i = node.children.size() - 1; i >= 0; i--) {
+					stack.push(node.children.get(i));
+				}
+			}
+
+			// compute height, leaves, and descendants bottom-up
+			for (int i = preOrder.size() - 1; i >= 0; i--) {
+				TreeNode node = preOrder.get(i);
+				node.height = 0;
+				node.numOfLeaves = node.children.isEmpty() ? 1 : 0;
+				node.numOfDescendants = 0;
+				for (TreeNode child : node.children) {
+					node.height = Math.max(node.height, child.height + 1);
+					node.numOfLeaves += child.numOfLeaves;
+					node.numOfDescendants += child.numOfDescendants + 1;
+				}
+			}
+
+			// compute depth and order top-down
+			for (TreeNode node : preOrder) {
+				int leavesSoFar = 0;
+				for (int i = 0; i < node.children.size(); i++) {
+					TreeNode child = node.children.get(i);
+					child.depth = node.depth + 1;
+					child.order = node.order + leavesSoFar;
+					child.firstChild = i == 0;
+					child.lastChild = i == node.children.size() - 1;
+					leavesSoFar += child.numOfLeaves;
 				}
 			}
 		}
@@ -279,13 +297,14 @@ public class TreeLayoutHelper {
 		protected void findNewParent() {
 			if (parent != null)
 				parent.children.remove(this);
-			Node[] predecessingNodes = node.getAllPredecessorNodes()
-					.toArray(new Node[] {});
+			Node[] predecessingNodes = owner.getPredecessors(node);
 			parent = null;
 			for (int i = 0; i < predecessingNodes.length; i++) {
 				TreeNode potentialParent = owner.layoutToTree
 						.get(predecessingNodes[i]);
-				if (!children.contains(potentialParent)
+				// the children of this node are exactly the nodes whose parent
+				// is this node
+				if (potentialParent != null && potentialParent.parent != this
 						&& isBetterParent(potentialParent))
 					parent = potentialParent;
 			}
@@ -388,6 +407,10 @@ public class TreeLayoutHelper {
 	}
 
 	private final HashMap<Object, TreeNode> layoutToTree = new HashMap<>();
+	// the successors and predecessors are cached, so that the graph (hierarchy)
+	// only needs to be scanned once per node
+	private final Map<Node, Node[]> successors = new IdentityHashMap<>();
+	private final Map<Node, Node[]> predecessors = new IdentityHashMap<>();
 	private final TreeNodeFactory factory;
 	private TreeNode superRoot;
 
@@ -415,6 +438,8 @@ public class TreeLayoutHelper {
 	 *            nodes
 	 */
 	public void computeTree(Node[] nodes) {
+		successors.clear();
+		predecessors.clear();
 		superRoot = factory.createTreeNode(null, this);
 		layoutToTree.put(null, superRoot);
 		createTrees(nodes);
@@ -450,6 +475,32 @@ public class TreeLayoutHelper {
 		return treeNode;
 	}
 
+	/**
+	 * Returns the (cached) successors of the given {@link Node}, considering
+	 * the full graph hierarchy.
+	 */
+	private Node[] getSuccessors(Node node) {
+		Node[] nodes = successors.get(node);
+		if (nodes == null) {
+			nodes = node.getAllSuccessorNodes().toArray(new Node[] {});
+			successors.put(node, nodes);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns the (cached) predecessors of the given {@link Node},
+	 * considering the full graph hierarchy.
+	 */
+	private Node[] getPredecessors(Node node) {
+		Node[] nodes = predecessors.get(node);
+		if (nodes == null) {
+			nodes = node.getAllPredecessorNodes().toArray(new Node[] {});
+			predecessors.put(node, nodes);
+		}
+		return nodes;
+	}
+
 	/**
 	 * Builds a tree structure using BFS method. Created trees are children of
 	 * {@link #superRoot}.
@@ -457,30 +508,32 @@ public class TreeLayoutHelper {
 	 * @param nodes
 	 */
 	private void createTrees(Node[] nodes) {
-		HashSet<Node> alreadyVisited = new HashSet<>();
-		LinkedList<Object[]> nodesToAdd = new LinkedList<>();
+		Set<Node> alreadyVisited = Collections
+				.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		ArrayDeque<Node> nodesToAdd = new ArrayDeque<>();
+		ArrayDeque<TreeNode> parentsToAdd = new ArrayDeque<>();
+		Set<Node> resolved = Collections
+				.newSetFromMap(new IdentityHashMap<Node, Boolean>());
 		for (int i = 0; i < nodes.length; i++) {
-			Node root = findRoot(nodes[i], alreadyVisited);
+			Node root = findRoot(nodes[i], alreadyVisited, resolved);
 			if (root != null) {
 				alreadyVisited.add(root);
-				nodesToAdd.addLast(new Object[] { root, superRoot });
+				nodesToAdd.addLast(root);
+				parentsToAdd.addLast(superRoot);
 			}
 		}
 		while (!nodesToAdd.isEmpty()) {
-			Object[] dequeued = nodesToAdd.removeFirst();
-			TreeNode currentNode = factory.createTreeNode((Node) dequeued[0],
-					this);
-			layoutToTree.put(dequeued[0], currentNode);
-			TreeNode currentRoot = (TreeNode) dequeued[1];
+			Node node = nodesToAdd.removeFirst();
+			TreeNode currentNode = factory.createTreeNode(node, this);
+			layoutToTree.put(node, currentNode);
+			TreeNode currentRoot = parentsToAdd.removeFirst();
 
 			currentRoot.addChild(currentNode);
-			Node[] children = currentNode.node.getAllSuccessorNodes()
-					.toArray(new Node[] {});
+			Node[] children = getSuccessors(node);
 			for (int i = 0; i < children.length; i++) {
-				if (!alreadyVisited.contains(children[i])) {
-					alreadyVisited.add(children[i]);
-					nodesToAdd
-							.addLast(new Object[] { children[i], currentNode });
+				if (alreadyVisited.add(children[i])) {
+					nodesToAdd.addLast(children[i]);
+					parentsToAdd.addLast(currentNode);
 				}
 			}
 		}
@@ -499,23 +552,34 @@ public class TreeLayoutHelper {
 	 * @param alreadyVisited
 	 *            set of nodes that can't lay on path to the root (if one does,
 	 *            method stops and returns null).
+	 * @param resolved
+	 *            set of nodes that were passed by previous searches, which
+	 *            lead to an already found root (if one lays on the path to the
+	 *            root, method stops and returns null). The nodes that are
+	 *            passed by this search are added to it, so that each node is
+	 *            passed only once.
 	 * @return
 	 */
-	private Node findRoot(Node nodeLayout, Set<Node> alreadyVisited) {
-		HashSet<Node> alreadyVisitedRoot = new HashSet<>();
-		while (true) {
-			if (alreadyVisited.contains(nodeLayout))
-				return null;
-			if (alreadyVisitedRoot.contains(nodeLayout))
-				return nodeLayout;
-			alreadyVisitedRoot.add(nodeLayout);
-			Node[] predecessingNodes = nodeLayout.getAllPredecessorNodes()
-					.toArray(new Node[] {});
-			if (predecessingNodes.length > 0) {
-				nodeLayout = predecessingNodes[0];
-			} else {
-				return nodeLayout;
+	private Node findRoot(Node nodeLayout, Set<Node> alreadyVisited,
+			Set<Node> resolved) {
+		Set<Node> alreadyVisitedRoot = Collections
+				.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		try {
+			while (true) {
+				if (alreadyVisited.contains(nodeLayout)
+						|| resolved.contains(nodeLayout))
+					return null;
+				if (!alreadyVisitedRoot.add(nodeLayout))
+					return nodeLayout;
+				Node[] predecessingNodes = getPredecessors(nodeLayout);
+				if (predecessingNodes.length > 0) {
+					nodeLayout = predecessingNodes[0];
+				} else {
+					return nodeLayout;
+				}
 			}
+		} finally {
+			resolved.addAll(alreadyVisitedRoot);
 		}
 	}
 }
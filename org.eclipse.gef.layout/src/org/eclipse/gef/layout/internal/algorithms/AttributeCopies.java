@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ ******************************************************************************/
+package org.eclipse.gef.layout.internal.algorithms;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.algorithms.ConnectedComponentsLayoutAlgorithm;
+
+/**
+ * The {@link AttributeCopies} provides the copying of attribute maps that is
+ * shared by the {@link LayoutContext} (to take snapshots of the graph for
+ * asynchronous layouts) and the {@link ConnectedComponentsLayoutAlgorithm} (to
+ * lay out copies of the components concurrently).
+ *
+ * @author agent
+ *
+ */
+public class AttributeCopies {
+
+	/**
+	 * Returns a copy of the given attributes, in which the mutable geometries
+	 * ({@link Point}, {@link Dimension}, and {@link Rectangle}) are copied as
+	 * well, so that a layout algorithm does not change values that are shared
+	 * with the original graph.
+	 *
+	 * @param attributes
+	 *            The attributes to copy.
+	 * @return A copy of the given attributes.
+	 */
+	public static Map<String, Object> copyAttributes(
+			Map<String, Object> attributes) {
+		Map<String, Object> copy = new HashMap<>(attributes);
+		for (Map.Entry<String, Object> entry : copy.entrySet()) {
+			Object value = entry.getValue();
+			if (value instanceof Point) {
+				entry.setValue(((Point) value).getCopy());
+			} else if (value instanceof Dimension) {
+				entry.setValue(((Dimension) value).getCopy());
+			} else if (value instanceof Rectangle) {
+				entry.setValue(((Rectangle) value).getCopy());
+			}
+		}
+		return copy;
+	}
+
+	private AttributeCopies() {
+		// only static methods
+	}
+}
@@ -0,0 +1,416 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ ******************************************************************************/
+package org.eclipse.gef.layout.internal.algorithms;
+
+import java.util.Arrays;
+
+import org.eclipse.gef.layout.algorithms.MultilevelLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.SpringLayoutAlgorithm;
+
+/**
+ * The {@link BarnesHutTree} is a quad-tree over a set of points, which is used
+ * to approximate the repulsion that all points exert on each other in
+ * <code>O(n log n)</code> instead of <code>O(n^2)</code>, following the
+ * Barnes-Hut method: A group of points that is far away (in relation to the
+ * size of the cell containing it) is approximated by a single point at its
+ * center of mass.
+ * <p>
+ * The repulsion between two points at distance <code>d</code> is
+ * <code>gravitation / max(d, minDistance)^2</code>, which corresponds to the
+ * repulsion used by the {@link SpringLayoutAlgorithm} and the
+ * {@link MultilevelLayoutAlgorithm}. As the repulsion is linear in the offset
+ * for points that are closer than the minimum distance (i.e.
+ * <code>gravitation * offset / minDistance^3</code>), cells that are completely
+ * within the minimum distance are summed up exactly using their center of
+ * mass.
+ *
+ * @author agent
+ *
+ */
+public class BarnesHutTree {
+
+	/**
+	 * The maximum depth of the tree. Points that cannot be separated within
+	 * this depth (e.g. because they share the same location) are stored within
+	 * the same leaf.
+	 */
+	private static final int MAX_DEPTH = 48;
+
+	/**
+	 * The maximum number of points within a leaf, for which the repulsion is
+	 * always computed exactly.
+	 */
+	private static final int MAX_LEAF_SIZE = 8;
+
+	private double[] x;
+	private double[] y;
+
+	// the indices of the points, grouped by cell
+	private int[] order = new int[0];
+	// the position of each point within the order
+	private int[] position = new int[0];
+
+	// cells, each covering a contiguous range of the order
+	private int cellCount;
+	private int[] cellFrom = new int[0];
+	private int[] cellTo = new int[0];
+	private int[] cellChildren = new int[0];
+	private boolean[] cellLeaf = new boolean[0];
+	private double[] cellMinX = new double[0];
+	private double[] cellMinY = new double[0];
+	private double[] cellSize = new double[0];
+	private double[] cellMassX = new double[0];
+	private double[] cellMassY = new double[0];
+
+	/**
+	 * Adds the approximated repulsion that all other points exert on the point
+	 * with the given index to the given force arrays.
+	 *
+	 * @param i
+	 *            The index of the point.
+	 * @param gravitation
+	 *            The gravitation-control value.
+	 * @param minDistance
+	 *            The minimum distance that is considered between two points.
+	 * @param theta
+	 *            The ratio between cell size and distance below which a cell
+	 *            is approximated by its center of mass.
+	 * @param forcesX
+	 *            The horizontal forces to which the repulsion is added.
+	 * @param forcesY
+	 *            The vertical forces to which the repulsion is added.
+	 */
+	public void accumulateRepulsion(int i, double gravitation,
+			double minDistance, double theta, double[] forcesX,
+			double[] forcesY) {
+		if (cellCount == 0) {
+			return;
+		}
+		double minDistanceSq = minDistance * minDistance;
+		double nearGravitation = gravitation / (minDistanceSq * minDistance);
+		double thetaSq = theta * theta;
+		double px = x[i];
+		double py = y[i];
+		int pos = position[i];
+		double fx = 0;
+		double fy = 0;
+		int[] stack = new int[3 * MAX_DEPTH + 4];
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int cell = stack[--top];
+			int from = cellFrom[cell];
+			int to = cellTo[cell];
+			if (cellLeaf[cell]) {
+				// compute repulsion of all points within the leaf exactly
+				for (int k = from; k < to; k++) {
+					int j = order[k];
+					if (j != i) {
+						double dx = px - x[j];
+						double dy = py - y[j];
+						double distanceSq = Math.max(minDistanceSq,
+								dx * dx + dy * dy);
+						double distance = Math.sqrt(distanceSq);
+						double f = gravitation / distanceSq;
+						fx += f * dx / distance;
+						fy += f * dy / distance;
+					}
+				}
+			} else {
+				double dx = px - cellMassX[cell];
+				double dy = py - cellMassY[cell];
+				double sq = dx * dx + dy * dy;
+				boolean contains = from <= pos && pos < to;
+				double size = cellSize[cell];
+				double farX = Math.max(Math.abs(px - cellMinX[cell]),
+						Math.abs(px - cellMinX[cell] - size));
+				double farY = Math.max(Math.abs(py - cellMinY[cell]),
+						Math.abs(py - cellMinY[cell] - size));
+				if (farX * farX + farY * farY <= minDistanceSq) {
+					// all points are within the minimum distance, so that the
+					// sum of their (linear) repulsion is exact (the point
+					// itself does not contribute)
+					fx += nearGravitation * (to - from) * dx;
+					fy += nearGravitation * (to - from) * dy;
+				} else if (!contains && size * size < thetaSq * sq) {
+					// approximate cell by its center of mass
+					double distanceSq = Math.max(minDistanceSq, sq);
+					double distance = Math.sqrt(distanceSq);
+					double f = (to - from) * gravitation / distanceSq;
+					fx += f * dx / distance;
+					fy += f * dy / distance;
+				} else {
+					for (int q = 0; q < 4; q++) {
+						int child = cellChildren[4 * cell + q];
+						if (child >= 0) {
+							stack[top++] = child;
+						}
+					}
+				}
+			}
+		}
+		forcesX[i] += fx;
+		forcesY[i] += fy;
+	}
+
+	/**
+	 * Adds the approximated repulsion that all points exert on each other to
+	 * the given force arrays. In contrast to
+	 * {@link #accumulateRepulsion(int, double, double, double, double[], double[])},
+	 * the tree is traversed only once per leaf, and the cells that are
+	 * approximated are shared by all points of the leaf.
+	 *
+	 * @param gravitation
+	 *            The gravitation-control value.
+	 * @param minDistance
+	 *            The minimum distance that is considered between two points.
+	 * @param theta
+	 *            The ratio between cell size and distance below which a cell
+	 *            is approximated by its center of mass.
+	 * @param forcesX
+	 *            The horizontal forces to which the repulsion is added.
+	 * @param forcesY
+	 *            The vertical forces to which the repulsion is added.
+	 */
+	public void accumulateRepulsion(double gravitation, double minDistance,
+			double theta, double[] forcesX, double[] forcesY) {
+		int[] stack = new int[3 * MAX_DEPTH + 4];
+		for (int leaf = 0; leaf < cellCount; leaf++) {
+			if (cellLeaf[leaf]) {
+				accumulateRepulsion(leaf, stack, gravitation, minDistance,
+						theta, forcesX, forcesY);
+			}
+		}
+	}
+
+	private void accumulateRepulsion(int leaf, int[] stack, double gravitation,
+			double minDistance, double theta, double[] forcesX,
+			double[] forcesY) {
+		double minDistanceSq = minDistance * minDistance;
+		double nearGravitation = gravitation / (minDistanceSq * minDistance);
+		double thetaSq = theta * theta;
+		int leafFrom = cellFrom[leaf];
+		int leafTo = cellTo[leaf];
+		double leafMinX = cellMinX[leaf];
+		double leafMinY = cellMinY[leaf];
+		double leafSize = cellSize[leaf];
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int cell = stack[--top];
+			int from = cellFrom[cell];
+			int to = cellTo[cell];
+			if (cellLeaf[cell]) {
+				// compute repulsion between the points of both leaves exactly
+				for (int l = leafFrom; l < leafTo; l++) {
+					int i = order[l];
+					double fx = 0;
+					double fy = 0;
+					for (int k = from; k < to; k++) {
+						int j = order[k];
+						if (j != i) {
+							double dx = x[i] - x[j];
+							double dy = y[i] - y[j];
+							double distanceSq = Math.max(minDistanceSq,
+									dx * dx + dy * dy);
+							double distance = Math.sqrt(distanceSq);
+							double f = gravitation / distanceSq;
+							fx += f * dx / distance;
+							fy += f * dy / distance;
+						}
+					}
+					forcesX[i] += fx;
+					forcesY[i] += fy;
+				}
+				continue;
+			}
+
+			double size = cellSize[cell];
+			// maximum distance between the cell and the leaf
+			double farX = Math.max(leafMinX + leafSize, cellMinX[cell] + size)
+					- Math.min(leafMinX, cellMinX[cell]);
+			double farY = Math.max(leafMinY + leafSize, cellMinY[cell] + size)
+					- Math.min(leafMinY, cellMinY[cell]);
+			// minimum distance between the center of mass and the leaf
+			double massX = cellMassX[cell];
+			double massY = cellMassY[cell];
+			double nearX = Math.max(0, Math.max(leafMinX - massX,
+					massX - leafMinX - leafSize));
+			double nearY = Math.max(0, Math.max(leafMinY - massY,
+					massY - leafMinY - leafSize));
+			boolean contains = from <= leafFrom && leafTo <= to;
+			if (farX * farX + farY * farY <= minDistanceSq) {
+				// all points are within the minimum distance, so that the sum
+				// of their (linear) repulsion is exact
+				for (int l = leafFrom; l < leafTo; l++) {
+					int i = order[l];
+					forcesX[i] += nearGravitation * (to - from)
+							* (x[i] - massX);
+					forcesY[i] += nearGravitation * (to - from)
+							* (y[i] - massY);
+				}
+			} else if (!contains
+					&& size * size < thetaSq * (nearX * nearX + nearY * nearY)) {
+				// approximate cell by its center of mass
+				for (int l = leafFrom; l < leafTo; l++) {
+					int i = order[l];
+					double dx = x[i] - massX;
+					double dy = y[i] - massY;
+					double distanceSq = Math.max(minDistanceSq,
+							dx * dx + dy * dy);
+					double distance = Math.sqrt(distanceSq);
+					double f = (to - from) * gravitation / distanceSq;
+					forcesX[i] += f * dx / distance;
+					forcesY[i] += f * dy / distance;
+				}
+			} else {
+				for (int q = 0; q < 4; q++) {
+					int child = cellChildren[4 * cell + q];
+					if (child >= 0) {
+						stack[top++] = child;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * (Re-)Builds this {@link BarnesHutTree} for the given points.
+	 *
+	 * @param x
+	 *            The horizontal coordinates of the points.
+	 * @param y
+	 *            The vertical coordinates of the points.
+	 */
+	public void build(double[] x, double[] y) {
+		this.x = x;
+		this.y = y;
+		int n = x.length;
+		if (order.length != n) {
+			order = new int[n];
+			position = new int[n];
+		}
+		cellCount = 0;
+		if (n == 0) {
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		double size = Math.max(maxX - minX, maxY - minY);
+		buildCell(0, n, minX, minY, size > 0 ? size : 1, 0);
+		for (int k = 0; k < n; k++) {
+			position[order[k]] = k;
+		}
+	}
+
+	private int buildCell(int from, int to, double minX, double minY,
+			double size, int depth) {
+		int cell = cellCount++;
+		ensureCapacity(cellCount);
+		cellFrom[cell] = from;
+		cellTo[cell] = to;
+		cellMinX[cell] = minX;
+		cellMinY[cell] = minY;
+		cellSize[cell] = size;
+		double massX = 0;
+		double massY = 0;
+		for (int k = from; k < to; k++) {
+			massX += x[order[k]];
+			massY += y[order[k]];
+		}
+		cellMassX[cell] = massX / (to - from);
+		cellMassY[cell] = massY / (to - from);
+		Arrays.fill(cellChildren, 4 * cell, 4 * cell + 4, -1);
+		cellLeaf[cell] = to - from <= MAX_LEAF_SIZE || depth >= MAX_DEPTH;
+		if (!cellLeaf[cell]) {
+			double half = size / 2;
+			double midX = minX + half;
+			double midY = minY + half;
+			int splitX = partition(from, to, x, midX);
+			int splitLeft = partition(from, splitX, y, midY);
+			int splitRight = partition(splitX, to, y, midY);
+			// the arrays may grow while building children, so the children
+			// are always stored via the fields
+			if (from < splitLeft) {
+				int child = buildCell(from, splitLeft, minX, minY, half,
+						depth + 1);
+				cellChildren[4 * cell] = child;
+			}
+			if (splitLeft < splitX) {
+				int child = buildCell(splitLeft, splitX, minX, midY, half,
+						depth + 1);
+				cellChildren[4 * cell + 1] = child;
+			}
+			if (splitX < splitRight) {
+				int child = buildCell(splitX, splitRight, midX, minY, half,
+						depth + 1);
+				cellChildren[4 * cell + 2] = child;
+			}
+			if (splitRight < to) {
+				int child = buildCell(splitRight, to, midX, midY, half,
+						depth + 1);
+				cellChildren[4 * cell + 3] = child;
+			}
+		}
+		return cell;
+	}
+
+	private void ensureCapacity(int cells) {
+		if (cellFrom.length >= cells) {
+			return;
+		}
+		int capacity = Math.max(cells, 2 * cellFrom.length);
+		cellFrom = Arrays.copyOf(cellFrom, capacity);
+		cellTo = Arrays.copyOf(cellTo, capacity);
+		cellChildren = Arrays.copyOf(cellChildren, 4 * capacity);
+		cellLeaf = Arrays.copyOf(cellLeaf, capacity);
+		cellMinX = Arrays.copyOf(cellMinX, capacity);
+		cellMinY = Arrays.copyOf(cellMinY, capacity);
+		cellSize = Arrays.copyOf(cellSize, capacity);
+		cellMassX = Arrays.copyOf(cellMassX, capacity);
+		cellMassY = Arrays.copyOf(cellMassY, capacity);
+	}
+
+	/**
+	 * Partitions the given range of the order, so that all points with a
+	 * coordinate less than the given value precede all other points. Returns
+	 * the index of the first point whose coordinate is not less than the given
+	 * value.
+	 */
+	private int partition(int from, int to, double[] coordinates,
+			double value) {
+		int i = from;
+		int j = to - 1;
+		while (i <= j) {
+			if (coordinates[order[i]] < value) {
+				i++;
+			} else {
+				int tmp = order[i];
+				order[i] = order[j];
+				order[j] = tmp;
+				j--;
+			}
+		}
+		return i;
+	}
+
+}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ ******************************************************************************/
+package org.eclipse.gef.layout.internal.algorithms;
+
+import java.util.Arrays;
+
+import org.eclipse.gef.layout.algorithms.SpaceTreeLayoutAlgorithm;
+import org.eclipse.gef.layout.algorithms.TreeLayoutAlgorithm;
+
+/**
+ * The {@link WalkerTree} computes a tidy layout of a tree using the linear
+ * time version of Walker's algorithm (as described by Buchheim, Jünger and
+ * Leipert), which places the subtrees of each node as close to each other as
+ * possible, and centers each node above its children. The left and right
+ * contours of the subtrees are traced via threads, so that placing a subtree
+ * costs time proportional to the height of the smaller one of the subtrees
+ * that are placed next to each other. It is used by the
+ * {@link TreeLayoutAlgorithm} and the {@link SpaceTreeLayoutAlgorithm}.
+ * <p>
+ * The nodes are identified by their index, where the root has index
+ * <code>0</code>, each node succeeds its parent, and the children of a node
+ * are ordered by their index (as it is the case for a DFS pre-order). The
+ * minimum distance between adjacent nodes of the same level can be specified
+ * by overriding {@link #getSeparation(int, int)}.
+ *
+ * @author agent
+ *
+ */
+public class WalkerTree {
+
+	private final int[] parent;
+	private final int[] childOffsets;
+	private final int[] children;
+	// the index of a node within the children of its parent
+	private final int[] number;
+	private final double[] prelim;
+	private final double[] mod;
+	private final double[] shift;
+	private final double[] change;
+	private final int[] thread;
+	private final int[] ancestor;
+
+	/**
+	 * Constructs a new {@link WalkerTree} for the given parent relation.
+	 *
+	 * @param parent
+	 *            The index of the parent of each node, which is
+	 *            <code>-1</code> for the root (with index <code>0</code>) and
+	 *            smaller than the index of the node otherwise.
+	 */
+	public WalkerTree(int[] parent) {
+		int nodeCount = parent.length;
+		this.parent = parent;
+		childOffsets = new int[nodeCount + 1];
+		children = new int[Math.max(0, nodeCount - 1)];
+		number = new int[nodeCount];
+		for (int v = 1; v < nodeCount; v++) {
+			childOffsets[parent[v] + 1]++;
+		}
+		for (int v = 0; v < nodeCount; v++) {
+			childOffsets[v + 1] += childOffsets[v];
+		}
+		int[] nextChild = Arrays.copyOf(childOffsets, nodeCount);
+		for (int v = 1; v < nodeCount; v++) {
+			int p = parent[v];
+			number[v] = nextChild[p] - childOffsets[p];
+			children[nextChild[p]++] = v;
+		}
+		prelim = new double[nodeCount];
+		mod = new double[nodeCount];
+		shift = new double[nodeCount];
+		change = new double[nodeCount];
+		thread = new int[nodeCount];
+		ancestor = new int[nodeCount];
+		Arrays.fill(thread, -1);
+		for (int v = 0; v < nodeCount; v++) {
+			ancestor[v] = v;
+		}
+	}
+
+	/**
+	 * Returns the minimum distance between the given adjacent nodes of the
+	 * same level, which is <code>1</code> by default.
+	 *
+	 * @param left
+	 *            The index of the left node.
+	 * @param right
+	 *            The index of the right node.
+	 * @return The minimum distance between the given nodes.
+	 */
+	protected double getSeparation(int left, int right) {
+		return 1;
+	}
+
+	/**
+	 * Computes the x coordinates of all nodes, where the root is placed at
+	 * <code>0</code>.
+	 *
+	 * @return The x coordinates of all nodes, indexed by node.
+	 */
+	public double[] layout() {
+		int nodeCount = parent.length;
+		if (nodeCount == 0) {
+			return new double[0];
+		}
+		// first walk (post-order), apportioning each child before its right
+		// sibling is processed
+		int[] nextChild = new int[nodeCount];
+		int[] defaultAncestor = new int[nodeCount];
+		int[] stack = new int[nodeCount];
+		int size = 0;
+		stack[size++] = 0;
+		while (size > 0) {
+			int v = stack[size - 1];
+			int i = childOffsets[v] + nextChild[v];
+			if (nextChild[v] > 0) {
+				// the previous child was walked
+				int w = children[i - 1];
+				defaultAncestor[v] = apportion(w,
+						nextChild[v] == 1 ? w : defaultAncestor[v]);
+			}
+			if (i < childOffsets[v + 1]) {
+				nextChild[v]++;
+				stack[size++] = children[i];
+			} else {
+				size--;
+				finishFirstWalk(v);
+			}
+		}
+
+		// second walk (pre-order)
+		double[] x = new double[nodeCount];
+		double[] modSum = new double[nodeCount];
+		modSum[0] = -prelim[0];
+		for (int v = 0; v < nodeCount; v++) {
+			// the parent precedes each node
+			double m = v == 0 ? modSum[0] : modSum[parent[v]];
+			x[v] = prelim[v] + m;
+			modSum[v] = m + mod[v];
+		}
+		return x;
+	}
+
+	private void finishFirstWalk(int v) {
+		int w = leftSibling(v);
+		if (childOffsets[v] == childOffsets[v + 1]) {
+			prelim[v] = w < 0 ? 0 : prelim[w] + getSeparation(w, v);
+		} else {
+			executeShifts(v);
+			double midpoint = (prelim[children[childOffsets[v]]]
+					+ prelim[children[childOffsets[v + 1] - 1]]) / 2;
+			if (w < 0) {
+				prelim[v] = midpoint;
+			} else {
+				prelim[v] = prelim[w] + getSeparation(w, v);
+				mod[v] = prelim[v] - midpoint;
+			}
+		}
+	}
+
+	private int apportion(int v, int defaultAncestor) {
+		int w = leftSibling(v);
+		if (w < 0) {
+			return defaultAncestor;
+		}
+		int vir = v;
+		int vor = v;
+		int vil = w;
+		int vol = children[childOffsets[parent[v]]];
+		double sir = mod[vir];
+		double sor = mod[vor];
+		double sil = mod[vil];
+		double sol = mod[vol];
+		while (nextRight(vil) >= 0 && nextLeft(vir) >= 0) {
+			vil = nextRight(vil);
+			vir = nextLeft(vir);
+			vol = nextLeft(vol);
+			vor = nextRight(vor);
+			ancestor[vor] = v;
+			double distance = prelim[vil] + sil - (prelim[vir] + sir)
+					+ getSeparation(vil, vir);
+			if (distance > 0) {
+				int a = parent[ancestor[vil]] == parent[v] ? ancestor[vil]
+						: defaultAncestor;
+				moveSubtree(a, v, distance);
+				sir += distance;
+				sor += distance;
+			}
+			sil += mod[vil];
+			sir += mod[vir];
+			sol += mod[vol];
+			sor += mod[vor];
+		}
+		if (nextRight(vil) >= 0 && nextRight(vor) < 0) {
+			thread[vor] = nextRight(vil);
+			mod[vor] += sil - sor;
+		}
+		if (nextLeft(vir) >= 0 && nextLeft(vol) < 0) {
+			thread[vol] = nextLeft(vir);
+			mod[vol] += sir - sol;
+			defaultAncestor = v;
+		}
+		return defaultAncestor;
+	}
+
+	private void moveSubtree(int wl, int wr, double distance) {
+		double subtrees = number[wr] - number[wl];
+		change[wr] -= distance / subtrees;
+		shift[wr] += distance;
+		change[wl] += distance / subtrees;
+		prelim[wr] += distance;
+		mod[wr] += distance;
+	}
+
+	private void executeShifts(int v) {
+		double currentShift = 0;
+		double currentChange = 0;
+		for (int i = childOffsets[v + 1] - 1; i >= childOffsets[v]; i--) {
+			int w = children[i];
+			prelim[w] += currentShift;
+			mod[w] += currentShift;
+			currentChange += change[w];
+			currentShift += shift[w] + currentChange;
+		}
+	}
+
+	private int leftSibling(int v) {
+		return number[v] == 0 ? -1
+				: children[childOffsets[parent[v]] + number[v] - 1];
+	}
+
+	private int nextLeft(int v) {
+		return childOffsets[v] < childOffsets[v + 1] ? children[childOffsets[v]]
+				: thread[v];
+	}
+
+	private int nextRight(int v) {
+		return childOffsets[v] < childOffsets[v + 1]
+				? children[childOffsets[v + 1] - 1] : thread[v];
+	}
+}
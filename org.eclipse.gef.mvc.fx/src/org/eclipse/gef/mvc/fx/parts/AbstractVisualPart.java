@@ -16,8 +16,11 @@ package org.eclipse.gef.mvc.fx.parts;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.gef.common.activate.ActivatableSupport;
@@ -42,6 +45,7 @@ import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.reflect.TypeToken;
 
+import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.ReadOnlyListProperty;
@@ -66,6 +70,46 @@ import javafx.scene.Node;
 public abstract class AbstractVisualPart<V extends Node>
 		implements IVisualPart<V> {
 
+	/**
+	 * Refreshes the visuals of the parts that scheduled a refresh, once per
+	 * JavaFX pulse, i.e. before CSS is applied and the scene graph is laid out
+	 * and rendered.
+	 */
+	private static class RefreshVisualScheduler extends AnimationTimer {
+
+		private static RefreshVisualScheduler instance;
+
+		private Set<AbstractVisualPart<?>> scheduledParts = new LinkedHashSet<>();
+		private boolean running;
+
+		public static void schedule(AbstractVisualPart<?> part) {
+			if (instance == null) {
+				instance = new RefreshVisualScheduler();
+			}
+			instance.scheduledParts.add(part);
+			if (!instance.running) {
+				instance.running = true;
+				instance.start();
+			}
+		}
+
+		@Override
+		public void handle(long now) {
+			// refreshes may schedule further refreshes, which are performed
+			// within the next pulse
+			List<AbstractVisualPart<?>> parts = new ArrayList<>(
+					scheduledParts);
+			scheduledParts.clear();
+			for (AbstractVisualPart<?> part : parts) {
+				part.performScheduledRefreshVisual();
+			}
+			if (scheduledParts.isEmpty()) {
+				running = false;
+				stop();
+			}
+		}
+	}
+
 	/**
 	 * The 'default' used for attaching/detaching to anchorages, in case no
 	 * explicit role is given.
@@ -94,6 +138,9 @@ public abstract class AbstractVisualPart<V extends Node>
 
 	private BooleanProperty refreshVisualProperty = new SimpleBooleanProperty(
 			this, REFRESH_VISUAL_PROPERTY, true);
+	private boolean refreshVisualScheduled;
+	// null if the whole visual needs to be refreshed
+	private Set<Object> scheduledRefreshAspects;
 	private V visual;
 
 	private ReadOnlyObjectWrapper<IViewer> viewerProperty = new ReadOnlyObjectWrapper<>();
@@ -486,6 +533,24 @@ public abstract class AbstractVisualPart<V extends Node>
 	 */
 	protected abstract void doRefreshVisual(V visual);
 
+	/**
+	 * Refreshes those parts of this part's visualization that depend on the
+	 * given aspects, which were passed to
+	 * {@link #scheduleRefreshVisual(Object)} since the last refresh. The
+	 * default implementation refreshes the whole visualization by delegating
+	 * to {@link #doRefreshVisual(Node)}. Subclasses may override this method
+	 * to refresh only the affected sub-visuals.
+	 *
+	 * @param visual
+	 *            This part's visual.
+	 * @param aspects
+	 *            The aspects (for example the keys of changed content
+	 *            attributes) that need to be reflected by the visualization.
+	 */
+	protected void doRefreshVisual(V visual, Set<Object> aspects) {
+		doRefreshVisual(visual);
+	}
+
 	/**
 	 * Removes the child's visual from this {@link IVisualPart}'s visual.
 	 *
@@ -640,6 +705,9 @@ public abstract class AbstractVisualPart<V extends Node>
 	 */
 	@Override
 	public final void refreshVisual() {
+		// a full refresh satisfies all scheduled refreshes
+		refreshVisualScheduled = false;
+		scheduledRefreshAspects = null;
 		if (visual != null && isRefreshVisual()) {
 			// System.out.println("Refresh visual of " + this);
 			doRefreshVisual(visual);
@@ -651,6 +719,25 @@ public abstract class AbstractVisualPart<V extends Node>
 		return refreshVisualProperty;
 	}
 
+	private void performScheduledRefreshVisual() {
+		if (!refreshVisualScheduled) {
+			// already refreshed in the meantime
+			return;
+		}
+		Set<Object> aspects = scheduledRefreshAspects;
+		refreshVisualScheduled = false;
+		scheduledRefreshAspects = null;
+		// content parts might have lost their content in the meantime
+		if (!isActive() || visual == null || !isRefreshVisual()) {
+			return;
+		}
+		if (aspects == null) {
+			doRefreshVisual(visual);
+		} else {
+			doRefreshVisual(visual, aspects);
+		}
+	}
+
 	/**
 	 * Called when a link to the {@link IViewer} is obtained. Registers this
 	 * {@link IVisualPart} for its "main" visual (i.e. the one returned by
@@ -801,6 +888,49 @@ public abstract class AbstractVisualPart<V extends Node>
 		}
 	}
 
+	/**
+	 * Schedules a refresh of this {@link IVisualPart}'s <i>visuals</i> for the
+	 * next JavaFX pulse. In contrast to {@link #refreshVisual()}, multiple
+	 * requests that are issued before the next pulse (for example, for a
+	 * series of content changes) result in a single refresh, and a refresh is
+	 * omitted if {@link #refreshVisual()} is called in the meantime. The
+	 * scheduled refresh is only performed if this part is still active and
+	 * {@link #isRefreshVisual()} is not set to <code>false</code> at that
+	 * time.
+	 * <p>
+	 * This method has to be called on the JavaFX application thread.
+	 */
+	protected void scheduleRefreshVisual() {
+		refreshVisualScheduled = true;
+		scheduledRefreshAspects = null;
+		RefreshVisualScheduler.schedule(this);
+	}
+
+	/**
+	 * Schedules a refresh of those parts of this {@link IVisualPart}'s
+	 * <i>visuals</i> that depend on the given aspect for the next JavaFX
+	 * pulse. The aspects that are scheduled before the next pulse are passed
+	 * to {@link #doRefreshVisual(Node, Set)} together. If a refresh of the
+	 * whole visual is scheduled as well (see {@link #scheduleRefreshVisual()}
+	 * ), {@link #doRefreshVisual(Node)} is called instead.
+	 * <p>
+	 * This method has to be called on the JavaFX application thread.
+	 *
+	 * @param aspect
+	 *            The aspect (for example the key of a changed content
+	 *            attribute) that needs to be reflected by the visualization.
+	 */
+	protected void scheduleRefreshVisual(Object aspect) {
+		if (!refreshVisualScheduled) {
+			refreshVisualScheduled = true;
+			scheduledRefreshAspects = new HashSet<>();
+			RefreshVisualScheduler.schedule(this);
+		}
+		if (scheduledRefreshAspects != null) {
+			scheduledRefreshAspects.add(aspect);
+		}
+	}
+
 	@Override
 	public void setRefreshVisual(boolean isRefreshVisual) {
 		refreshVisualProperty.set(isRefreshVisual);
@@ -11,19 +11,31 @@
 package org.eclipse.gef.mvc.tests.fx;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.gef.mvc.fx.parts.AbstractVisualPart;
 import org.eclipse.gef.mvc.fx.parts.IVisualPart;
+import org.eclipse.gef.mvc.tests.fx.rules.FXNonApplicationThreadRule;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 
+import javafx.animation.AnimationTimer;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.scene.Group;
 import javafx.scene.Node;
 
 public class AbstractVisualPartTests {
@@ -48,6 +60,46 @@ public class AbstractVisualPartTests {
 		}
 	}
 
+	/**
+	 * Records the aspects of each (scheduled) visual refresh, where a full
+	 * refresh is recorded as <code>null</code>.
+	 */
+	private static class RefreshRecordingPart extends AbstractVisualPart<Group> {
+
+		private List<Set<Object>> refreshes = new ArrayList<>();
+
+		@Override
+		protected void doAddChildVisual(IVisualPart<? extends Node> child, int index) {
+		}
+
+		@Override
+		protected Group doCreateVisual() {
+			return new Group();
+		}
+
+		@Override
+		protected void doRefreshVisual(Group visual) {
+			refreshes.add(null);
+		}
+
+		@Override
+		protected void doRefreshVisual(Group visual, Set<Object> aspects) {
+			refreshes.add(new HashSet<>(aspects));
+		}
+
+		@Override
+		protected void doRemoveChildVisual(IVisualPart<? extends Node> child, int index) {
+		}
+
+		public void schedule() {
+			scheduleRefreshVisual();
+		}
+
+		public void schedule(Object aspect) {
+			scheduleRefreshVisual(aspect);
+		}
+	}
+
 	private class ListChangeExpector<E> implements ListChangeListener<E> {
 
 		private ObservableList<? extends E> source;
@@ -84,6 +136,101 @@ public class AbstractVisualPartTests {
 		}
 	}
 
+	@Rule
+	public FXNonApplicationThreadRule ctx = new FXNonApplicationThreadRule();
+
+	/**
+	 * Creates and activates a {@link RefreshRecordingPart}, whose initial
+	 * refreshes are discarded.
+	 */
+	private RefreshRecordingPart createActivePart() throws Throwable {
+		final RefreshRecordingPart part = new RefreshRecordingPart();
+		ctx.runAndWait(() -> {
+			part.getVisual();
+			part.activate();
+		});
+		waitForPulses(2);
+		part.refreshes.clear();
+		return part;
+	}
+
+	private void waitForPulses(int count) throws Throwable {
+		final CountDownLatch latch = new CountDownLatch(count);
+		final AnimationTimer timer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				latch.countDown();
+				if (latch.getCount() == 0) {
+					stop();
+				}
+			}
+		};
+		ctx.runAndWait(() -> {
+			timer.start();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testScheduledRefreshVisual() throws Throwable {
+		final RefreshRecordingPart part = createActivePart();
+
+		// several full refreshes within one pulse are coalesced
+		ctx.runAndWait(() -> {
+			part.schedule();
+			part.schedule();
+			part.schedule();
+			assertTrue(part.refreshes.isEmpty());
+		});
+		waitForPulses(2);
+		assertEquals(1, part.refreshes.size());
+		assertNull(part.refreshes.get(0));
+
+		// the aspects of several partial refreshes are accumulated
+		part.refreshes.clear();
+		ctx.runAndWait(() -> {
+			part.schedule("a");
+			part.schedule("b");
+			part.schedule("a");
+		});
+		waitForPulses(2);
+		assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("a", "b"))), part.refreshes);
+
+		// a full refresh subsumes the partial ones
+		part.refreshes.clear();
+		ctx.runAndWait(() -> {
+			part.schedule("a");
+			part.schedule();
+			part.schedule("b");
+		});
+		waitForPulses(2);
+		assertEquals(1, part.refreshes.size());
+		assertNull(part.refreshes.get(0));
+	}
+
+	@Test
+	public void testScheduledRefreshVisualSkippedAfterRefresh() throws Throwable {
+		final RefreshRecordingPart part = createActivePart();
+
+		// an immediate refresh clears the scheduled one
+		ctx.runAndWait(() -> {
+			part.schedule("a");
+			part.refreshVisual();
+		});
+		waitForPulses(2);
+		assertEquals(1, part.refreshes.size());
+		assertNull(part.refreshes.get(0));
+
+		// an inactive part is not refreshed
+		part.refreshes.clear();
+		ctx.runAndWait(() -> {
+			part.schedule();
+			part.deactivate();
+		});
+		waitForPulses(2);
+		assertTrue(part.refreshes.isEmpty());
+	}
+
 	@Test
 	public void testAddChild() {
 		AbstractVisualPart<? extends Object> parent = new AbstractVisualPartStub();
@@ -17,6 +17,7 @@ import java.util.List;
 
 import org.eclipse.gef.fx.anchors.IAnchor;
 import org.eclipse.gef.fx.nodes.Connection;
+import org.eclipse.gef.fx.nodes.IBatchConnectionRouter;
 import org.eclipse.gef.fx.nodes.IConnectionInterpolator;
 import org.eclipse.gef.fx.nodes.IConnectionRouter;
 import org.eclipse.gef.geometry.planar.Dimension;
@@ -307,7 +308,8 @@ public class ZestProperties {
 
 	/**
 	 * This attribute determines the {@link IConnectionRouter} used to route an
-	 * edge. This attribute does not have a default value.
+	 * edge. This attribute does not have a default value (i.e. the router that
+	 * is specified by the {@link #ROUTER__G} attribute of the graph is used).
 	 *
 	 * @see #getRouter(Edge)
 	 * @see #setRouter(Edge, IConnectionRouter)
@@ -333,6 +335,31 @@ public class ZestProperties {
 	 */
 	public static final String LAYOUT_ALGORITHM__G = "graph-layout-algorithm";
 
+	/**
+	 * This attribute determines the {@link IConnectionRouter} instance that is
+	 * shared by all edges of a graph for which no {@link #ROUTER__E} attribute
+	 * is set. As the edges share the router instance, they are routed together
+	 * if it is an {@link IBatchConnectionRouter}. This attribute does not have
+	 * a default value (i.e. each edge uses the default router of its
+	 * {@link Connection}).
+	 *
+	 * @see #getRouter(Graph)
+	 * @see #setRouter(Graph, IConnectionRouter)
+	 */
+	public static final String ROUTER__G = "graph-router";
+
+	/**
+	 * This attribute determines whether the parts and visuals for the nodes and
+	 * edges of a graph are only created when they are (nearly) visible in the
+	 * viewport, so that large graphs can be displayed. It is only evaluated
+	 * for the root graph. This attribute does not have a default value (i.e.
+	 * all nodes and edges are visualized).
+	 *
+	 * @see #getVirtualized(Graph)
+	 * @see #setVirtualized(Graph, Boolean)
+	 */
+	public static final String VIRTUALIZED__G = "graph-virtualized";
+
 	/**
 	 * Returns the value of the {@link #CONTROL_POINTS__E} attribute of the
 	 * given {@link Edge}.
@@ -807,6 +834,19 @@ public class ZestProperties {
 		return (IConnectionRouter) value;
 	}
 
+	/**
+	 * Returns the value of the {@link #ROUTER__G} attribute of the given
+	 * {@link Graph}.
+	 *
+	 * @param graph
+	 *            The {@link Graph} of which the router is determined.
+	 * @return The router that is shared by the edges of the given
+	 *         {@link Graph}.
+	 */
+	public static IConnectionRouter getRouter(Graph graph) {
+		return (IConnectionRouter) graph.attributesProperty().get(ROUTER__G);
+	}
+
 	/**
 	 * Returns the value of the {@link #SHAPE__N} attribute of the given
 	 * {@link Node}.
@@ -1066,6 +1106,24 @@ public class ZestProperties {
 		return (String) value;
 	}
 
+	/**
+	 * Returns the value of the {@link #VIRTUALIZED__G} attribute of the given
+	 * {@link Graph}.
+	 *
+	 * @param graph
+	 *            The {@link Graph} for which to determine whether it is
+	 *            virtualized.
+	 * @return The value of the {@link #VIRTUALIZED__G} attribute of the given
+	 *         {@link Graph}, or <code>null</code> if the attribute is unset.
+	 */
+	public static Boolean getVirtualized(Graph graph) {
+		Object value = graph.attributesProperty().get(VIRTUALIZED__G);
+		if (value instanceof Provider) {
+			return (Boolean) ((Provider<?>) value).get();
+		}
+		return (Boolean) value;
+	}
+
 	/**
 	 * Sets the value of the {@link #CONTROL_POINTS__E} attribute of the given
 	 * {@link Edge} to the given value.
@@ -2052,6 +2110,26 @@ public class ZestProperties {
 		}
 	}
 
+	/**
+	 * Sets the value of the {@link #ROUTER__G} attribute of the given
+	 * {@link Graph} to the given value. In contrast to the {@link #ROUTER__E}
+	 * attribute, no {@link Provider} can be set, as the router instance is
+	 * shared by the edges.
+	 *
+	 * @param graph
+	 *            The {@link Graph} of which the router is changed.
+	 * @param router
+	 *            The new {@link IConnectionRouter} that is shared by the
+	 *            edges of the given {@link Graph}.
+	 */
+	public static void setRouter(Graph graph, IConnectionRouter router) {
+		if (router == null) {
+			graph.getAttributes().remove(ROUTER__G);
+		} else {
+			graph.attributesProperty().put(ROUTER__G, router);
+		}
+	}
+
 	/**
 	 * Sets the value of the {@link #SHAPE__N} attribute of the given
 	 * {@link Node} to the given value.
@@ -2586,4 +2664,23 @@ public class ZestProperties {
 			node.attributesProperty().put(TOOLTIP__N, tooltip);
 		}
 	}
+
+	/**
+	 * Sets the value of the {@link #VIRTUALIZED__G} attribute of the given
+	 * {@link Graph} to the given value.
+	 *
+	 * @param graph
+	 *            The {@link Graph} whose attribute is changed.
+	 * @param virtualized
+	 *            <code>true</code> to only visualize the nodes and edges that
+	 *            are (nearly) visible in the viewport, otherwise
+	 *            <code>false</code>.
+	 */
+	public static void setVirtualized(Graph graph, Boolean virtualized) {
+		if (virtualized == null) {
+			graph.attributesProperty().remove(VIRTUALIZED__G);
+		} else {
+			graph.attributesProperty().put(VIRTUALIZED__G, virtualized);
+		}
+	}
 }
@@ -12,16 +12,24 @@
  *******************************************************************************/
 package org.eclipse.gef.zest.fx.behaviors;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.gef.fx.nodes.InfiniteCanvas;
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
 import org.eclipse.gef.geometry.planar.Rectangle;
 import org.eclipse.gef.graph.Edge;
 import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.layout.IContinuousLayoutAlgorithm;
 import org.eclipse.gef.layout.ILayoutAlgorithm;
 import org.eclipse.gef.layout.ILayoutFilter;
 import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.layout.LayoutJob;
 import org.eclipse.gef.layout.LayoutProperties;
 import org.eclipse.gef.mvc.fx.parts.IContentPart;
 import org.eclipse.gef.mvc.fx.parts.IVisualPart;
@@ -32,9 +40,12 @@ import org.eclipse.gef.zest.fx.ZestProperties;
 import org.eclipse.gef.zest.fx.models.HidingModel;
 import org.eclipse.gef.zest.fx.models.NavigationModel;
 import org.eclipse.gef.zest.fx.models.NavigationModel.ViewportState;
+import org.eclipse.gef.zest.fx.parts.EdgePart;
 import org.eclipse.gef.zest.fx.parts.GraphPart;
 import org.eclipse.gef.zest.fx.parts.NodePart;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.ListChangeListener;
@@ -53,6 +64,26 @@ import javafx.scene.Parent;
 // only applicable for GraphPart (see #getHost())
 public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 
+	/**
+	 * The default number of steps of a continuous layout that are performed
+	 * per JavaFX pulse.
+	 *
+	 * @see #setContinuousLayoutSteps(int)
+	 */
+	public static final int DEFAULT_CONTINUOUS_LAYOUT_STEPS = 5;
+
+	/**
+	 * The minimum time (in milliseconds) between two layout passes that are
+	 * triggered by changes of the layout bounds, i.e. when the viewport or the
+	 * nesting node is resized.
+	 */
+	public static final long BOUNDS_LAYOUT_INTERVAL_MILLIS = 100;
+
+	// the size that is assumed for nodes of a virtualized graph that were never
+	// visualized, so that no size can be inferred from their visuals
+	private static final double VIRTUAL_NODE_WIDTH = 60;
+	private static final double VIRTUAL_NODE_HEIGHT = 30;
+
 	private Runnable postLayout = new Runnable() {
 		@Override
 		public void run() {
@@ -88,39 +119,127 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 	private ListChangeListener<IVisualPart<? extends Node>> childrenObserver = new ListChangeListener<IVisualPart<? extends Node>>() {
 		@Override
 		public void onChanged(ListChangeListener.Change<? extends IVisualPart<? extends Node>> c) {
-			applyLayout(true, null);
+			// the children of a virtualized graph change when the viewport
+			// changes, which does not change the graph that is laid out
+			if (!getHost().isVirtualized()) {
+				scheduleLayout(false, false);
+			}
+		}
+	};
+
+	private ListChangeListener<Object> graphChildrenObserver = new ListChangeListener<Object>() {
+		@Override
+		public void onChanged(ListChangeListener.Change<? extends Object> c) {
+			// the nodes and edges of a virtualized graph are laid out even if
+			// they are not visualized, so that the layout is triggered by
+			// changes of the graph instead of changes of the children
+			if (getHost().isVirtualized()) {
+				scheduleLayout(false, false);
+			}
 		}
 	};
 
 	private SetChangeListener<org.eclipse.gef.graph.Node> hidingModelObserver = new SetChangeListener<org.eclipse.gef.graph.Node>() {
 		@Override
 		public void onChanged(SetChangeListener.Change<? extends org.eclipse.gef.graph.Node> change) {
-			applyLayout(true, null);
+			scheduleLayout(false, false);
 		}
 	};
 
 	private boolean skipNextLayout;
 
+	private boolean asynchronous = false;
+
+	// the running asynchronous (clean) layout pass, if any
+	private LayoutJob asyncLayoutJob;
+
+	private boolean continuous = false;
+
+	private int continuousLayoutSteps = DEFAULT_CONTINUOUS_LAYOUT_STEPS;
+
+	// whether the post layout pass is executed for a step of a continuous
+	// layout
+	private boolean continuousLayoutStep = false;
+
+	// the locations that were transferred to the node parts during the steps
+	// of the running continuous layout (compared by identity, as a new
+	// location object is set for each node that moved)
+	private Map<org.eclipse.gef.graph.Node, Point> continuousLayoutLocations = new IdentityHashMap<>();
+
+	// whether a (clean) layout pass is scheduled, and when it is due (in
+	// nanoseconds, as passed to the timer)
+	private boolean layoutScheduled = false;
+	private boolean scheduledLayoutClean = false;
+	private boolean scheduledLayoutForBounds = false;
+	private long scheduledLayoutTime;
+	private long lastBoundsLayoutTime = Long.MIN_VALUE;
+
+	private AnimationTimer scheduledLayoutTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			if (now < scheduledLayoutTime) {
+				return;
+			}
+			stop();
+			boolean clean = scheduledLayoutClean;
+			if (scheduledLayoutForBounds) {
+				lastBoundsLayoutTime = now;
+			}
+			layoutScheduled = false;
+			scheduledLayoutClean = false;
+			scheduledLayoutForBounds = false;
+			applyLayout(clean, null);
+		}
+	};
+
+	private AnimationTimer continuousLayoutTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			boolean converged;
+			continuousLayoutStep = true;
+			try {
+				converged = getLayoutContext().applyContinuousLayoutSteps(continuousLayoutSteps);
+			} finally {
+				continuousLayoutStep = false;
+			}
+			if (converged) {
+				stop();
+				continuousLayoutLocations.clear();
+			}
+		}
+	};
+
 	/**
 	 * Performs one layout pass using the static layout algorithm that is
 	 * configured for the layout context.
 	 *
 	 * @param clean
-	 *            Whether to fully re-compute the layout or not.
+	 *            Whether to fully re-compute the layout, or to only update the
+	 *            layout for the nodes and edges that changed since the last
+	 *            layout pass (see
+	 *            {@link LayoutContext#applyIncrementalLayout()}).
 	 * @param extra
 	 *            An extra {@link Object} that is passed-on to the
 	 *            {@link ILayoutAlgorithm}.
 	 */
 	@SuppressWarnings("unchecked")
 	public void applyLayout(boolean clean, Object extra) {
+		// a scheduled layout pass is superseded
+		cancelScheduledLayout();
+
 		// check child parts exist for all content children
-		if (getHost().getChildrenUnmodifiable().size() != getHost().getContentChildrenUnmodifiable().size()) {
+		List<? extends Object> contentChildren = getHost().getContentChildrenUnmodifiable();
+		if (getHost().getChildrenUnmodifiable().size() != contentChildren.size()) {
 			return;
 		} else {
+			// the content elements do not override equals(), so that they can
+			// be looked up by identity
+			Set<Object> contentChildrenSet = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+			contentChildrenSet.addAll(contentChildren);
 			List<IContentPart<? extends Node>> childContentParts = PartUtils
 					.filterParts(getHost().getChildrenUnmodifiable(), IContentPart.class);
 			for (IContentPart<? extends Node> cp : childContentParts) {
-				if (!getHost().getContentChildrenUnmodifiable().contains(cp.getContent())) {
+				if (!contentChildrenSet.contains(cp.getContent())) {
 					return;
 				}
 			}
@@ -151,8 +270,41 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 			layoutContext.setGraph(graph);
 		}
 
+		// an incremental layout pass would cancel a pending asynchronous clean
+		// layout pass, so that a clean pass is applied in its place (which
+		// covers the changes, too)
+		if (!clean && asyncLayoutJob != null && !asyncLayoutJob.isDone()) {
+			clean = true;
+		}
+		asyncLayoutJob = null;
+
 		// apply layout (if no algorithm is set, will be a no-op)
-		layoutContext.applyLayout(true);
+		if (clean) {
+			if (continuous && layoutContext.getLayoutAlgorithm() instanceof IContinuousLayoutAlgorithm) {
+				// settle the layout step by step while it is rendered
+				startContinuousLayout(true);
+			} else if (asynchronous) {
+				// compute the layout in the background and transfer the result
+				// on the application thread (supersedes a running layout pass)
+				asyncLayoutJob = layoutContext.applyLayoutAsync(true, ForkJoinPool.commonPool(), Platform::runLater);
+			} else {
+				layoutContext.applyLayout(true);
+			}
+		} else if (layoutContext.isContinuousLayoutRunning()) {
+			// let the running continuous layout settle the changes
+			startContinuousLayout(false);
+		} else {
+			layoutContext.applyIncrementalLayout();
+		}
+	}
+
+	private void cancelScheduledLayout() {
+		if (layoutScheduled) {
+			scheduledLayoutTimer.stop();
+			layoutScheduled = false;
+			scheduledLayoutClean = false;
+			scheduledLayoutForBounds = false;
+		}
 	}
 
 	/**
@@ -184,6 +336,8 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 	@Override
 	protected void doActivate() {
 		getHost().getChildrenUnmodifiable().addListener(childrenObserver);
+		getHost().getContent().getNodes().addListener(graphChildrenObserver);
+		getHost().getContent().getEdges().addListener(graphChildrenObserver);
 
 		LayoutContext layoutContext = getLayoutContext();
 		layoutContext.schedulePreLayoutPass(preLayout);
@@ -214,9 +368,12 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 				@Override
 				public boolean isLayoutIrrelevant(Edge edge) {
 					if (!contentPartMap.containsKey(edge)) {
-						return true;
-					}
-					if (!contentPartMap.get(edge).isActive()) {
+						// the edges of a virtualized graph are laid out even
+						// if they are not visualized
+						if (!getHost().isVirtualized() || Boolean.TRUE.equals(ZestProperties.getInvisible(edge))) {
+							return true;
+						}
+					} else if (!contentPartMap.get(edge).isActive()) {
 						return true;
 					}
 					return Boolean.TRUE.equals(ZestProperties.getLayoutIrrelevant(edge))
@@ -227,9 +384,12 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 				@Override
 				public boolean isLayoutIrrelevant(org.eclipse.gef.graph.Node node) {
 					if (!contentPartMap.containsKey(node)) {
-						return true;
-					}
-					if (!contentPartMap.get(node).isActive()) {
+						// the nodes of a virtualized graph are laid out even
+						// if they are not visualized
+						if (!getHost().isVirtualized() || Boolean.TRUE.equals(ZestProperties.getInvisible(node))) {
+							return true;
+						}
+					} else if (!contentPartMap.get(node).isActive()) {
 						return true;
 					}
 					return Boolean.TRUE.equals(ZestProperties.getLayoutIrrelevant(node)) || hidingModel.isHidden(node);
@@ -260,6 +420,13 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 	@Override
 	protected void doDeactivate() {
 		getHost().getChildrenUnmodifiable().removeListener(childrenObserver);
+		getHost().getContent().getNodes().removeListener(graphChildrenObserver);
+		getHost().getContent().getEdges().removeListener(graphChildrenObserver);
+
+		cancelScheduledLayout();
+		continuousLayoutTimer.stop();
+		continuousLayoutLocations.clear();
+		getLayoutContext().stopContinuousLayout();
 
 		final HidingModel hidingModel = getHost().getRoot().getViewer().getAdapter(HidingModel.class);
 		if (hidingModel != null) {
@@ -300,6 +467,90 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 		return getHost().getAdapter(LayoutContext.class);
 	}
 
+	/**
+	 * Returns whether full layout passes are computed asynchronously, i.e. off
+	 * the JavaFX application thread.
+	 *
+	 * @return <code>true</code> if full layout passes are computed
+	 *         asynchronously, otherwise <code>false</code>.
+	 * @see #setAsynchronous(boolean)
+	 */
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+
+	/**
+	 * Sets whether full layout passes are computed asynchronously (see
+	 * {@link LayoutContext#applyLayoutAsync(boolean, java.util.concurrent.Executor, java.util.concurrent.Executor)}
+	 * ), so that layouting large graphs does not block the JavaFX application
+	 * thread. The layout result is applied on the JavaFX application thread,
+	 * and a running layout pass is canceled when a new one is started. By
+	 * default, layout passes are computed synchronously.
+	 *
+	 * @param asynchronous
+	 *            <code>true</code> to compute full layout passes
+	 *            asynchronously, otherwise <code>false</code>.
+	 */
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+
+	/**
+	 * Returns whether full layout passes are computed continuously, i.e. step
+	 * by step while the layout is rendered.
+	 *
+	 * @return <code>true</code> if full layout passes are computed
+	 *         continuously, otherwise <code>false</code>.
+	 * @see #setContinuous(boolean)
+	 */
+	public boolean isContinuous() {
+		return continuous;
+	}
+
+	/**
+	 * Sets whether full layout passes are computed continuously (see
+	 * {@link LayoutContext#startContinuousLayout(boolean)}), so that large
+	 * graphs visibly settle without blocking the JavaFX application thread.
+	 * The configured number of steps (see {@link #setContinuousLayoutSteps(int)})
+	 * is performed per JavaFX pulse, until the layout converged. Continuous
+	 * layout passes take precedence over asynchronous ones, but are only
+	 * applicable to an {@link IContinuousLayoutAlgorithm}. By default, layout
+	 * passes are not computed continuously.
+	 *
+	 * @param continuous
+	 *            <code>true</code> to compute full layout passes continuously,
+	 *            otherwise <code>false</code>.
+	 */
+	public void setContinuous(boolean continuous) {
+		this.continuous = continuous;
+	}
+
+	/**
+	 * Returns the number of steps of a continuous layout that are performed per
+	 * JavaFX pulse.
+	 *
+	 * @return The number of steps per pulse.
+	 * @see #setContinuousLayoutSteps(int)
+	 */
+	public int getContinuousLayoutSteps() {
+		return continuousLayoutSteps;
+	}
+
+	/**
+	 * Sets the number of steps of a continuous layout that are performed per
+	 * JavaFX pulse. More steps let the layout settle faster, but increase the
+	 * time per frame. Defaults to {@link #DEFAULT_CONTINUOUS_LAYOUT_STEPS}.
+	 *
+	 * @param steps
+	 *            The number of steps per pulse.
+	 */
+	public void setContinuousLayoutSteps(int steps) {
+		if (steps < 1) {
+			throw new IllegalArgumentException("steps has to be positive.");
+		}
+		continuousLayoutSteps = steps;
+	}
+
 	/**
 	 * Returns the {@link NodePart} that contains the nested graph to which the
 	 * behavior corresponds, if this behavior is related to a nested graph.
@@ -316,16 +567,89 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 
 	@Override
 	protected void postLayout() {
-		// execute post-layout of all nodes and edges
+		if (continuousLayoutStep) {
+			postLayoutMovedNodes();
+		} else {
+			// execute post-layout of all nodes and edges
+			for (IVisualPart<? extends Node> child : getHost().getChildrenUnmodifiable()) {
+				// FIXME: Layout should only be triggered when content-part-map
+				// is changed, not when the children are changed.
+				if (child.getViewer() == null) {
+					continue;
+				}
+				AbstractLayoutBehavior childLayoutBehavior = child.getAdapter(AbstractLayoutBehavior.class);
+				if (childLayoutBehavior != null) {
+					childLayoutBehavior.postLayout();
+				}
+			}
+		}
+		if (getHost().isVirtualized()) {
+			postLayoutVirtualNodes();
+			// visualize the nodes and edges that are moved into the viewport
+			// (which does not lead to a subsequent layout pass, so that the
+			// sizes of the new visuals are respected by the next one)
+			getHost().refreshContentChildren();
+		}
+	}
+
+	/**
+	 * Executes the post-layout of the nodes that moved during the last step of
+	 * a continuous layout, and of the edges that are incident to these nodes.
+	 */
+	private void postLayoutMovedNodes() {
+		Set<org.eclipse.gef.graph.Node> movedNodes = Collections
+				.newSetFromMap(new IdentityHashMap<org.eclipse.gef.graph.Node, Boolean>());
 		for (IVisualPart<? extends Node> child : getHost().getChildrenUnmodifiable()) {
-			// FIXME: Layout should only be triggered when content-part-map
-			// is changed, not when the children are changed.
-			if (child.getViewer() == null) {
+			if (child.getViewer() == null || !(child instanceof NodePart)) {
 				continue;
 			}
-			AbstractLayoutBehavior childLayoutBehavior = child.getAdapter(AbstractLayoutBehavior.class);
-			if (childLayoutBehavior != null) {
-				childLayoutBehavior.postLayout();
+			org.eclipse.gef.graph.Node node = ((NodePart) child).getContent();
+			Point location = LayoutProperties.getLocation(node);
+			if (continuousLayoutLocations.put(node, location) != location) {
+				movedNodes.add(node);
+				AbstractLayoutBehavior childLayoutBehavior = child.getAdapter(AbstractLayoutBehavior.class);
+				if (childLayoutBehavior != null) {
+					childLayoutBehavior.postLayout();
+				}
+			}
+		}
+		if (movedNodes.isEmpty()) {
+			return;
+		}
+		for (IVisualPart<? extends Node> child : getHost().getChildrenUnmodifiable()) {
+			if (child.getViewer() == null || !(child instanceof EdgePart)) {
+				continue;
+			}
+			Edge edge = ((EdgePart) child).getContent();
+			if (movedNodes.contains(edge.getSource()) || movedNodes.contains(edge.getTarget())) {
+				AbstractLayoutBehavior childLayoutBehavior = child.getAdapter(AbstractLayoutBehavior.class);
+				if (childLayoutBehavior != null) {
+					childLayoutBehavior.postLayout();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Transfers the layout locations to the positions of the nodes of a
+	 * virtualized graph that are not visualized (so that no
+	 * {@link NodeLayoutBehavior} does this). The sizes are not transferred,
+	 * because they are only assumed for these nodes.
+	 */
+	private void postLayoutVirtualNodes() {
+		Map<Object, IContentPart<? extends Node>> contentPartMap = getHost().getViewer().getContentPartMap();
+		for (org.eclipse.gef.graph.Node node : getHost().getContent().getNodes()) {
+			if (contentPartMap.containsKey(node)) {
+				continue;
+			}
+			Point location = LayoutProperties.getLocation(node);
+			Dimension size = LayoutProperties.getSize(node);
+			if (location != null && size != null) {
+				// location is center, position is top-left
+				Point position = location.getTranslated(-size.width / 2, -size.height / 2);
+				if (!position.equals(ZestProperties.getPosition(node))) {
+					ZestProperties.setPosition(node, position);
+				}
 			}
 		}
 	}
@@ -344,6 +668,78 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 				childLayoutBehavior.preLayout();
 			}
 		}
+		if (getHost().isVirtualized()) {
+			preLayoutVirtualNodes();
+		}
+	}
+
+	/**
+	 * Initializes the layout properties of the nodes of a virtualized graph
+	 * that are not visualized (so that no {@link NodeLayoutBehavior} does
+	 * this) from their position and size.
+	 */
+	private void preLayoutVirtualNodes() {
+		Map<Object, IContentPart<? extends Node>> contentPartMap = getHost().getViewer().getContentPartMap();
+		for (org.eclipse.gef.graph.Node node : getHost().getContent().getNodes()) {
+			if (contentPartMap.containsKey(node)) {
+				continue;
+			}
+			// prefer the size of the visual, if it was visualized before
+			Dimension size = ZestProperties.getSize(node);
+			if (size == null) {
+				size = LayoutProperties.getSize(node);
+			}
+			if (size == null) {
+				size = new Dimension(VIRTUAL_NODE_WIDTH, VIRTUAL_NODE_HEIGHT);
+			}
+			LayoutProperties.setSize(node, size.width, size.height);
+			// layout location is center while position is top-left
+			Point position = ZestProperties.getPosition(node);
+			if (position != null) {
+				LayoutProperties.setLocation(node, position.x + size.width / 2, position.y + size.height / 2);
+			} else if (LayoutProperties.getLocation(node) == null) {
+				LayoutProperties.setLocation(node, size.width / 2, size.height / 2);
+			}
+		}
+	}
+
+	/**
+	 * Schedules a layout pass for the next JavaFX pulse, so that the changes
+	 * (e.g. of the children or of the hidden nodes) that occur before are
+	 * handled by a single layout pass. A layout pass that is triggered by a
+	 * change of the layout bounds is delayed until
+	 * {@link #BOUNDS_LAYOUT_INTERVAL_MILLIS} passed since the last one, so
+	 * that resizing the viewport does not layout the graph for every frame. A
+	 * scheduled layout pass is omitted if
+	 * {@link #applyLayout(boolean, Object)} is called in the meantime.
+	 *
+	 * @param clean
+	 *            Whether to fully re-compute the layout (see
+	 *            {@link #applyLayout(boolean, Object)}).
+	 * @param bounds
+	 *            <code>true</code> if the layout pass is triggered by a change
+	 *            of the layout bounds, otherwise <code>false</code>.
+	 */
+	protected void scheduleLayout(boolean clean, boolean bounds) {
+		long time = bounds ? lastBoundsLayoutTime + BOUNDS_LAYOUT_INTERVAL_MILLIS * 1000000 : Long.MIN_VALUE;
+		if (layoutScheduled) {
+			scheduledLayoutTime = Math.min(scheduledLayoutTime, time);
+		} else {
+			layoutScheduled = true;
+			scheduledLayoutTime = time;
+			scheduledLayoutTimer.start();
+		}
+		scheduledLayoutClean |= clean;
+		scheduledLayoutForBounds |= bounds;
+	}
+
+	private void startContinuousLayout(boolean clean) {
+		if (clean) {
+			continuousLayoutLocations.clear();
+		}
+		if (getLayoutContext().startContinuousLayout(clean)) {
+			continuousLayoutTimer.start();
+		}
 	}
 
 	/**
@@ -354,7 +750,7 @@ public class GraphLayoutBehavior extends AbstractLayoutBehavior {
 		Rectangle oldBounds = LayoutProperties.getBounds(getHost().getContent());
 		if (oldBounds != newBounds && (oldBounds == null || !oldBounds.equals(newBounds))) {
 			LayoutProperties.setBounds(getHost().getContent(), newBounds);
-			applyLayout(true, null);
+			scheduleLayout(true, true);
 		}
 	}
 }
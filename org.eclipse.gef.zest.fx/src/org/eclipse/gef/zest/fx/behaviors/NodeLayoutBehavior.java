@@ -57,7 +57,8 @@ public class NodeLayoutBehavior extends AbstractLayoutBehavior {
 		// update size
 		Dimension postLayoutSize = LayoutProperties.getSize(content);
 		if (postLayoutSize != null) {
-			ZestProperties.setSize(content, postLayoutSize);
+			// copy the size, as layout algorithms may change it in place
+			ZestProperties.setSize(content, postLayoutSize.getCopy());
 		}
 
 		// location is center, position is top-left
@@ -109,17 +110,20 @@ public class NodeLayoutBehavior extends AbstractLayoutBehavior {
 
 		// System.out.println("pre layout size of " + content + ": " +
 		// preLayoutSize);
-		LayoutProperties.setSize(content, preLayoutSize.getCopy());
+		// (only changed values are written, so that no changes are published
+		// for nodes whose visuals did not change since the last layout pass)
+		LayoutProperties.setSize(content, preLayoutSize.width, preLayoutSize.height);
 
 		// initialize location (layout location is center while visual position
 		// is top-left)
-		if (ZestProperties.getPosition(content) != null) {
-			LayoutProperties.setLocation(content,
-					ZestProperties.getPosition(content).getTranslated(preLayoutSize.getScaled(0.5)));
+		Point position = ZestProperties.getPosition(content);
+		if (position != null) {
+			LayoutProperties.setLocation(content, position.x + preLayoutSize.width / 2,
+					position.y + preLayoutSize.height / 2);
 		} else {
 			// no model information available yet, use visual location
-			LayoutProperties.setLocation(content, new Point(transform.getTx() + minx + (maxx - minx) / 2,
-					transform.getTy() + miny + (maxy - miny) / 2));
+			LayoutProperties.setLocation(content, transform.getTx() + minx + (maxx - minx) / 2,
+					transform.getTy() + miny + (maxy - miny) / 2);
 		}
 
 		// additional information inferred from visual
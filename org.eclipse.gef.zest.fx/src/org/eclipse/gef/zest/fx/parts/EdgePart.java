@@ -24,6 +24,7 @@ import org.eclipse.gef.fx.nodes.IConnectionInterpolator;
 import org.eclipse.gef.fx.nodes.IConnectionRouter;
 import org.eclipse.gef.geometry.planar.Point;
 import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.layout.LayoutProperties;
 import org.eclipse.gef.mvc.fx.parts.AbstractContentPart;
 import org.eclipse.gef.mvc.fx.parts.IBendableContentPart;
 import org.eclipse.gef.mvc.fx.parts.IVisualPart;
@@ -65,16 +66,15 @@ public class EdgePart extends AbstractContentPart<Connection> implements IBendab
 
 		@Override
 		public void onChanged(MapChangeListener.Change<? extends String, ? extends Object> change) {
+			// layout results are published by the EdgeLayoutBehavior
+			if (LayoutProperties.isLayoutProperty(change.getKey())) {
+				return;
+			}
 			if (ZestProperties.ROUTER__E.equals(change.getKey())) {
-				// if the router changed, re-attach the visual (so we attach to
-				// a different anchor)
-				for (Entry<IVisualPart<? extends Node>, String> anchoragesByRole : getAnchoragesUnmodifiable()
-						.entries()) {
-					doDetachFromAnchorageVisual(anchoragesByRole.getKey(), anchoragesByRole.getValue());
-					doAttachToAnchorageVisual(anchoragesByRole.getKey(), anchoragesByRole.getValue());
-				}
+				refreshRouter();
+			} else {
+				scheduleRefreshVisual();
 			}
-			refreshVisual();
 		}
 
 	};
@@ -245,8 +245,12 @@ public class EdgePart extends AbstractContentPart<Connection> implements IBendab
 			visual.getEndDecoration().setStyle(targetDecorationCssStyle);
 		}
 
-		// connection router
+		// connection router (fall back to the router that is shared by the
+		// edges of the graph)
 		IConnectionRouter router = ZestProperties.getRouter(edge);
+		if (router == null && edge.getGraph() != null) {
+			router = ZestProperties.getRouter(edge.getGraph());
+		}
 		if (router != null) {
 			visual.setRouter(router);
 		}
@@ -352,6 +356,20 @@ public class EdgePart extends AbstractContentPart<Connection> implements IBendab
 		}
 	}
 
+	/**
+	 * Re-attaches the visual to its anchorages (so that the anchors for the
+	 * current router are used) and schedules a visual refresh. Called when
+	 * the {@link ZestProperties#ROUTER__E} attribute of the edge, or the
+	 * {@link ZestProperties#ROUTER__G} attribute of its graph changes.
+	 */
+	protected void refreshRouter() {
+		for (Entry<IVisualPart<? extends Node>, String> anchoragesByRole : getAnchoragesUnmodifiable().entries()) {
+			doDetachFromAnchorageVisual(anchoragesByRole.getKey(), anchoragesByRole.getValue());
+			doAttachToAnchorageVisual(anchoragesByRole.getKey(), anchoragesByRole.getValue());
+		}
+		scheduleRefreshVisual();
+	}
+
 	@Override
 	public void setContentBendPoints(List<org.eclipse.gef.mvc.fx.parts.IBendableContentPart.BendPoint> bendPoints) {
 		// disable refreshing of visuals
@@ -13,18 +13,32 @@
 package org.eclipse.gef.zest.fx.parts;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
+import org.eclipse.gef.fx.nodes.InfiniteCanvas;
+import org.eclipse.gef.geometry.convert.fx.FX2Geometry;
+import org.eclipse.gef.geometry.planar.Dimension;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
 import org.eclipse.gef.graph.Edge;
 import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.layout.LayoutProperties;
 import org.eclipse.gef.mvc.fx.parts.AbstractContentPart;
 import org.eclipse.gef.mvc.fx.parts.IVisualPart;
+import org.eclipse.gef.mvc.fx.viewer.InfiniteCanvasViewer;
 import org.eclipse.gef.zest.fx.ZestProperties;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.SetMultimap;
 
+import javafx.animation.AnimationTimer;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.Group;
 import javafx.scene.Node;
@@ -34,12 +48,71 @@ import javafx.util.Pair;
  * The {@link GraphPart} is the controller for a {@link Graph} content object.
  * It starts a layout pass after activation and when its content children
  * change.
+ * <p>
+ * If the root graph is virtualized (see {@link ZestProperties#VIRTUALIZED__G}
+ * ), content children are only provided for the nodes and edges that are
+ * located within the viewport of the {@link InfiniteCanvas} (extended by a
+ * margin, see {@link #VIRTUALIZATION_MARGIN_FACTOR}), as well as for the
+ * nodes that are connected by such edges. Nodes that were not positioned yet
+ * (and their edges) are always visualized. The content children are
+ * refreshed when the viewport leaves the extended region, so that parts are
+ * created (or revived from the content part pool) and removed while panning
+ * and zooming. Such changes of the children do not trigger a layout pass.
  *
  * @author mwienand
  *
  */
 public class GraphPart extends AbstractContentPart<Group> {
 
+	/**
+	 * The margin by which the viewport is extended on each side (relative to
+	 * the viewport size) to determine the nodes and edges that are visualized
+	 * when the graph is virtualized.
+	 */
+	public static final double VIRTUALIZATION_MARGIN_FACTOR = 0.5;
+
+	// the region (within the coordinate system of the visual) for which
+	// content children were determined, or null if all nodes and edges are
+	// content children
+	private Rectangle virtualizationRegion;
+
+	private MapChangeListener<String, Object> graphAttributesObserver = new MapChangeListener<String, Object>() {
+		@Override
+		public void onChanged(MapChangeListener.Change<? extends String, ? extends Object> change) {
+			if (ZestProperties.VIRTUALIZED__G.equals(change.getKey())) {
+				refreshContentChildren();
+			} else if (ZestProperties.ROUTER__G.equals(change.getKey())) {
+				// the shared router is used by the edges without own router
+				for (IVisualPart<? extends Node> child : getChildrenUnmodifiable()) {
+					if (child instanceof EdgePart
+							&& !((EdgePart) child).getContent().attributesProperty().containsKey(ZestProperties.ROUTER__E)) {
+						((EdgePart) child).refreshRouter();
+					}
+				}
+			}
+		}
+	};
+
+	private ChangeListener<Object> viewportObserver = new ChangeListener<Object>() {
+		@Override
+		public void changed(ObservableValue<? extends Object> observable, Object oldValue, Object newValue) {
+			if (virtualizationRegion != null) {
+				// check once per pulse
+				virtualizationTimer.start();
+			}
+		}
+	};
+
+	private AnimationTimer virtualizationTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			stop();
+			if (virtualizationRegion != null && !virtualizationRegion.contains(computeViewport())) {
+				refreshContentChildren();
+			}
+		}
+	};
+
 	private ListChangeListener<Object> graphChildrenObserver = new ListChangeListener<Object>() {
 
 		@Override
@@ -50,11 +123,35 @@ public class GraphPart extends AbstractContentPart<Group> {
 		}
 	};
 
+	/**
+	 * Returns the viewport of the {@link InfiniteCanvas} within the coordinate
+	 * system of the visual of this {@link GraphPart}.
+	 *
+	 * @return The viewport within the coordinate system of the visual.
+	 */
+	protected Rectangle computeViewport() {
+		InfiniteCanvas canvas = ((InfiniteCanvasViewer) getViewer()).getCanvas();
+		return FX2Geometry.toRectangle(getVisual().sceneToLocal(canvas.localToScene(canvas.getLayoutBounds())));
+	}
+
 	@Override
 	protected void doActivate() {
 		super.doActivate();
 		getContent().getNodes().addListener(graphChildrenObserver);
 		getContent().getEdges().addListener(graphChildrenObserver);
+		getContent().attributesProperty().addListener(graphAttributesObserver);
+		if (isVirtualizable()) {
+			InfiniteCanvas canvas = ((InfiniteCanvasViewer) getViewer()).getCanvas();
+			canvas.widthProperty().addListener(viewportObserver);
+			canvas.heightProperty().addListener(viewportObserver);
+			canvas.horizontalScrollOffsetProperty().addListener(viewportObserver);
+			canvas.verticalScrollOffsetProperty().addListener(viewportObserver);
+			canvas.contentTransformProperty().addListener(viewportObserver);
+			if (isVirtualized()) {
+				// the viewport is only known after activation
+				refreshContentChildren();
+			}
+		}
 	}
 
 	@Override
@@ -73,6 +170,17 @@ public class GraphPart extends AbstractContentPart<Group> {
 	protected void doDeactivate() {
 		getContent().getNodes().removeListener(graphChildrenObserver);
 		getContent().getEdges().removeListener(graphChildrenObserver);
+		getContent().attributesProperty().removeListener(graphAttributesObserver);
+		if (isVirtualizable()) {
+			InfiniteCanvas canvas = ((InfiniteCanvasViewer) getViewer()).getCanvas();
+			canvas.widthProperty().removeListener(viewportObserver);
+			canvas.heightProperty().removeListener(viewportObserver);
+			canvas.horizontalScrollOffsetProperty().removeListener(viewportObserver);
+			canvas.verticalScrollOffsetProperty().removeListener(viewportObserver);
+			canvas.contentTransformProperty().removeListener(viewportObserver);
+		}
+		virtualizationTimer.stop();
+		virtualizationRegion = null;
 
 		super.doDeactivate();
 	}
@@ -85,20 +193,29 @@ public class GraphPart extends AbstractContentPart<Group> {
 	@Override
 	protected List<? extends Object> doGetContentChildren() {
 		List<Object> children = new ArrayList<>();
+		// determine the region in which nodes and edges are visualized
+		virtualizationRegion = null;
+		if (isVirtualized() && isActive()) {
+			Rectangle viewport = computeViewport();
+			virtualizationRegion = viewport.getExpanded(viewport.getWidth() * VIRTUALIZATION_MARGIN_FACTOR,
+					viewport.getHeight() * VIRTUALIZATION_MARGIN_FACTOR);
+		}
 		// collect visible nodes
 		ObservableList<org.eclipse.gef.graph.Node> nodes = getContent().getNodes();
-		ArrayList<org.eclipse.gef.graph.Node> visibleNodes = new ArrayList<>();
+		Set<org.eclipse.gef.graph.Node> visualizedNodes = Collections
+				.newSetFromMap(new IdentityHashMap<org.eclipse.gef.graph.Node, Boolean>());
 		for (org.eclipse.gef.graph.Node n : nodes) {
 			if (!Boolean.TRUE.equals(ZestProperties.getInvisible(n))) {
-				visibleNodes.add(n);
-			}
-		}
-		// add visible nodes
-		children.addAll(visibleNodes);
-		// add labels for visible nodes
-		for (org.eclipse.gef.graph.Node n : visibleNodes) {
-			if (ZestProperties.getExternalLabel(n) != null) {
-				children.add(new Pair<>(n, ZestProperties.EXTERNAL_LABEL__NE));
+				if (virtualizationRegion == null) {
+					visualizedNodes.add(n);
+				} else {
+					// nodes that were not positioned yet are visualized, so
+					// that they are positioned by their visuals
+					Rectangle bounds = getNodeBounds(n);
+					if (bounds == null || virtualizationRegion.touches(bounds)) {
+						visualizedNodes.add(n);
+					}
+				}
 			}
 		}
 		// collect visible edges
@@ -108,7 +225,35 @@ public class GraphPart extends AbstractContentPart<Group> {
 			if (!Boolean.TRUE.equals(ZestProperties.getInvisible(e)) && e.getSource() != null
 					&& !Boolean.TRUE.equals(ZestProperties.getInvisible(e.getSource())) && e.getTarget() != null
 					&& !Boolean.TRUE.equals(ZestProperties.getInvisible(e.getTarget()))) {
-				visibleEdges.add(e);
+				if (virtualizationRegion == null) {
+					visibleEdges.add(e);
+				} else {
+					// an edge is visualized if it (potentially) crosses the
+					// region or connects a node that was not positioned yet,
+					// together with the nodes it connects
+					Rectangle sourceBounds = getNodeBounds(e.getSource());
+					Rectangle targetBounds = getNodeBounds(e.getTarget());
+					if (sourceBounds == null || targetBounds == null
+							|| virtualizationRegion.touches(sourceBounds.getUnioned(targetBounds))) {
+						visibleEdges.add(e);
+						visualizedNodes.add(e.getSource());
+						visualizedNodes.add(e.getTarget());
+					}
+				}
+			}
+		}
+		// add visible nodes (in the order of the graph)
+		ArrayList<org.eclipse.gef.graph.Node> visibleNodes = new ArrayList<>();
+		for (org.eclipse.gef.graph.Node n : nodes) {
+			if (visualizedNodes.contains(n)) {
+				visibleNodes.add(n);
+			}
+		}
+		children.addAll(visibleNodes);
+		// add labels for visible nodes
+		for (org.eclipse.gef.graph.Node n : visibleNodes) {
+			if (ZestProperties.getExternalLabel(n) != null) {
+				children.add(new Pair<>(n, ZestProperties.EXTERNAL_LABEL__NE));
 			}
 		}
 		// add visible edges
@@ -145,8 +290,41 @@ public class GraphPart extends AbstractContentPart<Group> {
 		return (Graph) super.getContent();
 	}
 
+	// the bounds of the given node within the coordinate system of the visual,
+	// or null if the node was not positioned yet
+	private Rectangle getNodeBounds(org.eclipse.gef.graph.Node node) {
+		Point position = ZestProperties.getPosition(node);
+		if (position == null) {
+			return null;
+		}
+		Dimension size = ZestProperties.getSize(node);
+		if (size == null) {
+			size = LayoutProperties.getSize(node);
+		}
+		return size == null ? new Rectangle(position, new Dimension()) : new Rectangle(position, size);
+	}
+
 	@Override
 	public boolean isSelectable() {
 		return false;
 	}
+
+	// only the root graph can be virtualized, because nested graphs are
+	// scaled down, so that the viewport does not limit their visuals
+	private boolean isVirtualizable() {
+		return getViewer() instanceof InfiniteCanvasViewer && getParent() == getRoot();
+	}
+
+	/**
+	 * Returns whether the content children of this {@link GraphPart} are
+	 * restricted to the nodes and edges within (or near) the viewport, i.e.
+	 * whether {@link ZestProperties#VIRTUALIZED__G} is set for the root
+	 * graph.
+	 *
+	 * @return <code>true</code> if this {@link GraphPart} is virtualized,
+	 *         otherwise <code>false</code>.
+	 */
+	public boolean isVirtualized() {
+		return Boolean.TRUE.equals(ZestProperties.getVirtualized(getContent())) && isVirtualizable();
+	}
 }
@@ -15,8 +15,10 @@ package org.eclipse.gef.zest.fx.parts;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.gef.fx.nodes.GeometryNode;
 import org.eclipse.gef.fx.utils.NodeUtils;
@@ -24,6 +26,7 @@ import org.eclipse.gef.geometry.convert.fx.FX2Geometry;
 import org.eclipse.gef.geometry.planar.Dimension;
 import org.eclipse.gef.geometry.planar.Point;
 import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.layout.LayoutProperties;
 import org.eclipse.gef.mvc.fx.parts.AbstractContentPart;
 import org.eclipse.gef.mvc.fx.parts.IResizableContentPart;
 import org.eclipse.gef.mvc.fx.parts.ITransformableContentPart;
@@ -168,10 +171,20 @@ public class NodePart extends AbstractContentPart<Group>
 
 	private static final String NODE_LABEL_EMPTY = "";
 
+	// attributes that only affect a single sub-visual, so that the visual does
+	// not need to be refreshed as a whole when (only) these change
+	private static final Set<Object> PARTIAL_REFRESH_ATTRIBUTES = new HashSet<>(Arrays.<Object> asList(
+			ZestProperties.POSITION__N, ZestProperties.SIZE__N, ZestProperties.LABEL__NE, ZestProperties.ICON__N,
+			ZestProperties.TOOLTIP__N));
+
 	private MapChangeListener<String, Object> nodeAttributesObserver = new MapChangeListener<String, Object>() {
 		@Override
 		public void onChanged(MapChangeListener.Change<? extends String, ? extends Object> change) {
-			refreshVisual();
+			// layout results are published by the NodeLayoutBehavior
+			if (!LayoutProperties.isLayoutProperty(change.getKey())) {
+				// coalesce the refreshes for subsequent changes
+				scheduleRefreshVisual(change.getKey());
+			}
 		}
 	};
 
@@ -435,23 +448,35 @@ public class NodePart extends AbstractContentPart<Group>
 		refreshLabel();
 		refreshIcon();
 		refreshTooltip();
+		refreshPosition();
+		refreshSize();
+	}
 
-		Point position = ZestProperties.getPosition(node);
-		if (position != null) {
-			Affine newTransform = new Affine(new Translate(position.x, position.y));
-			if (!NodeUtils.equals(getVisualTransform(), newTransform)) {
-				setVisualTransform(newTransform);
-			}
+	@Override
+	protected void doRefreshVisual(Group visual, Set<Object> aspects) {
+		if (getContent() == null) {
+			throw new IllegalStateException();
 		}
-
-		Dimension size = ZestProperties.getSize(node);
-		if (size != null) {
-			// XXX: Resize is needed even though the visual size is already
-			// up-to-date, because otherwise a nesting node might be resized to
-			// 0, 0 (unknown reason, need debug).
-			getVisual().resize(size.width, size.height);
-		} else {
-			getVisual().autosize();
+		if (!PARTIAL_REFRESH_ATTRIBUTES.containsAll(aspects)) {
+			doRefreshVisual(visual);
+			return;
+		}
+		if (aspects.contains(ZestProperties.LABEL__NE)) {
+			refreshLabel();
+		}
+		if (aspects.contains(ZestProperties.ICON__N)) {
+			refreshIcon();
+		}
+		if (aspects.contains(ZestProperties.TOOLTIP__N)) {
+			refreshTooltip();
+		}
+		if (aspects.contains(ZestProperties.POSITION__N)) {
+			refreshPosition();
+		}
+		// the size depends on the label and icon if it is computed
+		if (aspects.contains(ZestProperties.SIZE__N) || aspects.contains(ZestProperties.LABEL__NE)
+				|| aspects.contains(ZestProperties.ICON__N)) {
+			refreshSize();
 		}
 	}
 
@@ -576,6 +601,16 @@ public class NodePart extends AbstractContentPart<Group>
 		}
 	}
 
+	private void refreshPosition() {
+		Point position = ZestProperties.getPosition(getContent());
+		if (position != null) {
+			Affine newTransform = new Affine(new Translate(position.x, position.y));
+			if (!NodeUtils.equals(getVisualTransform(), newTransform)) {
+				setVisualTransform(newTransform);
+			}
+		}
+	}
+
 	private void refreshShape() {
 		Node shape = ZestProperties.getShape(getContent());
 		if (this.shape != shape && shape != null) {
@@ -593,6 +628,18 @@ public class NodePart extends AbstractContentPart<Group>
 		}
 	}
 
+	private void refreshSize() {
+		Dimension size = ZestProperties.getSize(getContent());
+		if (size != null) {
+			// XXX: Resize is needed even though the visual size is already
+			// up-to-date, because otherwise a nesting node might be resized to
+			// 0, 0 (unknown reason, need debug).
+			getVisual().resize(size.width, size.height);
+		} else {
+			getVisual().autosize();
+		}
+	}
+
 	/**
 	 * Changes the tooltip of this {@link NodePart} to the given value.
 	 *
@@ -17,6 +17,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ NodeLayoutBehaviorTests.class })
+@SuiteClasses({ EdgePartTests.class, GraphLayoutBehaviorTests.class, GraphPartVirtualizationTests.class,
+		NodeLayoutBehaviorTests.class, NodePartTests.class })
 public class AllTests {
 }
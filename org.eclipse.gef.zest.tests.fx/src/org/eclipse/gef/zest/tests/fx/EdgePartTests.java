@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.zest.tests.fx;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gef.common.adapt.AdapterKey;
+import org.eclipse.gef.fx.nodes.Connection;
+import org.eclipse.gef.fx.nodes.IConnectionRouter;
+import org.eclipse.gef.fx.nodes.ObstacleAvoidingOrthogonalRouter;
+import org.eclipse.gef.fx.nodes.StraightRouter;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.mvc.fx.domain.IDomain;
+import org.eclipse.gef.mvc.fx.viewer.IViewer;
+import org.eclipse.gef.mvc.fx.viewer.InfiniteCanvasViewer;
+import org.eclipse.gef.mvc.tests.fx.rules.FXNonApplicationThreadRule;
+import org.eclipse.gef.zest.fx.ZestFxModule;
+import org.eclipse.gef.zest.fx.ZestProperties;
+import org.eclipse.gef.zest.fx.parts.EdgePart;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Tests for the router that is shared by the edges of a graph (see
+ * {@link ZestProperties#ROUTER__G}).
+ *
+ * @author agent
+ *
+ */
+public class EdgePartTests {
+
+	/**
+	 * Records the size of the largest batch of routed connections.
+	 */
+	private static class BatchRecordingRouter extends ObstacleAvoidingOrthogonalRouter {
+
+		private int maxBatchSize = 0;
+
+		@Override
+		public void route(List<Connection> connections) {
+			maxBatchSize = Math.max(maxBatchSize, connections.size());
+			super.route(connections);
+		}
+	}
+
+	@Rule
+	public FXNonApplicationThreadRule ctx = new FXNonApplicationThreadRule();
+
+	private IDomain domain;
+	private InfiniteCanvasViewer viewer;
+	private Graph graph;
+	private BatchRecordingRouter sharedRouter = new BatchRecordingRouter();
+
+	@Before
+	public void activate() throws Throwable {
+		domain = Guice.createInjector(new ZestFxModule()).getInstance(IDomain.class);
+		viewer = (InfiniteCanvasViewer) domain.getAdapter(AdapterKey.get(IViewer.class, IDomain.CONTENT_VIEWER_ROLE));
+		ctx.createScene(viewer.getCanvas(), 400, 400);
+
+		// a row of nodes, each connected to its successor
+		List<Node> nodes = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Node node = new Node();
+			ZestProperties.setPosition(node, new Point(i * 100, 0));
+			nodes.add(node);
+			if (i > 0) {
+				edges.add(new Edge(nodes.get(i - 1), node));
+			}
+		}
+		graph = new Graph(nodes, edges);
+		ZestProperties.setRouter(graph, sharedRouter);
+
+		ctx.runAndWait(() -> {
+			domain.activate();
+			viewer.getContents().setAll(Collections.singletonList(graph));
+		});
+	}
+
+	@After
+	public void deactivate() throws Throwable {
+		ctx.runAndWait(() -> {
+			viewer.getContents().clear();
+			domain.deactivate();
+		});
+	}
+
+	private IConnectionRouter getRouter(Edge edge) {
+		return ((EdgePart) viewer.getContentPartMap().get(edge)).getVisual().getRouter();
+	}
+
+	private void waitForPulses(int count) throws Throwable {
+		final CountDownLatch latch = new CountDownLatch(count);
+		final AnimationTimer timer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				latch.countDown();
+				if (latch.getCount() == 0) {
+					stop();
+				}
+			}
+		};
+		ctx.runAndWait(() -> {
+			timer.start();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void edgeRouterOverridesSharedRouter() throws Throwable {
+		final Edge edge = graph.getEdges().get(0);
+		final StraightRouter router = new StraightRouter();
+		ctx.runAndWait(() -> {
+			ZestProperties.setRouter(edge, router);
+		});
+		waitForPulses(2);
+		assertSame(router, getRouter(edge));
+		assertSame(sharedRouter, getRouter(graph.getEdges().get(1)));
+	}
+
+	@Test
+	public void edgesShareGraphRouter() throws Throwable {
+		waitForPulses(2);
+		for (Edge edge : graph.getEdges()) {
+			assertSame(sharedRouter, getRouter(edge));
+		}
+
+		// moving all nodes within one pulse routes the edges in one batch
+		sharedRouter.maxBatchSize = 0;
+		ctx.runAndWait(() -> {
+			for (Node node : graph.getNodes()) {
+				ZestProperties.setPosition(node, ZestProperties.getPosition(node).getTranslated(0, 50));
+			}
+		});
+		waitForPulses(2);
+		assertTrue(sharedRouter.maxBatchSize > 1);
+
+		// changing the shared router updates all edges
+		final BatchRecordingRouter otherRouter = new BatchRecordingRouter();
+		ctx.runAndWait(() -> {
+			ZestProperties.setRouter(graph, otherRouter);
+		});
+		waitForPulses(2);
+		for (Edge edge : Arrays.asList(graph.getEdges().get(0), graph.getEdges().get(3))) {
+			assertSame(otherRouter, getRouter(edge));
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.zest.tests.fx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.gef.common.adapt.AdapterKey;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.geometry.planar.Rectangle;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.mvc.fx.domain.IDomain;
+import org.eclipse.gef.mvc.fx.viewer.IViewer;
+import org.eclipse.gef.mvc.fx.viewer.InfiniteCanvasViewer;
+import org.eclipse.gef.mvc.tests.fx.rules.FXNonApplicationThreadRule;
+import org.eclipse.gef.zest.fx.ZestFxModule;
+import org.eclipse.gef.zest.fx.ZestProperties;
+import org.eclipse.gef.zest.fx.behaviors.GraphLayoutBehavior;
+import org.eclipse.gef.zest.fx.parts.GraphPart;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Tests that the {@link GraphLayoutBehavior} coalesces the changes within one
+ * pulse into a single layout pass, and that the layout passes that are
+ * triggered by changes of the layout bounds are throttled (see
+ * {@link GraphLayoutBehavior#BOUNDS_LAYOUT_INTERVAL_MILLIS}).
+ *
+ * @author agent
+ *
+ */
+public class GraphLayoutBehaviorTests {
+
+	/**
+	 * Uses layout bounds that can be changed by the test, independent of the
+	 * size of the viewport.
+	 */
+	public static class ResizableGraphLayoutBehavior extends GraphLayoutBehavior {
+
+		private Rectangle bounds = new Rectangle(0, 0, 400, 400);
+
+		@Override
+		protected Rectangle computeLayoutBounds() {
+			return bounds.getCopy();
+		}
+
+		public void resize(double width, double height) {
+			bounds = new Rectangle(0, 0, width, height);
+			updateBounds();
+		}
+	}
+
+	@Rule
+	public FXNonApplicationThreadRule ctx = new FXNonApplicationThreadRule();
+
+	private IDomain domain;
+	private InfiniteCanvasViewer viewer;
+	private Graph graph;
+	private AtomicInteger layoutPasses = new AtomicInteger();
+
+	@Before
+	public void activate() throws Throwable {
+		domain = Guice.createInjector(new ZestFxModule() {
+			@Override
+			protected void configure() {
+				super.configure();
+				binder().bind(GraphLayoutBehavior.class).to(ResizableGraphLayoutBehavior.class);
+			}
+		}).getInstance(IDomain.class);
+		viewer = (InfiniteCanvasViewer) domain.getAdapter(AdapterKey.get(IViewer.class, IDomain.CONTENT_VIEWER_ROLE));
+		ctx.createScene(viewer.getCanvas(), 400, 400);
+
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Node node = new Node();
+			ZestProperties.setPosition(node, new Point(i * 50, 0));
+			nodes.add(node);
+		}
+		graph = new Graph(nodes, Collections.<Edge> emptyList());
+		ZestProperties.setLayoutAlgorithm(graph, new ILayoutAlgorithm() {
+			@Override
+			public void applyLayout(LayoutContext layoutContext, boolean clean) {
+				layoutPasses.incrementAndGet();
+			}
+		});
+
+		ctx.runAndWait(() -> {
+			domain.activate();
+			viewer.getContents().setAll(Collections.singletonList(graph));
+		});
+		waitForPulses(2);
+		// let a bounds-triggered layout pass be due immediately
+		Thread.sleep(2 * GraphLayoutBehavior.BOUNDS_LAYOUT_INTERVAL_MILLIS);
+	}
+
+	@After
+	public void deactivate() throws Throwable {
+		ctx.runAndWait(() -> {
+			viewer.getContents().clear();
+			domain.deactivate();
+		});
+	}
+
+	private ResizableGraphLayoutBehavior getLayoutBehavior() {
+		return (ResizableGraphLayoutBehavior) ((GraphPart) viewer.getContentPartMap().get(graph))
+				.getAdapter(GraphLayoutBehavior.class);
+	}
+
+	private void waitForPulses(int count) throws Throwable {
+		final CountDownLatch latch = new CountDownLatch(count);
+		final AnimationTimer timer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				latch.countDown();
+				if (latch.getCount() == 0) {
+					stop();
+				}
+			}
+		};
+		ctx.runAndWait(() -> {
+			timer.start();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void boundsLayoutPassesAreThrottled() throws Throwable {
+		final int resizes = 30;
+		final CountDownLatch latch = new CountDownLatch(resizes);
+		final long[] interval = new long[2];
+		final AnimationTimer timer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				// change the layout bounds in every pulse
+				if (latch.getCount() == resizes) {
+					interval[0] = now;
+				}
+				getLayoutBehavior().resize(400 + latch.getCount(), 400);
+				interval[1] = now;
+				latch.countDown();
+				if (latch.getCount() == 0) {
+					stop();
+				}
+			}
+		};
+		layoutPasses.set(0);
+		ctx.runAndWait(() -> {
+			timer.start();
+		});
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Thread.sleep(2 * GraphLayoutBehavior.BOUNDS_LAYOUT_INTERVAL_MILLIS);
+		waitForPulses(2);
+
+		// at most one layout pass per interval, and a final pass for the last
+		// change
+		long elapsedMillis = (interval[1] - interval[0]) / 1000000;
+		assertTrue(layoutPasses.get() >= 1);
+		assertTrue(layoutPasses.get() + " layout passes within " + elapsedMillis + "ms",
+				layoutPasses.get() <= elapsedMillis / GraphLayoutBehavior.BOUNDS_LAYOUT_INTERVAL_MILLIS + 2);
+	}
+
+	@Test
+	public void changesWithinPulseCauseSingleLayoutPass() throws Throwable {
+		layoutPasses.set(0);
+		ctx.runAndWait(() -> {
+			for (int i = 0; i < 10; i++) {
+				Node node = new Node();
+				ZestProperties.setPosition(node, new Point(i * 50, 100));
+				graph.getNodes().add(node);
+				getLayoutBehavior().resize(400 + i, 400 + i);
+			}
+			graph.getNodes().remove(0);
+			assertEquals(0, layoutPasses.get());
+		});
+		waitForPulses(2);
+		assertEquals(1, layoutPasses.get());
+
+		// no further layout pass is pending
+		Thread.sleep(2 * GraphLayoutBehavior.BOUNDS_LAYOUT_INTERVAL_MILLIS);
+		waitForPulses(2);
+		assertEquals(1, layoutPasses.get());
+	}
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.zest.tests.fx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.gef.common.adapt.AdapterKey;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.layout.ILayoutAlgorithm;
+import org.eclipse.gef.layout.LayoutContext;
+import org.eclipse.gef.mvc.fx.behaviors.ContentPartPool;
+import org.eclipse.gef.mvc.fx.domain.IDomain;
+import org.eclipse.gef.mvc.fx.parts.IContentPart;
+import org.eclipse.gef.mvc.fx.viewer.IViewer;
+import org.eclipse.gef.mvc.fx.viewer.InfiniteCanvasViewer;
+import org.eclipse.gef.mvc.tests.fx.rules.FXNonApplicationThreadRule;
+import org.eclipse.gef.zest.fx.ZestFxModule;
+import org.eclipse.gef.zest.fx.ZestProperties;
+import org.eclipse.gef.zest.fx.parts.GraphPart;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Tests for the virtualized mode of the {@link GraphPart} (see
+ * {@link ZestProperties#VIRTUALIZED__G}).
+ *
+ * @author agent
+ *
+ */
+public class GraphPartVirtualizationTests {
+
+	/**
+	 * The distance between the nodes of the grid.
+	 */
+	private static final double SPACING = 200;
+
+	/**
+	 * The number of nodes per row and column of the grid.
+	 */
+	private static final int GRID_SIZE = 16;
+
+	/**
+	 * The size of the viewport.
+	 */
+	private static final double VIEWPORT_SIZE = 400;
+
+	@Rule
+	public FXNonApplicationThreadRule ctx = new FXNonApplicationThreadRule();
+
+	private IDomain domain;
+	private InfiniteCanvasViewer viewer;
+	private Graph graph;
+	private Node[][] grid;
+	private AtomicInteger layoutPasses = new AtomicInteger();
+
+	@Before
+	public void activate() throws Throwable {
+		domain = Guice.createInjector(new ZestFxModule()).getInstance(IDomain.class);
+		viewer = (InfiniteCanvasViewer) domain.getAdapter(AdapterKey.get(IViewer.class, IDomain.CONTENT_VIEWER_ROLE));
+		ctx.createScene(viewer.getCanvas(), VIEWPORT_SIZE, VIEWPORT_SIZE);
+
+		// a grid of nodes that is much larger than the viewport, connected
+		// by horizontal edges
+		List<Node> nodes = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
+		grid = new Node[GRID_SIZE][GRID_SIZE];
+		for (int i = 0; i < GRID_SIZE; i++) {
+			for (int j = 0; j < GRID_SIZE; j++) {
+				grid[i][j] = new Node();
+				ZestProperties.setPosition(grid[i][j], new Point(i * SPACING, j * SPACING));
+				nodes.add(grid[i][j]);
+				if (i > 0) {
+					edges.add(new Edge(grid[i - 1][j], grid[i][j]));
+				}
+			}
+		}
+		graph = new Graph(nodes, edges);
+		ZestProperties.setVirtualized(graph, true);
+		// the layout algorithm does not change the positions, but counts the
+		// layout passes
+		ZestProperties.setLayoutAlgorithm(graph, new ILayoutAlgorithm() {
+			@Override
+			public void applyLayout(LayoutContext layoutContext, boolean clean) {
+				layoutPasses.incrementAndGet();
+			}
+		});
+
+		ctx.runAndWait(() -> {
+			domain.activate();
+			viewer.getContents().setAll(Collections.singletonList(graph));
+		});
+	}
+
+	@After
+	public void deactivate() throws Throwable {
+		ctx.runAndWait(() -> {
+			viewer.getContents().clear();
+			domain.deactivate();
+		});
+	}
+
+	private boolean isVisualized(Object content) {
+		return viewer.getContentPartMap().containsKey(content);
+	}
+
+	private void scrollTo(final double x, final double y) throws Throwable {
+		ctx.runAndWait(() -> {
+			viewer.getCanvas().setHorizontalScrollOffset(-x);
+			viewer.getCanvas().setVerticalScrollOffset(-y);
+		});
+		// the content children are refreshed within the next pulse, and a
+		// (wrongly) scheduled layout pass within the pulse thereafter
+		waitForPulses(3);
+	}
+
+	private void waitForPulses(int count) throws Throwable {
+		final CountDownLatch latch = new CountDownLatch(count);
+		final AnimationTimer timer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				latch.countDown();
+				if (latch.getCount() == 0) {
+					stop();
+				}
+			}
+		};
+		ctx.runAndWait(() -> {
+			timer.start();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void changeOfGraphTriggersLayout() throws Throwable {
+		int passes = layoutPasses.get();
+		final Node node = new Node();
+		ZestProperties.setPosition(node, new Point(SPACING / 2, SPACING / 2));
+		ctx.runAndWait(() -> {
+			graph.getNodes().add(node);
+		});
+		waitForPulses(3);
+		assertTrue(isVisualized(node));
+		assertTrue(layoutPasses.get() > passes);
+	}
+
+	@Test
+	public void materializeNodesNearViewport() throws Throwable {
+		// the viewport is extended by half its size on each side
+		assertTrue(isVisualized(grid[0][0]));
+		assertTrue(isVisualized(grid[2][2]));
+		assertFalse(isVisualized(grid[4][4]));
+		assertFalse(isVisualized(grid[GRID_SIZE - 1][GRID_SIZE - 1]));
+		assertTrue(isVisualized(graph.getEdges().get(0)));
+
+		// nodes and edges are materialized when they are scrolled into view
+		double far = (GRID_SIZE - 1) * SPACING - VIEWPORT_SIZE / 2;
+		scrollTo(far, far);
+		assertTrue(isVisualized(grid[GRID_SIZE - 1][GRID_SIZE - 1]));
+		assertFalse(isVisualized(grid[0][0]));
+		// the nodes of visualized edges are visualized as well
+		for (Edge edge : graph.getEdges()) {
+			if (isVisualized(edge)) {
+				assertTrue(isVisualized(edge.getSource()));
+				assertTrue(isVisualized(edge.getTarget()));
+			}
+		}
+	}
+
+	@Test
+	public void materializeUnpositionedNodes() throws Throwable {
+		// a node without position is visualized, together with its edge to a
+		// node that is far away
+		final Node node = new Node();
+		final Edge edge = new Edge(node, grid[GRID_SIZE - 1][GRID_SIZE - 1]);
+		ctx.runAndWait(() -> {
+			graph.getNodes().add(node);
+			graph.getEdges().add(edge);
+		});
+		assertTrue(isVisualized(node));
+		assertTrue(isVisualized(edge));
+		assertTrue(isVisualized(grid[GRID_SIZE - 1][GRID_SIZE - 1]));
+	}
+
+	@Test
+	public void recyclePartsWhenScrolling() throws Throwable {
+		IContentPart<? extends javafx.scene.Node> part = viewer.getContentPartMap().get(grid[0][0]);
+		ContentPartPool pool = viewer.getAdapter(ContentPartPool.class);
+
+		// the parts that leave the viewport are pooled
+		double far = (GRID_SIZE - 1) * SPACING - VIEWPORT_SIZE / 2;
+		scrollTo(far, far);
+		assertFalse(isVisualized(grid[0][0]));
+		assertTrue(pool.getPooled().contains(part));
+
+		// and revived when they are scrolled into view again
+		scrollTo(0, 0);
+		assertSame(part, viewer.getContentPartMap().get(grid[0][0]));
+		assertFalse(pool.getPooled().contains(part));
+	}
+
+	@Test
+	public void scrollingDoesNotTriggerLayout() throws Throwable {
+		int passes = layoutPasses.get();
+		double far = (GRID_SIZE - 1) * SPACING - VIEWPORT_SIZE / 2;
+		scrollTo(far, far);
+		scrollTo(0, far);
+		scrollTo(0, 0);
+		assertEquals(passes, layoutPasses.get());
+	}
+}
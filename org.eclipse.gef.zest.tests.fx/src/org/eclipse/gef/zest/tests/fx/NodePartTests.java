@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2017 itemis AG and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.gef.zest.tests.fx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gef.common.adapt.AdapterKey;
+import org.eclipse.gef.common.adapt.inject.AdaptableScopes;
+import org.eclipse.gef.geometry.planar.Point;
+import org.eclipse.gef.graph.Edge;
+import org.eclipse.gef.graph.Graph;
+import org.eclipse.gef.graph.Node;
+import org.eclipse.gef.mvc.fx.domain.IDomain;
+import org.eclipse.gef.mvc.fx.parts.IContentPart;
+import org.eclipse.gef.mvc.fx.parts.IContentPartFactory;
+import org.eclipse.gef.mvc.fx.viewer.IViewer;
+import org.eclipse.gef.mvc.fx.viewer.InfiniteCanvasViewer;
+import org.eclipse.gef.mvc.tests.fx.rules.FXNonApplicationThreadRule;
+import org.eclipse.gef.zest.fx.ZestFxModule;
+import org.eclipse.gef.zest.fx.ZestProperties;
+import org.eclipse.gef.zest.fx.parts.NodePart;
+import org.eclipse.gef.zest.fx.parts.ZestFxContentPartFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Group;
+
+/**
+ * Tests that the attribute changes of a {@link Node} are coalesced into one
+ * visual refresh per pulse, and that changes of the partially refreshed
+ * attributes (e.g. {@link ZestProperties#POSITION__N}) do not cause a full
+ * refresh of the {@link NodePart}.
+ *
+ * @author agent
+ *
+ */
+public class NodePartTests {
+
+	/**
+	 * Counts the full visual refreshes.
+	 */
+	private static class RefreshCountingNodePart extends NodePart {
+
+		private int fullRefreshes = 0;
+
+		@Override
+		protected void doRefreshVisual(Group visual) {
+			fullRefreshes++;
+			super.doRefreshVisual(visual);
+		}
+
+		public String getLabel() {
+			return getLabelText().getText();
+		}
+	}
+
+	/**
+	 * Creates {@link RefreshCountingNodePart}s for the nodes.
+	 */
+	private static class RefreshCountingContentPartFactory extends ZestFxContentPartFactory {
+
+		@Inject
+		private Injector injector;
+
+		@Override
+		public IContentPart<? extends javafx.scene.Node> createContentPart(Object content,
+				Map<Object, Object> contextMap) {
+			if (content instanceof Node) {
+				NodePart part = new RefreshCountingNodePart();
+				injector.injectMembers(part);
+				return part;
+			}
+			return super.createContentPart(content, contextMap);
+		}
+	}
+
+	@Rule
+	public FXNonApplicationThreadRule ctx = new FXNonApplicationThreadRule();
+
+	private IDomain domain;
+	private InfiniteCanvasViewer viewer;
+	private Graph graph;
+	private Node node;
+
+	@Before
+	public void activate() throws Throwable {
+		domain = Guice.createInjector(new ZestFxModule() {
+			@Override
+			protected void bindIContentPartFactory() {
+				binder().bind(IContentPartFactory.class).to(RefreshCountingContentPartFactory.class)
+						.in(AdaptableScopes.typed(IViewer.class));
+			}
+		}).getInstance(IDomain.class);
+		viewer = (InfiniteCanvasViewer) domain.getAdapter(AdapterKey.get(IViewer.class, IDomain.CONTENT_VIEWER_ROLE));
+		ctx.createScene(viewer.getCanvas(), 400, 400);
+
+		node = new Node();
+		ZestProperties.setPosition(node, new Point(0, 0));
+		ZestProperties.setLabel(node, "initial");
+		graph = new Graph(Collections.singletonList(node), Collections.<Edge> emptyList());
+
+		ctx.runAndWait(() -> {
+			domain.activate();
+			viewer.getContents().setAll(Collections.singletonList(graph));
+		});
+		waitForPulses(2);
+		getNodePart().fullRefreshes = 0;
+	}
+
+	@After
+	public void deactivate() throws Throwable {
+		ctx.runAndWait(() -> {
+			viewer.getContents().clear();
+			domain.deactivate();
+		});
+	}
+
+	private RefreshCountingNodePart getNodePart() {
+		return (RefreshCountingNodePart) viewer.getContentPartMap().get(node);
+	}
+
+	private void waitForPulses(int count) throws Throwable {
+		final CountDownLatch latch = new CountDownLatch(count);
+		final AnimationTimer timer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				latch.countDown();
+				if (latch.getCount() == 0) {
+					stop();
+				}
+			}
+		};
+		ctx.runAndWait(() -> {
+			timer.start();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void changesWithinPulseCauseSingleRefresh() throws Throwable {
+		// a non-partial attribute change within one pulse leads to a single
+		// full refresh, which also applies the other changes
+		ctx.runAndWait(() -> {
+			ZestProperties.setCssClass(node, "first");
+			ZestProperties.setLabel(node, "changed");
+			ZestProperties.setTooltip(node, "tooltip");
+			ZestProperties.setPosition(node, new Point(10, 20));
+			ZestProperties.setCssClass(node, "second");
+			assertEquals(0, getNodePart().fullRefreshes);
+		});
+		waitForPulses(2);
+		assertEquals(1, getNodePart().fullRefreshes);
+		assertEquals("changed", getNodePart().getLabel());
+		assertEquals(10, getNodePart().getVisualTransform().getTx(), 0);
+		assertEquals(20, getNodePart().getVisualTransform().getTy(), 0);
+	}
+
+	@Test
+	public void positionChangeSkipsFullRefresh() throws Throwable {
+		ctx.runAndWait(() -> {
+			ZestProperties.setPosition(node, new Point(10, 20));
+			ZestProperties.setPosition(node, new Point(30, 40));
+		});
+		waitForPulses(2);
+		assertEquals(0, getNodePart().fullRefreshes);
+		assertEquals(30, getNodePart().getVisualTransform().getTx(), 0);
+		assertEquals(40, getNodePart().getVisualTransform().getTy(), 0);
+
+		// label changes are refreshed partially as well
+		ctx.runAndWait(() -> {
+			ZestProperties.setLabel(node, "changed");
+			ZestProperties.setPosition(node, new Point(50, 60));
+		});
+		waitForPulses(2);
+		assertEquals(0, getNodePart().fullRefreshes);
+		assertEquals("changed", getNodePart().getLabel());
+		assertEquals(50, getNodePart().getVisualTransform().getTx(), 0);
+	}
+}